@@ -0,0 +1,118 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Builds repeatable islands and games of any size for the benchmarks.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+final class BenchmarkIslands {
+
+    private BenchmarkIslands() {
+    }
+
+    /**
+     * Creates a size x size island surrounded by water with patches of every
+     * kind of land inside. The same seed always gives the same island.
+     *
+     * @param size number of rows and columns
+     * @param seed random seed
+     * @return the island
+     */
+    static Island create(int size, long seed) {
+        Island island = new Island(size, size);
+        Random random = new Random(seed);
+        Terrain[] land = {Terrain.SAND, Terrain.FOREST, Terrain.WETLAND, Terrain.SCRUB};
+        // coarse random grid, each coarse cell covers patch x patch squares
+        int patch = 8;
+        int coarse = size / patch + 1;
+        Terrain[] patches = new Terrain[coarse * coarse];
+        for (int i = 0; i < patches.length; i++) {
+            int pick = random.nextInt(10);
+            patches[i] = pick == 0 ? Terrain.WATER : land[pick % land.length];
+        }
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                boolean edge = row == 0 || col == 0 || row == size - 1 || col == size - 1;
+                Terrain terrain = edge ? Terrain.WATER : patches[(row / patch) * coarse + col / patch];
+                island.getGridSquare(row, col).setTerrain(terrain);
+            }
+        }
+        return island;
+    }
+
+    /**
+     * Picks count random squares that are not water.
+     *
+     * @param island the island
+     * @param count number of squares
+     * @param seed random seed
+     * @return row, column pairs
+     */
+    static int[][] landSquares(Island island, int count, long seed) {
+        Random random = new Random(seed);
+        int[][] squares = new int[count][];
+        int found = 0;
+        while (found < count) {
+            int row = random.nextInt(island.getNumRows());
+            int col = random.nextInt(island.getNumColumns());
+            if (island.getGridSquare(row, col).getTerrain() != Terrain.WATER) {
+                squares[found++] = new int[]{row, col};
+            }
+        }
+        return squares;
+    }
+
+    /**
+     * Reads a map for the benchmarks. A number gives an island of that many
+     * rows and columns from IslandGenerator; anything else is a map file,
+     * such as maps/IslandData.txt.
+     *
+     * @param name the map
+     * @return the map
+     * @throws IOException if the map file cannot be read
+     */
+    static MapDefinition map(String name) throws IOException {
+        if (name.matches("[0-9]+")) {
+            int size = Integer.parseInt(name);
+            return new IslandGenerator(1L, size, size).generate();
+        }
+        return Game.readMap(name);
+    }
+
+    /**
+     * Starts a game on a map, with the player moved to the first square of
+     * two side by side that are land and have nothing on them, so that
+     * moving east and west between them is always possible and never meets
+     * a hazard.
+     *
+     * @param name the map, as for map
+     * @return the game
+     * @throws IOException if the map file cannot be read
+     */
+    static Game game(String name) throws IOException {
+        Game game = Game.withoutMap();
+        game.startGame(name, map(name));
+        Island island = game.getIsland();
+        for (int row = 0; row < island.getNumRows(); row++) {
+            for (int col = 0; col + 1 < island.getNumColumns(); col++) {
+                if (isClear(island, row, col) && isClear(island, row, col + 1)) {
+                    Player player = game.getPlayer();
+                    player.moveToPosition(new Position(island, row, col), Terrain.SAND);
+                    island.updatePlayerPosition(player);
+                    player.increaseStamina(player.getMaximumStaminaLevel());
+                    return game;
+                }
+            }
+        }
+        throw new IllegalStateException("No two clear squares side by side on " + name);
+    }
+
+    private static boolean isClear(Island island, int row, int col) {
+        Position position = new Position(island, row, col);
+        return island.getTerrain(position) != Terrain.WATER && island.getOccupants(position).length == 0;
+    }
+}
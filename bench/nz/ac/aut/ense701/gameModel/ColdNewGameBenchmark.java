@@ -0,0 +1,27 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The steps of NewGameBenchmark in a cold JVM, as when the game is started:
+ * each step is run once in a new JVM, before the JIT compiler or the caches
+ * have seen it, and the result is the average over the forks.
+ *
+ * Run with: ant bench -Dbench.include=ColdNewGameBenchmark
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgs = "-Xmx1g")
+public class ColdNewGameBenchmark extends NewGameBenchmark {
+}
@@ -0,0 +1,68 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The work Game does for every move: checking the move, making it and
+ * applying the win and lose rules. The player moves east and west between
+ * two clear squares, and has their stamina topped up before it runs low.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class GameBenchmark {
+
+    private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+    @Param({"maps/IslandData.txt", "maps/BrendanMap1.txt", "maps/JamesMap1.txt", "100", "1000"})
+    public String map;
+
+    private Game game;
+    private Player player;
+    private boolean east;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        game = BenchmarkIslands.game(map);
+        player = game.getPlayer();
+        east = true;
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean playerMove() {
+        boolean moved = game.playerMove(east ? MoveDirection.EAST : MoveDirection.WEST);
+        east = !east;
+        if (player.getStaminaLevel() < player.getMaximumStaminaLevel() / 2) {
+            player.increaseStamina(player.getMaximumStaminaLevel());
+        }
+        return moved;
+    }
+
+    @Benchmark
+    public boolean isPlayerMovePossible() {
+        next = (next + 1) & 3;
+        return game.isPlayerMovePossible(DIRECTIONS[next]);
+    }
+
+    @Benchmark
+    public GameState updateGameState() {
+        game.updateGameState();
+        return game.getState();
+    }
+}
@@ -0,0 +1,59 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Looking up what is on a square, for random land squares of a loaded map.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class IslandBenchmark {
+
+    // a power of two, so the next square is picked with a mask
+    private static final int SQUARES = 1024;
+
+    @Param({"maps/IslandData.txt", "maps/BrendanMap1.txt", "maps/JamesMap1.txt", "100", "1000"})
+    public String map;
+
+    private Island island;
+    private Position[] positions;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        island = BenchmarkIslands.game(map).getIsland();
+        int[][] squares = BenchmarkIslands.landSquares(island, SQUARES, 2L);
+        positions = new Position[SQUARES];
+        for (int i = 0; i < SQUARES; i++) {
+            positions[i] = new Position(island, squares[i][0], squares[i][1]);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public Occupant[] getOccupants() {
+        next = (next + 1) & (SQUARES - 1);
+        return island.getOccupants(positions[next]);
+    }
+
+    @Benchmark
+    public boolean hasPredator() {
+        next = (next + 1) & (SQUARES - 1);
+        return island.hasPredator(positions[next]);
+    }
+}
@@ -0,0 +1,130 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a generated map file with MapParser against the Scanner with a
+ * regular expression delimiter that Game used before.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MapParserBenchmark {
+
+    private static final String TERRAIN = ".*#^~";
+
+    @Param({"100", "1000", "5000"})
+    public int size;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("map", ".txt");
+        Random random = new Random(1L);
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write(size + ", " + size + ",\n");
+            char[] row = new char[size];
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    row[c] = TERRAIN.charAt(random.nextInt(TERRAIN.length()));
+                }
+                out.write(row);
+                out.write(",\n");
+            }
+            out.write("River Song, 0, 0, 100.0, 10.0, 5.0,\n");
+            int occupants = size;
+            out.write(occupants + ",\n");
+            for (int i = 0; i < occupants; i++) {
+                out.write("E,Apple,A juicy apple, " + random.nextInt(size) + ", " + random.nextInt(size)
+                        + ", 0.5, 1.0, 5.0,\n");
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public MapDefinition mapParser() throws IOException {
+        return MapDefinition.read(file);
+    }
+
+    /**
+     * The old way: a regular expression per value, a substring and a
+     * search through the terrains per square.
+     */
+    @Benchmark
+    public int scanner() throws IOException {
+        Scanner input = new Scanner(file);
+        try {
+            input.useLocale(Locale.US);
+            input.useDelimiter("\\s*,\\s*");
+            int numRows = input.nextInt();
+            input.nextInt();
+            int found = 0;
+            for (int row = 0; row < numRows; row++) {
+                String terrainRow = input.next();
+                for (int col = 0; col < terrainRow.length(); col++) {
+                    String terrainString = terrainRow.substring(col, col + 1);
+                    for (Terrain item : Terrain.values()) {
+                        if (item.getStringRepresentation().equals(terrainString)) {
+                            found++;
+                        }
+                    }
+                }
+            }
+            input.next();
+            input.nextInt();
+            input.nextInt();
+            input.nextDouble();
+            input.nextDouble();
+            input.nextDouble();
+            int numItems = input.nextInt();
+            for (int i = 0; i < numItems; i++) {
+                input.next();
+                input.next();
+                input.next();
+                input.nextInt();
+                input.nextInt();
+                input.nextDouble();
+                input.nextDouble();
+                input.nextDouble();
+            }
+            return found;
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Opening a 10,000 x 10,000 island file and starting a game on it: mapping
+ * the file, creating the Island and reading the terrain around the player.
+ * Terrain is generated in bands so that run length encoding has something
+ * to do. exploreAcross measures ChunkedIsland spilling chunks and reading
+ * them back.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class MappedIslandBenchmark {
+
+    private static final int SIZE = 10000;
+
+    @Param({"false", "true"})
+    public boolean runLength;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(1L);
+        byte[] terrain = new byte[SIZE * SIZE];
+        int cell = 0;
+        while (cell < terrain.length) {
+            int run = Math.min(terrain.length - cell, 1 + random.nextInt(200));
+            byte ordinal = (byte) random.nextInt(Terrain.values().length);
+            for (int i = 0; i < run; i++) {
+                terrain[cell++] = ordinal;
+            }
+        }
+        MapDefinition map = new MapDefinition(SIZE, SIZE, terrain, "River Song", SIZE / 2, SIZE / 2,
+                100.0, 10.0, 5.0, new ArrayList<MapDefinition.OccupantDefinition>());
+        file = File.createTempFile("map", MappedIsland.FILE_EXTENSION);
+        MappedIsland.write(map, file, runLength);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int openIsland() throws IOException {
+        Island island = new ChunkedIsland(MappedIsland.open(file), ChunkedIsland.DEFAULT_MEMORY_BUDGET);
+        int difficulty = 0;
+        for (int row = SIZE / 2 - 10; row < SIZE / 2 + 10; row++) {
+            for (int col = SIZE / 2 - 10; col < SIZE / 2 + 10; col++) {
+                difficulty += island.getTerrain(row, col).ordinal();
+            }
+        }
+        return difficulty;
+    }
+
+    /**
+     * Explores a strip across the island with room for only a few chunks,
+     * so nearly every chunk is spilled and read back once.
+     */
+    @Benchmark
+    public long exploreAcross() throws IOException {
+        ChunkedIsland island = new ChunkedIsland(MappedIsland.open(file), 4L << 20);
+        try {
+            for (int pass = 0; pass < 2; pass++) {
+                for (int col = 0; col < SIZE; col++) {
+                    island.getGridSquare(SIZE / 2, col).setExplored();
+                }
+            }
+            return island.getChunkSpills();
+        } finally {
+            island.close();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package nz.ac.aut.ense701.gameModel;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * GameBenchmark with GameMetrics on. The difference between the two is
+ * what timing the commands costs.
+ *
+ * Run with: ant bench -Dbench.include=GameBenchmark
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@Fork(value = 1, jvmArgs = {"-Xmx1g", "-Dkiwiisland.metrics=true"})
+public class MeteredGameBenchmark extends GameBenchmark {
+}
@@ -0,0 +1,58 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Rollouts per second per core of MonteCarloAgent, deciding the first
+ * action on IslandData. Each thread plays the same number of rollouts, so
+ * the score stays flat while the search scales with the cores.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MonteCarloBenchmark {
+
+    private static final int ROLLOUTS_PER_THREAD = 2000;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    private MonteCarloAgent agent;
+    private GameSnapshot start;
+
+    @Setup
+    public void setUp() throws IOException {
+        start = new GameRules(MapDefinition.read(new File("maps/IslandData.txt"))).start();
+        agent = new MonteCarloAgent();
+        agent.setThreads(threads);
+        agent.setThinkingTime(0);
+        agent.setRolloutsPerDecision(ROLLOUTS_PER_THREAD * threads);
+        agent.setSeed(1L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        agent.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROLLOUTS_PER_THREAD)
+    public int rolloutsPerCore() {
+        return agent.chooseAction(start);
+    }
+}
@@ -0,0 +1,243 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Starting a new game, one step at a time, in a warm JVM. The steps are
+ * numbered in the order createNewGame takes them, so the JMH results list
+ * them in that order for each map, followed by the total:
+ *
+ *     phase1SelectMap      picking the map from the map catalog
+ *     phase2ReadMap        reading and parsing the map file
+ *     phase3SetUpTerrain   creating the island and its terrain
+ *     phase4SetUpOccupants creating the occupants, with their images read
+ *     phase5DecodeImages   the same, decoding every image again
+ *     phase6DrawIsland     drawing the island as text
+ *     phase7Notify         telling a listener, which reads every square
+ *                          the way the island view does
+ *     total                reading the map and starting a game on it
+ *
+ * Each step only sets up the state it needs, so in ColdNewGameBenchmark,
+ * which runs each step once in a new JVM, the step is the first to run its
+ * code. The maps are the shipped ones and generated islands of 100 and 500
+ * squares a side, written to a file so they are read like any other map.
+ *
+ * Run with: ant bench -Dbench.include=NewGameBenchmark
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class NewGameBenchmark {
+
+    /**
+     * The map file.
+     */
+    @State(Scope.Thread)
+    public static class MapFile {
+
+        @Param({"maps/IslandData.txt", "maps/BrendanMap1.txt", "maps/JamesMap1.txt", "100", "500"})
+        public String map;
+
+        String fileName;
+        private File generated;
+
+        @Setup
+        public void setUp() throws IOException {
+            fileName = map;
+            if (map.matches("[0-9]+")) {
+                generated = File.createTempFile("map", ".txt");
+                Writer out = new OutputStreamWriter(new FileOutputStream(generated), "UTF-8");
+                try {
+                    BenchmarkIslands.map(map).write(out);
+                } finally {
+                    out.close();
+                }
+                fileName = generated.getPath();
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (generated != null) {
+                generated.delete();
+            }
+        }
+    }
+
+    /**
+     * The map, read.
+     */
+    @State(Scope.Thread)
+    public static class ReadMap {
+
+        MapDefinition map;
+        Game game;
+
+        @Setup
+        public void setUp(MapFile file) throws IOException {
+            map = Game.readMap(file.fileName);
+            game = Game.withoutMap();
+        }
+    }
+
+    /**
+     * A new island with its terrain, for the occupants to go on.
+     */
+    @State(Scope.Thread)
+    public static class EmptyIsland {
+
+        Game.LoadedMap loaded;
+
+        @Setup(Level.Invocation)
+        public void setUp(MapFile file, ReadMap read) {
+            Island island = new Island(read.map.getNumRows(), read.map.getNumColumns());
+            read.game.setUpTerrain(island, read.map);
+            loaded = new Game.LoadedMap(file.fileName, island);
+        }
+    }
+
+    /**
+     * No occupant images read yet.
+     */
+    @State(Scope.Thread)
+    public static class NoImages {
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            Game.clearImageCache();
+        }
+    }
+
+    /**
+     * A game being played on the map, with a listener that reads what the
+     * island view reads when it is told the game has changed.
+     */
+    @State(Scope.Thread)
+    public static class StartedGame {
+
+        Game game;
+        long seen;
+
+        @Setup
+        public void setUp(MapFile file, ReadMap read) {
+            game = Game.withoutMap();
+            game.startGame(file.fileName, read.map);
+            final Game listened = game;
+            game.addGameEventListener(new GameEventListener() {
+                @Override
+                public void gameStateChanged() {
+                    for (int row = 0; row < listened.getNumRows(); row++) {
+                        for (int col = 0; col < listened.getNumColumns(); col++) {
+                            seen += listened.getTerrain(row, col).ordinal();
+                            if (listened.isVisible(row, col) && listened.isExplored(row, col)) {
+                                seen += listened.getGridOccupants(row, col).length;
+                            }
+                        }
+                    }
+                    seen += listened.getPlayerValues()[Game.STAMINA_INDEX];
+                }
+            });
+        }
+    }
+
+    /**
+     * Standard output thrown away, so drawing is not timed by the console.
+     */
+    @State(Scope.Thread)
+    public static class NoConsole {
+
+        private PrintStream console;
+
+        @Setup
+        public void setUp() {
+            console = System.out;
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            }));
+        }
+
+        @TearDown
+        public void tearDown() {
+            System.setOut(console);
+        }
+    }
+
+    @Benchmark
+    public String phase1SelectMap(ReadMap read) {
+        return read.game.selectMapFile();
+    }
+
+    @Benchmark
+    public MapDefinition phase2ReadMap(MapFile file) throws IOException {
+        return Game.readMap(file.fileName);
+    }
+
+    @Benchmark
+    public Island phase3SetUpTerrain(ReadMap read) {
+        Island island = new Island(read.map.getNumRows(), read.map.getNumColumns());
+        read.game.setUpTerrain(island, read.map);
+        return island;
+    }
+
+    @Benchmark
+    public Object phase4SetUpOccupants(ReadMap read, EmptyIsland empty) {
+        read.game.setUpOccupants(empty.loaded, read.map);
+        return empty.loaded;
+    }
+
+    @Benchmark
+    public Object phase5DecodeImages(ReadMap read, EmptyIsland empty, NoImages noImages) {
+        read.game.setUpOccupants(empty.loaded, read.map);
+        return empty.loaded;
+    }
+
+    @Benchmark
+    public Game phase6DrawIsland(StartedGame started, NoConsole noConsole) {
+        started.game.drawIsland();
+        return started.game;
+    }
+
+    @Benchmark
+    public long phase7Notify(StartedGame started) {
+        started.game.notifyGameEventListeners();
+        return started.seen;
+    }
+
+    @Benchmark
+    public Game total(MapFile file) throws IOException {
+        Game game = Game.withoutMap();
+        game.startGame(file.fileName, Game.readMap(file.fileName));
+        return game;
+    }
+}
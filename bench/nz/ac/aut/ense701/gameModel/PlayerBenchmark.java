@@ -0,0 +1,57 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Player checks made on every move and pick up. An item is collected and
+ * dropped again each time, so the backpack never fills.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class PlayerBenchmark {
+
+    private static final Terrain[] TERRAINS = Terrain.values();
+
+    @Param({"maps/IslandData.txt", "maps/BrendanMap1.txt", "maps/JamesMap1.txt", "100", "1000"})
+    public String map;
+
+    private Player player;
+    private Item item;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Game game = BenchmarkIslands.game(map);
+        player = game.getPlayer();
+        item = new Tool(player.getPosition(), "Screwdriver", "A screwdriver", 0.5, 0.75);
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean collectAndDrop() {
+        boolean collected = player.collect(item);
+        player.drop(item);
+        return collected;
+    }
+
+    @Benchmark
+    public double getStaminaNeededToMove() {
+        next = next + 1 == TERRAINS.length ? 0 : next + 1;
+        return player.getStaminaNeededToMove(TERRAINS[next]);
+    }
+}
@@ -0,0 +1,47 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Working out the square next to the player's, in each direction in turn.
+ * Every call makes a new Position, which shows in the allocation rate.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class PositionBenchmark {
+
+    private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+    @Param({"maps/IslandData.txt", "maps/BrendanMap1.txt", "maps/JamesMap1.txt", "100", "1000"})
+    public String map;
+
+    private Position position;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        position = BenchmarkIslands.game(map).getPlayer().getPosition();
+        next = 0;
+    }
+
+    @Benchmark
+    public Position getNewPosition() {
+        next = (next + 1) & 3;
+        return position.getNewPosition(DIRECTIONS[next]);
+    }
+}
@@ -0,0 +1,110 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Time to bring a ReachabilityField up to date after a keypress, against the
+ * size of the island. The player has the default 100 stamina.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReachabilityFieldBenchmark {
+
+    private static final int POSITIONS = 64;
+    private static final double STAMINA = 100.0;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Island island;
+    private ReachabilityField field;
+    private int[][] positions;
+    private int next;
+    // land squares each a step from the one before, walked there and back
+    private int[][] walk;
+    private int nextStep;
+
+    @Setup
+    public void setUp() {
+        island = BenchmarkIslands.create(size, 1L);
+        field = new ReachabilityField(island);
+        positions = BenchmarkIslands.landSquares(island, POSITIONS, 2L);
+        next = 0;
+        walk = new int[POSITIONS][];
+        walk[0] = positions[0];
+        Random random = new Random(3L);
+        for (int i = 1; i < POSITIONS; i++) {
+            int[] from = walk[i - 1];
+            int[] to;
+            do {
+                int direction = random.nextInt(4);
+                to = new int[] {from[0] + (direction == 0 ? -1 : direction == 1 ? 1 : 0),
+                    from[1] + (direction == 2 ? -1 : direction == 3 ? 1 : 0)};
+            } while (island.getTerrain(to[0], to[1]) == Terrain.WATER);
+            walk[i] = to;
+        }
+        nextStep = 0;
+    }
+
+    /**
+     * The player moved somewhere else: the search starts again from the new
+     * square.
+     */
+    @Benchmark
+    public int move() {
+        int i = next;
+        next = (i + 1) % POSITIONS;
+        field.update(positions[i][0], positions[i][1], STAMINA - i, 1.0);
+        return field.getSettledCount();
+    }
+
+    /**
+     * The player stepped to the next square: the squares whose routes went
+     * through it are kept, only the rest are searched.
+     */
+    @Benchmark
+    public int step() {
+        int i = nextStep;
+        nextStep = (i + 1) % (2 * POSITIONS - 2);
+        int[] square = walk[i < POSITIONS ? i : 2 * POSITIONS - 2 - i];
+        field.update(square[0], square[1], STAMINA - i % POSITIONS, 1.0);
+        return field.getSettledCount();
+    }
+
+    /**
+     * Stamina or load changed in place: a threshold change, or the search
+     * carrying on a little further.
+     */
+    @Benchmark
+    public int staminaChange() {
+        int i = next;
+        next = (i + 1) % POSITIONS;
+        field.update(positions[0][0], positions[0][1], STAMINA - (i & 1), 1.0 + (i & 2) * 0.25);
+        return field.getSettledCount();
+    }
+
+    /**
+     * What every keypress would cost without the cached field.
+     */
+    @Benchmark
+    public int fromScratch() {
+        int i = next;
+        next = (i + 1) % POSITIONS;
+        ReachabilityField fresh = new ReachabilityField(island);
+        fresh.update(positions[i][0], positions[i][1], STAMINA - i, 1.0);
+        return fresh.getSettledCount();
+    }
+}
@@ -0,0 +1,58 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Time for one RoutePlanner query between random land squares.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoutePlannerBenchmark {
+
+    private static final int QUERIES = 64;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private RoutePlanner planner;
+    private int[][] from;
+    private int[][] to;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Island island = BenchmarkIslands.create(size, 1L);
+        planner = new RoutePlanner(island);
+        from = BenchmarkIslands.landSquares(island, QUERIES, 2L);
+        to = BenchmarkIslands.landSquares(island, QUERIES, 3L);
+        next = 0;
+    }
+
+    @Benchmark
+    public int findRoute() {
+        int i = next;
+        next = (i + 1) % QUERIES;
+        return planner.findRoute(from[i][0], from[i][1], to[i][0], to[i][1], 1.5);
+    }
+
+    @Benchmark
+    public Position[] planRoute() {
+        int i = next;
+        next = (i + 1) % QUERIES;
+        Island island = planner.getIsland();
+        Player player = new Player(new Position(island, from[i][0], from[i][1]), "Bench", 100.0, 10.0, 5.0);
+        return planner.planRoute(player.getPosition(), new Position(island, to[i][0], to[i][1]), player);
+    }
+}
@@ -0,0 +1,159 @@
+package nz.ac.aut.ense701.gui;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JPanel;
+import javax.swing.RepaintManager;
+import nz.ac.aut.ense701.gameModel.Game;
+import nz.ac.aut.ense701.gameModel.GameEventListener;
+import nz.ac.aut.ense701.gameModel.Island;
+import nz.ac.aut.ense701.gameModel.IslandGenerator;
+import nz.ac.aut.ense701.gameModel.MoveDirection;
+import nz.ac.aut.ense701.gameModel.Player;
+import nz.ac.aut.ense701.gameModel.Position;
+import nz.ac.aut.ense701.gameModel.Terrain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Frame times of the island view, drawn without a screen. The view is
+ * filled with grid square panels by KiwiCountUI.initIslandGrid, laid out at
+ * the size the island has in the game window, and painted into an image,
+ * so it runs headless.
+ *
+ *     redraw  every grid square panel updated and the view painted
+ *     move    the player moves, the game tells the view, which updates
+ *             every grid square panel as KiwiCountUI does, and the view is
+ *             painted
+ *
+ * Each frame is sampled, so the results give the 50th and 99th percentile
+ * frame times as well as the average. The islands are generated, from 10 to
+ * 500 squares a side.
+ *
+ * KiwiCountUI itself is a frame, which cannot be created headless, and
+ * updates its player panel as well; that part takes the same time whatever
+ * the size of the island.
+ *
+ * Run with: ant bench -Dbench.include=IslandViewBenchmark
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class IslandViewBenchmark {
+
+    // the island panel of the game window
+    private static final int WIDTH = 644;
+    private static final int HEIGHT = 670;
+
+    @Param({"10", "50", "100", "250", "500"})
+    public int size;
+
+    private Game game;
+    private Player player;
+    private JPanel view;
+    private BufferedImage frame;
+    private Graphics2D graphics;
+    private boolean east;
+
+    @Setup
+    public void setUp() {
+        game = new Game();
+        game.reloadMap(new IslandGenerator(1L, size, size).generate());
+        player = game.getPlayer();
+        moveToClearSquares();
+
+        view = new JPanel();
+        KiwiCountUI.initIslandGrid(view, game);
+        view.setSize(WIDTH, HEIGHT);
+        layOut(view);
+        // the frame is already an image, so painting straight into it is
+        // what a double buffered window does
+        RepaintManager.currentManager(view).setDoubleBufferingEnabled(false);
+        frame = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = frame.createGraphics();
+
+        game.addGameEventListener(new GameEventListener() {
+            @Override
+            public void gameStateChanged() {
+                KiwiCountUI.updateIslandGrid(view, false);
+            }
+        });
+        KiwiCountUI.updateIslandGrid(view, false);
+        east = true;
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage redraw() {
+        KiwiCountUI.updateIslandGrid(view, false);
+        view.paint(graphics);
+        return frame;
+    }
+
+    @Benchmark
+    public BufferedImage move() {
+        game.playerMove(east ? MoveDirection.EAST : MoveDirection.WEST);
+        east = !east;
+        if (player.getStaminaLevel() < player.getMaximumStaminaLevel() / 2) {
+            player.increaseStamina(player.getMaximumStaminaLevel());
+        }
+        view.paint(graphics);
+        return frame;
+    }
+
+    /**
+     * Puts the player on the first of two squares side by side that are
+     * land and have nothing on them, so moving east and west between them
+     * is always possible and never meets a hazard.
+     */
+    private void moveToClearSquares() {
+        Island island = game.getIsland();
+        for (int row = 0; row < island.getNumRows(); row++) {
+            for (int col = 0; col + 1 < island.getNumColumns(); col++) {
+                if (isClear(island, row, col) && isClear(island, row, col + 1)) {
+                    player.moveToPosition(new Position(island, row, col), Terrain.SAND);
+                    island.updatePlayerPosition(player);
+                    player.increaseStamina(player.getMaximumStaminaLevel());
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("No two clear squares side by side on a " + size + " square island");
+    }
+
+    private static boolean isClear(Island island, int row, int col) {
+        Position position = new Position(island, row, col);
+        return island.getTerrain(position) != Terrain.WATER && island.getOccupants(position).length == 0;
+    }
+
+    /**
+     * Lays out a container and everything in it, as showing it would.
+     */
+    private static void layOut(Container container) {
+        container.doLayout();
+        for (Component child : container.getComponents()) {
+            if (child instanceof Container) {
+                layOut((Container) child);
+            }
+        }
+    }
+}
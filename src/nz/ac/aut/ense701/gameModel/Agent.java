@@ -0,0 +1,23 @@
+package nz.ac.aut.ense701.gameModel;
+
+/**
+ * A player that picks its own actions, for auto-play in the game and for
+ * simulations that play many games without a user interface.
+ *
+ * Agents look at a GameSnapshot of the game. In a running game the snapshot
+ * comes from Game.getSnapshot and the action is carried out with
+ * Game.performAction; in a simulation the action is applied to the snapshot.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public interface Agent {
+
+    /**
+     * Picks the next action. The state is not changed.
+     *
+     * @param state the game as it is now
+     * @return an action of GameSnapshot, or -1 if there is nothing to do
+     */
+    int chooseAction(GameSnapshot state);
+}
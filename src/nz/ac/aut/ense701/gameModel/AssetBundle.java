@@ -0,0 +1,404 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The game's images, maps and text, looked up by name, such as
+ * "images/Kiwi.jpg" or "questions/kiwiQuestions.txt". Names are paths with
+ * forward slashes and are matched without regard to case, so "images" and
+ * "Images" are the same folder on every system.
+ *
+ * A built game has all of them in one bundle on the classpath, written by
+ * the BuildAssets tool when the project is compiled. The bundle is an index
+ * of names followed by the assets, and is read with one sequential read, or
+ * memory mapped when it is a plain file, so the game does not depend on the
+ * folder it is started from and does not open a file per asset. Without a
+ * bundle, during development, assets are read from the loose files under the
+ * working directory instead.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class AssetBundle {
+
+    /** Where the bundle is on the classpath. */
+    public static final String RESOURCE = "/nz/ac/aut/ense701/assets.bundle";
+
+    private static final byte[] MAGIC = {'K', 'I', 'A', 'B'};
+    private static final int VERSION = 1;
+
+    private static AssetBundle defaultBundle;
+
+    // the bundle, with an offset and length per asset; null for loose files
+    private final ByteBuffer data;
+    private final Map<String, int[]> index;
+    // names as they were bundled, in order
+    private final List<String> names;
+    // folder of the loose files; null for a bundle
+    private final File root;
+
+    private AssetBundle(ByteBuffer data, Map<String, int[]> index, List<String> names, File root) {
+        this.data = data;
+        this.index = index;
+        this.names = names;
+        this.root = root;
+    }
+
+    /**
+     * The assets of the game: the bundle on the classpath if there is one,
+     * the loose files under the working directory if not. The bundle is
+     * read the first time this is called.
+     *
+     * @return the assets
+     */
+    public static synchronized AssetBundle getDefault() {
+        if (defaultBundle == null) {
+            URL url = AssetBundle.class.getResource(RESOURCE);
+            if (url != null) {
+                try {
+                    defaultBundle = read(url);
+                } catch (IOException e) {
+                    System.err.println("Using loose asset files, unable to read '" + url + "', " + e.getMessage());
+                }
+            }
+            if (defaultBundle == null) {
+                defaultBundle = loose(new File("."));
+            }
+        }
+        return defaultBundle;
+    }
+
+    /**
+     * Reads a bundle, mapping it if it is a file.
+     *
+     * @param url where the bundle is
+     * @return the bundle
+     * @throws IOException if the bundle cannot be read or is not a bundle
+     */
+    public static AssetBundle read(URL url) throws IOException {
+        if (url.getProtocol().equals("file")) {
+            try {
+                return read(new File(url.toURI()));
+            } catch (URISyntaxException e) {
+                // read it as a stream instead
+            }
+        }
+        InputStream in = url.openStream();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return parse(ByteBuffer.wrap(bytes.toByteArray()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Maps a bundle file into memory.
+     *
+     * @param file the bundle file
+     * @return the bundle
+     * @throws IOException if the file cannot be read or is not a bundle
+     */
+    public static AssetBundle read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            // the mapping stays valid after the channel is closed
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Assets read from the files under a folder, for development.
+     *
+     * @param root the folder
+     * @return the assets
+     */
+    public static AssetBundle loose(File root) {
+        return new AssetBundle(null, null, null, root);
+    }
+
+    /**
+     * Writes a bundle of files under a folder.
+     *
+     * @param root the folder the names are relative to
+     * @param names names of the files to bundle
+     * @param file where to write the bundle
+     * @throws IOException if a file cannot be read or the bundle cannot be
+     * written
+     */
+    public static void write(File root, List<String> names, File file) throws IOException {
+        AssetBundle loose = loose(root);
+        Map<String, byte[]> assets = new HashMap<String, byte[]>();
+        for (String name : names) {
+            assets.put(name, loose.getBytes(name));
+        }
+        write(assets, file);
+    }
+
+    /**
+     * Writes a bundle of assets, such as ones made while building.
+     *
+     * @param assets the contents of the assets, by name
+     * @param file where to write the bundle
+     * @throws IOException if the bundle cannot be written
+     */
+    public static void write(Map<String, byte[]> assets, File file) throws IOException {
+        List<String> sorted = new ArrayList<String>(assets.keySet());
+        Collections.sort(sorted);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(sorted.size());
+            int offset = 0;
+            for (String name : sorted) {
+                byte[] path = path(name).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(path.length);
+                out.write(path);
+                out.writeInt(offset);
+                out.writeInt(assets.get(name).length);
+                offset += assets.get(name).length;
+            }
+            for (String name : sorted) {
+                out.write(assets.get(name));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Are the assets in a bundle, rather than loose files?
+     *
+     * @return true for a bundle
+     */
+    public boolean isBundled() {
+        return data != null;
+    }
+
+    /**
+     * Is there an asset with a name?
+     *
+     * @param name the name
+     * @return true if there is
+     */
+    public boolean contains(String name) {
+        if (data != null) {
+            return index.containsKey(key(name));
+        }
+        File file = find(name);
+        return file != null && file.isFile();
+    }
+
+    /**
+     * The contents of an asset.
+     *
+     * @param name the name
+     * @return the contents
+     * @throws FileNotFoundException if there is no such asset
+     * @throws IOException if a loose file cannot be read
+     */
+    public byte[] getBytes(String name) throws IOException {
+        if (data != null) {
+            int[] entry = index.get(key(name));
+            if (entry == null) {
+                throw new FileNotFoundException("No asset '" + name + "'");
+            }
+            byte[] bytes = new byte[entry[1]];
+            ByteBuffer asset = data.duplicate();
+            asset.position(entry[0]);
+            asset.get(bytes);
+            return bytes;
+        }
+        File file = find(name);
+        if (file == null) {
+            throw new FileNotFoundException("No asset '" + name + "'");
+        }
+        long length = file.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("'" + file + "' is too large for an asset");
+        }
+        byte[] bytes = new byte[(int) length];
+        InputStream in = new FileInputStream(file);
+        try {
+            int done = 0;
+            int read;
+            while (done < bytes.length && (read = in.read(bytes, done, bytes.length - done)) > 0) {
+                done += read;
+            }
+            return done == bytes.length ? bytes : Arrays.copyOf(bytes, done);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Opens an asset to read.
+     *
+     * @param name the name
+     * @return a stream of the contents
+     * @throws FileNotFoundException if there is no such asset
+     * @throws IOException if a loose file cannot be read
+     */
+    public InputStream open(String name) throws IOException {
+        return new ByteArrayInputStream(getBytes(name));
+    }
+
+    /**
+     * The names of the assets in a folder, not counting subfolders.
+     *
+     * @param folder the folder's name
+     * @return names of the assets, including the folder, in name order
+     */
+    public List<String> list(String folder) {
+        String prefix = key(folder) + "/";
+        List<String> found = new ArrayList<String>();
+        if (data != null) {
+            for (String name : names) {
+                String key = key(name);
+                if (key.startsWith(prefix) && key.indexOf('/', prefix.length()) < 0) {
+                    found.add(name);
+                }
+            }
+        } else {
+            File dir = find(folder);
+            File[] files = dir == null ? null : dir.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files) {
+                    if (file.isFile() && !file.getName().startsWith(".")) {
+                        found.add(folder + "/" + file.getName());
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static AssetBundle parse(ByteBuffer data) throws IOException {
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            data.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("not an asset bundle");
+            }
+            int version = data.get() & 0xff;
+            if (version != VERSION) {
+                throw new IOException("unsupported asset bundle version " + version);
+            }
+            int count = data.getInt();
+            Map<String, int[]> index = new HashMap<String, int[]>();
+            List<String> names = new ArrayList<String>();
+            List<int[]> entries = new ArrayList<int[]>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[data.getShort() & 0xffff];
+                data.get(name);
+                int[] entry = {data.getInt(), data.getInt()};
+                names.add(new String(name, StandardCharsets.UTF_8));
+                entries.add(entry);
+            }
+            // offsets are from the end of the index
+            int start = data.position();
+            for (int i = 0; i < count; i++) {
+                int[] entry = entries.get(i);
+                entry[0] += start;
+                if (entry[1] < 0 || entry[0] < start || entry[0] > data.limit() - entry[1]) {
+                    throw new IOException("asset '" + names.get(i) + "' is outside the bundle");
+                }
+                index.put(key(names.get(i)), entry);
+            }
+            return new AssetBundle(data, index, Collections.unmodifiableList(names), null);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("asset bundle is cut short");
+        }
+    }
+
+    private static String key(String name) {
+        return path(name).toLowerCase(Locale.ROOT);
+    }
+
+    private static String path(String name) {
+        String path = name.replace('\\', '/');
+        while (path.startsWith("./")) {
+            path = path.substring(2);
+        }
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        return path;
+    }
+
+    /**
+     * The loose file for a name, going through the folders the same way
+     * whatever the case of their names on disk.
+     */
+    private File find(String name) {
+        File file = root;
+        for (String part : path(name).split("/")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            File exact = new File(file, part);
+            if (exact.exists()) {
+                file = exact;
+                continue;
+            }
+            File match = null;
+            String[] children = file.list();
+            if (children != null) {
+                for (String child : children) {
+                    if (child.equalsIgnoreCase(part)) {
+                        match = new File(file, child);
+                        break;
+                    }
+                }
+            }
+            if (match == null) {
+                return null;
+            }
+            file = match;
+        }
+        return file;
+    }
+}
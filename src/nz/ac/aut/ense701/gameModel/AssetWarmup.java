@@ -0,0 +1,314 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the game's assets while it starts, several at a time, so starting
+ * takes about as long as the slowest asset rather than all of them one
+ * after another.
+ *
+ * Each asset is loaded in a stage, and a stage's assets are started before
+ * those of the stages after it: the maps first, as the first game is picked
+ * from them, then the sprites its occupants are drawn with, then text, and
+ * sound last, as the game can be played without it. awaitStage waits for a
+ * stage and the stages before it, so the game can be started as soon as
+ * what it needs is loaded. Assets are loaded on a pool of as many threads
+ * as there are processors.
+ *
+ * Listeners are told as each asset is loaded, for example to show how far
+ * loading has got.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class AssetWarmup {
+
+    /**
+     * The stages, in the order they are loaded.
+     */
+    public enum Stage {
+        MAPS, SPRITES, TEXT, AUDIO
+    }
+
+    /**
+     * Is told as assets are loaded.
+     */
+    public interface Listener {
+
+        /**
+         * An asset has been loaded, or failed to load. Called on the thread
+         * that loaded it.
+         *
+         * @param name the asset
+         * @param done how many assets have been loaded so far
+         * @param total how many assets there are
+         */
+        void assetLoaded(String name, int done, int total);
+    }
+
+    private final int threads;
+    private final List<Task> tasks = new ArrayList<Task>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private volatile long started;
+    private volatile long finished;
+    private volatile Task slowest;
+
+    /**
+     * Creates a warm-up with no assets.
+     *
+     * @param threads the most assets loaded at once
+     */
+    public AssetWarmup(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Creates a warm-up of the game's own assets: the map catalog, the
+     * sprite atlas at the scale of the screen, and the sound effects.
+     *
+     * @return the warm-up, not started
+     */
+    public static AssetWarmup forGame() {
+        AssetWarmup warmup = new AssetWarmup(Runtime.getRuntime().availableProcessors());
+        warmup.add(Stage.MAPS, "map catalog", new Runnable() {
+            @Override
+            public void run() {
+                Game.getMapCatalog();
+            }
+        });
+        warmup.add(Stage.SPRITES, SpriteAtlas.IMAGE, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    SpriteAtlas.getDefault().prefetch(SpriteAtlas.getDisplayScale());
+                } catch (IOException e) {
+                    System.err.println("Unable to read the sprites, " + e.getMessage());
+                }
+            }
+        });
+        warmup.add(Stage.AUDIO, "sound effects", new Runnable() {
+            @Override
+            public void run() {
+                SoundsSingleton.getSoundsSingletonReference();
+            }
+        });
+        return warmup;
+    }
+
+    /**
+     * Adds an asset to load. Assets are added before the warm-up starts.
+     *
+     * @param stage the stage it is loaded in
+     * @param name the asset's name, as listeners are told it
+     * @param load loads the asset
+     */
+    public synchronized void add(Stage stage, String name, Runnable load) {
+        if (started != 0) {
+            throw new IllegalStateException("Warm-up already started");
+        }
+        tasks.add(new Task(stage, name, load));
+    }
+
+    /**
+     * Adds a listener to tell as assets are loaded.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts loading the assets, and returns without waiting for them.
+     */
+    public synchronized void start() {
+        if (started != 0) {
+            return;
+        }
+        started = System.nanoTime();
+        if (tasks.isEmpty()) {
+            finished = started;
+            return;
+        }
+        // queued before the threads start, so the first to start is not loaded out of turn
+        PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<Runnable>(tasks);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                queue, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "asset warm-up " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        pool.prestartAllCoreThreads();
+        pool.shutdown();
+    }
+
+    /**
+     * Waits for the assets of a stage and the stages before it to load.
+     *
+     * @param stage the stage
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitStage(Stage stage) throws InterruptedException {
+        for (Task task : getTasks()) {
+            if (task.stage.compareTo(stage) <= 0) {
+                task.loaded.await();
+            }
+        }
+    }
+
+    /**
+     * Waits for every asset to load.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        awaitStage(Stage.AUDIO);
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * How many assets there are.
+     *
+     * @return the number of assets
+     */
+    public synchronized int getTotal() {
+        return tasks.size();
+    }
+
+    /**
+     * How many assets have been loaded, or failed to load.
+     *
+     * @return the number loaded
+     */
+    public int getDone() {
+        return done.get();
+    }
+
+    /**
+     * How long loading every asset took.
+     *
+     * @return the time in nanoseconds, 0 if the assets are still loading
+     */
+    public long getElapsedNanos() {
+        return finished == 0 ? 0 : finished - started;
+    }
+
+    /**
+     * The asset that took longest to load so far.
+     *
+     * @return its name, null if none has been loaded
+     */
+    public String getSlowest() {
+        Task task = slowest;
+        return task == null ? null : task.name;
+    }
+
+    /**
+     * How long the asset that took longest took.
+     *
+     * @return the time in nanoseconds, 0 if none has been loaded
+     */
+    public long getSlowestNanos() {
+        Task task = slowest;
+        return task == null ? 0 : task.nanos;
+    }
+
+    /**
+     * The warm-up on one line, such as "Loaded 19 assets in 412.3 ms on 8
+     * threads, slowest images/Kiwi.jpg 398.0 ms".
+     *
+     * @return the line
+     */
+    public String getSummary() {
+        return String.format(Locale.ROOT, "Loaded %d assets in %.1f ms on %d threads, slowest %s %.1f ms",
+                getTotal(), getElapsedNanos() / 1e6, threads, getSlowest(), getSlowestNanos() / 1e6);
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private synchronized List<Task> getTasks() {
+        return new ArrayList<Task>(tasks);
+    }
+
+    private void loaded(Task task) {
+        synchronized (this) {
+            if (slowest == null || task.nanos > slowest.nanos) {
+                slowest = task;
+            }
+        }
+        int count = done.incrementAndGet();
+        int total = getTotal();
+        if (count == total) {
+            finished = System.nanoTime();
+            if (GameMetrics.ENABLED) {
+                System.err.println(getSummary());
+            }
+        }
+        for (Listener listener : listeners) {
+            listener.assetLoaded(task.name, count, total);
+        }
+        task.loaded.countDown();
+    }
+
+    /**
+     * An asset to load, ordered by stage and then in the order added.
+     */
+    private final class Task implements Runnable, Comparable<Task> {
+
+        private final Stage stage;
+        private final String name;
+        private final Runnable load;
+        private final int order = sequence.getAndIncrement();
+        private final CountDownLatch loaded = new CountDownLatch(1);
+        private long nanos;
+
+        Task(Stage stage, String name, Runnable load) {
+            this.stage = stage;
+            this.name = name;
+            this.load = load;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                load.run();
+            } catch (RuntimeException e) {
+                System.err.println("Unable to load " + name + ", " + e);
+            } finally {
+                nanos = System.nanoTime() - start;
+                loaded(this);
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byStage = stage.compareTo(other.stage);
+            return byStage != 0 ? byStage : Integer.compare(order, other.order);
+        }
+    }
+}
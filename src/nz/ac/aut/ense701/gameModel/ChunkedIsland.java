@@ -0,0 +1,385 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An island read from an island file that keeps only part of its grid in
+ * memory.
+ *
+ * The grid is split into chunks of CHUNK_SIZE x CHUNK_SIZE squares. A chunk
+ * is created from the island file the first time one of its squares is
+ * changed, and squares of chunks that were never created are answered
+ * straight from the file. When the chunks in memory take more than the
+ * memory budget, the least recently used ones are let go: chunks that are
+ * as the file has them are simply dropped, changed chunks are spilled to a
+ * temporary file first. Squares holding the player or occupants stay in
+ * memory while their chunk is spilled, so the same objects come back.
+ *
+ * Grid squares from getGridSquare are only good until the next square is
+ * looked up, as looking one up may let go of another chunk.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class ChunkedIsland extends Island {
+
+    /**
+     * Width and height of a chunk in squares.
+     */
+    public static final int CHUNK_SIZE = 64;
+
+    /**
+     * Memory budget for chunks that Game uses.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    private static final int CHUNK_SQUARES = CHUNK_SIZE * CHUNK_SIZE;
+    // rough heap use of a grid square, of a reference and of a chunk itself
+    private static final int SQUARE_BYTES = 32;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int CHUNK_OVERHEAD_BYTES = 64;
+    // a spilled chunk has a terrain ordinal and a flags byte per square
+    private static final int SPILL_BYTES = CHUNK_SQUARES * 2;
+    private static final int EXPLORED = 0x01;
+    private static final int VISIBLE = 0x02;
+    private static final Terrain[] TERRAINS = Terrain.values();
+    // stands in for squares of chunks that have not been created
+    private static final GridSquare UNTOUCHED_SQUARE = new GridSquare(Terrain.WATER);
+
+    private final MappedIsland mappedTerrain;
+    private final long memoryBudget;
+    private final int chunkColumns;
+    // chunks in memory, least recently used first
+    private final LinkedHashMap<Integer, Chunk> residentChunks;
+    // where spilled chunks are in the spill file, by chunk
+    private final Map<Integer, Integer> spillSlots;
+    // squares with the player or occupants in spilled chunks, by chunk and square
+    private final Map<Integer, Map<Integer, GridSquare>> keptSquares;
+    private File spillFile;
+    private RandomAccessFile spill;
+    private int nextSpillSlot;
+    private Chunk lastChunk;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long spills;
+    private long residentBytes;
+
+    /**
+     * The squares of one chunk, row by row. Chunks at the bottom and right
+     * edges of the island can be smaller than CHUNK_SIZE.
+     */
+    private static final class Chunk {
+
+        final int index;
+        final int firstRow;
+        final int firstColumn;
+        final int numRows;
+        final int numColumns;
+        final GridSquare[] squares;
+
+        Chunk(int index, int firstRow, int firstColumn, int numRows, int numColumns) {
+            this.index = index;
+            this.firstRow = firstRow;
+            this.firstColumn = firstColumn;
+            this.numRows = numRows;
+            this.numColumns = numColumns;
+            this.squares = new GridSquare[numRows * numColumns];
+        }
+
+        long getBytes() {
+            return CHUNK_OVERHEAD_BYTES + (long) squares.length * (SQUARE_BYTES + REFERENCE_BYTES);
+        }
+    }
+
+    /**
+     * Creates an island on an island file.
+     *
+     * @param mappedTerrain the island file
+     * @param memoryBudget bytes the chunks in memory may take; at least one
+     * chunk is always kept
+     */
+    public ChunkedIsland(MappedIsland mappedTerrain, long memoryBudget) {
+        super(mappedTerrain);
+        this.mappedTerrain = mappedTerrain;
+        this.memoryBudget = memoryBudget;
+        this.chunkColumns = (mappedTerrain.getNumColumns() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.residentChunks = new LinkedHashMap<Integer, Chunk>(16, 0.75f, true);
+        this.spillSlots = new HashMap<Integer, Integer>();
+        this.keptSquares = new HashMap<Integer, Map<Integer, GridSquare>>();
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Number of square look ups that found their chunk in memory.
+     *
+     * @return chunk hits
+     */
+    public long getChunkHits() {
+        return hits;
+    }
+
+    /**
+     * Number of chunks created from the island file or the spill file.
+     *
+     * @return chunk misses
+     */
+    public long getChunkMisses() {
+        return misses;
+    }
+
+    /**
+     * Number of chunks let go to stay within the memory budget.
+     *
+     * @return chunk evictions
+     */
+    public long getChunkEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Number of evicted chunks that had changed and were written to the
+     * spill file.
+     *
+     * @return chunk spills
+     */
+    public long getChunkSpills() {
+        return spills;
+    }
+
+    /**
+     * Estimated heap taken by the chunks in memory.
+     *
+     * @return resident bytes
+     */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Number of chunks in memory.
+     *
+     * @return resident chunks
+     */
+    public int getResidentChunks() {
+        return residentChunks.size();
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Mutator methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Deletes the spill file. The island must not be used afterwards.
+     */
+    public void close() {
+        residentChunks.clear();
+        lastChunk = null;
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                // nothing more to lose
+            }
+            spill = null;
+            spillFile.delete();
+        }
+    }
+
+    @Override
+    GridSquare getGridSquare(int row, int column) {
+        Chunk chunk = findChunk(row, column, true);
+        return chunk.squares[(row - chunk.firstRow) * chunk.numColumns + column - chunk.firstColumn];
+    }
+
+    @Override
+    GridSquare findGridSquare(int row, int column) {
+        Chunk chunk = findChunk(row, column, false);
+        if (chunk == null) {
+            return UNTOUCHED_SQUARE;
+        }
+        return chunk.squares[(row - chunk.firstRow) * chunk.numColumns + column - chunk.firstColumn];
+    }
+
+    @Override
+    Terrain getTerrain(int row, int column) {
+        Chunk chunk = findChunk(row, column, false);
+        if (chunk == null) {
+            return fileTerrain(row, column);
+        }
+        return chunk.squares[(row - chunk.firstRow) * chunk.numColumns + column - chunk.firstColumn].getTerrain();
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    /**
+     * The chunk holding a square. A chunk that has never been created is
+     * only created if create is true; a spilled chunk is always read back,
+     * as only it knows what has changed.
+     */
+    private Chunk findChunk(int row, int column, boolean create) {
+        if (row < 0 || row >= getNumRows() || column < 0 || column >= getNumColumns()) {
+            throw new IndexOutOfBoundsException("square " + row + "," + column + " is not on the island");
+        }
+        int index = (row / CHUNK_SIZE) * chunkColumns + column / CHUNK_SIZE;
+        Chunk chunk = lastChunk;
+        if (chunk != null && chunk.index == index) {
+            hits++;
+            return chunk;
+        }
+        chunk = residentChunks.get(index);
+        if (chunk != null) {
+            hits++;
+        } else if (create || spillSlots.containsKey(index)) {
+            misses++;
+            chunk = loadChunk(index);
+            residentChunks.put(index, chunk);
+            residentBytes += chunk.getBytes();
+            evictColdChunks();
+        } else {
+            return null;
+        }
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    private Chunk loadChunk(int index) {
+        int firstRow = (index / chunkColumns) * CHUNK_SIZE;
+        int firstColumn = (index % chunkColumns) * CHUNK_SIZE;
+        Chunk chunk = new Chunk(index, firstRow, firstColumn,
+                Math.min(CHUNK_SIZE, getNumRows() - firstRow), Math.min(CHUNK_SIZE, getNumColumns() - firstColumn));
+        Integer slot = spillSlots.get(index);
+        if (slot == null) {
+            int square = 0;
+            for (int row = 0; row < chunk.numRows; row++) {
+                for (int col = 0; col < chunk.numColumns; col++, square++) {
+                    chunk.squares[square] = new GridSquare(fileTerrain(firstRow + row, firstColumn + col));
+                }
+            }
+            return chunk;
+        }
+
+        byte[] data = new byte[SPILL_BYTES];
+        try {
+            spill.seek((long) slot * SPILL_BYTES);
+            spill.readFully(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read back part of the island", e);
+        }
+        for (int square = 0; square < chunk.squares.length; square++) {
+            GridSquare gridSquare = new GridSquare(TERRAINS[data[square * 2]]);
+            int flags = data[square * 2 + 1];
+            if ((flags & EXPLORED) != 0) {
+                gridSquare.setExplored();
+            }
+            if ((flags & VISIBLE) != 0) {
+                gridSquare.setVisible();
+            }
+            chunk.squares[square] = gridSquare;
+        }
+        Map<Integer, GridSquare> kept = keptSquares.remove(index);
+        if (kept != null) {
+            for (Map.Entry<Integer, GridSquare> entry : kept.entrySet()) {
+                chunk.squares[entry.getKey()] = entry.getValue();
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Lets go of the least recently used chunks until the rest fit the
+     * memory budget. The chunk just used is the most recent, so it stays.
+     */
+    private void evictColdChunks() {
+        Iterator<Chunk> chunks = residentChunks.values().iterator();
+        while (residentBytes > memoryBudget && residentChunks.size() > 1) {
+            Chunk chunk = chunks.next();
+            chunks.remove();
+            residentBytes -= chunk.getBytes();
+            evictions++;
+            if (chunk == lastChunk) {
+                lastChunk = null;
+            }
+            if (isChanged(chunk)) {
+                spillChunk(chunk);
+            } else {
+                // as the file has it, so it can be created again from the file
+                spillSlots.remove(chunk.index);
+            }
+        }
+    }
+
+    private boolean isChanged(Chunk chunk) {
+        int square = 0;
+        for (int row = 0; row < chunk.numRows; row++) {
+            for (int col = 0; col < chunk.numColumns; col++, square++) {
+                GridSquare gridSquare = chunk.squares[square];
+                if (gridSquare.isExplored() || gridSquare.isVisible() || gridSquare.hasPlayer()
+                        || gridSquare.getOccupants().length > 0
+                        || gridSquare.getTerrain() != fileTerrain(chunk.firstRow + row, chunk.firstColumn + col)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void spillChunk(Chunk chunk) {
+        byte[] data = new byte[SPILL_BYTES];
+        Map<Integer, GridSquare> kept = null;
+        for (int square = 0; square < chunk.squares.length; square++) {
+            GridSquare gridSquare = chunk.squares[square];
+            data[square * 2] = (byte) gridSquare.getTerrain().ordinal();
+            data[square * 2 + 1] = (byte) ((gridSquare.isExplored() ? EXPLORED : 0)
+                    | (gridSquare.isVisible() ? VISIBLE : 0));
+            if (gridSquare.hasPlayer() || gridSquare.getOccupants().length > 0) {
+                if (kept == null) {
+                    kept = new HashMap<Integer, GridSquare>();
+                }
+                kept.put(square, gridSquare);
+            }
+        }
+        if (kept != null) {
+            keptSquares.put(chunk.index, kept);
+        }
+
+        Integer slot = spillSlots.get(chunk.index);
+        if (slot == null) {
+            slot = nextSpillSlot++;
+            spillSlots.put(chunk.index, slot);
+        }
+        try {
+            if (spill == null) {
+                spillFile = File.createTempFile("island", ".spill");
+                spillFile.deleteOnExit();
+                spill = new RandomAccessFile(spillFile, "rw");
+            }
+            spill.seek((long) slot * SPILL_BYTES);
+            spill.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to spill part of the island", e);
+        }
+        spills++;
+    }
+
+    private Terrain fileTerrain(int row, int column) {
+        Terrain terrain = mappedTerrain.getTerrain(row, column);
+        // squares the file leaves out are water
+        return terrain == null ? Terrain.WATER : terrain;
+    }
+}
@@ -0,0 +1,268 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * The island of the day: one island that every player gets on the same day,
+ * made by IslandGenerator from a seed worked out from the date.
+ *
+ * An island is only used if it is a good challenge. MapValidator must find
+ * no problems, MapSolver must win it within a fixed number of states, the
+ * win must take at least MIN_MOVES moves and the catalog's difficulty
+ * estimate must be in range. An island that fails is replaced by the next
+ * one from a seed derived from the day's, so every player ends up with the
+ * same island. The solver runs on one thread with a state limit rather than
+ * a time limit, so a slow computer does not pick a different island.
+ *
+ * Generating and checking takes a few seconds, so each island is made once
+ * and kept in a store folder. Islands are stored as text maps named by the
+ * SHA-256 of their contents, and for each seed a small file names the
+ * island made from it. An island whose contents no longer match its name is
+ * made again.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class DailyMapService {
+
+    /** Rows and columns of the island of the day. */
+    static final int SIZE = 16;
+    /** Fewest moves a win of the island of the day may take. */
+    static final int MIN_MOVES = 20;
+    /** Part of the name of the files that name the island made from a seed. */
+    static final String SEED_EXTENSION = ".seed";
+
+    // changing the generator changes the islands, so stored islands are kept apart
+    private static final int GENERATOR_VERSION = 1;
+    private static final int MAX_ATTEMPTS = 16;
+    private static final long SOLVER_STATES = 200000;
+    private static final long SOLVER_MEMORY = 32L << 20;
+    private static final double MIN_DIFFICULTY = 0.25;
+    private static final double MAX_DIFFICULTY = 1.0;
+    private static final String MAP_EXTENSION = ".txt";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File store;
+
+    /**
+     * Creates a service that keeps its islands in a folder. The folder is
+     * made when the first island is stored.
+     *
+     * @param store the store folder
+     */
+    public DailyMapService(File store) {
+        this.store = store;
+    }
+
+    /**
+     * The seed for a day. Days are in UTC so that players everywhere share
+     * the same island at the same time.
+     *
+     * @param day any time in the day
+     * @return the seed
+     */
+    public static long seedFor(Date day) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        byte[] digest = sha256(("kiwi-island-daily-" + format.format(day)).getBytes(StandardCharsets.UTF_8));
+        long seed = 0;
+        for (int i = 0; i < 8; i++) {
+            seed = (seed << 8) | (digest[i] & 0xff);
+        }
+        return seed;
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * The island of the day, from the store if it was made before.
+     *
+     * @return the island's map file
+     * @throws IOException if the island cannot be stored, or no island
+     * passed the checks
+     */
+    public File getTodaysMap() throws IOException {
+        return getMap(seedFor(new Date()));
+    }
+
+    /**
+     * The island for a seed, from the store if it was made before.
+     *
+     * @param seed the seed
+     * @return the island's map file
+     * @throws IOException if the island cannot be stored, or no island
+     * passed the checks
+     */
+    public File getMap(long seed) throws IOException {
+        File stored = findStored(seed);
+        if (stored != null) {
+            return stored;
+        }
+        byte[] contents = generate(seed);
+        File map = new File(store, hex(sha256(contents)) + MAP_EXTENSION);
+        if (!store.isDirectory() && !store.mkdirs()) {
+            throw new IOException("Unable to create '" + store + "'");
+        }
+        // the island first, so a seed file always names a whole island
+        writeAtomically(map, contents);
+        writeAtomically(seedFile(seed), map.getName().getBytes(StandardCharsets.UTF_8));
+        return map;
+    }
+
+    /**
+     * A catalog like this one with the island of the day added.
+     *
+     * @param catalog the catalog
+     * @return the new catalog
+     * @throws IOException if the island cannot be made or read
+     */
+    public MapCatalog addTodaysMap(MapCatalog catalog) throws IOException {
+        return catalog.withEntry(MapCatalog.catalog(getTodaysMap()));
+    }
+
+    /**
+     * Generates islands from a seed until one passes the checks.
+     *
+     * @param seed the seed
+     * @return the island as a text map
+     * @throws IOException if no island passed
+     */
+    static byte[] generate(long seed) throws IOException {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            MapDefinition map = new IslandGenerator(seed + attempt * 0x9E3779B97F4A7C15L, SIZE, SIZE).generate();
+            if (isChallenge(map)) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+                map.write(out);
+                out.close();
+                return bytes.toByteArray();
+            }
+        }
+        throw new IOException("No island from seed " + seed + " passed the checks in " + MAX_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static boolean isChallenge(MapDefinition map) {
+        if (!MapValidator.validate(map).isEmpty()) {
+            return false;
+        }
+        MapSolver solver = new MapSolver(new GameRules(map));
+        solver.setThreads(1);
+        solver.setMemoryLimit(SOLVER_MEMORY);
+        solver.setStateLimit(SOLVER_STATES);
+        MapSolver.Solution solution = solver.solve();
+        if (solution.getOutcome() != MapSolver.Outcome.WINNABLE || solution.getMoves() < MIN_MOVES) {
+            return false;
+        }
+        double difficulty = MapCatalog.estimateDifficulty(map);
+        return difficulty >= MIN_DIFFICULTY && difficulty <= MAX_DIFFICULTY;
+    }
+
+    /**
+     * The stored island for a seed, if there is one and it is intact.
+     */
+    private File findStored(long seed) {
+        File seedFile = seedFile(seed);
+        if (!seedFile.isFile()) {
+            return null;
+        }
+        try {
+            String name = new String(readAll(seedFile), StandardCharsets.UTF_8).trim();
+            File map = new File(store, name);
+            if (!name.endsWith(MAP_EXTENSION) || !map.isFile()) {
+                return null;
+            }
+            String hash = name.substring(0, name.length() - MAP_EXTENSION.length());
+            if (!hash.equals(hex(sha256(readAll(map))))) {
+                System.err.println("Making '" + map + "' again, its contents have changed");
+                return null;
+            }
+            return map;
+        } catch (IOException e) {
+            System.err.println("Ignoring '" + seedFile + "', " + e.getMessage());
+            return null;
+        }
+    }
+
+    private File seedFile(long seed) {
+        return new File(store, Long.toHexString(seed) + "-v" + GENERATOR_VERSION + SEED_EXTENSION);
+    }
+
+    /**
+     * Writes a file so that a reader never sees half of it.
+     */
+    private static void writeAtomically(File file, byte[] contents) throws IOException {
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(contents);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                // some systems do not rename over a file
+                file.delete();
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Unable to write '" + file + "'");
+                }
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
@@ -1,17 +1,24 @@
 package nz.ac.aut.ense701.gameModel;
 
 import java.awt.Image;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Locale;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.Scanner;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import javax.imageio.ImageIO;
 
 /**
@@ -36,21 +43,92 @@ public class Game {
      * A new instance of Kiwi island that reads data from "IslandData.txt".
      */
     public Game() {
+        this(true);
+    }
+
+    private Game(boolean newGame) {
         eventListeners = new HashSet<GameEventListener>();
 
-        createNewGame();
+        if (newGame) {
+            createNewGame();
+        }
+    }
+
+    /**
+     * A game with no map yet, to be started with startGame. Used by the
+     * benchmarks, which time the steps of a new game one at a time.
+     *
+     * @return the game
+     */
+    static Game withoutMap() {
+        return new Game(false);
     }
 
     /**
-     * Starts a new game. At this stage data is being read from a text file
+     * Starts a new game. The map is normally read while the previous game is
+     * being played, so this only has to swap it in; the map after it is then
+     * read in the background.
      */
     public void createNewGame() {
-        totalPredators = 0;
-        totalKiwis = 0;
+        long start = GameMetrics.start();
+        GameCommandEvent event = new GameCommandEvent();
+        event.begin();
+        predatorsTrapped = 0;
+        kiwiCount = 0;
+        LoadedMap loaded = takePreloadedMap();
+        if (loaded == null) {
+            String fileName = selectMapFile();
+            if (fileName != null) {
+                loaded = loadMapFile(fileName);
+            }
+        }
+        if (loaded != null) {
+            useMap(loaded);
+        }
+        preloadNextMap();
+        state = GameState.PLAYING;
+        winMessage = "";
+        loseMessage = "";
+        playerMessage = "";
+        if (loaded == null && island != null) {
+            playerMessage = "No new island could be loaded from '" + MAPS_FOLDER + "', so this one is played again.";
+        }
+        notifyGameEventListeners();
+        GameMetrics.end(GameMetrics.Command.NEW_GAME, start);
+        event.finish(GameMetrics.Command.NEW_GAME.getKey(), null, prevMap, loaded != null);
+    }
+
+    /**
+     * Starts a new game on a map that has already been read, rather than
+     * one picked from the map catalog. Used by the benchmarks.
+     *
+     * @param fileName name of the map, as getPrevMap reports it
+     * @param map the map
+     */
+    void startGame(String fileName, MapDefinition map) {
+        predatorsTrapped = 0;
+        kiwiCount = 0;
+        useMap(loadMap(fileName, map, map.getPlayerRow(), map.getPlayerColumn()));
+        state = GameState.PLAYING;
+        winMessage = "";
+        loseMessage = "";
+        playerMessage = "";
+        notifyGameEventListeners();
+    }
+
+    /**
+     * Starts the current map again from a new copy of its file, with the
+     * player where they were if that square is still on the island. Used when
+     * the map file is changed while it is being played. The file may now be
+     * for an island of another size, so listeners are told as for a new game.
+     *
+     * @param map the map as the file has it now
+     */
+    public void reloadMap(MapDefinition map) {
+        Position position = player.getPosition();
         predatorsTrapped = 0;
         kiwiCount = 0;
-        initialiseIslandFromFile(selectMapFile());
-        drawIsland();
+        useMap(loadMap(prevMap, map, position.getRow(), position.getColumn()));
         state = GameState.PLAYING;
         winMessage = "";
         loseMessage = "";
@@ -58,6 +136,58 @@ public class Game {
         notifyGameEventListeners();
     }
 
+    /**
+     * Maps to pick new games from, shared by all games. Built from the maps
+     * folder the first time it is needed, or from the maps in the asset
+     * bundle if there is no maps folder.
+     *
+     * @return the map catalog
+     */
+    public static synchronized MapCatalog getMapCatalog() {
+        if (mapCatalog == null) {
+            mapCatalog = MAPS_FOLDER.isDirectory() ? MapCatalog.build(MAPS_FOLDER, MAP_CATALOG_FILE)
+                    : MapCatalog.build(AssetBundle.getDefault(), MAPS_FOLDER.getPath());
+        }
+        return mapCatalog;
+    }
+
+    /**
+     * The maps in the asset bundle, to pick from when the maps folder has
+     * none that can be played. Built the first time it is needed.
+     *
+     * @return the bundled maps
+     */
+    private static synchronized MapCatalog getBundledMapCatalog() {
+        if (bundledMapCatalog == null) {
+            bundledMapCatalog = MapCatalog.build(AssetBundle.getDefault(), MAPS_FOLDER.getPath());
+        }
+        return bundledMapCatalog;
+    }
+
+    /**
+     * Replaces the map catalog, for example when map files change. New
+     * games pick from it; games in progress are not affected.
+     *
+     * @param catalog the new catalog
+     */
+    public static synchronized void setMapCatalog(MapCatalog catalog) {
+        mapCatalog = catalog;
+    }
+
+    /**
+     * One of the game's images, such as "images/Kiwi.jpg", from the sprite
+     * atlas at the size of the description panel. Images that are not in
+     * the atlas are decoded the first time they are asked for, and shared
+     * after that.
+     *
+     * @param name the image's asset name
+     * @return the image, null if the asset is not an image
+     * @throws IOException if the asset cannot be read
+     */
+    public static Image getImage(String name) throws IOException {
+        return readImage(name);
+    }
+
     /**
      * *********************************************************************************************************************
      * Accessor methods for game data
@@ -254,6 +384,16 @@ public class Game {
         return player.getName();
     }
     
+    /**
+     * Is there an island to play? There is not if no map could be found or
+     * read when the game was created.
+     *
+     * @return true if there is an island
+     */
+    public boolean hasMap() {
+        return island != null;
+    }
+
     /**
      * Get the last map played
      * 
@@ -274,6 +414,132 @@ public class Game {
         return island.hasPlayer(new Position(island, row, column));
     }
 
+    /**
+     * Plans the route from the player's position to row, column that needs
+     * the least stamina with what is in the backpack now.
+     *
+     * @param row destination row
+     * @param column destination column
+     * @return positions to move to in order, or null if there is no route
+     */
+    public Position[] planRoute(int row, int column) {
+        if (routePlanner == null || routePlanner.getIsland() != island) {
+            routePlanner = new RoutePlanner(island);
+        }
+        return routePlanner.planRoute(player.getPosition(),
+                new Position(island, row, column), player);
+    }
+
+    /**
+     * Can the player get to this square with the stamina they have left?
+     *
+     * @param row the row
+     * @param column the column
+     * @return true if the square is reachable
+     */
+    public boolean isReachable(int row, int column) {
+        if (reachability == null || reachability.getIsland() != island) {
+            reachability = new ReachabilityField(island);
+        }
+        // cheap when nothing has changed since the last square asked
+        reachability.update(player);
+        return reachability.isReachable(row, column);
+    }
+
+    /**
+     * The game as it is now, for agents and simulations. Actions chosen for
+     * the snapshot are carried out with performAction.
+     *
+     * Only the squares within SNAPSHOT_RADIUS of the player are taken, as
+     * far as the search looks ahead, so large islands are not copied, or
+     * read into memory, for every action. The snapshot's rows and columns
+     * are still those of the island.
+     *
+     * @return a snapshot of the game in progress
+     * @throws IllegalArgumentException if there are more than
+     * GameRules.MAX_ANIMALS kiwis, predators or items near the player
+     */
+    public GameSnapshot getSnapshot() {
+        Position playerPosition = player.getPosition();
+        int top = Math.max(0, playerPosition.getRow() - SNAPSHOT_RADIUS);
+        int left = Math.max(0, playerPosition.getColumn() - SNAPSHOT_RADIUS);
+        int numRows = Math.min(island.getNumRows(), playerPosition.getRow() + SNAPSHOT_RADIUS + 1) - top;
+        int numColumns = Math.min(island.getNumColumns(), playerPosition.getColumn() + SNAPSHOT_RADIUS + 1) - left;
+        byte[] terrain = new byte[numRows * numColumns];
+        List<MapDefinition.OccupantDefinition> occupants = new ArrayList<MapDefinition.OccupantDefinition>();
+        List<Item> items = new ArrayList<Item>();
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numColumns; col++) {
+                Position position = new Position(island, top + row, left + col);
+                terrain[row * numColumns + col] = (byte) island.getTerrain(position).ordinal();
+                for (Occupant occupant : island.getOccupants(position)) {
+                    occupants.add(describeOccupant(occupant, row, col));
+                    if (occupant instanceof Item) {
+                        items.add((Item) occupant);
+                    }
+                }
+            }
+        }
+        List<MapDefinition.OccupantDefinition> carried = new ArrayList<MapDefinition.OccupantDefinition>();
+        long broken = 0L;
+        for (Item item : player.getInventory()) {
+            if (item instanceof Tool && ((Tool) item).isBroken()) {
+                broken |= 1L << items.size();
+            }
+            carried.add(describeOccupant(item, playerPosition.getRow() - top, playerPosition.getColumn() - left));
+            items.add(item);
+        }
+        MapDefinition map = new MapDefinition(numRows, numColumns, terrain, player.getName(),
+                playerPosition.getRow() - top, playerPosition.getColumn() - left, player.getMaximumStaminaLevel(),
+                player.getMaximumBackpackWeight(), player.getMaximumBackpackSize(), occupants);
+        GameRules rules = new GameRules(map, carried, totalKiwis, totalPredators, top, left);
+        snapshotItems = items.toArray(new Item[items.size()]);
+        return new GameSnapshot(rules, state, player.isAlive(), player.getStaminaLevel(),
+                kiwiCount, predatorsTrapped, broken);
+    }
+
+    /**
+     * Carries out an action chosen for the latest snapshot from getSnapshot.
+     *
+     * @param action an action of GameSnapshot
+     * @return true if the action was carried out, false if not
+     */
+    public boolean performAction(int action) {
+        int argument = GameSnapshot.actionArgument(action);
+        int kind = GameSnapshot.actionKind(action);
+        if (kind == GameSnapshot.MOVE) {
+            MoveDirection[] directions = MoveDirection.values();
+            return argument < directions.length && playerMove(directions[argument]);
+        }
+        if (kind == GameSnapshot.COUNT_KIWI) {
+            int counted = kiwiCount;
+            countKiwi();
+            return kiwiCount > counted;
+        }
+        if (snapshotItems == null || argument >= snapshotItems.length) {
+            return false;
+        }
+        Item item = snapshotItems[argument];
+        switch (kind) {
+            case GameSnapshot.COLLECT:
+                return collectItem(item);
+            case GameSnapshot.DROP:
+                return dropItem(item);
+            case GameSnapshot.EAT:
+            case GameSnapshot.FIX_TRAP:
+                // useItem only reports on traps
+                if (!player.hasItem(item) || (kind == GameSnapshot.EAT) != (item instanceof Food)) {
+                    return false;
+                }
+                useItem(item);
+                return true;
+            case GameSnapshot.USE_TRAP:
+                return useItem(item);
+            default:
+                return false;
+        }
+    }
+
     /**
      * Only exists for use of unit tests
      *
@@ -399,6 +665,9 @@ public class Game {
      * @return true if item was picked up, false if not
      */
     public boolean collectItem(Object item) {
+        long start = GameMetrics.start();
+        GameCommandEvent event = new GameCommandEvent();
+        event.begin();
         boolean success = (item instanceof Item) && (player.collect((Item) item));
         if (success) {
             // player has picked up an item: remove from grid square
@@ -407,6 +676,8 @@ public class Game {
             // everybody has to know about the change
             notifyGameEventListeners();
         }
+        GameMetrics.end(GameMetrics.Command.COLLECT, start);
+        event.finish(GameMetrics.Command.COLLECT.getKey(), item, prevMap, success);
         return success;
     }
 
@@ -417,6 +688,9 @@ public class Game {
      * @return true if what was dropped, false if not
      */
     public boolean dropItem(Object what) {
+        long start = GameMetrics.start();
+        GameCommandEvent event = new GameCommandEvent();
+        event.begin();
         boolean success = player.drop((Item) what);
         if (success) {
             // player has dropped an what: try to add to grid square
@@ -430,6 +704,8 @@ public class Game {
                 player.collect(item);
             }
         }
+        GameMetrics.end(GameMetrics.Command.DROP, start);
+        event.finish(GameMetrics.Command.DROP.getKey(), what, prevMap, success);
         return success;
     }
 
@@ -440,6 +716,9 @@ public class Game {
      * @return true if the item has been used, false if not
      */
     public boolean useItem(Object item) {
+        long start = GameMetrics.start();
+        GameCommandEvent event = new GameCommandEvent();
+        event.begin();
         boolean success = false;
         if (item instanceof Food && player.hasItem((Food) item)) //Player east food to increase stamina
         {
@@ -463,6 +742,8 @@ public class Game {
             }
         }
         updateGameState();
+        GameMetrics.end(GameMetrics.Command.USE, start);
+        event.finish(GameMetrics.Command.USE.getKey(), item, prevMap, success);
         return success;
     }
 
@@ -470,6 +751,9 @@ public class Game {
      * Count any kiwis in this position
      */
     public void countKiwi() {
+        long start = GameMetrics.start();
+        GameCommandEvent event = new GameCommandEvent();
+        event.begin();
         //check if there are any kiwis here
         for (Occupant occupant : island.getOccupants(player.getPosition())) {
             if (occupant instanceof Kiwi) {
@@ -482,6 +766,8 @@ public class Game {
             }
         }
         updateGameState();
+        GameMetrics.end(GameMetrics.Command.COUNT, start);
+        event.finish(GameMetrics.Command.COUNT.getKey(), null, prevMap, true);
     }
 
     /**
@@ -509,6 +795,10 @@ public class Game {
      * @return true if the move was successful, false if it was an invalid move
      */
     public boolean playerMove(MoveDirection direction) {
+        long start = GameMetrics.start();
+        GameCommandEvent event = new GameCommandEvent();
+        event.begin();
+        Tracer.begin("Game.playerMove", direction.name());
         // what terrain is the player moving on currently
         boolean successfulMove = false;
         if (isPlayerMovePossible(direction)) {
@@ -525,9 +815,49 @@ public class Game {
 
             updateGameState();
         }
+        Tracer.end();
+        GameMetrics.end(GameMetrics.Command.MOVE, start);
+        event.finish(GameMetrics.Command.MOVE.getKey(), direction, prevMap, successfulMove);
         return successfulMove;
     }
 
+    /**
+     * Saves the complete state of the game in progress to a file.
+     *
+     * @param fileName file to write the saved game to
+     * @param compress true to deflate the saved data
+     * @return true if the game was saved, false if not
+     */
+    public boolean saveGame(String fileName, boolean compress) {
+        boolean success = false;
+        try {
+            SaveGameFormat.write(this, new File(fileName), compress);
+            success = true;
+        } catch (IOException e) {
+            System.err.println("Unable to save game to '" + fileName + "'");
+        }
+        return success;
+    }
+
+    /**
+     * Replaces the current game with one previously saved by saveGame.
+     *
+     * @param fileName file to read the saved game from
+     * @return true if the game was loaded, false if not
+     */
+    public boolean loadGame(String fileName) {
+        boolean success = false;
+        try {
+            SaveGameFormat.read(this, new File(fileName));
+            success = true;
+        } catch (FileNotFoundException e) {
+            System.err.println("Unable to find saved game '" + fileName + "'");
+        } catch (IOException e) {
+            System.err.println("Problem encountered loading saved game: " + e.getMessage());
+        }
+        return success;
+    }
+
     /**
      * Adds a game event listener.
      *
@@ -555,7 +885,8 @@ public class Game {
      * Used after player actions to update game state. Applies the Win/Lose
      * rules.
      */
-    private void updateGameState() {
+    void updateGameState() {
+        Tracer.begin("Game.updateGameState");
         String message = "";
         if (!player.isAlive()) {
             state = GameState.LOST;
@@ -580,6 +911,63 @@ public class Game {
         }
         // notify listeners about changes
         notifyGameEventListeners();
+        Tracer.end();
+    }
+
+    /**
+     * Installs state read from a saved game and tells everybody about it.
+     *
+     * @param island the restored island, occupants already placed
+     * @param player the restored player, already on the island
+     * @param state the state the game was saved in
+     * @param kiwiCount kiwis counted so far
+     * @param totalKiwis kiwis on the map when the game started
+     * @param totalPredators predators on the map when the game started
+     * @param predatorsTrapped predators trapped so far
+     * @param prevMap the map file the game was started from
+     */
+    void restoreState(Island island, Player player, GameState state,
+            int kiwiCount, int totalKiwis, int totalPredators, int predatorsTrapped,
+            String prevMap) {
+        this.island = island;
+        this.player = player;
+        this.state = state;
+        this.kiwiCount = kiwiCount;
+        this.totalKiwis = totalKiwis;
+        this.totalPredators = totalPredators;
+        this.predatorsTrapped = predatorsTrapped;
+        this.prevMap = prevMap;
+        winMessage = "";
+        loseMessage = "";
+        playerMessage = "";
+        notifyGameEventListeners();
+    }
+
+    /**
+     * Number of kiwis on the map when the game started
+     *
+     * @return total kiwis
+     */
+    int getTotalKiwis() {
+        return totalKiwis;
+    }
+
+    /**
+     * Number of predators on the map when the game started
+     *
+     * @return total predators
+     */
+    int getTotalPredators() {
+        return totalPredators;
+    }
+
+    /**
+     * Number of predators trapped so far
+     *
+     * @return predators trapped
+     */
+    int getPredatorsTrapped() {
+        return predatorsTrapped;
     }
 
     /**
@@ -645,12 +1033,14 @@ public class Game {
      * hazards kill player and end game.
      */
     private void checkForHazard() {
+        Tracer.begin("Game.checkForHazard");
         //check if there are hazards
         for (Occupant occupant : island.getOccupants(player.getPosition())) {
             if (occupant instanceof Hazard) {
                 handleHazard((Hazard) occupant);
             }
         }
+        Tracer.end();
     }
 
     /**
@@ -659,6 +1049,7 @@ public class Game {
      * @param hazard to handle
      */
     private void handleHazard(Hazard hazard) {
+        GameMetrics.count(GameMetrics.Counter.HAZARDS);
         if (hazard.isFatal()) {
             player.kill();
             this.setLoseMessage(hazard.getDescription() + " has killed you.");
@@ -685,123 +1076,266 @@ public class Game {
         }
     }
 
+    /**
+     * Describes an occupant the way the map file would.
+     */
+    private static MapDefinition.OccupantDefinition describeOccupant(Occupant occupant, int row, int col) {
+        String type = "F";
+        double weight = 0.0;
+        double size = 0.0;
+        double energy = 0.0;
+        double impact = 0.0;
+        if (occupant instanceof Kiwi) {
+            type = "K";
+        } else if (occupant instanceof Predator) {
+            type = "P";
+        } else if (occupant instanceof Hazard) {
+            type = "H";
+            impact = ((Hazard) occupant).getImpact();
+        } else if (occupant instanceof Item) {
+            Item item = (Item) occupant;
+            type = item instanceof Food ? "E" : "T";
+            weight = item.getWeight();
+            size = item.getSize();
+            if (item instanceof Food) {
+                energy = ((Food) item).getEnergy();
+            }
+        }
+        return new MapDefinition.OccupantDefinition(type, occupant.getName(), occupant.getDescription(),
+                row, col, weight, size, energy, impact);
+    }
+
     /**
      * Notifies all game event listeners about a change.
      */
-    private void notifyGameEventListeners() {
+    void notifyGameEventListeners() {
+        GameMetrics.count(GameMetrics.Counter.NOTIFICATIONS);
+        ListenerNotificationEvent event = new ListenerNotificationEvent();
+        event.begin();
+        Tracer.begin("Game.notifyGameEventListeners");
         for (GameEventListener listener : eventListeners) {
             listener.gameStateChanged();
         }
+        Tracer.end();
+        event.finish(eventListeners.size(), prevMap, state);
     }
 
     /**
-     * Loads terrain and occupant data from a file. At this stage this method
-     * assumes that the data file is correct and just throws an exception or
-     * ignores it if it is not.
+     * Reads a map from its file, or from the asset bundle when the game is
+     * run without a maps folder.
+     *
+     * @param fileName file name of the map, or its asset name
+     * @return the map
+     * @throws IOException if the map cannot be read
+     */
+    static MapDefinition readMap(String fileName) throws IOException {
+        File file = new File(fileName);
+        if (!file.exists() && AssetBundle.getDefault().contains(fileName)) {
+            return MapDefinition.read(AssetBundle.getDefault(), fileName);
+        }
+        return MapDefinition.read(file);
+    }
+
+    /**
+     * Reads a map file and creates its island, player and occupants.
+     * Problems with the file are reported with where in the file they are.
      *
      * @param fileName file name of the data file
+     * @return the map ready to play, null if it could not be read
      */
-    private void initialiseIslandFromFile(String fileName) {
+    private LoadedMap loadMapFile(String fileName) {
         try {
-            Scanner input = new Scanner(new File(fileName));
-            // make sure decimal numbers are read in the form "123.23"
-            input.useLocale(Locale.US);
-            input.useDelimiter("\\s*,\\s*");
+            MapLoadEvent event = new MapLoadEvent();
+            event.begin();
+            MapDefinition map = readMap(fileName);
+            event.finish("read", fileName, map);
+            return loadMap(fileName, map, map.getPlayerRow(), map.getPlayerColumn());
+        } catch (FileNotFoundException e) {
+            System.err.println("Unable to find data file '" + fileName + "'");
+        } catch (MapFormatException e) {
+            System.err.println("Problem in data file '" + fileName + "', " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Problem encountered processing file.");
+        }
+        return null;
+    }
 
+    /**
+     * Creates the island, player and occupants of a map. Only touches the
+     * map it creates, so it can run on the preloader thread.
+     *
+     * @param fileName the file the map was read from
+     * @param map the map
+     * @param playerRow row to start the player on
+     * @param playerColumn column to start the player on, the player starts
+     * where the map says if the square is not on the island
+     * @return the map ready to play
+     */
+    private LoadedMap loadMap(String fileName, MapDefinition map, int playerRow, int playerColumn) {
+        MapLoadEvent terrainEvent = new MapLoadEvent();
+        terrainEvent.begin();
+        MappedIsland mapped = map.getMappedIsland();
+        LoadedMap loaded;
+        if (mapped != null) {
+            // the terrain is read from the island file as it is needed
+            loaded = new LoadedMap(fileName, new ChunkedIsland(mapped, ChunkedIsland.DEFAULT_MEMORY_BUDGET));
+        } else {
             // create the island
-            int numRows = input.nextInt();
-            int numColumns = input.nextInt();
-            island = new Island(numRows, numColumns);
+            loaded = new LoadedMap(fileName, new Island(map.getNumRows(), map.getNumColumns()));
 
-            // read and setup the terrain
-            setUpTerrain(input);
+            // setup the terrain
+            setUpTerrain(loaded.island, map);
+        }
+        terrainEvent.finish("terrain", fileName, map);
+
+        // setup the player
+        loaded.player = setUpPlayer(loaded.island, map, playerRow, playerColumn);
+
+        // setup the occupants
+        MapLoadEvent occupantsEvent = new MapLoadEvent();
+        occupantsEvent.begin();
+        setUpOccupants(loaded, map);
+        occupantsEvent.finish("occupants", fileName, map);
+        GameMetrics.count(GameMetrics.Counter.MAPS_LOADED);
+        return loaded;
+    }
 
-            // read and setup the player
-            setUpPlayer(input);
+    /**
+     * Makes a loaded map the one being played.
+     *
+     * @param loaded the map
+     */
+    private void useMap(LoadedMap loaded) {
+        if (island instanceof ChunkedIsland && island != loaded.island) {
+            ((ChunkedIsland) island).close();
+        }
+        island = loaded.island;
+        player = loaded.player;
+        totalKiwis = loaded.totalKiwis;
+        totalPredators = loaded.totalPredators;
+        prevMap = loaded.path;
+    }
 
-            // read and setup the occupants
-            setUpOccupants(input);
+    /**
+     * Picks the next map and starts reading it on the preloader thread.
+     */
+    private void preloadNextMap() {
+        nextMapCatalog = getMapCatalog();
+        final String fileName = selectMapFile();
+        if (fileName == null) {
+            nextMap = null;
+            return;
+        }
+        nextMap = PRELOADER.submit(new Callable<LoadedMap>() {
+            @Override
+            public LoadedMap call() {
+                return loadMapFile(fileName);
+            }
+        });
+    }
 
-            input.close();
-        } catch (FileNotFoundException e) {
-            System.err.println("Unable to find data file '" + fileName + "'");
-        } catch (IOException e) {
-            System.err.println("Problem encountered processing file.");
+    /**
+     * The map read by preloadNextMap, waiting for it if it is not read yet.
+     *
+     * @return the map, null if there is none, it could not be read or the
+     * maps have changed since it was picked
+     */
+    private LoadedMap takePreloadedMap() {
+        if (nextMap == null) {
+            return null;
+        }
+        Future<LoadedMap> preloaded = nextMap;
+        nextMap = null;
+        LoadedMap loaded = null;
+        try {
+            loaded = preloaded.get();
+        } catch (ExecutionException e) {
+            System.err.println("Problem encountered preloading map: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        if (loaded != null && nextMapCatalog != getMapCatalog()) {
+            // the map files changed after this one was read
+            loaded.discard();
+            loaded = null;
+        }
+        return loaded;
     }
 
     /**
-     * Reads terrain data and creates the terrain.
+     * Creates the terrain.
      *
-     * @param input data from the level file
+     * @param island the island to set the terrain of
+     * @param map data from the level file
      */
-    private void setUpTerrain(Scanner input) {
+    void setUpTerrain(Island island, MapDefinition map) {
         for (int row = 0; row < island.getNumRows(); row++) {
-            String terrainRow = input.next();
-            for (int col = 0; col < terrainRow.length(); col++) {
-                Position pos = new Position(island, row, col);
-                String terrainString = terrainRow.substring(col, col + 1);
-                Terrain terrain = Terrain.getTerrainFromStringRepresentation(terrainString);
-                island.setTerrain(pos, terrain);
+            for (int col = 0; col < island.getNumColumns(); col++) {
+                Terrain terrain = map.getTerrain(row, col);
+                // squares the file leaves out stay water
+                if (terrain != null) {
+                    island.setTerrain(new Position(island, row, col), terrain);
+                }
             }
         }
     }
 
     /**
-     * Reads player data and creates the player.
+     * Creates the player.
      *
-     * @param input data from the level file
+     * @param island the island to put the player on
+     * @param map data from the level file
+     * @param row row to start on
+     * @param column column to start on, the map's start is used if the
+     * square is not on the island
+     * @return the player
      */
-    private void setUpPlayer(Scanner input) {
-        String playerName = input.next();
-        int playerPosRow = input.nextInt();
-        int playerPosCol = input.nextInt();
-        double playerMaxStamina = input.nextDouble();
-        double playerMaxBackpackWeight = input.nextDouble();
-        double playerMaxBackpackSize = input.nextDouble();
-
-        Position pos = new Position(island, playerPosRow, playerPosCol);
-        player = new Player(pos, playerName,
-                playerMaxStamina,
-                playerMaxBackpackWeight, playerMaxBackpackSize);
+    private Player setUpPlayer(Island island, MapDefinition map, int row, int column) {
+        if (row < 0 || row >= map.getNumRows() || column < 0 || column >= map.getNumColumns()) {
+            row = map.getPlayerRow();
+            column = map.getPlayerColumn();
+        }
+        Position pos = new Position(island, row, column);
+        Player player = new Player(pos, map.getPlayerName(),
+                map.getMaxStamina(),
+                map.getMaxBackpackWeight(), map.getMaxBackpackSize());
         island.updatePlayerPosition(player);
+        return player;
     }
 
     /**
      * Creates occupants listed in the file and adds them to the island.
      *
-     * @param input data from the level file
-     */
-    private void setUpOccupants(Scanner input) {
-        int numItems = input.nextInt();
-        for (int i = 0; i < numItems; i++) {
-            String occType = input.next();
-            String occName = input.next();
-            String occDesc = input.next();
-            int occRow = input.nextInt();
-            int occCol = input.nextInt();
-            Position occPos = new Position(island, occRow, occCol);
+     * @param loaded the map to add the occupants to
+     * @param map data from the level file
+     */
+    void setUpOccupants(LoadedMap loaded, MapDefinition map) {
+        for (MapDefinition.OccupantDefinition definition : map.getOccupants()) {
+            String occType = definition.getType();
+            String occName = definition.getName();
+            String occDesc = definition.getDescription();
+            Position occPos = new Position(loaded.island, definition.getRow(), definition.getColumn());
             Occupant occupant = null;
 
             if (occType.equals("T")) {
-                double weight = input.nextDouble();
-                double size = input.nextDouble();
+                double weight = definition.getWeight();
+                double size = definition.getSize();
                 try {
                     occupant = new Tool(occPos, occName, occDesc, weight, size, getOccupantImageFile("T",occName));
                 } catch (IOException ex) {
                     System.err.println("Error reading File");
                     occupant = new Tool(occPos, occName, occDesc, weight, size, null);               }
             } else if (occType.equals("E")) {
-                double weight = input.nextDouble();
-                double size = input.nextDouble();
-                double energy = input.nextDouble();
+                double weight = definition.getWeight();
+                double size = definition.getSize();
+                double energy = definition.getEnergy();
                 try {
                     occupant = new Food(occPos, occName, occDesc, weight, size, energy, getOccupantImageFile("E",occName));
                 } catch (IOException ex) {
                     occupant = new Food(occPos, occName, occDesc, weight, size, energy, null);
                 }
             } else if (occType.equals("H")) {
-                double impact = input.nextDouble();
+                double impact = definition.getImpact();
                 try {
                     occupant = new Hazard(occPos, occName, occDesc, impact, getOccupantImageFile("H",occName));
                 } catch (IOException ex) {
@@ -814,7 +1348,7 @@ public class Game {
                     System.err.println("Error reading File");
                     occupant = new Kiwi(occPos, occName, occDesc, null);
                 }
-                totalKiwis++;
+                loaded.totalKiwis++;
             } else if (occType.equals("P")) {
                 try {
                     occupant = new Predator(occPos, occName, occDesc, getOccupantImageFile("P",occName));
@@ -822,7 +1356,7 @@ public class Game {
                     System.err.println("Error reading File");
                     occupant = new Predator(occPos, occName, occDesc, null);
                 }
-                totalPredators++;
+                loaded.totalPredators++;
             } else if (occType.equals("F")) {
                 try {
                     occupant = new Fauna(occPos, occName, occDesc, getOccupantImageFile("F",occName));
@@ -832,35 +1366,39 @@ public class Game {
                 }
             }
             if (occupant != null) {
-                island.addOccupant(occPos, occupant);
+                loaded.island.addOccupant(occPos, occupant);
             }
         }
     }
     
     /**
-     * Randomly picks a map to be played on from the maps folder
+     * Randomly picks a map to be played on from the map catalog, avoiding
+     * the maps played most recently. The maps folder is only looked at the
+     * first time a game is created. Maps with more than MAX_PLAYABLE_SQUARES
+     * squares are never picked, as the island grid shows every square. If
+     * the maps folder has no maps that can be picked, the maps in the asset
+     * bundle are picked from.
      * 
-     * @return path location of chosen map
-     */
-    private String selectMapFile() {
-        File folder = new File("maps");
-        File[] mapFiles = folder.listFiles();
-        if (mapFiles.length == 2){
-            if (mapFiles[1].getPath().equals(prevMap)){
-                prevMap= mapFiles[0].getPath();
-                return(mapFiles[0].getPath());
-            } else{
-                prevMap = mapFiles[1].getPath();
-                return(mapFiles[1].getPath());
-            }
-        } else{
-            int randIndex = ThreadLocalRandom.current().nextInt(0, mapFiles.length);
-            while (mapFiles[randIndex].getPath().equals(prevMap)){
-                randIndex = ThreadLocalRandom.current().nextInt(0, mapFiles.length);
+     * @return path location of chosen map, null if there are no maps
+     */
+    String selectMapFile() {
+        MapCatalog catalog = getMapCatalog();
+        if (mapSelector == null || selectorCatalog != catalog) {
+            MapCatalog.Filter playable = new MapCatalog.Filter().setSquares(0, MAX_PLAYABLE_SQUARES);
+            // as varied as possible while still random
+            mapSelector = catalog.select(playable, catalog.getEntries().size() / 2, new Random());
+            selectorCatalog = catalog;
+            if (mapSelector.size() == 0) {
+                MapCatalog bundled = getBundledMapCatalog();
+                mapSelector = bundled.select(playable, bundled.getEntries().size() / 2, new Random());
             }
-            prevMap = mapFiles[randIndex].getPath();
-            return(mapFiles[randIndex].getPath());
         }
+        MapCatalog.Entry map = mapSelector.next();
+        if (map != null && map.getPath().equals(prevMap) && mapSelector.size() > 1) {
+            // a new selector does not know what was played last
+            map = mapSelector.next();
+        }
+        return map == null ? null : map.getPath();
     }
     //written by glen deleted by brendon
     /**
@@ -944,71 +1482,133 @@ public class Game {
             return (occ.getDescription());
         }
         
-        private Image getOccupantImageFile(String occType, String occName) throws IOException {
-            File file = new File("images/doc.jpg");
+        Image getOccupantImageFile(String occType, String occName) throws IOException {
+            String file = "images/doc.jpg";
             try{
                 if (occType.equals("K")) {
-                    file = new File("images/Kiwi.jpg");
-                    return (ImageIO.read(file));
+                    file = "images/Kiwi.jpg";
+                    return (readImage(file));
                 } 
                 else if (occType.equals("E")){
-                    file = new File("images/Food.jpg");
-                    return (ImageIO.read(file));
+                    file = "images/Food.jpg";
+                    return (readImage(file));
                 }
                 else if (occType.equals("T")){
                     if (occName.equals("Trap")){
-                        file = new File("images/Trap.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Trap.jpg";
+                        return (readImage(file));
                     } else{
-                        file = new File("images/Screwdriver.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Screwdriver.jpg";
+                        return (readImage(file));
                     }
                 }
                 else if (occType.equals("F")) { 
                     if (occName.equals("Crab")){
-                        file = new File("images/Crab.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Crab.jpg";
+                        return (readImage(file));
                     } else if (occName.equals("Dolphin")){
-                        file = new File("images/Dolphin.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Dolphin.jpg";
+                        return (readImage(file));
                     }else if (occName.equals("Tui")){
-                        file = new File("images/Tui.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Tui.jpg";
+                        return (readImage(file));
                     }else if (occName.equals("Oystercatcher")){
-                        file = new File("images/Oystercatcher.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Oystercatcher.jpg";
+                        return (readImage(file));
                     }else if (occName.equals("Fenbird")){
-                        file = new File("images/Fenbird.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Fenbird.jpg";
+                        return (readImage(file));
                     }else if (occName.equals("Heron")){
-                        file = new File("images/Heron.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Heron.jpg";
+                        return (readImage(file));
                     }else{
-                        file = new File("images/Robin.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Robin.jpg";
+                        return (readImage(file));
                     }
                 } else if (occType.equals("P")){
                     if (occName.equals("Rat")){
-                        file = new File("images/Rat.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Rat.jpg";
+                        return (readImage(file));
                     }else if (occName.equals("Cat")){
-                        file = new File("images/Cat.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Cat.jpg";
+                        return (readImage(file));
                     }else if (occName.equals("Stoat")){
-                        file = new File("images/Stoat.jpg");
-                        return (ImageIO.read(file));
+                        file = "images/Stoat.jpg";
+                        return (readImage(file));
                     } else{
-                        file = new File("images/Possum.jpg");
-                        return(ImageIO.read(file));
+                        file = "images/Possum.jpg";
+                        return(readImage(file));
                     }
                 }
             } catch(Exception e){
                 System.err.println("Error reading image");
             }
-        return (ImageIO.read(file));
+        return (readImage(file));
+    }
+
+    /**
+     * Takes an occupant image from the sprite atlas, at the size of the
+     * description panel, or reads it if it is not in the atlas. Occupants
+     * of the same kind share one image.
+     *
+     * @param name the image's asset name
+     * @return the image, null if the asset is not an image
+     * @throws IOException if the asset cannot be read
+     */
+    private static Image readImage(String name) throws IOException {
+        SpriteAtlas atlas = SpriteAtlas.getDefault();
+        if (atlas.contains(name)) {
+            return atlas.getSprite(name, SpriteAtlas.Size.DESCRIPTION);
+        }
+        Image image = OCCUPANT_IMAGES.get(name);
+        if (image == null) {
+            ImageDecodeEvent event = new ImageDecodeEvent();
+            event.begin();
+            BufferedImage decoded = ImageIO.read(AssetBundle.getDefault().open(name));
+            event.finish(name, decoded);
+            GameMetrics.count(GameMetrics.Counter.IMAGES_DECODED);
+            image = decoded;
+            if (image != null) {
+                OCCUPANT_IMAGES.put(name, image);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Forgets the sprite atlas and the occupant images read so far, so they
+     * are decoded again. Used by the benchmarks to time the decoding.
+     */
+    static void clearImageCache() {
+        SpriteAtlas.clearDefault();
+        OCCUPANT_IMAGES.clear();
+    }
+
+    /**
+     * An island with its player and occupants, ready to be played.
+     */
+    static final class LoadedMap {
+
+        private final String path;
+        private final Island island;
+        private Player player;
+        private int totalKiwis;
+        private int totalPredators;
+
+        LoadedMap(String path, Island island) {
+            this.path = path;
+            this.island = island;
+        }
+
+        /**
+         * Lets go of a map that will not be played.
+         */
+        void discard() {
+            if (island instanceof ChunkedIsland) {
+                ((ChunkedIsland) island).close();
+            }
+        }
     }
-        
-    
 
         private Island island;
         private Player player;
@@ -1018,6 +1618,12 @@ public class Game {
         private int totalKiwis;
         private int predatorsTrapped;
         private Set<GameEventListener> eventListeners;
+        private RoutePlanner routePlanner;
+        private ReachabilityField reachability;
+        // items of the latest snapshot, by item index
+        private Item[] snapshotItems;
+        // squares around the player a snapshot takes, about as far as auto-play looks ahead
+        private static final int SNAPSHOT_RADIUS = 32;
 
         private final double MIN_REQUIRED_CATCH = 0.8;
 
@@ -1025,6 +1631,28 @@ public class Game {
         private String loseMessage = "";
         private String playerMessage = "";
         private String prevMap = "";
+        private MapCatalog.Selector mapSelector;
+        private MapCatalog selectorCatalog;
+        private static MapCatalog mapCatalog;
+        private static MapCatalog bundledMapCatalog;
+        public static final File MAPS_FOLDER = new File("maps");
+        private static final File MAP_CATALOG_FILE = new File("maps.catalog");
+        // most squares a map picked for a new game may have; the island grid has a panel for each
+        private static final long MAX_PLAYABLE_SQUARES = 64 * 64;
+        // the next map, read on the preloader thread while a game is played
+        private Future<LoadedMap> nextMap;
+        // catalog the next map was picked from
+        private MapCatalog nextMapCatalog;
+        private static final ExecutorService PRELOADER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "map preloader");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        private static final Map<String, Image> OCCUPANT_IMAGES = new ConcurrentHashMap<String, Image>();
         //import the descriptions and images for description pannel
         private DescImporter DI = new DescImporter();
         private ArrayList<String> descriptionIconList = DI.importImages();
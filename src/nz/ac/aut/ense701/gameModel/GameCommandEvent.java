@@ -0,0 +1,55 @@
+package nz.ac.aut.ense701.gameModel;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a command carried out by Game: a move,
+ * collect, drop, use, count or new game. Like all the game's events it
+ * costs almost nothing unless a recording has it enabled, as the sample
+ * settings in kiwiisland.jfc do.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@Name("nz.ac.aut.ense701.GameCommand")
+@Label("Game Command")
+@Category({"Kiwi Island", "Game"})
+@Description("A command carried out by the game")
+final class GameCommandEvent extends Event {
+
+    @Label("Command")
+    String command;
+
+    @Label("Argument")
+    @Description("Direction of a move, or the item collected, dropped or used")
+    String argument;
+
+    @Label("Map")
+    String map;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /**
+     * Ends the event and records it if the recording wants it.
+     *
+     * @param command the command, as GameMetrics names it
+     * @param argument the direction or item, null if there is none
+     * @param map the map being played
+     * @param succeeded did the command do anything?
+     */
+    void finish(String command, Object argument, String map, boolean succeeded) {
+        end();
+        if (shouldCommit()) {
+            this.command = command;
+            this.argument = argument == null ? null : argument.toString();
+            this.map = map;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
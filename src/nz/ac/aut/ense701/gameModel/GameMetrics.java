@@ -0,0 +1,320 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * How long the game's commands take and how often things happen in it.
+ * Game times every move, collect, drop, use, count and new game in a
+ * LatencyHistogram, and counts notifications, hazards, maps loaded and
+ * images decoded.
+ *
+ * Metrics are off unless the game is started with -Dkiwiisland.metrics=true.
+ * The switch is a constant, so when it is off the JIT compiler leaves the
+ * timing out of Game altogether. When it is on, a command costs two reads
+ * of System.nanoTime and a few atomic increments more. startReporting then
+ * shows the metrics over JMX, as a GameMetricsMXBean, and writes them to
+ * standard error every minute, or every -Dkiwiisland.metrics.interval
+ * seconds.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class GameMetrics implements GameMetricsMXBean {
+
+    /** Are metrics kept? */
+    public static final boolean ENABLED = Boolean.getBoolean("kiwiisland.metrics");
+    /** The name the metrics have over JMX. */
+    public static final String OBJECT_NAME = "nz.ac.aut.ense701:type=GameMetrics";
+
+    /**
+     * The commands that are timed.
+     */
+    public enum Command {
+        MOVE("move"), COLLECT("collect"), DROP("drop"), USE("use"), COUNT("count"), NEW_GAME("newGame");
+
+        private final String key;
+
+        private Command(String key) {
+            this.key = key;
+        }
+
+        /**
+         * The name of the command in the metrics.
+         *
+         * @return the name
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * The things that are counted.
+     */
+    public enum Counter {
+        NOTIFICATIONS, HAZARDS, MAPS_LOADED, IMAGES_DECODED
+    }
+
+    private static final long DEFAULT_INTERVAL = 60;
+    private static final GameMetrics METRICS = new GameMetrics();
+    private static ScheduledExecutorService reporter;
+
+    private final LatencyHistogram[] latencies;
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+    /**
+     * Creates metrics with nothing counted yet. The game's own metrics are
+     * getInstance.
+     */
+    public GameMetrics() {
+        latencies = new LatencyHistogram[Command.values().length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * The metrics kept by the game.
+     *
+     * @return the metrics
+     */
+    public static GameMetrics getInstance() {
+        return METRICS;
+    }
+
+    /**
+     * Shows the game's metrics over JMX and starts writing them to standard
+     * error regularly. Does nothing if metrics are off, or if reporting has
+     * already started.
+     */
+    public static synchronized void startReporting() {
+        if (!ENABLED || reporter != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(METRICS, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Game metrics not shown over JMX, " + e.getMessage());
+        }
+        long interval = Long.getLong("kiwiisland.metrics.interval", DEFAULT_INTERVAL);
+        reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "metrics reporter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                System.err.println(METRICS.getSummary());
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * When a command starts, for timing it with end.
+     *
+     * @return the time, 0 if metrics are off
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Times a command that has finished.
+     *
+     * @param command the command
+     * @param start what start returned when the command started
+     */
+    static void end(Command command, long start) {
+        if (ENABLED) {
+            METRICS.record(command, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Counts something that happened.
+     *
+     * @param counter what happened
+     */
+    static void count(Counter counter) {
+        if (ENABLED) {
+            METRICS.increment(counter);
+        }
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * The times of a command.
+     *
+     * @param command the command
+     * @return its times
+     */
+    public LatencyHistogram getLatency(Command command) {
+        return latencies[command.ordinal()];
+    }
+
+    /**
+     * How many times something happened.
+     *
+     * @param counter what happened
+     * @return the number of times
+     */
+    public long getCount(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        Map<String, Long> values = new LinkedHashMap<String, Long>();
+        for (Command command : Command.values()) {
+            values.put(command.getKey(), getLatency(command).getCount());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getMeanNanos() {
+        Map<String, Long> values = new LinkedHashMap<String, Long>();
+        for (Command command : Command.values()) {
+            values.put(command.getKey(), getLatency(command).getMean());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getMedianNanos() {
+        return getPercentiles(50);
+    }
+
+    @Override
+    public Map<String, Long> getPercentile99Nanos() {
+        return getPercentiles(99);
+    }
+
+    @Override
+    public Map<String, Long> getMaxNanos() {
+        Map<String, Long> values = new LinkedHashMap<String, Long>();
+        for (Command command : Command.values()) {
+            values.put(command.getKey(), getLatency(command).getMax());
+        }
+        return values;
+    }
+
+    @Override
+    public long getNotifications() {
+        return getCount(Counter.NOTIFICATIONS);
+    }
+
+    @Override
+    public long getHazardsTriggered() {
+        return getCount(Counter.HAZARDS);
+    }
+
+    @Override
+    public long getMapsLoaded() {
+        return getCount(Counter.MAPS_LOADED);
+    }
+
+    @Override
+    public long getImagesDecoded() {
+        return getCount(Counter.IMAGES_DECODED);
+    }
+
+    /**
+     * The metrics on one line, such as
+     * "metrics: move n=120 p50=2.1us p99=8.4us max=31.0us, ...,
+     * notifications=130 hazards=2 maps=3 images=11". Commands that have not
+     * been carried out are left out.
+     *
+     * @return the line
+     */
+    public String getSummary() {
+        StringBuilder line = new StringBuilder("metrics:");
+        for (Command command : Command.values()) {
+            LatencyHistogram latency = getLatency(command);
+            if (latency.getCount() > 0) {
+                line.append(' ').append(command.getKey())
+                        .append(" n=").append(latency.getCount())
+                        .append(" p50=").append(micros(latency.getPercentile(50)))
+                        .append(" p99=").append(micros(latency.getPercentile(99)))
+                        .append(" max=").append(micros(latency.getMax()))
+                        .append(',');
+            }
+        }
+        line.append(" notifications=").append(getNotifications())
+                .append(" hazards=").append(getHazardsTriggered())
+                .append(" maps=").append(getMapsLoaded())
+                .append(" images=").append(getImagesDecoded());
+        return line.toString();
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Mutator methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Counts the time a command took.
+     *
+     * @param command the command
+     * @param nanos the time in nanoseconds
+     */
+    public void record(Command command, long nanos) {
+        latencies[command.ordinal()].record(nanos);
+    }
+
+    /**
+     * Counts something that happened.
+     *
+     * @param counter what happened
+     */
+    public void increment(Counter counter) {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram latency : latencies) {
+            latency.reset();
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private Map<String, Long> getPercentiles(double percent) {
+        Map<String, Long> values = new LinkedHashMap<String, Long>();
+        for (Command command : Command.values()) {
+            values.put(command.getKey(), getLatency(command).getPercentile(percent));
+        }
+        return values;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1fus", nanos / 1000.0);
+    }
+}
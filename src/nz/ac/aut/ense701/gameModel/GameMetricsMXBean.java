@@ -0,0 +1,82 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.Map;
+
+/**
+ * What GameMetrics shows over JMX, under the name GameMetrics.OBJECT_NAME.
+ * Times are in nanoseconds and are keyed by command: move, collect, drop,
+ * use, count and newGame.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public interface GameMetricsMXBean {
+
+    /**
+     * How many times each command was carried out.
+     *
+     * @return the number of times by command
+     */
+    Map<String, Long> getCommandCounts();
+
+    /**
+     * The mean time of each command.
+     *
+     * @return the time by command
+     */
+    Map<String, Long> getMeanNanos();
+
+    /**
+     * The median time of each command.
+     *
+     * @return the time by command
+     */
+    Map<String, Long> getMedianNanos();
+
+    /**
+     * The time that 99% of each command took no longer than.
+     *
+     * @return the time by command
+     */
+    Map<String, Long> getPercentile99Nanos();
+
+    /**
+     * The longest time of each command.
+     *
+     * @return the time by command
+     */
+    Map<String, Long> getMaxNanos();
+
+    /**
+     * How many times the game told its listeners it had changed.
+     *
+     * @return the number of notifications
+     */
+    long getNotifications();
+
+    /**
+     * How many hazards the player met.
+     *
+     * @return the number of hazards
+     */
+    long getHazardsTriggered();
+
+    /**
+     * How many maps were loaded, including those preloaded.
+     *
+     * @return the number of maps
+     */
+    long getMapsLoaded();
+
+    /**
+     * How many occupant images were decoded.
+     *
+     * @return the number of images
+     */
+    long getImagesDecoded();
+
+    /**
+     * Starts counting again from nothing.
+     */
+    void reset();
+}
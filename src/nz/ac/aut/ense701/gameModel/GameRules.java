@@ -0,0 +1,321 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The rules of Kiwi Island for one map, in a compact form for searching over
+ * many game states (see GameSnapshot).
+ *
+ * Everything that never changes during a game is kept here: terrain, hazards,
+ * where the kiwis, predators and items start and what they weigh. Occupants
+ * are placed the way Game places them, in file order with at most three to a
+ * square, and the totals count occupants that did not fit just like Game does.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class GameRules {
+
+    /** The most kiwis, predators or items a map can have, one bit each in a long. */
+    public static final int MAX_ANIMALS = 64;
+
+    static final int MAX_OCCUPANTS = 3;
+    static final double MIN_REQUIRED_CATCH = 0.8;
+    static final double FATAL_IMPACT = 1.0;
+
+    static final int FOOD = 0;
+    static final int TRAP = 1;
+    static final int SCREWDRIVER = 2;
+    static final int OTHER_TOOL = 3;
+
+    // item locations other than a cell
+    static final int IN_BACKPACK = -1;
+    static final int GONE = -2;
+
+    final int numRows;
+    final int numColumns;
+    // where square 0,0 of the rules is on the island, for rules of part of it
+    final int rowOffset;
+    final int columnOffset;
+    final double[] difficulty;
+
+    // hazards of cell c are hazardImpact[hazardStart[c] .. hazardStart[c + 1] - 1]
+    final int[] hazardStart;
+    final double[] hazardImpact;
+    final boolean[] hazardBreaksTrap;
+    // hazards and fauna, which never leave their square
+    final int[] fixedOccupants;
+
+    final int[] kiwiCell;
+    final int[] predatorCell;
+    final int totalKiwis;
+    final int totalPredators;
+
+    final String[] itemName;
+    final int[] itemKind;
+    final int[] itemStartCell;
+    final double[] itemWeight;
+    final double[] itemSize;
+    final double[] itemEnergy;
+
+    final String playerName;
+    final int playerStartCell;
+    final double maxStamina;
+    final double maxBackpackWeight;
+    final double maxBackpackSize;
+
+    // Zobrist keys
+    final long[] cellKey;
+    final long[] kiwiKey;
+    final long[] predatorKey;
+    final long[] itemLocationKey;
+    final long[] brokenKey;
+
+    /**
+     * Builds the rules for a map.
+     *
+     * @param map the map
+     * @throws IllegalArgumentException if the map has more than MAX_ANIMALS
+     * kiwis, predators or items on the island, or squares without terrain
+     */
+    public GameRules(MapDefinition map) {
+        this(map, Collections.<MapDefinition.OccupantDefinition>emptyList(), -1, -1, 0, 0);
+    }
+
+    /**
+     * Builds the rules for a game in progress, described as a map of what is
+     * left on the island (see Game.getSnapshot).
+     *
+     * @param map the island as it is now
+     * @param carried items in the player's backpack, after the items of the map
+     * @param totalKiwis kiwis when the game started, or -1 to count the map's
+     * @param totalPredators predators when the game started, or -1 to count
+     * the map's
+     * @param rowOffset row of the island the map's first row is, if the map is
+     * part of the island
+     * @param columnOffset column of the island the map's first column is
+     */
+    GameRules(MapDefinition map, List<MapDefinition.OccupantDefinition> carried,
+            int totalKiwis, int totalPredators, int rowOffset, int columnOffset) {
+        numRows = map.getNumRows();
+        numColumns = map.getNumColumns();
+        this.rowOffset = rowOffset;
+        this.columnOffset = columnOffset;
+        int cells = numRows * numColumns;
+        difficulty = new double[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            Terrain terrain = map.getTerrain(cell / numColumns, cell % numColumns);
+            if (terrain == null) {
+                throw new IllegalArgumentException("No terrain for square "
+                        + (cell / numColumns) + "," + (cell % numColumns));
+            }
+            difficulty[cell] = terrain.getDifficulty();
+        }
+
+        int[] occupantCount = new int[cells];
+        fixedOccupants = new int[cells];
+        List<Integer> kiwis = new ArrayList<Integer>();
+        List<Integer> predators = new ArrayList<Integer>();
+        List<MapDefinition.OccupantDefinition> items = new ArrayList<MapDefinition.OccupantDefinition>();
+        List<MapDefinition.OccupantDefinition> hazards = new ArrayList<MapDefinition.OccupantDefinition>();
+        int kiwiTotal = 0;
+        int predatorTotal = 0;
+        for (MapDefinition.OccupantDefinition occupant : map.getOccupants()) {
+            String type = occupant.getType();
+            boolean known = type.equals("T") || type.equals("E") || type.equals("H")
+                    || type.equals("K") || type.equals("P") || type.equals("F");
+            if (!known) {
+                continue;
+            }
+            // Game counts kiwis and predators even when their square is full
+            if (type.equals("K")) {
+                kiwiTotal++;
+            } else if (type.equals("P")) {
+                predatorTotal++;
+            }
+            int cell = occupant.getRow() * numColumns + occupant.getColumn();
+            if (occupantCount[cell] >= MAX_OCCUPANTS) {
+                continue;
+            }
+            occupantCount[cell]++;
+            if (type.equals("K")) {
+                kiwis.add(cell);
+            } else if (type.equals("P")) {
+                predators.add(cell);
+            } else if (type.equals("T") || type.equals("E")) {
+                items.add(occupant);
+            } else {
+                fixedOccupants[cell]++;
+                if (type.equals("H")) {
+                    hazards.add(occupant);
+                }
+            }
+        }
+        int itemsOnIsland = items.size();
+        items.addAll(carried);
+        if (kiwis.size() > MAX_ANIMALS || predators.size() > MAX_ANIMALS || items.size() > MAX_ANIMALS) {
+            throw new IllegalArgumentException("At most " + MAX_ANIMALS
+                    + " kiwis, predators and items are supported");
+        }
+        this.totalKiwis = totalKiwis < 0 ? kiwiTotal : totalKiwis;
+        this.totalPredators = totalPredators < 0 ? predatorTotal : totalPredators;
+        kiwiCell = toArray(kiwis);
+        predatorCell = toArray(predators);
+
+        hazardStart = new int[cells + 1];
+        for (MapDefinition.OccupantDefinition hazard : hazards) {
+            hazardStart[hazard.getRow() * numColumns + hazard.getColumn() + 1]++;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            hazardStart[cell + 1] += hazardStart[cell];
+        }
+        hazardImpact = new double[hazards.size()];
+        hazardBreaksTrap = new boolean[hazards.size()];
+        int[] next = new int[cells];
+        for (MapDefinition.OccupantDefinition hazard : hazards) {
+            int cell = hazard.getRow() * numColumns + hazard.getColumn();
+            int index = hazardStart[cell] + next[cell]++;
+            hazardImpact[index] = hazard.getImpact();
+            hazardBreaksTrap[index] = hazard.getName().equalsIgnoreCase("Broken trap");
+        }
+
+        int numItems = items.size();
+        itemName = new String[numItems];
+        itemKind = new int[numItems];
+        itemStartCell = new int[numItems];
+        itemWeight = new double[numItems];
+        itemSize = new double[numItems];
+        itemEnergy = new double[numItems];
+        for (int i = 0; i < numItems; i++) {
+            MapDefinition.OccupantDefinition item = items.get(i);
+            itemName[i] = item.getName();
+            itemStartCell[i] = i < itemsOnIsland ? item.getRow() * numColumns + item.getColumn()
+                    : IN_BACKPACK;
+            itemWeight[i] = item.getWeight();
+            itemSize[i] = item.getSize();
+            itemEnergy[i] = item.getEnergy();
+            if (item.getType().equals("E")) {
+                itemKind[i] = FOOD;
+            } else if (item.getName().equalsIgnoreCase("Trap")) {
+                itemKind[i] = TRAP;
+            } else if (item.getName().equalsIgnoreCase("Screwdriver")) {
+                itemKind[i] = SCREWDRIVER;
+            } else {
+                itemKind[i] = OTHER_TOOL;
+            }
+        }
+
+        playerName = map.getPlayerName();
+        playerStartCell = map.getPlayerRow() * numColumns + map.getPlayerColumn();
+        maxStamina = map.getMaxStamina();
+        maxBackpackWeight = map.getMaxBackpackWeight();
+        maxBackpackSize = map.getMaxBackpackSize();
+
+        // fixed seed so keys are the same from run to run
+        Random random = new Random(0x4b697769L);
+        cellKey = randomKeys(random, cells);
+        kiwiKey = randomKeys(random, kiwiCell.length);
+        predatorKey = randomKeys(random, predatorCell.length);
+        itemLocationKey = randomKeys(random, numItems * (cells + 2));
+        brokenKey = randomKeys(random, numItems);
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    public int getNumItems() {
+        return itemName.length;
+    }
+
+    /**
+     * Name of an item, as in the map file.
+     *
+     * @param item item index
+     * @return name
+     */
+    public String getItemName(int item) {
+        return itemName[item];
+    }
+
+    /**
+     * Length of the array GameSnapshot.getActions needs.
+     *
+     * @return most actions possible in any state
+     */
+    public int getMaxActions() {
+        // count, trap, fix, collect up to three, eat or drop each item, four moves
+        return 6 + 2 * itemName.length + MoveDirection.values().length;
+    }
+
+    public int getTotalKiwis() {
+        return totalKiwis;
+    }
+
+    public int getTotalPredators() {
+        return totalPredators;
+    }
+
+    /**
+     * The state of the game before the player does anything.
+     *
+     * @return a new snapshot of the starting state
+     */
+    public GameSnapshot start() {
+        return new GameSnapshot(this);
+    }
+
+    /**
+     * Number of kiwis and predators placed on the island. The totals can be
+     * higher when a map puts more than three occupants on a square.
+     *
+     * @return kiwis placed
+     */
+    int getPlacedKiwis() {
+        return kiwiCell.length;
+    }
+
+    int getPlacedPredators() {
+        return predatorCell.length;
+    }
+
+    /**
+     * Zobrist key of an item at a location.
+     */
+    long itemKey(int item, int location) {
+        return itemLocationKey[item * (difficulty.length + 2) + location + 2];
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    private static long[] randomKeys(Random random, int count) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+}
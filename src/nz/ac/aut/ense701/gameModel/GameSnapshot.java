@@ -0,0 +1,689 @@
+package nz.ac.aut.ense701.gameModel;
+
+/**
+ * Everything that changes during a game, for searching over game states
+ * without building islands, occupants or players.
+ *
+ * The player's actions are encoded as ints (see the action constants) and
+ * apply the same rules as Game: moving, hazards, collecting, dropping, eating,
+ * trapping, fixing the trap and counting kiwis, with the win and lose checks
+ * made after the same actions as in Game. Remaining kiwis and predators are
+ * bits in a long, items have a location, and a 64 bit Zobrist key of the
+ * whole state except stamina is kept up to date as actions are applied.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class GameSnapshot {
+
+    /** Action kinds, found in the high bits of an action. */
+    public static final int MOVE = 0;
+    public static final int COLLECT = 1;
+    public static final int DROP = 2;
+    public static final int EAT = 3;
+    public static final int USE_TRAP = 4;
+    public static final int FIX_TRAP = 5;
+    public static final int COUNT_KIWI = 6;
+
+    private static final MoveDirection[] DIRECTIONS = MoveDirection.values();
+
+    private final GameRules rules;
+    private int cell;
+    private double stamina;
+    private boolean alive;
+    private long kiwisLeft;
+    private long predatorsLeft;
+    private int kiwiCount;
+    private int predatorsTrapped;
+    private final int[] itemLocation;
+    private long brokenItems;
+    private double backpackWeight;
+    private double backpackSize;
+    private GameState state;
+    private int moves;
+    private long key;
+
+    /**
+     * The starting state of a game.
+     */
+    GameSnapshot(GameRules rules) {
+        this.rules = rules;
+        this.cell = rules.playerStartCell;
+        this.stamina = rules.maxStamina;
+        this.alive = true;
+        this.kiwisLeft = allBits(rules.kiwiCell.length);
+        this.predatorsLeft = allBits(rules.predatorCell.length);
+        this.itemLocation = rules.itemStartCell.clone();
+        this.state = GameState.PLAYING;
+        this.key = rules.cellKey[cell];
+        for (int i = 0; i < rules.kiwiCell.length; i++) {
+            key ^= rules.kiwiKey[i];
+        }
+        for (int i = 0; i < rules.predatorCell.length; i++) {
+            key ^= rules.predatorKey[i];
+        }
+        for (int i = 0; i < itemLocation.length; i++) {
+            key ^= rules.itemKey(i, itemLocation[i]);
+        }
+        sumBackpack();
+    }
+
+    /**
+     * A game in progress, for rules built by Game.getSnapshot. Items the
+     * rules start in the backpack are carried.
+     *
+     * @param rules the rules of what is left on the island
+     * @param state state of the game
+     * @param alive is the player alive
+     * @param stamina stamina of the player
+     * @param kiwiCount kiwis counted so far
+     * @param predatorsTrapped predators trapped so far
+     * @param brokenItems bits of the items that are broken traps
+     */
+    GameSnapshot(GameRules rules, GameState state, boolean alive, double stamina,
+            int kiwiCount, int predatorsTrapped, long brokenItems) {
+        this(rules);
+        this.state = state;
+        this.alive = alive;
+        this.stamina = stamina;
+        this.kiwiCount = kiwiCount;
+        this.predatorsTrapped = predatorsTrapped;
+        this.brokenItems = brokenItems;
+        for (int i = 0; i < itemLocation.length; i++) {
+            if ((brokenItems & (1L << i)) != 0) {
+                key ^= rules.brokenKey[i];
+            }
+        }
+    }
+
+    private GameSnapshot(GameSnapshot other) {
+        this.rules = other.rules;
+        this.cell = other.cell;
+        this.stamina = other.stamina;
+        this.alive = other.alive;
+        this.kiwisLeft = other.kiwisLeft;
+        this.predatorsLeft = other.predatorsLeft;
+        this.kiwiCount = other.kiwiCount;
+        this.predatorsTrapped = other.predatorsTrapped;
+        this.itemLocation = other.itemLocation.clone();
+        this.brokenItems = other.brokenItems;
+        this.backpackWeight = other.backpackWeight;
+        this.backpackSize = other.backpackSize;
+        this.state = other.state;
+        this.moves = other.moves;
+        this.key = other.key;
+    }
+
+    /**
+     * An independent copy of this state.
+     *
+     * @return the copy
+     */
+    public GameSnapshot copy() {
+        return new GameSnapshot(this);
+    }
+
+    /**
+     * Makes this state the same as another state of the same game, without
+     * allocating.
+     *
+     * @param other the state to copy
+     */
+    void copyFrom(GameSnapshot other) {
+        this.cell = other.cell;
+        this.stamina = other.stamina;
+        this.alive = other.alive;
+        this.kiwisLeft = other.kiwisLeft;
+        this.predatorsLeft = other.predatorsLeft;
+        this.kiwiCount = other.kiwiCount;
+        this.predatorsTrapped = other.predatorsTrapped;
+        System.arraycopy(other.itemLocation, 0, this.itemLocation, 0, itemLocation.length);
+        this.brokenItems = other.brokenItems;
+        this.backpackWeight = other.backpackWeight;
+        this.backpackSize = other.backpackSize;
+        this.state = other.state;
+        this.moves = other.moves;
+        this.key = other.key;
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    public GameRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Square the player is on, as row * columns + column.
+     *
+     * @return cell index
+     */
+    int getCell() {
+        return cell;
+    }
+
+    /**
+     * Where an item is: a cell index, GameRules.IN_BACKPACK or GameRules.GONE.
+     *
+     * @param item item index
+     * @return location
+     */
+    int getItemLocation(int item) {
+        return itemLocation[item];
+    }
+
+    public int getRow() {
+        return cell / rules.numColumns + rules.rowOffset;
+    }
+
+    public int getColumn() {
+        return cell % rules.numColumns + rules.columnOffset;
+    }
+
+    public double getStamina() {
+        return stamina;
+    }
+
+    public boolean isAlive() {
+        return alive;
+    }
+
+    public int getKiwiCount() {
+        return kiwiCount;
+    }
+
+    public int getPredatorsTrapped() {
+        return predatorsTrapped;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Number of moves made since the start.
+     *
+     * @return moves
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * Zobrist key of everything but stamina and the number of moves.
+     *
+     * @return key
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Kiwis not yet counted, one bit per kiwi placed on the island.
+     *
+     * @return bits
+     */
+    public long getKiwisLeft() {
+        return kiwisLeft;
+    }
+
+    /**
+     * Predators not yet trapped, one bit per predator placed on the island.
+     *
+     * @return bits
+     */
+    public long getPredatorsLeft() {
+        return predatorsLeft;
+    }
+
+    /**
+     * Is the item in the backpack?
+     *
+     * @param item item index
+     * @return true if carried
+     */
+    public boolean isCarried(int item) {
+        return itemLocation[item] == GameRules.IN_BACKPACK;
+    }
+
+    /**
+     * Is the item a trap that has been broken and not fixed?
+     *
+     * @param item item index
+     * @return true if broken
+     */
+    public boolean isBroken(int item) {
+        return (brokenItems & (1L << item)) != 0;
+    }
+
+    /**
+     * Row of an item lying on the island.
+     *
+     * @param item item index
+     * @return row, or -1 if carried or eaten
+     */
+    public int getItemRow(int item) {
+        int location = itemLocation[item];
+        return location < 0 ? -1 : location / rules.numColumns + rules.rowOffset;
+    }
+
+    /**
+     * Column of an item lying on the island.
+     *
+     * @param item item index
+     * @return column, or -1 if carried or eaten
+     */
+    public int getItemColumn(int item) {
+        int location = itemLocation[item];
+        return location < 0 ? -1 : location % rules.numColumns + rules.columnOffset;
+    }
+
+    /**
+     * Stamina needed per unit of terrain difficulty, as
+     * Player.getMoveStaminaFactor.
+     *
+     * @return stamina factor
+     */
+    public double getMoveStaminaFactor() {
+        return Player.MOVE_STAMINA * (1.0 + backpackWeight / rules.maxBackpackWeight);
+    }
+
+    /**
+     * Fills actions with the actions possible now.
+     *
+     * @param actions at least GameRules.getMaxActions() long
+     * @return number of actions
+     */
+    public int getActions(int[] actions) {
+        if (state != GameState.PLAYING) {
+            return 0;
+        }
+        int count = 0;
+        if (hasKiwiHere()) {
+            actions[count++] = action(COUNT_KIWI, 0);
+        }
+        int trap = carriedTrap();
+        if (trap >= 0) {
+            boolean broken = (brokenItems & (1L << trap)) != 0;
+            if (!broken && hasPredatorHere()) {
+                actions[count++] = action(USE_TRAP, trap);
+            }
+            if (broken) {
+                int screwdriver = carried(GameRules.SCREWDRIVER);
+                if (screwdriver >= 0) {
+                    actions[count++] = action(FIX_TRAP, screwdriver);
+                }
+            }
+        }
+        boolean roomHere = occupantsHere() < GameRules.MAX_OCCUPANTS;
+        for (int i = 0; i < itemLocation.length; i++) {
+            int location = itemLocation[i];
+            if (location == cell) {
+                if (canCollect(i, trap)) {
+                    actions[count++] = action(COLLECT, i);
+                }
+            } else if (location == GameRules.IN_BACKPACK) {
+                if (rules.itemKind[i] == GameRules.FOOD) {
+                    actions[count++] = action(EAT, i);
+                }
+                if (roomHere) {
+                    actions[count++] = action(DROP, i);
+                }
+            }
+        }
+        if (alive) {
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int target = neighbour(d);
+                if (target >= 0 && stamina >= getMoveStaminaFactor() * rules.difficulty[target]) {
+                    actions[count++] = action(MOVE, d);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Encodes an action.
+     *
+     * @param kind one of the action kinds
+     * @param argument direction ordinal for MOVE, item index for item actions
+     * @return the action
+     */
+    public static int action(int kind, int argument) {
+        return (kind << 16) | argument;
+    }
+
+    public static int actionKind(int action) {
+        return action >>> 16;
+    }
+
+    public static int actionArgument(int action) {
+        return action & 0xffff;
+    }
+
+    /**
+     * Describes an action for people.
+     *
+     * @param action the action
+     * @return e.g. "move NORTH" or "collect Trap"
+     */
+    public String describe(int action) {
+        int argument = actionArgument(action);
+        switch (actionKind(action)) {
+            case MOVE:
+                return "move " + DIRECTIONS[argument];
+            case COLLECT:
+                return "collect " + rules.itemName[argument];
+            case DROP:
+                return "drop " + rules.itemName[argument];
+            case EAT:
+                return "eat " + rules.itemName[argument];
+            case USE_TRAP:
+                return "use " + rules.itemName[argument];
+            case FIX_TRAP:
+                return "fix trap with " + rules.itemName[argument];
+            case COUNT_KIWI:
+                return "count kiwi";
+            default:
+                return "unknown action " + action;
+        }
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Mutator methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Applies an action with the rules of Game.
+     *
+     * @param action the action
+     * @return true if the action was possible and was applied, false if it
+     * was not possible and nothing changed
+     */
+    public boolean apply(int action) {
+        if (state != GameState.PLAYING) {
+            return false;
+        }
+        int argument = actionArgument(action);
+        switch (actionKind(action)) {
+            case MOVE:
+                return move(argument);
+            case COLLECT:
+                return collect(argument);
+            case DROP:
+                return drop(argument);
+            case EAT:
+                return eat(argument);
+            case USE_TRAP:
+                return useTrap(argument);
+            case FIX_TRAP:
+                return fixTrap(argument);
+            case COUNT_KIWI:
+                return countKiwi();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private boolean move(int direction) {
+        int target = direction < DIRECTIONS.length ? neighbour(direction) : -1;
+        if (!alive || target < 0) {
+            return false;
+        }
+        double needed = getMoveStaminaFactor() * rules.difficulty[target];
+        if (stamina < needed) {
+            return false;
+        }
+        key ^= rules.cellKey[cell] ^ rules.cellKey[target];
+        cell = target;
+        moves++;
+        reduceStamina(needed);
+
+        // hazards, as Game.handleHazard
+        for (int h = rules.hazardStart[cell]; h < rules.hazardStart[cell + 1]; h++) {
+            double impact = rules.hazardImpact[h];
+            if (impact == GameRules.FATAL_IMPACT) {
+                alive = false;
+            } else if (rules.hazardBreaksTrap[h]) {
+                int trap = carriedTrap();
+                if (trap >= 0 && (brokenItems & (1L << trap)) == 0) {
+                    brokenItems |= 1L << trap;
+                    key ^= rules.brokenKey[trap];
+                }
+            } else {
+                reduceStamina(rules.maxStamina * impact);
+                if (stamina <= 0.0) {
+                    alive = false;
+                }
+            }
+        }
+        updateState();
+        return true;
+    }
+
+    private boolean collect(int item) {
+        if (item >= itemLocation.length || itemLocation[item] != cell
+                || !canCollect(item, carriedTrap())) {
+            return false;
+        }
+        moveItem(item, GameRules.IN_BACKPACK);
+        return true;
+    }
+
+    private boolean drop(int item) {
+        if (item >= itemLocation.length || itemLocation[item] != GameRules.IN_BACKPACK
+                || occupantsHere() >= GameRules.MAX_OCCUPANTS) {
+            return false;
+        }
+        moveItem(item, cell);
+        return true;
+    }
+
+    private boolean eat(int item) {
+        if (item >= itemLocation.length || itemLocation[item] != GameRules.IN_BACKPACK
+                || rules.itemKind[item] != GameRules.FOOD) {
+            return false;
+        }
+        double energy = rules.itemEnergy[item];
+        // as Player.increaseStamina
+        if (energy > 0 && alive) {
+            stamina += energy;
+        }
+        if (stamina > rules.maxStamina) {
+            stamina = rules.maxStamina;
+        }
+        moveItem(item, GameRules.GONE);
+        updateState();
+        return true;
+    }
+
+    private boolean useTrap(int item) {
+        if (item != carriedTrap() || (brokenItems & (1L << item)) != 0) {
+            return false;
+        }
+        int predator = predatorHere();
+        if (predator < 0) {
+            return false;
+        }
+        predatorsLeft &= ~(1L << predator);
+        key ^= rules.predatorKey[predator];
+        predatorsTrapped++;
+        updateState();
+        return true;
+    }
+
+    private boolean fixTrap(int item) {
+        int trap = carriedTrap();
+        if (item >= itemLocation.length || itemLocation[item] != GameRules.IN_BACKPACK
+                || rules.itemKind[item] != GameRules.SCREWDRIVER
+                || trap < 0 || (brokenItems & (1L << trap)) == 0) {
+            return false;
+        }
+        brokenItems &= ~(1L << trap);
+        key ^= rules.brokenKey[trap];
+        updateState();
+        return true;
+    }
+
+    private boolean countKiwi() {
+        if (!hasKiwiHere()) {
+            return false;
+        }
+        for (int k = 0; k < rules.kiwiCell.length; k++) {
+            if (rules.kiwiCell[k] == cell && (kiwisLeft & (1L << k)) != 0) {
+                kiwisLeft &= ~(1L << k);
+                key ^= rules.kiwiKey[k];
+                kiwiCount++;
+            }
+        }
+        updateState();
+        return true;
+    }
+
+    /**
+     * The win and lose rules of Game.updateGameState.
+     */
+    private void updateState() {
+        if (!alive || !canMove()) {
+            state = GameState.LOST;
+        } else if (predatorsTrapped == rules.totalPredators) {
+            state = GameState.WON;
+        } else if (kiwiCount == rules.totalKiwis
+                && predatorsTrapped >= rules.totalPredators * GameRules.MIN_REQUIRED_CATCH) {
+            state = GameState.WON;
+        }
+    }
+
+    private boolean canMove() {
+        double factor = getMoveStaminaFactor();
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int target = neighbour(d);
+            if (target >= 0 && stamina >= factor * rules.difficulty[target]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reduceStamina(double reduction) {
+        if (reduction > 0) {
+            stamina -= reduction;
+            if (stamina < 0.0) {
+                stamina = 0.0;
+            }
+        }
+    }
+
+    private boolean canCollect(int item, int carriedTrap) {
+        if (!(rules.itemSize[item] > 0)) {
+            return false;
+        }
+        boolean enoughRoom = backpackSize + rules.itemSize[item] <= rules.maxBackpackSize;
+        boolean notTooHeavy = backpackWeight + rules.itemWeight[item] <= rules.maxBackpackWeight;
+        // only one trap can be carried at a time
+        boolean additionalTrap = rules.itemKind[item] == GameRules.TRAP && carriedTrap >= 0;
+        return enoughRoom && notTooHeavy && !additionalTrap;
+    }
+
+    private void moveItem(int item, int location) {
+        key ^= rules.itemKey(item, itemLocation[item]) ^ rules.itemKey(item, location);
+        itemLocation[item] = location;
+        sumBackpack();
+    }
+
+    private void sumBackpack() {
+        // summed in full like Player does, so rounding matches
+        double weight = 0.0;
+        double size = 0.0;
+        for (int i = 0; i < itemLocation.length; i++) {
+            if (itemLocation[i] == GameRules.IN_BACKPACK) {
+                weight += rules.itemWeight[i];
+                size += rules.itemSize[i];
+            }
+        }
+        backpackWeight = weight;
+        backpackSize = size;
+    }
+
+    private int neighbour(int direction) {
+        int row = cell / rules.numColumns;
+        int col = cell - row * rules.numColumns;
+        switch (DIRECTIONS[direction]) {
+            case NORTH:
+                return row > 0 ? cell - rules.numColumns : -1;
+            case EAST:
+                return col < rules.numColumns - 1 ? cell + 1 : -1;
+            case SOUTH:
+                return row < rules.numRows - 1 ? cell + rules.numColumns : -1;
+            default:
+                return col > 0 ? cell - 1 : -1;
+        }
+    }
+
+    private int carriedTrap() {
+        return carried(GameRules.TRAP);
+    }
+
+    private int carried(int kind) {
+        for (int i = 0; i < itemLocation.length; i++) {
+            if (itemLocation[i] == GameRules.IN_BACKPACK && rules.itemKind[i] == kind) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean hasKiwiHere() {
+        for (int k = 0; k < rules.kiwiCell.length; k++) {
+            if (rules.kiwiCell[k] == cell && (kiwisLeft & (1L << k)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasPredatorHere() {
+        return predatorHere() >= 0;
+    }
+
+    private int predatorHere() {
+        for (int p = 0; p < rules.predatorCell.length; p++) {
+            if (rules.predatorCell[p] == cell && (predatorsLeft & (1L << p)) != 0) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private int occupantsHere() {
+        int count = rules.fixedOccupants[cell];
+        for (int k = 0; k < rules.kiwiCell.length; k++) {
+            if (rules.kiwiCell[k] == cell && (kiwisLeft & (1L << k)) != 0) {
+                count++;
+            }
+        }
+        for (int p = 0; p < rules.predatorCell.length; p++) {
+            if (rules.predatorCell[p] == cell && (predatorsLeft & (1L << p)) != 0) {
+                count++;
+            }
+        }
+        for (int i = 0; i < itemLocation.length; i++) {
+            if (itemLocation[i] == cell) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long allBits(int count) {
+        return count == 64 ? -1L : (1L << count) - 1;
+    }
+}
@@ -15,10 +15,12 @@ import java.util.Set;
 public class GridSquare 
 {
     private static final int MAX_OCCUPANTS = 3;
+    private static final Occupant[] NO_OCCUPANTS = new Occupant[0];
     private Terrain terrain;
     private boolean visible;
     private boolean explored;
     private Player  player;
+    // most squares never hold an occupant, so the set is only created on demand
     private Set<Occupant> occupants;
   
     /**
@@ -30,7 +32,7 @@ public class GridSquare
         this.terrain   = terrain;
         this.explored  = false;
         this.visible   = false;
-        this.occupants = new HashSet<Occupant>(); 
+        this.occupants = null; // created on first addOccupant
         this.player    = null;        
     }
     
@@ -88,6 +90,10 @@ public class GridSquare
     public String getOccupantStringRepresentation()
     {
         String result = "";
+        if ( occupants == null )
+        {
+            return result;
+        }
         for(Occupant occupant : occupants)
         {
             result += occupant.getStringRepresentation();
@@ -113,7 +119,7 @@ public class GridSquare
      */
     public boolean hasOccupant(Occupant occupant) 
     {
-        return occupants.contains(occupant);
+        return (occupants != null) && occupants.contains(occupant);
     }  
  
     /**
@@ -123,6 +129,10 @@ public class GridSquare
      */
     public Occupant[] getOccupants()
     {
+        if ( occupants == null )
+        {
+            return NO_OCCUPANTS;
+        }
         return occupants.toArray(new Occupant[occupants.size()]); 
     }
     
@@ -182,9 +192,13 @@ public class GridSquare
     {
         boolean success = false;
         boolean validNewOccupant = occupant != null;
-        boolean enoughRoom       = occupants.size() < MAX_OCCUPANTS;
+        boolean enoughRoom       = (occupants == null) || (occupants.size() < MAX_OCCUPANTS);
         if ( validNewOccupant && enoughRoom ) 
         {
+            if ( occupants == null )
+            {
+                occupants = new HashSet<Occupant>(MAX_OCCUPANTS * 2);
+            }
             success = occupants.add(occupant);
         }
         return success;
@@ -201,7 +215,7 @@ public class GridSquare
     public boolean removeOccupant(Occupant occupant)
     {
         boolean success = false;
-        boolean validOccupant = occupant != null;
+        boolean validOccupant = (occupant != null) && (occupants != null);
         if ( validOccupant )
         {
             success = occupants.remove(occupant);
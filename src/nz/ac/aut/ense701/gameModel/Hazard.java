@@ -14,7 +14,6 @@ public class Hazard extends Occupant {
     
     private final double impact;
     private final double FATAL_IMPACT = 1.0;
-    private SoundsSingleton sound = SoundsSingleton.getSoundsSingletonReference();
 
     /**
      * Create a hazard on the island
@@ -58,7 +57,7 @@ public class Hazard extends Occupant {
      */
     public boolean isBreakTrap() 
     {
-        sound.playBreakTrap();
+        SoundsSingleton.getSoundsSingletonReference().playBreakTrap();
         String name = this.getName();
         return name.equalsIgnoreCase("Broken trap");
     }
@@ -0,0 +1,50 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.awt.image.RenderedImage;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for decoding an occupant image. Each image is
+ * decoded once and then shared, so these only come when an image is first
+ * needed.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@Name("nz.ac.aut.ense701.ImageDecode")
+@Label("Image Decode")
+@Category({"Kiwi Island", "Game"})
+@Description("An occupant image decoded")
+final class ImageDecodeEvent extends Event {
+
+    @Label("Image")
+    String image;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    /**
+     * Ends the event and records it if the recording wants it.
+     *
+     * @param image the image's asset name
+     * @param decoded the image, null if it could not be decoded
+     */
+    void finish(String image, RenderedImage decoded) {
+        end();
+        if (shouldCommit()) {
+            this.image = image;
+            if (decoded != null) {
+                width = decoded.getWidth();
+                height = decoded.getHeight();
+            }
+            commit();
+        }
+    }
+}
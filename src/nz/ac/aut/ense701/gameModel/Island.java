@@ -11,6 +11,7 @@ public class Island
 {
     private final int numRows;
     private final int numColumns;
+    // null when a subclass keeps the grid squares
     private GridSquare[][] islandGrid;
     private Position previousPlayerPos;
 
@@ -27,6 +28,20 @@ public class Island
         initialiseIsland();
     }
 
+    /**
+     * Island the size of an island file, for ChunkedIsland which keeps its
+     * own grid squares by overriding getGridSquare, findGridSquare and
+     * getTerrain.
+     * @param mappedTerrain the island file
+     */
+    Island(MappedIsland mappedTerrain)
+    {
+        this.numRows = mappedTerrain.getNumRows();
+        this.numColumns = mappedTerrain.getNumColumns();
+        this.previousPlayerPos = null;
+        this.islandGrid = null;
+    }
+
     /***********************************************************************************************************************
      * Accessor methods
      ***********************************************************************************************************************/
@@ -55,8 +70,7 @@ public class Island
      */
     public Terrain getTerrain(Position position)
     {
-        GridSquare square = getGridSquare(position);
-        return square.getTerrain();
+        return getTerrain(position.getRow(), position.getColumn());
     }
     
     /**
@@ -79,7 +93,7 @@ public class Island
      */
     public boolean isVisible(Position position)
     {
-        GridSquare square = getGridSquare(position);
+        GridSquare square = findGridSquare(position);
         return square.isVisible();
     }
      
@@ -90,7 +104,7 @@ public class Island
      */
     public boolean isExplored(Position position)
     {
-        GridSquare square = getGridSquare(position);
+        GridSquare square = findGridSquare(position);
         return square.isExplored();
     }   
     
@@ -101,7 +115,7 @@ public class Island
      */
     public boolean hasPlayer(Position position)
     {
-        GridSquare square = getGridSquare(position);
+        GridSquare square = findGridSquare(position);
         return square.hasPlayer();
     }
     
@@ -113,7 +127,7 @@ public class Island
      */
     public boolean hasOccupant(Position position, Occupant occupant)
     {
-        GridSquare square = getGridSquare(position);
+        GridSquare square = findGridSquare(position);
         return square.hasOccupant(occupant);
     }
     
@@ -124,7 +138,7 @@ public class Island
      */
     public Occupant[] getOccupants(Position position )
     {
-        GridSquare square = getGridSquare(position);
+        GridSquare square = findGridSquare(position);
         return square.getOccupants();
     }
     
@@ -135,7 +149,7 @@ public class Island
     */
     public String getOccupantStringRepresentation(Position position)
     {
-        GridSquare square = getGridSquare(position);
+        GridSquare square = findGridSquare(position);
         return square.getOccupantStringRepresentation();
     }
     
@@ -145,7 +159,7 @@ public class Island
      * @return 
      */
     public Occupant[] getGridOccupants(Position position) {
-        GridSquare square = getGridSquare(position);
+        GridSquare square = findGridSquare(position);
         return (square.getOccupants());
     }
     
@@ -156,7 +170,7 @@ public class Island
      */
     public boolean hasPredator(Position position) 
     {
-        GridSquare square = getGridSquare(position);
+        GridSquare square = findGridSquare(position);
         Occupant[] occupants = square.getOccupants();
         boolean isPredator = false;
         if(occupants.length>0)
@@ -268,7 +282,7 @@ public class Island
      */
      public Predator getPredator(Position position) 
     {
-        GridSquare square = getGridSquare(position);
+        GridSquare square = findGridSquare(position);
         Occupant[] occupants = square.getOccupants();
         Predator predator = null;
         if(occupants.length>0)
@@ -309,7 +323,7 @@ public class Island
             String rowTerrain  = "|";
             for ( int col = 0; col < this.numColumns; col++ ) 
             {
-                GridSquare g = islandGrid[row][col];
+                GridSquare g = findGridSquare(row, col);
                 // create string with occupants
                 String cellOccupant = g.hasPlayer() ? "@" : " ";
                 cellOccupant += g.getOccupantStringRepresentation();
@@ -321,7 +335,7 @@ public class Island
                 // create string with terrain
                 String cellTerrain = "";
                 for ( int i = 0 ; i < CELL_SIZE ; i++ ) {
-                    cellTerrain += g.getTerrainStringRepresentation();
+                    cellTerrain += getTerrain(row, col).getStringRepresentation();
                 }
                 rowTerrain += cellTerrain + "|";
             }
@@ -362,7 +376,7 @@ public class Island
     {
         if ( (position != null) && position.isOnIsland() )
         {
-            islandGrid[position.getRow()][position.getColumn()].setVisible();
+            getGridSquare(position.getRow(), position.getColumn()).setVisible();
         }
     } 
     
@@ -376,11 +390,60 @@ public class Island
         GridSquare result = null;
         if ( position.isOnIsland() )
         {
-            result = islandGrid[position.getRow()][position.getColumn()];
+            result = getGridSquare(position.getRow(), position.getColumn());
         }
         return result;
     }
 
-    
+    /**
+     * Get a grid square to look at without creating it.
+     * @param position of the square
+     * @return Square with this position
+     */
+    private GridSquare findGridSquare(Position position)
+    {
+        GridSquare result = null;
+        if ( position.isOnIsland() )
+        {
+            result = findGridSquare(position.getRow(), position.getColumn());
+        }
+        return result;
+    }
+
+    /**
+     * Get a grid square at row, column to look at. Subclasses that create
+     * squares late may return a square with nothing on it instead of
+     * creating one.
+     * @param row of the square
+     * @param column of the square
+     * @return Square at row, column
+     */
+    GridSquare findGridSquare(int row, int column)
+    {
+        return islandGrid[row][column];
+    }
+
+    /**
+     * Get the grid square at row, column without creating a Position.
+     * Used by the save game format which walks every square of the island.
+     * @param row of the square
+     * @param column of the square
+     * @return Square at row, column
+     */
+    GridSquare getGridSquare(int row, int column)
+    {
+        return islandGrid[row][column];
+    }
+
+    /**
+     * Terrain at row, column without creating a Position.
+     * @param row of the square
+     * @param column of the square
+     * @return terrain of the square
+     */
+    Terrain getTerrain(int row, int column)
+    {
+        return islandGrid[row][column].getTerrain();
+    }
 
 }
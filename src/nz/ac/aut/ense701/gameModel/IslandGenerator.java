@@ -0,0 +1,674 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes new islands from a seed. The same seed and settings always give the
+ * same island.
+ *
+ * Terrain comes from two fields of multi-octave value noise, elevation and
+ * moisture. Elevation is lowered towards the edges so the island is ringed
+ * by sea; low land is sand, high land scrub, and moisture decides between
+ * wetland, forest and scrub in between. Every square can be worked out on
+ * its own, so the terrain of a generated map is never stored: it is worked
+ * out as it is read, a band of rows at a time, with the bands ahead of the
+ * reader worked out in parallel. Writing a 10,000 x 10,000 map keeps only a
+ * few bands on the heap.
+ *
+ * Occupants are placed where a player starting with full stamina can get to
+ * them, never more than three to a square. Kiwis and predators go where the
+ * player can walk without crossing water, within half the stamina if there
+ * is room. Hazards get a square of their own, away from the start.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class IslandGenerator {
+
+    // rows of terrain worked out together
+    static final int BAND_ROWS = 64;
+    // occupants are placed at most this many squares from the start
+    static final int MAX_REACH = 1000;
+
+    private static final String PLAYER_NAME = "River Song";
+    private static final Terrain[] TERRAINS = Terrain.values();
+    private static final double SEA_LEVEL = 0.35;
+    private static final double BEACH = 0.04;
+    private static final double HIGHLAND = 0.55;
+
+    // name, description, weight, size and energy or impact of what is placed
+    private static final String[][] KIWIS = {
+        {"Kiwi", "A little spotted kiwi"},
+        {"Kiwi", "A large brown kiwi"}};
+    private static final String[][] PREDATORS = {
+        {"Rat", "A Norwegian rat"},
+        {"Kiore", "A pacific rat"},
+        {"Cat", "A wild cat"},
+        {"Stoat", "A brown and white stoat"},
+        {"Possum", "A bushy tailed possum"}};
+    private static final String[][] FOOD = {
+        {"Sandwich", "A nice and healthy sandwich", "2.0", "1.0", "50.0"},
+        {"Muesli Bar", "A juicy and nutricious muesli bar", "1.0", "1.0", "50.0"},
+        {"Apple", "A juicy apple", "2.0", "3.0", "50.0"},
+        {"Orange Juice", "A bottle of juice", "2.0", "3.0", "50.0"}};
+    private static final String[] TRAP = {"Trap", "A trap for predators", "1.0", "1.0"};
+    private static final String[] SCREWDRIVER = {"Screwdriver", "A screwdriver that is useful for fixing traps", "0.5", "0.75"};
+    private static final String[][] HAZARDS = {
+        {"Sunburn", "Too much sun has given you bad sunburn and", "0.3"},
+        {"Fall", "Tripping on roots hurt your ankle and", "0.5"},
+        {"Cliff", "A fall down a small cliff", "0.3"},
+        {"Broken trap", "Your predator trap has broken", "0.0"},
+        {"Cliff", "A fall down a steep rocky cliff", "1.0"},
+        {"Rock", "A large falling rock", "1.0"}};
+
+    private final long seed;
+    private final int numRows;
+    private final int numColumns;
+    // noise coordinates per square
+    private final double step;
+    private final int octaves;
+    private int threads;
+    private int kiwis;
+    private int predators;
+    private int traps;
+    private int screwdrivers;
+    private int food;
+    private int hazards;
+    private double maxStamina;
+
+    /**
+     * Creates a generator for islands of one size, with the numbers of
+     * occupants of the shipped maps.
+     *
+     * @param seed the seed
+     * @param numRows rows of the island
+     * @param numColumns columns of the island
+     */
+    public IslandGenerator(long seed, int numRows, int numColumns) {
+        if (numRows <= 0 || numColumns <= 0 || (long) numRows * numColumns > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid island size " + numRows + "x" + numColumns);
+        }
+        this.seed = seed;
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        // a few hills across the island, with detail down to a few squares
+        double featureSize = Math.max(4.0, Math.max(numRows, numColumns) / 3.0);
+        this.step = 1.0 / featureSize;
+        this.octaves = Math.max(1, Math.min(10, (int) (Math.log(featureSize / 2.0) / Math.log(2.0))));
+        this.threads = 1;
+        this.kiwis = 10;
+        this.predators = 7;
+        this.traps = 3;
+        this.screwdrivers = 1;
+        this.food = 4;
+        this.hazards = 7;
+        this.maxStamina = 100.0;
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Mutator methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Sets how many threads work out terrain. The island does not depend on
+     * this.
+     *
+     * @param threads number of threads, at least 1
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets how many of each occupant to place. Occupants that do not fit
+     * where the player can get to are left out.
+     *
+     * @param kiwis kiwis
+     * @param predators predators
+     * @param traps traps
+     * @param screwdrivers screwdrivers
+     * @param food food
+     * @param hazards hazards
+     */
+    public void setOccupants(int kiwis, int predators, int traps, int screwdrivers, int food, int hazards) {
+        this.kiwis = kiwis;
+        this.predators = predators;
+        this.traps = traps;
+        this.screwdrivers = screwdrivers;
+        this.food = food;
+        this.hazards = hazards;
+    }
+
+    public void setMaxStamina(double maxStamina) {
+        this.maxStamina = maxStamina;
+    }
+
+    /**
+     * Generates the island. Its terrain is worked out when it is read, so
+     * this only costs placing the occupants.
+     *
+     * @return the map
+     */
+    public MapDefinition generate() {
+        Random random = new Random(seed);
+        int start = findStart();
+        int startRow = start / numColumns;
+        int startColumn = start % numColumns;
+
+        // where the player can get to and at what cost
+        int reach = (int) Math.min(MAX_REACH, Math.ceil(maxStamina / (Player.MOVE_STAMINA * minDifficulty())));
+        Window window = new Window(startRow, startColumn, reach);
+        double[] cost = window.leastStamina();
+        boolean[] overLand = window.overLand();
+        List<Integer> reached = new ArrayList<Integer>();
+        // kiwis and predators go where the player can walk without swimming
+        List<Integer> walked = new ArrayList<Integer>();
+        List<Integer> near = new ArrayList<Integer>();
+        for (int cell = 0; cell < cost.length; cell++) {
+            if (cost[cell] <= maxStamina && window.land[cell] && window.toMap(cell) != start) {
+                reached.add(cell);
+                if (overLand[cell]) {
+                    walked.add(cell);
+                    if (cost[cell] <= maxStamina / 2.0) {
+                        near.add(cell);
+                    }
+                }
+            }
+        }
+
+        List<MapDefinition.OccupantDefinition> occupants = new ArrayList<MapDefinition.OccupantDefinition>();
+        byte[] count = new byte[cost.length];
+        place(occupants, "E", FOOD, food, reached, count, window, random);
+        place(occupants, "T", new String[][] {TRAP}, traps, reached, count, window, random);
+        place(occupants, "T", new String[][] {SCREWDRIVER}, screwdrivers, reached, count, window, random);
+        place(occupants, "K", KIWIS, kiwis, near.size() >= kiwis ? near : walked, count, window, random);
+        place(occupants, "P", PREDATORS, predators, near.size() >= predators ? near : walked, count, window, random);
+        // hazards only go on empty squares, and fill them
+        List<Integer> empty = new ArrayList<Integer>();
+        for (int cell : reached) {
+            if (count[cell] == 0) {
+                empty.add(cell);
+            }
+        }
+        for (int i = 0; i < hazards && !empty.isEmpty(); i++) {
+            int cell = empty.remove(random.nextInt(empty.size()));
+            count[cell] = GameRules.MAX_OCCUPANTS;
+            String[] hazard = HAZARDS[random.nextInt(HAZARDS.length)];
+            occupants.add(new MapDefinition.OccupantDefinition("H", hazard[0], hazard[1],
+                    window.toMap(cell) / numColumns, window.toMap(cell) % numColumns,
+                    0.0, 0.0, 0.0, Double.parseDouble(hazard[2])));
+        }
+
+        return new MapDefinition(numRows, numColumns, new GeneratedTerrain(), PLAYER_NAME, startRow, startColumn,
+                maxStamina, 10.0, 5.0, occupants);
+    }
+
+    /**
+     * Generates the island and writes it, as an island file if the file
+     * name ends with MappedIsland.FILE_EXTENSION and as a text map if not.
+     *
+     * @param file where to write it
+     * @param runLength for island files, true to store rows as runs where
+     * that is smaller
+     * @return the map
+     * @throws IOException if the file cannot be written
+     */
+    public MapDefinition write(File file, boolean runLength) throws IOException {
+        MapDefinition map = generate();
+        if (MappedIsland.isIslandFile(file)) {
+            MappedIsland.write(map, file, runLength);
+        } else {
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16);
+            try {
+                map.write(out);
+            } finally {
+                out.close();
+            }
+        }
+        return map;
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    /**
+     * Terrain of one square, worked out from the noise.
+     */
+    private Terrain terrainAt(int row, int column) {
+        double x = column * step;
+        double y = row * step;
+        double elevation = elevation(row, column, noise(seed, x, y, octaves));
+        if (elevation < SEA_LEVEL + BEACH) {
+            return elevation < SEA_LEVEL ? Terrain.WATER : Terrain.SAND;
+        }
+        return inland(elevation, noise(~seed, x * 2.0, y * 2.0, moistureOctaves()));
+    }
+
+    /**
+     * Terrain of whole rows, the same as terrainAt square by square but
+     * sharing the noise lattice between neighbouring squares.
+     */
+    private void terrainRows(int firstRow, int rows, byte[] ordinals) {
+        double[] elevation = new double[numColumns];
+        double[] moisture = new double[numColumns];
+        for (int r = 0; r < rows; r++) {
+            int row = firstRow + r;
+            noiseRow(seed, row * step, step, 1.0, octaves, elevation);
+            boolean inland = false;
+            for (int col = 0; col < numColumns; col++) {
+                elevation[col] = elevation(row, col, elevation[col]);
+                inland |= elevation[col] >= SEA_LEVEL + BEACH;
+            }
+            if (inland) {
+                noiseRow(~seed, row * step * 2.0, step, 2.0, moistureOctaves(), moisture);
+            }
+            for (int col = 0; col < numColumns; col++) {
+                Terrain terrain;
+                if (elevation[col] < SEA_LEVEL) {
+                    terrain = Terrain.WATER;
+                } else if (elevation[col] < SEA_LEVEL + BEACH) {
+                    terrain = Terrain.SAND;
+                } else {
+                    terrain = inland(elevation[col], moisture[col]);
+                }
+                ordinals[r * numColumns + col] = (byte) terrain.ordinal();
+            }
+        }
+    }
+
+    // the sea gets deeper towards the edges
+    private double elevation(int row, int column, double noise) {
+        double dx = (column + 0.5) * 2.0 / numColumns - 1.0;
+        double dy = (row + 0.5) * 2.0 / numRows - 1.0;
+        return 0.7 + 0.5 * noise - 0.8 * (dx * dx + dy * dy);
+    }
+
+    private int moistureOctaves() {
+        return Math.max(1, octaves - 2);
+    }
+
+    private static Terrain inland(double elevation, double noise) {
+        double moisture = 0.5 + 0.5 * noise;
+        if (moisture > 0.62) {
+            return Terrain.WETLAND;
+        }
+        if (elevation > SEA_LEVEL + HIGHLAND || moisture < 0.4) {
+            return Terrain.SCRUB;
+        }
+        return Terrain.FOREST;
+    }
+
+    /**
+     * The land square nearest the middle, going round in rings. The middle
+     * if the island is all water.
+     */
+    private int findStart() {
+        int middleRow = numRows / 2;
+        int middleColumn = numColumns / 2;
+        int rings = Math.max(numRows, numColumns);
+        for (int ring = 0; ring < rings; ring++) {
+            for (int row = middleRow - ring; row <= middleRow + ring; row++) {
+                int step = (row == middleRow - ring || row == middleRow + ring) ? 1 : 2 * ring;
+                for (int col = middleColumn - ring; col <= middleColumn + ring; col += Math.max(1, step)) {
+                    if (row >= 0 && row < numRows && col >= 0 && col < numColumns
+                            && terrainAt(row, col) != Terrain.WATER) {
+                        return row * numColumns + col;
+                    }
+                }
+            }
+        }
+        return middleRow * numColumns + middleColumn;
+    }
+
+    private static double minDifficulty() {
+        double min = Double.POSITIVE_INFINITY;
+        for (Terrain terrain : TERRAINS) {
+            min = Math.min(min, terrain.getDifficulty());
+        }
+        return min;
+    }
+
+    /**
+     * Places occupants of one type on random squares with room, picking
+     * their kind from kinds in turn.
+     */
+    private void place(List<MapDefinition.OccupantDefinition> occupants, String type, String[][] kinds, int number,
+            List<Integer> squares, byte[] count, Window window, Random random) {
+        List<Integer> free = new ArrayList<Integer>();
+        for (int cell : squares) {
+            if (count[cell] < GameRules.MAX_OCCUPANTS) {
+                free.add(cell);
+            }
+        }
+        for (int i = 0; i < number && !free.isEmpty(); i++) {
+            int pick = random.nextInt(free.size());
+            int cell = free.get(pick);
+            if (++count[cell] >= GameRules.MAX_OCCUPANTS) {
+                free.set(pick, free.get(free.size() - 1));
+                free.remove(free.size() - 1);
+            }
+            String[] kind = kinds[i % kinds.length];
+            double weight = kind.length > 2 ? Double.parseDouble(kind[2]) : 0.0;
+            double size = kind.length > 3 ? Double.parseDouble(kind[3]) : 0.0;
+            double energy = kind.length > 4 ? Double.parseDouble(kind[4]) : 0.0;
+            int square = window.toMap(cell);
+            occupants.add(new MapDefinition.OccupantDefinition(type, kind[0], kind[1],
+                    square / numColumns, square % numColumns, weight, size, energy, 0.0));
+        }
+    }
+
+    /**
+     * Value noise summed over octaves, each twice the frequency and half the
+     * amplitude of the one before.
+     *
+     * @return noise between -1 and 1
+     */
+    private static double noise(long seed, double x, double y, int octaves) {
+        double sum = 0.0;
+        double amplitude = 1.0;
+        double total = 0.0;
+        for (int octave = 0; octave < octaves; octave++) {
+            sum += amplitude * valueNoise(seed + octave, x, y);
+            total += amplitude;
+            amplitude *= 0.5;
+            x *= 2.0;
+            y *= 2.0;
+        }
+        return sum / total;
+    }
+
+    /**
+     * Noise for every column of a row, where column c is at x = c * step *
+     * frequency. Lattice values are only worked out when x moves into the
+     * next lattice cell, which at low octaves is every few hundred squares.
+     */
+    private static void noiseRow(long seed, double y, double step, double frequency, int octaves, double[] sums) {
+        Arrays.fill(sums, 0.0);
+        double amplitude = 1.0;
+        double total = 0.0;
+        double multiplier = 1.0;
+        for (int octave = 0; octave < octaves; octave++) {
+            long octaveSeed = seed + octave;
+            double octaveY = y * multiplier;
+            long y0 = (long) octaveY;
+            double fy = fade(octaveY - y0);
+            long x0 = Long.MIN_VALUE;
+            double top = 0.0;
+            double topRight = 0.0;
+            double bottom = 0.0;
+            double bottomRight = 0.0;
+            for (int col = 0; col < sums.length; col++) {
+                double x = col * step * frequency * multiplier;
+                long cellX = (long) x;
+                if (cellX != x0) {
+                    if (cellX == x0 + 1) {
+                        top = topRight;
+                        bottom = bottomRight;
+                    } else {
+                        top = lattice(octaveSeed, cellX, y0);
+                        bottom = lattice(octaveSeed, cellX, y0 + 1);
+                    }
+                    topRight = lattice(octaveSeed, cellX + 1, y0);
+                    bottomRight = lattice(octaveSeed, cellX + 1, y0 + 1);
+                    x0 = cellX;
+                }
+                double fx = fade(x - cellX);
+                sums[col] += amplitude * lerp(fy, lerp(fx, top, topRight), lerp(fx, bottom, bottomRight));
+            }
+            total += amplitude;
+            amplitude *= 0.5;
+            multiplier *= 2.0;
+        }
+        for (int col = 0; col < sums.length; col++) {
+            sums[col] /= total;
+        }
+    }
+
+    // coordinates are never negative, so a cast rounds them down
+    private static double valueNoise(long seed, double x, double y) {
+        long x0 = (long) x;
+        long y0 = (long) y;
+        double fx = fade(x - x0);
+        double fy = fade(y - y0);
+        double top = lerp(fx, lattice(seed, x0, y0), lattice(seed, x0 + 1, y0));
+        double bottom = lerp(fx, lattice(seed, x0, y0 + 1), lattice(seed, x0 + 1, y0 + 1));
+        return lerp(fy, top, bottom);
+    }
+
+    // a random value between -1 and 1 for each lattice point
+    private static double lattice(long seed, long x, long y) {
+        long h = seed ^ x * 0x9E3779B97F4A7C15L ^ y * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (h >>> 11) * 0x1.0p-52 - 1.0;
+    }
+
+    private static double fade(double t) {
+        return t * t * (3.0 - 2.0 * t);
+    }
+
+    private static double lerp(double t, double a, double b) {
+        return a + t * (b - a);
+    }
+
+    /**
+     * The part of the island within reach of the start, in window
+     * coordinates.
+     */
+    private final class Window {
+
+        private final int top;
+        private final int left;
+        private final int rows;
+        private final int columns;
+        private final double[] difficulty;
+        private final boolean[] land;
+        private final int start;
+
+        Window(int startRow, int startColumn, int reach) {
+            top = Math.max(0, startRow - reach);
+            left = Math.max(0, startColumn - reach);
+            rows = Math.min(numRows, startRow + reach + 1) - top;
+            columns = Math.min(numColumns, startColumn + reach + 1) - left;
+            difficulty = new double[rows * columns];
+            land = new boolean[difficulty.length];
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < columns; col++) {
+                    Terrain terrain = terrainAt(top + row, left + col);
+                    difficulty[row * columns + col] = terrain.getDifficulty();
+                    land[row * columns + col] = terrain != Terrain.WATER;
+                }
+            }
+            start = (startRow - top) * columns + startColumn - left;
+        }
+
+        int toMap(int cell) {
+            return (top + cell / columns) * numColumns + left + cell % columns;
+        }
+
+        /**
+         * Least stamina to get from the start to each square, infinity for
+         * squares beyond the player's stamina.
+         */
+        double[] leastStamina() {
+            double[] stamina = new double[difficulty.length];
+            Arrays.fill(stamina, Double.POSITIVE_INFINITY);
+            MinHeap frontier = new MinHeap(difficulty.length);
+            stamina[start] = 0.0;
+            frontier.insertOrDecrease(start, 0.0);
+            while (!frontier.isEmpty()) {
+                int cell = frontier.poll();
+                int row = cell / columns;
+                int col = cell % columns;
+                if (row > 0) {
+                    relax(frontier, stamina, cell, cell - columns);
+                }
+                if (row < rows - 1) {
+                    relax(frontier, stamina, cell, cell + columns);
+                }
+                if (col > 0) {
+                    relax(frontier, stamina, cell, cell - 1);
+                }
+                if (col < columns - 1) {
+                    relax(frontier, stamina, cell, cell + 1);
+                }
+            }
+            return stamina;
+        }
+
+        /**
+         * The squares that can be walked to from the start without entering
+         * water.
+         */
+        boolean[] overLand() {
+            boolean[] seen = new boolean[land.length];
+            int[] queue = new int[land.length];
+            int head = 0;
+            int tail = 0;
+            seen[start] = true;
+            queue[tail++] = start;
+            while (head < tail) {
+                int cell = queue[head++];
+                int row = cell / columns;
+                int col = cell % columns;
+                int[] next = {row > 0 ? cell - columns : -1, row < rows - 1 ? cell + columns : -1,
+                    col > 0 ? cell - 1 : -1, col < columns - 1 ? cell + 1 : -1};
+                for (int neighbour : next) {
+                    if (neighbour >= 0 && land[neighbour] && !seen[neighbour]) {
+                        seen[neighbour] = true;
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+            return seen;
+        }
+
+        private void relax(MinHeap frontier, double[] stamina, int from, int to) {
+            double cost = stamina[from] + difficulty[to] * Player.MOVE_STAMINA;
+            if (cost <= maxStamina && cost < stamina[to]) {
+                stamina[to] = cost;
+                frontier.insertOrDecrease(to, cost);
+            }
+        }
+    }
+
+    /**
+     * Terrain of a generated island, worked out as it is read. Reading rows
+     * in order keeps a band in hand and the next bands being worked out on
+     * other threads; other squares are worked out one at a time.
+     */
+    private final class GeneratedTerrain implements MapDefinition.TerrainSource {
+
+        private final int bandCount;
+        private final ThreadPoolExecutor pool;
+        // bands being worked out ahead of the reader
+        private final Map<Integer, Future<byte[]>> ahead;
+        private int band;
+        private byte[] bandTerrain;
+
+        GeneratedTerrain() {
+            bandCount = (numRows + BAND_ROWS - 1) / BAND_ROWS;
+            ahead = new HashMap<Integer, Future<byte[]>>();
+            band = -1;
+            if (threads > 1) {
+                pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable task) {
+                                Thread thread = new Thread(task, "island generator");
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                pool.allowCoreThreadTimeOut(true);
+            } else {
+                pool = null;
+            }
+        }
+
+        @Override
+        public synchronized Terrain getTerrain(int row, int column) {
+            if (row < 0 || row >= numRows || column < 0 || column >= numColumns) {
+                throw new IndexOutOfBoundsException("square " + row + "," + column + " is not on the island");
+            }
+            int wanted = row / BAND_ROWS;
+            if (wanted != band) {
+                if (wanted != band + 1 && wanted != 0) {
+                    // not read in order, so a whole band would be wasted
+                    return terrainAt(row, column);
+                }
+                bandTerrain = takeBand(wanted);
+                band = wanted;
+            }
+            return TERRAINS[bandTerrain[(row - band * BAND_ROWS) * numColumns + column]];
+        }
+
+        private byte[] takeBand(int wanted) {
+            if (pool == null) {
+                return workOutBand(wanted);
+            }
+            Future<byte[]> future = ahead.remove(wanted);
+            Iterator<Map.Entry<Integer, Future<byte[]>>> bands = ahead.entrySet().iterator();
+            while (bands.hasNext()) {
+                Map.Entry<Integer, Future<byte[]>> entry = bands.next();
+                if (entry.getKey() < wanted) {
+                    entry.getValue().cancel(false);
+                    bands.remove();
+                }
+            }
+            for (int next = wanted + 1; next <= wanted + 2 * threads && next < bandCount; next++) {
+                if (!ahead.containsKey(next)) {
+                    final int nextBand = next;
+                    ahead.put(next, pool.submit(new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() {
+                            return workOutBand(nextBand);
+                        }
+                    }));
+                }
+            }
+            if (future == null) {
+                return workOutBand(wanted);
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return workOutBand(wanted);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        private byte[] workOutBand(int which) {
+            int firstRow = which * BAND_ROWS;
+            int rows = Math.min(BAND_ROWS, numRows - firstRow);
+            byte[] ordinals = new byte[rows * numColumns];
+            terrainRows(firstRow, rows, ordinals);
+            return ordinals;
+        }
+    }
+}
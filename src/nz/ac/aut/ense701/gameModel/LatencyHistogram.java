@@ -0,0 +1,163 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how long something took, in nanoseconds, in buckets that get wider
+ * as the times get longer, the way HdrHistogram does. Each power of two is
+ * split into 32 buckets, so a percentile is within about 3% of the real
+ * time however long it is, and the histogram is the same small size for
+ * times from a nanosecond to years.
+ *
+ * Recording is one atomic increment with no locks, so any number of
+ * threads can record at once; the count and mean are worked out from the
+ * buckets when they are read. Reading while threads record gives a close
+ * enough picture, but not one taken at a single instant.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // times below SUB_BUCKETS each have a bucket; then SUB_BUCKETS per power of two
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts a time.
+     *
+     * @param nanos the time in nanoseconds, negative times count as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucket(nanos));
+        long highest = max.get();
+        while (nanos > highest && !max.compareAndSet(highest, nanos)) {
+            highest = max.get();
+        }
+    }
+
+    /**
+     * Forgets the times counted so far.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * How many times were counted?
+     *
+     * @return number of times
+     */
+    public long getCount() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        return n;
+    }
+
+    /**
+     * The mean time, taking each time as the middle of its bucket.
+     *
+     * @return the mean in nanoseconds, 0 if nothing was counted
+     */
+    public long getMean() {
+        long n = 0;
+        double total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long inBucket = counts.get(i);
+            if (inBucket > 0) {
+                n += inBucket;
+                total += inBucket * (lowestIn(i) / 2.0 + highestIn(i) / 2.0);
+            }
+        }
+        return n == 0 ? 0 : Math.min((long) (total / n), max.get());
+    }
+
+    /**
+     * The longest time.
+     *
+     * @return the longest time in nanoseconds, 0 if nothing was counted
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The time that a percentage of the times were no longer than.
+     *
+     * @param percent the percentage, such as 50 for the median or 99
+     * @return the time in nanoseconds, rounded down to its bucket but never
+     * more than the longest time; 0 if nothing was counted
+     */
+    public long getPercentile(double percent) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * Math.min(100.0, Math.max(0.0, percent)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(lowestIn(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * The shortest time that goes in a bucket.
+     */
+    private static long lowestIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << shift;
+    }
+
+    /**
+     * The longest time that goes in a bucket.
+     */
+    private static long highestIn(int bucket) {
+        return bucket + 1 < BUCKETS ? lowestIn(bucket + 1) - 1 : Long.MAX_VALUE;
+    }
+}
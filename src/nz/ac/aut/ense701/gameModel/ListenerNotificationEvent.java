@@ -0,0 +1,48 @@
+package nz.ac.aut.ense701.gameModel;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for Game telling its listeners that it has changed.
+ * The event lasts until every listener has returned, so it includes the
+ * user interface updating itself.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@Name("nz.ac.aut.ense701.ListenerNotification")
+@Label("Listener Notification")
+@Category({"Kiwi Island", "Game"})
+@Description("The game telling its listeners it has changed")
+final class ListenerNotificationEvent extends Event {
+
+    @Label("Listeners")
+    int listeners;
+
+    @Label("Map")
+    String map;
+
+    @Label("State")
+    String state;
+
+    /**
+     * Ends the event and records it if the recording wants it.
+     *
+     * @param listeners number of listeners told
+     * @param map the map being played
+     * @param state the state of the game
+     */
+    void finish(int listeners, String map, GameState state) {
+        end();
+        if (shouldCommit()) {
+            this.listeners = listeners;
+            this.map = map;
+            this.state = state == null ? null : state.name();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,569 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * What is in each map of a maps folder, so that a map can be picked without
+ * listing the folder or reading maps.
+ *
+ * A catalog is built once from the folder and kept in a cache file. When it
+ * is built again, maps whose size and modification time match the cache are
+ * not read; only new and changed maps are.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class MapCatalog {
+
+    private static final byte[] MAGIC = {'K', 'I', 'C', 'T'};
+    private static final int VERSION = 1;
+
+    private final List<Entry> entries;
+    private final Map<String, Entry> byPath;
+
+    /**
+     * What the catalog knows about one map.
+     */
+    public static final class Entry {
+
+        private final String path;
+        private final long length;
+        private final long lastModified;
+        private final long checksum;
+        private final int numRows;
+        private final int numColumns;
+        private final Map<String, Integer> occupantCounts;
+        private final double difficulty;
+
+        Entry(String path, long length, long lastModified, long checksum, int numRows, int numColumns,
+                Map<String, Integer> occupantCounts, double difficulty) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+            this.numRows = numRows;
+            this.numColumns = numColumns;
+            this.occupantCounts = Collections.unmodifiableMap(occupantCounts);
+            this.difficulty = difficulty;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * CRC-32 of the map file.
+         *
+         * @return checksum
+         */
+        public long getChecksum() {
+            return checksum;
+        }
+
+        public int getNumRows() {
+            return numRows;
+        }
+
+        public int getNumColumns() {
+            return numColumns;
+        }
+
+        /**
+         * Number of occupants of a type.
+         *
+         * @param type type code as in the map file: T, E, H, K, P or F
+         * @return how many there are
+         */
+        public int getOccupantCount(String type) {
+            Integer count = occupantCounts.get(type);
+            return count == null ? 0 : count;
+        }
+
+        /**
+         * A rough idea of how hard the map is: the stamina needed to walk
+         * from the start to every kiwi and predator, nearest first, over
+         * terrain of the island's average difficulty, as a fraction of the
+         * player's stamina plus the energy of all the food. Below 1 there is
+         * stamina to spare; well above 1 the player has to plan carefully.
+         *
+         * @return difficulty estimate
+         */
+        public double getDifficulty() {
+            return difficulty;
+        }
+    }
+
+    /**
+     * Which maps to pick from. Limits that are not set let every map through.
+     */
+    public static final class Filter {
+
+        private long minSquares = 0;
+        private long maxSquares = Long.MAX_VALUE;
+        private double minDifficulty = Double.NEGATIVE_INFINITY;
+        private double maxDifficulty = Double.POSITIVE_INFINITY;
+
+        /**
+         * Only maps with between min and max squares.
+         *
+         * @param min fewest squares
+         * @param max most squares
+         * @return this filter
+         */
+        public Filter setSquares(long min, long max) {
+            this.minSquares = min;
+            this.maxSquares = max;
+            return this;
+        }
+
+        /**
+         * Only maps with a difficulty estimate between min and max.
+         *
+         * @param min lowest difficulty
+         * @param max highest difficulty
+         * @return this filter
+         */
+        public Filter setDifficulty(double min, double max) {
+            this.minDifficulty = min;
+            this.maxDifficulty = max;
+            return this;
+        }
+
+        /**
+         * Does a map pass the filter?
+         *
+         * @param entry the map
+         * @return true if it does
+         */
+        public boolean accepts(Entry entry) {
+            long squares = (long) entry.getNumRows() * entry.getNumColumns();
+            return squares >= minSquares && squares <= maxSquares
+                    && entry.getDifficulty() >= minDifficulty && entry.getDifficulty() <= maxDifficulty;
+        }
+    }
+
+    /**
+     * Draws maps at random in constant time, never one of the last few
+     * drawn. The maps drawn most recently are kept at the end of the array
+     * and only the rest are drawn from; each draw swaps the map drawn with
+     * the oldest of the recent ones.
+     */
+    public static final class Selector {
+
+        private final Entry[] maps;
+        private final int avoid;
+        private final Random random;
+        // maps at the end of the array that are recent
+        private int recent;
+        // index of the map drawn longest ago among the recent ones
+        private int oldest;
+
+        Selector(List<Entry> maps, int avoidRecent, Random random) {
+            this.maps = maps.toArray(new Entry[maps.size()]);
+            this.avoid = Math.max(0, Math.min(avoidRecent, this.maps.length - 1));
+            this.random = random;
+            this.recent = 0;
+            this.oldest = this.maps.length - 1;
+        }
+
+        /**
+         * Number of maps that can be drawn.
+         *
+         * @return number of maps
+         */
+        public int size() {
+            return maps.length;
+        }
+
+        /**
+         * Draws a map.
+         *
+         * @return the map, null if no map passed the filter
+         */
+        public Entry next() {
+            if (maps.length == 0) {
+                return null;
+            }
+            int eligible = maps.length - recent;
+            int drawn = random.nextInt(eligible);
+            Entry entry = maps[drawn];
+            if (avoid == 0) {
+                return entry;
+            }
+            if (recent < avoid) {
+                // still filling the recent maps, newest at the lowest index
+                maps[drawn] = maps[eligible - 1];
+                maps[eligible - 1] = entry;
+                recent++;
+            } else {
+                // the oldest recent map can be drawn again
+                maps[drawn] = maps[oldest];
+                maps[oldest] = entry;
+                oldest = oldest == maps.length - avoid ? maps.length - 1 : oldest - 1;
+            }
+            return entry;
+        }
+    }
+
+    private MapCatalog(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.byPath = new HashMap<String, Entry>();
+        for (Entry entry : entries) {
+            byPath.put(entry.getPath(), entry);
+        }
+    }
+
+    /**
+     * Catalogs the maps in a folder, reading only the maps that are not in
+     * the cache file or have changed since. The cache file is rewritten if
+     * anything changed. Files that are not maps are reported and left out.
+     *
+     * @param folder the maps folder
+     * @param cacheFile where the catalog is kept between runs, null for none
+     * @return the catalog, empty if the folder does not exist
+     */
+    public static MapCatalog build(File folder, File cacheFile) {
+        Map<String, Entry> cached = new HashMap<String, Entry>();
+        if (cacheFile != null && cacheFile.isFile()) {
+            try {
+                for (Entry entry : load(cacheFile)) {
+                    cached.put(entry.getPath(), entry);
+                }
+            } catch (IOException e) {
+                System.err.println("Ignoring map catalog '" + cacheFile + "', " + e.getMessage());
+            }
+        }
+
+        List<Entry> entries = new ArrayList<Entry>();
+        boolean changed = false;
+        File[] files = folder.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (!file.isFile() || file.getName().startsWith(".")) {
+                    continue;
+                }
+                Entry entry = cached.remove(file.getPath());
+                if (entry == null || entry.length != file.length() || entry.lastModified != file.lastModified()) {
+                    changed = true;
+                    try {
+                        entry = catalog(file);
+                    } catch (IOException e) {
+                        System.err.println("Leaving '" + file + "' out of the maps, " + e.getMessage());
+                        continue;
+                    }
+                }
+                entries.add(entry);
+            }
+        }
+        changed |= !cached.isEmpty();
+
+        MapCatalog catalog = new MapCatalog(entries);
+        if (changed && cacheFile != null) {
+            try {
+                catalog.save(cacheFile);
+            } catch (IOException e) {
+                System.err.println("Unable to save map catalog '" + cacheFile + "', " + e.getMessage());
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Catalogs the maps in a folder of an asset bundle, for a game that is
+     * run without a maps folder. Entries are named by asset name and there
+     * is no cache file, as the bundle is read whole anyway.
+     *
+     * @param assets the assets
+     * @param folder asset name of the maps folder
+     * @return the catalog, empty if there are no maps
+     */
+    public static MapCatalog build(AssetBundle assets, String folder) {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (String name : assets.list(folder)) {
+            try {
+                byte[] data = assets.getBytes(name);
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, data.length);
+                entries.add(entry(name, data.length, 0L, crc.getValue(), MapDefinition.read(assets, name)));
+            } catch (IOException e) {
+                System.err.println("Leaving '" + name + "' out of the maps, " + e.getMessage());
+            }
+        }
+        return new MapCatalog(entries);
+    }
+
+    /**
+     * Reads one map and works out its catalog entry.
+     *
+     * @param file the map file
+     * @return the entry
+     * @throws IOException if the file cannot be read or is not a map
+     */
+    public static Entry catalog(File file) throws IOException {
+        return catalog(file, MapDefinition.read(file));
+    }
+
+    /**
+     * The catalog entry of a map that has already been read.
+     *
+     * @param file the map file
+     * @param map the map read from it
+     * @return the entry
+     * @throws IOException if the file cannot be read
+     */
+    static Entry catalog(File file, MapDefinition map) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        CRC32 crc = new CRC32();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return entry(file.getPath(), length, lastModified, crc.getValue(), map);
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * The maps in the catalog, in file name order.
+     *
+     * @return all entries
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * The entry for a map file.
+     *
+     * @param path path of the map file as the catalog has it
+     * @return the entry, null if the map is not in the catalog
+     */
+    public Entry getEntry(String path) {
+        return byPath.get(path);
+    }
+
+    /**
+     * The maps that pass a filter.
+     *
+     * @param filter the filter
+     * @return matching entries, in file name order
+     */
+    public List<Entry> find(Filter filter) {
+        List<Entry> found = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            if (filter.accepts(entry)) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * A selector that draws maps passing a filter.
+     *
+     * @param filter which maps to draw from
+     * @param avoidRecent how many of the latest maps drawn not to draw again;
+     * at most all but one of the maps are avoided
+     * @param random source of randomness
+     * @return the selector
+     */
+    public Selector select(Filter filter, int avoidRecent, Random random) {
+        return new Selector(find(filter), avoidRecent, random);
+    }
+
+    /**
+     * A catalog like this one with an entry added, or replacing the entry
+     * for the same map. This catalog does not change.
+     *
+     * @param entry the new entry
+     * @return the new catalog
+     */
+    public MapCatalog withEntry(Entry entry) {
+        List<Entry> changed = new ArrayList<Entry>(entries.size() + 1);
+        boolean added = false;
+        for (Entry old : entries) {
+            int order = old.getPath().compareTo(entry.getPath());
+            if (order == 0) {
+                continue;
+            }
+            if (order > 0 && !added) {
+                changed.add(entry);
+                added = true;
+            }
+            changed.add(old);
+        }
+        if (!added) {
+            changed.add(entry);
+        }
+        return new MapCatalog(changed);
+    }
+
+    /**
+     * A catalog like this one without a map. This catalog does not change.
+     *
+     * @param path path of the map file as the catalog has it
+     * @return the new catalog
+     */
+    public MapCatalog withoutEntry(String path) {
+        List<Entry> changed = new ArrayList<Entry>(entries);
+        changed.remove(byPath.get(path));
+        return new MapCatalog(changed);
+    }
+
+    /**
+     * Writes the catalog to a cache file.
+     *
+     * @param file the cache file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.path);
+                out.writeLong(entry.length);
+                out.writeLong(entry.lastModified);
+                out.writeLong(entry.checksum);
+                out.writeInt(entry.numRows);
+                out.writeInt(entry.numColumns);
+                out.writeDouble(entry.difficulty);
+                out.writeByte(entry.occupantCounts.size());
+                for (Map.Entry<String, Integer> count : entry.occupantCounts.entrySet()) {
+                    out.writeUTF(count.getKey());
+                    out.writeInt(count.getValue());
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static List<Entry> load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("not a map catalog");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("unsupported map catalog version " + version);
+            }
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<Entry>();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long length = in.readLong();
+                long lastModified = in.readLong();
+                long checksum = in.readLong();
+                int numRows = in.readInt();
+                int numColumns = in.readInt();
+                double difficulty = in.readDouble();
+                int types = in.readUnsignedByte();
+                Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+                for (int type = 0; type < types; type++) {
+                    counts.put(in.readUTF(), in.readInt());
+                }
+                entries.add(new Entry(path, length, lastModified, checksum, numRows, numColumns, counts, difficulty));
+            }
+            return entries;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static Entry entry(String path, long length, long lastModified, long checksum, MapDefinition map) {
+        Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+        for (MapDefinition.OccupantDefinition occupant : map.getOccupants()) {
+            Integer count = counts.get(occupant.getType());
+            counts.put(occupant.getType(), count == null ? 1 : count + 1);
+        }
+        return new Entry(path, length, lastModified, checksum, map.getNumRows(), map.getNumColumns(), counts,
+                estimateDifficulty(map));
+    }
+
+    static double estimateDifficulty(MapDefinition map) {
+        double landDifficulty = 0.0;
+        long land = 0;
+        for (int row = 0; row < map.getNumRows(); row++) {
+            for (int col = 0; col < map.getNumColumns(); col++) {
+                Terrain terrain = map.getTerrain(row, col);
+                if (terrain != null && terrain != Terrain.WATER) {
+                    landDifficulty += terrain.getDifficulty();
+                    land++;
+                }
+            }
+        }
+        landDifficulty = land == 0 ? Terrain.WATER.getDifficulty() : landDifficulty / land;
+
+        List<MapDefinition.OccupantDefinition> targets = new ArrayList<MapDefinition.OccupantDefinition>();
+        double energy = 0.0;
+        for (MapDefinition.OccupantDefinition occupant : map.getOccupants()) {
+            if (occupant.getType().equals("K") || occupant.getType().equals("P")) {
+                targets.add(occupant);
+            } else if (occupant.getType().equals("E")) {
+                energy += occupant.getEnergy();
+            }
+        }
+
+        // nearest target first
+        long walk = 0;
+        int row = map.getPlayerRow();
+        int col = map.getPlayerColumn();
+        while (!targets.isEmpty()) {
+            int nearest = 0;
+            int nearestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < targets.size(); i++) {
+                MapDefinition.OccupantDefinition target = targets.get(i);
+                int distance = Math.abs(target.getRow() - row) + Math.abs(target.getColumn() - col);
+                if (distance < nearestDistance) {
+                    nearest = i;
+                    nearestDistance = distance;
+                }
+            }
+            MapDefinition.OccupantDefinition target = targets.remove(nearest);
+            walk += nearestDistance;
+            row = target.getRow();
+            col = target.getColumn();
+        }
+        double stamina = map.getMaxStamina() + energy;
+        return stamina <= 0.0 ? Double.POSITIVE_INFINITY : walk * landDifficulty * Player.MOVE_STAMINA / stamina;
+    }
+}
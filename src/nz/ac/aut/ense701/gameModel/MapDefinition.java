@@ -0,0 +1,359 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The contents of a map file, read without creating an island, images or
+ * sounds. Used by tools that look at maps outside of a running game.
+ *
+ * Text maps are read with MapParser and island files with MappedIsland;
+ * Game reads its maps through this class too.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class MapDefinition {
+
+    // terrain ordinal of a square the map file did not give terrain for
+    static final byte NO_TERRAIN = -1;
+    private static final Terrain[] TERRAINS = Terrain.values();
+
+    private final int numRows;
+    private final int numColumns;
+    private final byte[] terrain;
+    // terrain of a map read from an island file or generated, instead of terrain
+    private final TerrainSource source;
+    private final String playerName;
+    private final int playerRow;
+    private final int playerColumn;
+    private final double maxStamina;
+    private final double maxBackpackWeight;
+    private final double maxBackpackSize;
+    private final List<OccupantDefinition> occupants;
+
+    /**
+     * Terrain of a map that is not kept in a terrain array, such as an
+     * island file or a generated island.
+     */
+    interface TerrainSource {
+
+        /**
+         * Terrain of a square.
+         *
+         * @param row the row
+         * @param column the column
+         * @return terrain, null if the map does not give one
+         */
+        Terrain getTerrain(int row, int column);
+    }
+
+    /**
+     * One occupant line of a map file. Numbers that do not apply to the type
+     * of occupant are zero.
+     */
+    public static class OccupantDefinition {
+
+        private final String type;
+        private final String name;
+        private final String description;
+        private final int row;
+        private final int column;
+        private final double weight;
+        private final double size;
+        private final double energy;
+        private final double impact;
+
+        OccupantDefinition(String type, String name, String description, int row, int column,
+                double weight, double size, double energy, double impact) {
+            this.type = type;
+            this.name = name;
+            this.description = description;
+            this.row = row;
+            this.column = column;
+            this.weight = weight;
+            this.size = size;
+            this.energy = energy;
+            this.impact = impact;
+        }
+
+        /**
+         * Type code as in the map file: T, E, H, K, P or F.
+         *
+         * @return type code
+         */
+        public String getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        public double getSize() {
+            return size;
+        }
+
+        public double getEnergy() {
+            return energy;
+        }
+
+        public double getImpact() {
+            return impact;
+        }
+    }
+
+    MapDefinition(int numRows, int numColumns, byte[] terrain,
+            String playerName, int playerRow, int playerColumn,
+            double maxStamina, double maxBackpackWeight, double maxBackpackSize,
+            List<OccupantDefinition> occupants) {
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.terrain = terrain;
+        this.source = null;
+        this.playerName = playerName;
+        this.playerRow = playerRow;
+        this.playerColumn = playerColumn;
+        this.maxStamina = maxStamina;
+        this.maxBackpackWeight = maxBackpackWeight;
+        this.maxBackpackSize = maxBackpackSize;
+        this.occupants = Collections.unmodifiableList(occupants);
+    }
+
+    MapDefinition(MappedIsland mapped, List<OccupantDefinition> occupants) {
+        this.numRows = mapped.getNumRows();
+        this.numColumns = mapped.getNumColumns();
+        this.terrain = null;
+        this.source = mapped;
+        this.playerName = mapped.getPlayerName();
+        this.playerRow = mapped.getPlayerRow();
+        this.playerColumn = mapped.getPlayerColumn();
+        this.maxStamina = mapped.getMaxStamina();
+        this.maxBackpackWeight = mapped.getMaxBackpackWeight();
+        this.maxBackpackSize = mapped.getMaxBackpackSize();
+        this.occupants = Collections.unmodifiableList(occupants);
+    }
+
+    MapDefinition(int numRows, int numColumns, TerrainSource source,
+            String playerName, int playerRow, int playerColumn,
+            double maxStamina, double maxBackpackWeight, double maxBackpackSize,
+            List<OccupantDefinition> occupants) {
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.terrain = null;
+        this.source = source;
+        this.playerName = playerName;
+        this.playerRow = playerRow;
+        this.playerColumn = playerColumn;
+        this.maxStamina = maxStamina;
+        this.maxBackpackWeight = maxBackpackWeight;
+        this.maxBackpackSize = maxBackpackSize;
+        this.occupants = Collections.unmodifiableList(occupants);
+    }
+
+    /**
+     * Reads a map file. Island files (see MappedIsland) are mapped rather
+     * than read, and their terrain stays in the file.
+     *
+     * @param file the map file
+     * @return the map
+     * @throws MapFormatException if the file is not a valid map
+     * @throws IOException if the file cannot be opened or read
+     */
+    public static MapDefinition read(File file) throws IOException {
+        if (MappedIsland.isIslandFile(file)) {
+            return MappedIsland.open(file).toMapDefinition();
+        }
+        long length = file.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new MapFormatException("file is too large for a map", 1, 1);
+        }
+        byte[] data = new byte[(int) length];
+        DataInputStream input = new DataInputStream(new FileInputStream(file));
+        try {
+            input.readFully(data);
+        } finally {
+            input.close();
+        }
+        return MapParser.parse(data, data.length);
+    }
+
+    /**
+     * Reads a text map from an asset bundle.
+     *
+     * @param assets the assets
+     * @param name asset name of the map
+     * @return the map
+     * @throws MapFormatException if the asset is not a valid map
+     * @throws IOException if there is no such asset, or it is an island
+     * file, which can only be read from a file
+     */
+    public static MapDefinition read(AssetBundle assets, String name) throws IOException {
+        if (MappedIsland.isIslandFile(new File(name))) {
+            throw new IOException("island files cannot be read from an asset bundle");
+        }
+        byte[] data = assets.getBytes(name);
+        return MapParser.parse(data, data.length);
+    }
+
+    /**
+     * Reads a map from text in the map file format.
+     *
+     * @param text contents of a map file
+     * @return the map
+     * @throws IllegalArgumentException if the text is not a valid map
+     */
+    public static MapDefinition parse(String text) {
+        try {
+            byte[] data = text.getBytes("UTF-8");
+            return MapParser.parse(data, data.length);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        } catch (MapFormatException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    /**
+     * Terrain of a square.
+     *
+     * @param row the row
+     * @param column the column
+     * @return terrain, null if the map file did not give one
+     */
+    public Terrain getTerrain(int row, int column) {
+        if (source != null) {
+            return source.getTerrain(row, column);
+        }
+        byte ordinal = terrain[row * numColumns + column];
+        return ordinal == NO_TERRAIN ? null : TERRAINS[ordinal];
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public int getPlayerRow() {
+        return playerRow;
+    }
+
+    public int getPlayerColumn() {
+        return playerColumn;
+    }
+
+    public double getMaxStamina() {
+        return maxStamina;
+    }
+
+    public double getMaxBackpackWeight() {
+        return maxBackpackWeight;
+    }
+
+    public double getMaxBackpackSize() {
+        return maxBackpackSize;
+    }
+
+    /**
+     * Occupants in the order they appear in the file.
+     *
+     * @return occupants
+     */
+    public List<OccupantDefinition> getOccupants() {
+        return occupants;
+    }
+
+    /**
+     * The island file this map was read from.
+     *
+     * @return the mapped island, null if the map was read from text
+     */
+    MappedIsland getMappedIsland() {
+        return source instanceof MappedIsland ? (MappedIsland) source : null;
+    }
+
+    /**
+     * Writes the map in the text map file format. Squares without terrain
+     * at the end of a row are left out, as in the file the map came from;
+     * any others are written as water.
+     *
+     * @param out where to write the map
+     * @throws IOException if out cannot be written
+     */
+    public void write(Writer out) throws IOException {
+        out.write(numRows + "," + numColumns + ",\n");
+        char[] row = new char[numColumns];
+        for (int r = 0; r < numRows; r++) {
+            int length = 0;
+            for (int col = 0; col < numColumns; col++) {
+                Terrain square = getTerrain(r, col);
+                if (square != null) {
+                    length = col + 1;
+                }
+                row[col] = (square == null ? Terrain.WATER : square).getStringRepresentation().charAt(0);
+            }
+            out.write(row, 0, length);
+            out.write(",\n");
+        }
+        out.write(playerName + "," + playerRow + "," + playerColumn + "," + number(maxStamina) + ","
+                + number(maxBackpackWeight) + "," + number(maxBackpackSize) + ",\n");
+        out.write(occupants.size() + ",\n");
+        for (OccupantDefinition occupant : occupants) {
+            String type = occupant.getType();
+            out.write(type + "," + occupant.getName() + "," + occupant.getDescription() + ","
+                    + occupant.getRow() + "," + occupant.getColumn());
+            if (type.equals("T")) {
+                out.write("," + number(occupant.getWeight()) + "," + number(occupant.getSize()));
+            } else if (type.equals("E")) {
+                out.write("," + number(occupant.getWeight()) + "," + number(occupant.getSize())
+                        + "," + number(occupant.getEnergy()));
+            } else if (type.equals("H")) {
+                out.write("," + number(occupant.getImpact()));
+            }
+            out.write(",\n");
+        }
+        out.flush();
+    }
+
+    /**
+     * A number as the map parser reads it, never in exponent form.
+     */
+    private static String number(double value) {
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+}
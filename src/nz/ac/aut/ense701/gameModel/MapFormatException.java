@@ -0,0 +1,37 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a map file is not in the map file format. Says where in the
+ * file the problem is.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class MapFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+    private final int column;
+
+    /**
+     * @param problem what is wrong
+     * @param line line of the problem, from 1
+     * @param column column of the problem, from 1
+     */
+    public MapFormatException(String problem, int line, int column) {
+        super("line " + line + ", column " + column + ": " + problem);
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+}
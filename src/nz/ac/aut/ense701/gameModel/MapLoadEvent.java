@@ -0,0 +1,58 @@
+package nz.ac.aut.ense701.gameModel;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a phase of loading a map: reading the file,
+ * creating the terrain or creating the occupants. Maps loaded ahead of time
+ * are loaded on the map preloader thread.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@Name("nz.ac.aut.ense701.MapLoad")
+@Label("Map Load")
+@Category({"Kiwi Island", "Game"})
+@Description("A phase of loading a map")
+final class MapLoadEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Map")
+    String map;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Columns")
+    int columns;
+
+    @Label("Occupants")
+    int occupants;
+
+    /**
+     * Ends the event and records it if the recording wants it.
+     *
+     * @param phase "read", "terrain" or "occupants"
+     * @param map the map's file name
+     * @param definition the map, null if it could not be read
+     */
+    void finish(String phase, String map, MapDefinition definition) {
+        end();
+        if (shouldCommit()) {
+            this.phase = phase;
+            this.map = map;
+            if (definition != null) {
+                rows = definition.getNumRows();
+                columns = definition.getNumColumns();
+                occupants = definition.getOccupants().size();
+            }
+            commit();
+        }
+    }
+}
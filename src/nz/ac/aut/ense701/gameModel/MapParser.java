@@ -0,0 +1,276 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the map file format in one pass over the bytes of the file.
+ *
+ * Values are separated by commas, with any white space around a comma left
+ * out, like the Scanner with delimiter "\s*,\s*" that used to read maps.
+ * Terrain rows are checked a byte at a time with a table made from Terrain's
+ * lookup table and stored as terrain ordinals, so no strings are made for
+ * them. Numbers are read straight from the bytes. Errors say the line and
+ * column of the value that is wrong; lines are only counted when there is an
+ * error.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+final class MapParser {
+
+    private static final String CHARSET = "UTF-8";
+
+    // terrain ordinal of each byte, from Terrain's lookup table
+    private static final byte[] TERRAIN_ORDINALS = new byte[256];
+
+    static {
+        for (int b = 0; b < TERRAIN_ORDINALS.length; b++) {
+            Terrain terrain = Terrain.getTerrainFromCharacter(b);
+            TERRAIN_ORDINALS[b] = terrain == null ? MapDefinition.NO_TERRAIN : (byte) terrain.ordinal();
+        }
+    }
+
+    private final byte[] data;
+    private final int end;
+    private int position;
+    // first and one past last byte of the latest value, white space left out
+    private int valueStart;
+    private int valueEnd;
+
+    private MapParser(byte[] data, int length) {
+        this.data = data;
+        this.end = length;
+        this.position = 0;
+    }
+
+    /**
+     * Reads a map.
+     *
+     * @param data contents of a map file
+     * @param length number of bytes of data to read
+     * @return the map
+     * @throws MapFormatException if the data is not a valid map
+     */
+    static MapDefinition parse(byte[] data, int length) throws MapFormatException {
+        return new MapParser(data, length).readMap();
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private MapDefinition readMap() throws MapFormatException {
+        int numRows = nextInt("number of rows");
+        int numColumns = nextInt("number of columns");
+        if (numRows <= 0 || numColumns <= 0 || (long) numRows * numColumns > Integer.MAX_VALUE) {
+            throw error("island size " + numRows + " x " + numColumns + " is not possible", valueStart);
+        }
+
+        byte[] terrain = new byte[numRows * numColumns];
+        for (int row = 0; row < numRows; row++) {
+            readTerrainRow(terrain, row * numColumns, numColumns);
+        }
+
+        String playerName = nextString("player name");
+        int playerRow = nextInt("player row");
+        int playerColumn = nextInt("player column");
+        checkPosition(playerRow, playerColumn, numRows, numColumns);
+        double maxStamina = nextDouble("maximum stamina");
+        double maxBackpackWeight = nextDouble("maximum backpack weight");
+        double maxBackpackSize = nextDouble("maximum backpack size");
+
+        int numOccupants = nextInt("number of occupants");
+        if (numOccupants < 0) {
+            throw error("number of occupants is negative", valueStart);
+        }
+        List<MapDefinition.OccupantDefinition> occupants =
+                new ArrayList<MapDefinition.OccupantDefinition>(Math.min(numOccupants, 1024));
+        for (int i = 0; i < numOccupants; i++) {
+            String type = nextString("occupant type");
+            int typeStart = valueStart;
+            String name = nextString("occupant name");
+            String description = nextString("occupant description");
+            int row = nextInt("occupant row");
+            int column = nextInt("occupant column");
+            checkPosition(row, column, numRows, numColumns);
+            double weight = 0.0;
+            double size = 0.0;
+            double energy = 0.0;
+            double impact = 0.0;
+            if (type.equals("T")) {
+                weight = nextDouble("tool weight");
+                size = nextDouble("tool size");
+            } else if (type.equals("E")) {
+                weight = nextDouble("food weight");
+                size = nextDouble("food size");
+                energy = nextDouble("food energy");
+            } else if (type.equals("H")) {
+                impact = nextDouble("hazard impact");
+            } else if (!type.equals("K") && !type.equals("P") && !type.equals("F")) {
+                throw error("unknown occupant type '" + type + "'", typeStart);
+            }
+            occupants.add(new MapDefinition.OccupantDefinition(type, name, description, row, column,
+                    weight, size, energy, impact));
+        }
+        return new MapDefinition(numRows, numColumns, terrain, playerName, playerRow, playerColumn,
+                maxStamina, maxBackpackWeight, maxBackpackSize, occupants);
+    }
+
+    /**
+     * Reads one row of terrain characters, converting and checking them in
+     * the same pass that looks for the comma. A short row leaves the rest of
+     * the row without terrain, as the old reader did.
+     */
+    private void readTerrainRow(byte[] terrain, int offset, int numColumns) throws MapFormatException {
+        skipWhitespace();
+        if (position >= end) {
+            throw error("expected terrain row but the file ended", end);
+        }
+        int start = position;
+        int limit = Math.min(end, start + numColumns);
+        int i = start;
+        byte ordinal;
+        while (i < limit && (ordinal = TERRAIN_ORDINALS[data[i] & 0xff]) != MapDefinition.NO_TERRAIN) {
+            terrain[offset + i - start] = ordinal;
+            i++;
+        }
+        for (int col = i - start; col < numColumns; col++) {
+            terrain[offset + col] = MapDefinition.NO_TERRAIN;
+        }
+        // the row ends with white space and a comma, or the end of the file
+        position = i;
+        skipWhitespace();
+        if (position < end && data[position] != ',') {
+            if (i == limit && TERRAIN_ORDINALS[data[i] & 0xff] != MapDefinition.NO_TERRAIN) {
+                throw error("terrain row is longer than " + numColumns + " columns", i);
+            }
+            int bad = isWhitespace(data[i]) ? position : i;
+            throw error("unknown terrain '" + (char) (data[bad] & 0xff) + "'", bad);
+        }
+        if (position < end) {
+            position++;
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < end && isWhitespace(data[position])) {
+            position++;
+        }
+    }
+
+    /**
+     * Finds the next value: skips white space, then takes everything up to
+     * the next comma or the end, less trailing white space.
+     */
+    private void nextValue(String what) throws MapFormatException {
+        skipWhitespace();
+        if (position >= end) {
+            throw error("expected " + what + " but the file ended", end);
+        }
+        valueStart = position;
+        while (position < end && data[position] != ',') {
+            position++;
+        }
+        valueEnd = position;
+        while (valueEnd > valueStart && isWhitespace(data[valueEnd - 1])) {
+            valueEnd--;
+        }
+        if (position < end) {
+            // step over the comma
+            position++;
+        }
+    }
+
+    private String nextString(String what) throws MapFormatException {
+        nextValue(what);
+        try {
+            return new String(data, valueStart, valueEnd - valueStart, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int nextInt(String what) throws MapFormatException {
+        nextValue(what);
+        int i = valueStart;
+        boolean negative = false;
+        if (i < valueEnd && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+        if (i == valueEnd) {
+            throw error("expected " + what + " (a whole number)", valueStart);
+        }
+        long value = 0;
+        for (; i < valueEnd; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw error("expected " + what + " (a whole number)", valueStart);
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw error(what + " is too large", valueStart);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw error(what + " is too large", valueStart);
+        }
+        return (int) value;
+    }
+
+    private double nextDouble(String what) throws MapFormatException {
+        nextValue(what);
+        // only digits, one point and a sign, as Scanner allowed in Locale.US
+        boolean digits = false;
+        for (int i = valueStart; i < valueEnd; i++) {
+            byte b = data[i];
+            boolean sign = i == valueStart && (b == '-' || b == '+');
+            if (b >= '0' && b <= '9') {
+                digits = true;
+            } else if (b != '.' && !sign) {
+                digits = false;
+                break;
+            }
+        }
+        if (digits) {
+            try {
+                return Double.parseDouble(new String(data, valueStart, valueEnd - valueStart, CHARSET));
+            } catch (NumberFormatException e) {
+                // more than one point, reported below
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw error("expected " + what + " (a number)", valueStart);
+    }
+
+    private void checkPosition(int row, int column, int numRows, int numColumns) throws MapFormatException {
+        if (row < 0 || row >= numRows || column < 0 || column >= numColumns) {
+            throw error("position " + row + "," + column + " is not on the island", valueStart);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0b;
+    }
+
+    /**
+     * An error at a byte offset, with line and column counted from the
+     * start of the data.
+     */
+    private MapFormatException error(String problem, int offset) {
+        int line = 1;
+        int lineStart = 0;
+        for (int i = 0; i < offset && i < end; i++) {
+            if (data[i] == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return new MapFormatException(problem, line, offset - lineStart + 1);
+    }
+}
@@ -0,0 +1,845 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Works out whether a map can be won and the fewest moves it takes.
+ *
+ * The search is IDA* over GameSnapshot states, counting moves only (picking
+ * things up, eating, trapping and counting are free). The lower bound on the
+ * moves still needed is the smaller of the two ways to win:
+ * <ul>
+ * <li>trap every predator: the length of a minimum spanning tree over the
+ * player and the predators left, via a trap first if none is carried;</li>
+ * <li>count every kiwi and trap enough predators: a spanning tree over the
+ * player and the kiwis left (and a trap if one is still needed), and at least
+ * the distance to the k-th nearest predator when k more must be trapped.</li>
+ * </ul>
+ * Distances are in moves, going around squares with fatal hazards. A walk
+ * that visits a set of squares is a spanning tree of them, so neither bound is
+ * ever too high. A state is also dropped when its stamina and all the food
+ * left on the island cannot pay for the moves still needed.
+ *
+ * A TranspositionTable of bounded size skips states already searched in the
+ * same iteration after no fewer moves with no more stamina.
+ *
+ * With more than one thread the first few actions are expanded into a list of
+ * subproblems, which the threads take in turn, each with its own table. When
+ * an iteration finishes without a win and nothing was cut off by the bound,
+ * no way to win exists and the map is proved unwinnable.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class MapSolver {
+
+    /** How a solve ended. */
+    public enum Outcome {
+        WINNABLE, UNWINNABLE, GAVE_UP
+    }
+
+    /**
+     * Result of solving a map.
+     */
+    public static class Solution {
+
+        private final Outcome outcome;
+        private final int moves;
+        private final int[] actions;
+        private final List<String> steps;
+        private final long statesSearched;
+        private final long elapsedMillis;
+
+        Solution(Outcome outcome, int moves, int[] actions, List<String> steps,
+                long statesSearched, long elapsedMillis) {
+            this.outcome = outcome;
+            this.moves = moves;
+            this.actions = actions;
+            this.steps = steps;
+            this.statesSearched = statesSearched;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * Fewest moves needed to win.
+         *
+         * @return moves, or -1 unless the outcome is WINNABLE
+         */
+        public int getMoves() {
+            return moves;
+        }
+
+        /**
+         * The actions of a shortest win, as GameSnapshot actions.
+         *
+         * @return actions, empty unless the outcome is WINNABLE
+         */
+        public int[] getActions() {
+            return actions.clone();
+        }
+
+        /**
+         * The actions of a shortest win, described for people.
+         *
+         * @return steps, empty unless the outcome is WINNABLE
+         */
+        public List<String> getSteps() {
+            return steps;
+        }
+
+        public long getStatesSearched() {
+            return statesSearched;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+    // distances from squares of interest are kept when the island is no larger than this
+    private static final int MAX_DISTANCE_TABLE_CELLS = 128 * 128;
+    private static final int SUBPROBLEMS_PER_THREAD = 16;
+
+    private final GameRules rules;
+    private final int cells;
+    // squares of interest have a slot; distanceTo[cell * slots + slot] is the distance from cell to it
+    private final int[] distanceSlot;
+    private final int slots;
+    private final int[] distanceTo;
+    private final double minMoveStamina;
+    private final int predatorsForKiwiWin;
+
+    private int threads;
+    private long memoryBytes;
+    private long timeLimitMillis;
+    private long stateLimit;
+
+    /**
+     * Creates a solver for a map. Uses every processor and 256MB for the
+     * transposition tables unless told otherwise.
+     *
+     * @param rules the rules of the map
+     */
+    public MapSolver(GameRules rules) {
+        this.rules = rules;
+        this.cells = rules.numRows * rules.numColumns;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.memoryBytes = 256L << 20;
+        this.timeLimitMillis = 0;
+
+        double minDifficulty = Double.POSITIVE_INFINITY;
+        for (int cell = 0; cell < cells; cell++) {
+            if (!isFatal(cell)) {
+                minDifficulty = Math.min(minDifficulty, rules.difficulty[cell]);
+            }
+        }
+        minMoveStamina = Player.MOVE_STAMINA * minDifficulty;
+
+        int needed = 0;
+        while (needed < rules.totalPredators && needed < rules.totalPredators * GameRules.MIN_REQUIRED_CATCH) {
+            needed++;
+        }
+        predatorsForKiwiWin = needed;
+
+        distanceSlot = new int[cells];
+        Arrays.fill(distanceSlot, -1);
+        List<Integer> sources = new ArrayList<Integer>();
+        if (cells <= MAX_DISTANCE_TABLE_CELLS) {
+            addSources(sources, rules.kiwiCell);
+            addSources(sources, rules.predatorCell);
+            addSources(sources, rules.itemStartCell);
+        }
+        slots = sources.size();
+        distanceTo = new int[cells * slots];
+        for (int slot = 0; slot < slots; slot++) {
+            int[] distance = distancesFrom(sources.get(slot));
+            for (int cell = 0; cell < cells; cell++) {
+                distanceTo[cell * slots + slot] = distance[cell];
+            }
+        }
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Mutator methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Sets the number of threads to search with.
+     *
+     * @param threads threads, at least 1
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the memory for transposition tables, shared between the threads.
+     *
+     * @param memoryBytes bytes
+     */
+    public void setMemoryLimit(long memoryBytes) {
+        this.memoryBytes = memoryBytes;
+    }
+
+    /**
+     * Gives up after a time.
+     *
+     * @param timeLimitMillis milliseconds, 0 for no limit
+     */
+    public void setTimeLimit(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * Gives up after searching a number of states. Unlike a time limit,
+     * with one thread this gives the same outcome on every computer.
+     *
+     * @param stateLimit states, 0 for no limit
+     */
+    public void setStateLimit(long stateLimit) {
+        this.stateLimit = stateLimit;
+    }
+
+    /**
+     * Solves the map from its start.
+     *
+     * @return the solution
+     */
+    public Solution solve() {
+        return solve(rules.start());
+    }
+
+    /**
+     * Solves the map from a state part way through a game. Moves already
+     * made are not counted.
+     *
+     * @param start the state to start from
+     * @return the solution
+     */
+    public Solution solve(GameSnapshot start) {
+        long startTime = System.currentTimeMillis();
+        final long deadline = timeLimitMillis > 0 ? startTime + timeLimitMillis : Long.MAX_VALUE;
+        final int movesBefore = start.getMoves();
+
+        final List<Subproblem> subproblems = split(start, movesBefore);
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicLong states = new AtomicLong();
+        final Search[] searches = new Search[Math.min(threads, Math.max(1, subproblems.size()))];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new Search(memoryBytes / searches.length, movesBefore, deadline, stop, states);
+        }
+
+        ExecutorService pool = searches.length > 1 ? Executors.newFixedThreadPool(searches.length,
+                new SolverThreadFactory()) : null;
+        try {
+            int threshold = new Bound().of(start);
+            int iteration = 0;
+            while (threshold < UNREACHABLE) {
+                iteration++;
+                int next = runIteration(pool, searches, subproblems, threshold, iteration);
+                for (Search search : searches) {
+                    if (search.found != null) {
+                        return solution(start, search.found, states.get(), startTime);
+                    }
+                }
+                if (stop.get()) {
+                    return new Solution(Outcome.GAVE_UP, -1, new int[0], new ArrayList<String>(), states.get(),
+                            System.currentTimeMillis() - startTime);
+                }
+                threshold = next;
+            }
+            return new Solution(Outcome.UNWINNABLE, -1, new int[0], new ArrayList<String>(), states.get(),
+                    System.currentTimeMillis() - startTime);
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    /**
+     * One pass of IDA* over all subproblems with a bound on moves.
+     *
+     * @return the smallest estimate that was over the bound
+     */
+    private int runIteration(ExecutorService pool, Search[] searches, final List<Subproblem> subproblems,
+            final int threshold, final int iteration) {
+        final AtomicInteger nextSubproblem = new AtomicInteger();
+        if (pool == null) {
+            return searches[0].run(subproblems, nextSubproblem, threshold, iteration);
+        }
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (final Search search : searches) {
+            results.add(pool.submit(new java.util.concurrent.Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return search.run(subproblems, nextSubproblem, threshold, iteration);
+                }
+            }));
+        }
+        int next = UNREACHABLE;
+        for (Future<Integer> result : results) {
+            try {
+                next = Math.min(next, result.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while solving", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Solver thread failed", e.getCause());
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Expands the first actions breadth first until there is enough work to
+     * share between the threads.
+     */
+    private List<Subproblem> split(GameSnapshot start, int movesBefore) {
+        List<Subproblem> frontier = new ArrayList<Subproblem>();
+        frontier.add(new Subproblem(start.copy(), new int[0]));
+        int wanted = threads > 1 ? threads * SUBPROBLEMS_PER_THREAD : 1;
+        int[] actions = new int[rules.getMaxActions()];
+        while (frontier.size() < wanted) {
+            List<Subproblem> expanded = new ArrayList<Subproblem>();
+            boolean grew = false;
+            for (Subproblem subproblem : frontier) {
+                int count = subproblem.state.getActions(actions);
+                if (count == 0) {
+                    // won or lost: keep, the search deals with it
+                    expanded.add(subproblem);
+                    continue;
+                }
+                grew = true;
+                for (int i = 0; i < count; i++) {
+                    GameSnapshot child = subproblem.state.copy();
+                    child.apply(actions[i]);
+                    if (child.getState() == GameState.LOST) {
+                        continue;
+                    }
+                    int[] prefix = Arrays.copyOf(subproblem.prefix, subproblem.prefix.length + 1);
+                    prefix[subproblem.prefix.length] = actions[i];
+                    expanded.add(new Subproblem(child, prefix));
+                }
+            }
+            frontier = expanded;
+            if (!grew) {
+                break;
+            }
+        }
+        return frontier;
+    }
+
+    private Solution solution(GameSnapshot start, int[] actions, long states, long startTime) {
+        List<String> steps = new ArrayList<String>(actions.length);
+        GameSnapshot replay = start.copy();
+        for (int action : actions) {
+            steps.add(replay.describe(action));
+            if (!replay.apply(action)) {
+                throw new IllegalStateException("Solver found an impossible action: " + replay.describe(action));
+            }
+        }
+        if (replay.getState() != GameState.WON) {
+            throw new IllegalStateException("Solver route does not win");
+        }
+        return new Solution(Outcome.WINNABLE, replay.getMoves() - start.getMoves(), actions, steps, states,
+                System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Lower bound on the moves still needed to win, with scratch space and a
+     * cache of spanning trees for one thread.
+     *
+     * A walk from the player that visits a set of squares first goes to one
+     * of them and then visits the rest, so it is at least as long as the
+     * distance to the nearest one plus a spanning tree of the set. The
+     * spanning tree only depends on which kiwis or predators are left, so it
+     * is cached by that.
+     */
+    private class Bound {
+
+        private static final int CACHE_BITS = 14;
+
+        private final int[] points = new int[Math.max(rules.kiwiCell.length, rules.predatorCell.length) + 1];
+        private final int[] groundTraps = new int[rules.itemKind.length];
+        private final int[] nearest = new int[rules.predatorCell.length];
+        private final int[] best = new int[points.length];
+        private final boolean[] inTree = new boolean[points.length];
+        // direct mapped: set bits, which set and extra square, spanning tree weight
+        private final long[] cacheBits = new long[1 << CACHE_BITS];
+        private final int[] cacheExtra = new int[1 << CACHE_BITS];
+        private final int[] cacheWeight = new int[1 << CACHE_BITS];
+
+        Bound() {
+            Arrays.fill(cacheWeight, -1);
+        }
+
+        /**
+         * @return lower bound on the moves still needed to win from a state,
+         * or UNREACHABLE if it cannot be won
+         */
+        int of(GameSnapshot state) {
+            if (state.getState() == GameState.WON) {
+                return 0;
+            }
+            if (state.getState() == GameState.LOST) {
+                return UNREACHABLE;
+            }
+            int here = state.getCell();
+            boolean haveTrap = false;
+            int numGroundTraps = 0;
+            double food = 0.0;
+            for (int i = 0; i < rules.itemKind.length; i++) {
+                int location = state.getItemLocation(i);
+                if (rules.itemKind[i] == GameRules.TRAP) {
+                    if (location == GameRules.IN_BACKPACK) {
+                        haveTrap = true;
+                    } else if (location >= 0) {
+                        groundTraps[numGroundTraps++] = location;
+                    }
+                } else if (rules.itemKind[i] == GameRules.FOOD && location != GameRules.GONE) {
+                    food += rules.itemEnergy[i];
+                }
+            }
+
+            // win by trapping every predator
+            int predatorBound = UNREACHABLE;
+            long predators = state.getPredatorsLeft();
+            if (rules.predatorCell.length == rules.totalPredators) {
+                if (predators == 0) {
+                    predatorBound = 0;
+                } else {
+                    int tree = spanningTree(rules.predatorCell, predators, -1);
+                    if (haveTrap) {
+                        predatorBound = nearest(here, rules.predatorCell, predators, -1) + tree;
+                    } else {
+                        for (int t = 0; t < numGroundTraps; t++) {
+                            predatorBound = Math.min(predatorBound, distance(here, groundTraps[t])
+                                    + nearest(groundTraps[t], rules.predatorCell, predators, -1) + tree);
+                        }
+                    }
+                }
+            }
+
+            // win by counting every kiwi and trapping enough predators
+            int kiwiBound = UNREACHABLE;
+            long kiwis = state.getKiwisLeft();
+            int predatorsNeeded = predatorsForKiwiWin - state.getPredatorsTrapped();
+            if (rules.kiwiCell.length == rules.totalKiwis && predatorsNeeded <= Long.bitCount(predators)) {
+                if (predatorsNeeded <= 0 || haveTrap) {
+                    kiwiBound = kiwis == 0 ? 0
+                            : nearest(here, rules.kiwiCell, kiwis, -1) + spanningTree(rules.kiwiCell, kiwis, -1);
+                    if (predatorsNeeded > 0) {
+                        kiwiBound = Math.max(kiwiBound, nearestPredator(here, predatorsNeeded, predators));
+                    }
+                } else {
+                    for (int t = 0; t < numGroundTraps; t++) {
+                        int trap = groundTraps[t];
+                        int walk = nearest(here, rules.kiwiCell, kiwis, trap)
+                                + spanningTree(rules.kiwiCell, kiwis, trap);
+                        int viaTrap = distance(here, trap) + nearestPredator(trap, predatorsNeeded, predators);
+                        kiwiBound = Math.min(kiwiBound, Math.max(walk, viaTrap));
+                    }
+                }
+            }
+
+            int moves = Math.min(predatorBound, kiwiBound);
+            if (moves >= UNREACHABLE) {
+                return UNREACHABLE;
+            }
+            // every move costs stamina, and the player must still be able to move when winning
+            if (state.getStamina() + food < (moves + 1) * minMoveStamina) {
+                return UNREACHABLE;
+            }
+            return moves;
+        }
+
+        /**
+         * Distance to the nearest of the squares whose bits are set, and extra
+         * if it is not -1.
+         */
+        private int nearest(int from, int[] cellOf, long bits, int extra) {
+            int result = extra >= 0 ? distance(from, extra) : UNREACHABLE;
+            for (int i = 0; i < cellOf.length; i++) {
+                if ((bits & (1L << i)) != 0) {
+                    result = Math.min(result, distance(from, cellOf[i]));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Distance to the k-th nearest predator not yet trapped.
+         */
+        private int nearestPredator(int from, int k, long predators) {
+            // the k smallest distances so far, in order
+            int count = 0;
+            for (int p = 0; p < rules.predatorCell.length; p++) {
+                if ((predators & (1L << p)) == 0) {
+                    continue;
+                }
+                int d = distance(from, rules.predatorCell[p]);
+                int i = Math.min(count, k - 1);
+                if (count >= k && d >= nearest[i]) {
+                    continue;
+                }
+                while (i > 0 && nearest[i - 1] > d) {
+                    nearest[i] = nearest[i - 1];
+                    i--;
+                }
+                nearest[i] = d;
+                count++;
+            }
+            return count < k ? UNREACHABLE : nearest[k - 1];
+        }
+
+        /**
+         * Weight of a minimum spanning tree over the squares whose bits are
+         * set, and extra if it is not -1.
+         */
+        private int spanningTree(int[] cellOf, long bits, int extra) {
+            // which set and which extra square, so kiwi and predator trees never mix
+            int tag = (extra + 1) * 2 + (cellOf == rules.kiwiCell ? 1 : 0);
+            long hash = (bits ^ (bits >>> 29) ^ ((long) tag << 40)) * 0x9e3779b97f4a7c15L;
+            int slot = (int) (hash >>> (64 - CACHE_BITS));
+            if (cacheWeight[slot] >= 0 && cacheBits[slot] == bits && cacheExtra[slot] == tag) {
+                return cacheWeight[slot];
+            }
+            int count = 0;
+            for (int i = 0; i < cellOf.length; i++) {
+                if ((bits & (1L << i)) != 0) {
+                    points[count++] = cellOf[i];
+                }
+            }
+            if (extra >= 0) {
+                points[count++] = extra;
+            }
+            int weight = prim(count);
+            cacheBits[slot] = bits;
+            cacheExtra[slot] = tag;
+            cacheWeight[slot] = weight;
+            return weight;
+        }
+
+        private int prim(int count) {
+            if (count <= 1) {
+                return 0;
+            }
+            Arrays.fill(best, 0, count, UNREACHABLE);
+            Arrays.fill(inTree, 0, count, false);
+            best[0] = 0;
+            int total = 0;
+            for (int added = 0; added < count; added++) {
+                int next = -1;
+                for (int i = 0; i < count; i++) {
+                    if (!inTree[i] && (next < 0 || best[i] < best[next])) {
+                        next = i;
+                    }
+                }
+                if (best[next] >= UNREACHABLE) {
+                    return UNREACHABLE;
+                }
+                inTree[next] = true;
+                total += best[next];
+                for (int i = 0; i < count; i++) {
+                    if (!inTree[i]) {
+                        best[i] = Math.min(best[i], distance(points[next], points[i]));
+                    }
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Fewest moves between two squares without stepping on a fatal hazard.
+     * Falls back to the manhattan distance when neither square has a table.
+     */
+    private int distance(int from, int to) {
+        int slot = distanceSlot[to];
+        if (slot >= 0) {
+            return distanceTo[from * slots + slot];
+        }
+        slot = distanceSlot[from];
+        if (slot >= 0) {
+            return distanceTo[to * slots + slot];
+        }
+        return Math.abs(from / rules.numColumns - to / rules.numColumns)
+                + Math.abs(from % rules.numColumns - to % rules.numColumns);
+    }
+
+    private void addSources(List<Integer> sources, int[] sourceCells) {
+        for (int cell : sourceCells) {
+            // items that start in the backpack have no square
+            if (cell >= 0 && distanceSlot[cell] < 0) {
+                distanceSlot[cell] = sources.size();
+                sources.add(cell);
+            }
+        }
+    }
+
+    /**
+     * Breadth first search. Squares with fatal hazards can't be entered, so
+     * one as the source is unreachable from anywhere else.
+     */
+    private int[] distancesFrom(int source) {
+        int[] distance = new int[cells];
+        Arrays.fill(distance, UNREACHABLE);
+        if (isFatal(source) && source != rules.playerStartCell) {
+            distance[source] = 0;
+            return distance;
+        }
+        int[] queue = new int[cells];
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / rules.numColumns;
+            int col = cell % rules.numColumns;
+            int[] neighbours = {
+                row > 0 ? cell - rules.numColumns : -1,
+                row < rules.numRows - 1 ? cell + rules.numColumns : -1,
+                col > 0 ? cell - 1 : -1,
+                col < rules.numColumns - 1 ? cell + 1 : -1};
+            for (int next : neighbours) {
+                if (next >= 0 && distance[next] == UNREACHABLE && !isFatal(next)) {
+                    distance[next] = distance[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distance;
+    }
+
+    private boolean isFatal(int cell) {
+        for (int h = rules.hazardStart[cell]; h < rules.hazardStart[cell + 1]; h++) {
+            if (rules.hazardImpact[h] == GameRules.FATAL_IMPACT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A state reached by the first few actions, searched as a unit.
+     */
+    private static class Subproblem {
+
+        final GameSnapshot state;
+        final int[] prefix;
+
+        Subproblem(GameSnapshot state, int[] prefix) {
+            this.state = state;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * Depth first search of one thread, with its own table and buffers.
+     */
+    private class Search {
+
+        private final TranspositionTable table;
+        private final Bound bound = new Bound();
+        private final int movesBefore;
+        private final long deadline;
+        private final AtomicBoolean stop;
+        private final AtomicLong states;
+        // per depth: candidate children, their bounds and the actions taken
+        private GameSnapshot[][] children = new GameSnapshot[64][];
+        private int[][] childBounds = new int[64][];
+        private int[][] childActions = new int[64][];
+        private int[] path = new int[64];
+        private long localStates;
+        int[] found;
+
+        Search(long memoryBytes, int movesBefore, long deadline, AtomicBoolean stop, AtomicLong states) {
+            this.table = new TranspositionTable(memoryBytes);
+            this.movesBefore = movesBefore;
+            this.deadline = deadline;
+            this.stop = stop;
+            this.states = states;
+        }
+
+        int run(List<Subproblem> subproblems, AtomicInteger next, int threshold, int iteration) {
+            int nextThreshold = UNREACHABLE;
+            int index;
+            while (!stop.get() && (index = next.getAndIncrement()) < subproblems.size()) {
+                Subproblem subproblem = subproblems.get(index);
+                int result = search(subproblem.state, 0, threshold, iteration);
+                if (result == FOUND) {
+                    int[] actions = Arrays.copyOf(subproblem.prefix, subproblem.prefix.length + foundLength);
+                    System.arraycopy(path, 0, actions, subproblem.prefix.length, foundLength);
+                    found = actions;
+                    stop.set(true);
+                    break;
+                }
+                nextThreshold = Math.min(nextThreshold, result);
+            }
+            states.addAndGet(localStates);
+            localStates = 0;
+            return nextThreshold;
+        }
+
+        private static final int FOUND = -1;
+        private int foundLength;
+
+        /**
+         * @return FOUND, or the smallest moves + bound over the threshold
+         */
+        private int search(GameSnapshot state, int depth, int threshold, int iteration) {
+            if (state.getState() == GameState.WON) {
+                foundLength = depth;
+                return FOUND;
+            }
+            int moves = state.getMoves() - movesBefore;
+            int estimate = bound.of(state);
+            if (estimate >= UNREACHABLE) {
+                return UNREACHABLE;
+            }
+            if (moves + estimate > threshold) {
+                return moves + estimate;
+            }
+            if (table.probeAndStore(state.getKey(), moves, state.getStamina(), iteration)) {
+                return UNREACHABLE;
+            }
+            if ((++localStates & 0xfff) == 0) {
+                if (stop.get()) {
+                    return UNREACHABLE;
+                }
+                if (System.currentTimeMillis() > deadline
+                        || (stateLimit > 0 && states.get() + localStates > stateLimit)) {
+                    stop.set(true);
+                    return UNREACHABLE;
+                }
+            }
+
+            ensureDepth(depth);
+            GameSnapshot[] candidates = children[depth];
+            int[] bounds = childBounds[depth];
+            int[] actions = childActions[depth];
+            int count = state.getActions(actions);
+            for (int i = 0; i < count; i++) {
+                candidates[i].copyFrom(state);
+                candidates[i].apply(actions[i]);
+                GameSnapshot child = candidates[i];
+                bounds[i] = child.getState() == GameState.LOST ? UNREACHABLE
+                        : child.getMoves() - movesBefore + bound.of(child);
+            }
+            sortByBound(candidates, bounds, actions, count);
+
+            int nextThreshold = UNREACHABLE;
+            for (int i = 0; i < count && bounds[i] < UNREACHABLE; i++) {
+                path[depth] = actions[i];
+                int result = search(candidates[i], depth + 1, threshold, iteration);
+                if (result == FOUND) {
+                    return FOUND;
+                }
+                nextThreshold = Math.min(nextThreshold, result);
+                if (stop.get()) {
+                    break;
+                }
+            }
+            return nextThreshold;
+        }
+
+        private void ensureDepth(int depth) {
+            if (depth >= children.length) {
+                int size = children.length * 2;
+                children = Arrays.copyOf(children, size);
+                childBounds = Arrays.copyOf(childBounds, size);
+                childActions = Arrays.copyOf(childActions, size);
+            }
+            if (depth + 1 >= path.length) {
+                path = Arrays.copyOf(path, path.length * 2);
+            }
+            if (children[depth] == null) {
+                int max = rules.getMaxActions();
+                children[depth] = new GameSnapshot[max];
+                for (int i = 0; i < max; i++) {
+                    children[depth][i] = rules.start();
+                }
+                childBounds[depth] = new int[max];
+                childActions[depth] = new int[max];
+            }
+        }
+
+        /**
+         * Insertion sort, best first. On ties counting and trapping come
+         * first and then moves, so routes do not pick things up for nothing.
+         */
+        private void sortByBound(GameSnapshot[] candidates, int[] bounds, int[] actions, int count) {
+            for (int i = 1; i < count; i++) {
+                GameSnapshot candidate = candidates[i];
+                int bound = bounds[i];
+                int action = actions[i];
+                int j = i - 1;
+                while (j >= 0 && (bounds[j] > bound
+                        || (bounds[j] == bound && rank(actions[j]) > rank(action)))) {
+                    candidates[j + 1] = candidates[j];
+                    bounds[j + 1] = bounds[j];
+                    actions[j + 1] = actions[j];
+                    j--;
+                }
+                candidates[j + 1] = candidate;
+                bounds[j + 1] = bound;
+                actions[j + 1] = action;
+            }
+        }
+    }
+
+    private static int rank(int action) {
+        switch (GameSnapshot.actionKind(action)) {
+            case GameSnapshot.COUNT_KIWI:
+            case GameSnapshot.USE_TRAP:
+                return 0;
+            case GameSnapshot.MOVE:
+                return 1;
+            case GameSnapshot.COLLECT:
+            case GameSnapshot.FIX_TRAP:
+                return 2;
+            case GameSnapshot.EAT:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    /**
+     * Solver threads get a large stack, searches can be hundreds of actions deep.
+     */
+    private static class SolverThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(null, runnable, "map-solver-" + number.incrementAndGet(), 64L << 20);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
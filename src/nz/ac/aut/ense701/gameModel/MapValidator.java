@@ -0,0 +1,326 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks a map for mistakes that the game would not report but that spoil
+ * the map: rows shorter than the map says, occupants off the map, in water
+ * or on a full square, and kiwis or predators the player cannot get to.
+ * Errors are mistakes the game silently works around; warnings are things
+ * that work but are probably not what the map designer meant.
+ *
+ * Reachability is checked twice. Over land only, to find animals cut off by
+ * water, which a player can cross but at a high cost; and by the stamina a
+ * player with an empty backpack needs, to find animals a player could never
+ * get to even without spending stamina on anything else. Food is not
+ * counted, so a map that can only be finished by eating is reported.
+ *
+ * The checks keep one array per square, so validating a map costs a few
+ * passes over it and the validator is safe to use from many threads.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class MapValidator {
+
+    /** The map cannot be read at all. */
+    public static final String UNREADABLE = "unreadable";
+    /** A terrain row is shorter than the number of columns. */
+    public static final String SHORT_ROW = "short-row";
+    /** The player or an occupant is not on the map. */
+    public static final String OFF_MAP = "off-map";
+    /** An occupant is on a square that is already full, so the game drops it. */
+    public static final String OVERFLOW = "overflow";
+    /** A kiwi, predator or item is in water. */
+    public static final String IN_WATER = "in-water";
+    /** A kiwi or predator can only be reached by crossing water. */
+    public static final String CUT_OFF = "cut-off";
+    /** A kiwi or predator needs more stamina than the player has. */
+    public static final String OUT_OF_REACH = "out-of-reach";
+
+    /**
+     * How bad a problem is.
+     */
+    public enum Severity {
+        /** The map is broken. */
+        ERROR,
+        /** The map works but is probably not what was meant. */
+        WARNING
+    }
+
+    /**
+     * One problem found in a map.
+     */
+    public static final class Problem {
+
+        private final Severity severity;
+        private final String code;
+        private final int row;
+        private final int column;
+        private final String message;
+
+        Problem(Severity severity, String code, int row, int column, String message) {
+            this.severity = severity;
+            this.code = code;
+            this.row = row;
+            this.column = column;
+            this.message = message;
+        }
+
+        public Severity getSeverity() {
+            return severity;
+        }
+
+        /**
+         * What kind of problem this is, one of the constants of
+         * MapValidator.
+         *
+         * @return the problem code
+         */
+        public String getCode() {
+            return code;
+        }
+
+        /**
+         * Row of the square with the problem.
+         *
+         * @return the row, -1 if the problem is not on a square
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Column of the square with the problem.
+         *
+         * @return the column, -1 if the problem is not on a square
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            String where = row < 0 ? "" : " at " + row + "," + column;
+            return severity + " " + code + where + ": " + message;
+        }
+    }
+
+    // allows for rounding when stamina is added up one move at a time
+    private static final double EPSILON = 1e-9;
+    private static final int[] ROW_STEPS = {-1, 1, 0, 0};
+    private static final int[] COLUMN_STEPS = {0, 0, -1, 1};
+
+    private MapValidator() {
+    }
+
+    /**
+     * Reads a map file and checks it.
+     *
+     * @param file the map file, a text map or an island file
+     * @return the problems found, empty if there are none
+     */
+    public static List<Problem> validate(File file) {
+        MapDefinition map;
+        try {
+            map = MapDefinition.read(file);
+        } catch (IOException e) {
+            List<Problem> problems = new ArrayList<Problem>();
+            String message = e.getMessage() == null ? e.toString() : e.getMessage();
+            problems.add(new Problem(Severity.ERROR, UNREADABLE, -1, -1, message));
+            return problems;
+        }
+        return validate(map);
+    }
+
+    /**
+     * Checks a map.
+     *
+     * @param map the map
+     * @return the problems found, in the order of the map file, empty if
+     * there are none
+     */
+    public static List<Problem> validate(MapDefinition map) {
+        List<Problem> problems = new ArrayList<Problem>();
+        int numRows = map.getNumRows();
+        int numColumns = map.getNumColumns();
+
+        // squares the file leaves out are water, as they are in the game
+        double[] difficulty = new double[numRows * numColumns];
+        boolean[] land = new boolean[difficulty.length];
+        for (int row = 0; row < numRows; row++) {
+            int missing = -1;
+            for (int col = 0; col < numColumns; col++) {
+                Terrain terrain = map.getTerrain(row, col);
+                if (terrain == null) {
+                    terrain = Terrain.WATER;
+                    if (missing < 0) {
+                        missing = col;
+                    }
+                }
+                int cell = row * numColumns + col;
+                difficulty[cell] = terrain.getDifficulty();
+                land[cell] = terrain != Terrain.WATER;
+            }
+            if (missing >= 0) {
+                problems.add(new Problem(Severity.ERROR, SHORT_ROW, row, missing,
+                        "row has " + missing + " of " + numColumns + " columns"));
+            }
+        }
+
+        int playerRow = map.getPlayerRow();
+        int playerColumn = map.getPlayerColumn();
+        boolean playerOnMap = isOnMap(playerRow, playerColumn, numRows, numColumns);
+        if (!playerOnMap) {
+            problems.add(new Problem(Severity.ERROR, OFF_MAP, playerRow, playerColumn,
+                    "player '" + map.getPlayerName() + "' starts off the map"));
+        }
+
+        // occupants that will be on the island, and where
+        List<MapDefinition.OccupantDefinition> targets = new ArrayList<MapDefinition.OccupantDefinition>();
+        byte[] occupants = new byte[difficulty.length];
+        for (MapDefinition.OccupantDefinition occupant : map.getOccupants()) {
+            int row = occupant.getRow();
+            int col = occupant.getColumn();
+            if (!isOnMap(row, col, numRows, numColumns)) {
+                problems.add(new Problem(Severity.ERROR, OFF_MAP, row, col,
+                        describe(occupant) + " is off the map"));
+                continue;
+            }
+            int cell = row * numColumns + col;
+            if (occupants[cell] >= GameRules.MAX_OCCUPANTS) {
+                problems.add(new Problem(Severity.ERROR, OVERFLOW, row, col,
+                        describe(occupant) + " is left out, the square already has "
+                        + GameRules.MAX_OCCUPANTS + " occupants"));
+                continue;
+            }
+            occupants[cell]++;
+            // fauna and hazards such as ponds belong in water
+            if (!land[cell] && !occupant.getType().equals("F") && !occupant.getType().equals("H")) {
+                problems.add(new Problem(Severity.WARNING, IN_WATER, row, col,
+                        describe(occupant) + " is in water"));
+            }
+            if (occupant.getType().equals("K") || occupant.getType().equals("P")) {
+                targets.add(occupant);
+            }
+        }
+
+        if (playerOnMap && !targets.isEmpty()) {
+            int start = playerRow * numColumns + playerColumn;
+            boolean[] overLand = floodLand(land, numRows, numColumns, start);
+            double[] stamina = leastStamina(difficulty, numRows, numColumns, start, map.getMaxStamina());
+            for (MapDefinition.OccupantDefinition target : targets) {
+                int cell = target.getRow() * numColumns + target.getColumn();
+                if (stamina[cell] == Double.POSITIVE_INFINITY) {
+                    problems.add(new Problem(Severity.ERROR, OUT_OF_REACH, target.getRow(), target.getColumn(),
+                            describe(target) + " needs more than the player's " + map.getMaxStamina()
+                            + " stamina to reach"));
+                } else if (!overLand[cell]) {
+                    problems.add(new Problem(Severity.WARNING, CUT_OFF, target.getRow(), target.getColumn(),
+                            describe(target) + " can only be reached through water"));
+                }
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Does a list of problems have any errors?
+     *
+     * @param problems the problems
+     * @return true if at least one is an error
+     */
+    public static boolean hasErrors(List<Problem> problems) {
+        for (Problem problem : problems) {
+            if (problem.getSeverity() == Severity.ERROR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static boolean isOnMap(int row, int col, int numRows, int numColumns) {
+        return row >= 0 && row < numRows && col >= 0 && col < numColumns;
+    }
+
+    private static String describe(MapDefinition.OccupantDefinition occupant) {
+        return occupant.getType() + " '" + occupant.getName() + "'";
+    }
+
+    /**
+     * The squares that can be walked to from start without entering water.
+     * The start square itself always counts, even if it is water.
+     */
+    private static boolean[] floodLand(boolean[] land, int numRows, int numColumns, int start) {
+        boolean[] seen = new boolean[land.length];
+        int[] queue = new int[land.length];
+        int head = 0;
+        int tail = 0;
+        seen[start] = true;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / numColumns;
+            int col = cell % numColumns;
+            for (int step = 0; step < ROW_STEPS.length; step++) {
+                int nextRow = row + ROW_STEPS[step];
+                int nextColumn = col + COLUMN_STEPS[step];
+                if (isOnMap(nextRow, nextColumn, numRows, numColumns)) {
+                    int next = nextRow * numColumns + nextColumn;
+                    if (land[next] && !seen[next]) {
+                        seen[next] = true;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Least stamina needed to get from start to each square with an empty
+     * backpack. The search stops at the budget; squares beyond it are
+     * left at infinity.
+     */
+    private static double[] leastStamina(double[] difficulty, int numRows, int numColumns, int start,
+            double budget) {
+        double[] stamina = new double[difficulty.length];
+        Arrays.fill(stamina, Double.POSITIVE_INFINITY);
+        boolean[] settled = new boolean[difficulty.length];
+        MinHeap frontier = new MinHeap(difficulty.length);
+        stamina[start] = 0.0;
+        frontier.insertOrDecrease(start, 0.0);
+        while (!frontier.isEmpty()) {
+            int cell = frontier.poll();
+            settled[cell] = true;
+            int row = cell / numColumns;
+            int col = cell % numColumns;
+            for (int step = 0; step < ROW_STEPS.length; step++) {
+                int nextRow = row + ROW_STEPS[step];
+                int nextColumn = col + COLUMN_STEPS[step];
+                if (isOnMap(nextRow, nextColumn, numRows, numColumns)) {
+                    int next = nextRow * numColumns + nextColumn;
+                    double cost = stamina[cell] + difficulty[next] * Player.MOVE_STAMINA;
+                    if (!settled[next] && cost <= budget + EPSILON && cost < stamina[next]) {
+                        stamina[next] = cost;
+                        frontier.insertOrDecrease(next, cost);
+                    }
+                }
+            }
+        }
+        return stamina;
+    }
+}
@@ -0,0 +1,268 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a maps folder and keeps a map catalog up to date while the game
+ * runs, so that map designers see their changes without restarting.
+ *
+ * Changes are handled on a background thread. A file is only read once it
+ * has been left alone for the debounce time, so an editor saving a file
+ * several times in a row costs one read. A changed map that reads without
+ * problems replaces its catalog entry; one that does not is reported and the
+ * old entry kept. Each change swaps in a whole new catalog, so a catalog
+ * from getCatalog never changes under the game.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class MapWatcher {
+
+    /**
+     * Told about maps that changed, on the watcher thread, after the
+     * catalog has been updated.
+     */
+    public interface Listener {
+
+        /**
+         * A map file was added, changed or deleted.
+         *
+         * @param file the map file
+         * @param map the map as the file has it now, null if it was deleted
+         */
+        void mapChanged(File file, MapDefinition map);
+    }
+
+    private final File folder;
+    private final long debounceMillis;
+    private final List<Listener> listeners;
+    private volatile MapCatalog catalog;
+    // held while the catalog is replaced, as entries are also added from other threads
+    private final Object catalogLock = new Object();
+    private WatchService watchService;
+    private Thread thread;
+    // files changed and when they last changed, only used by the watcher thread
+    private final Map<File, Long> pending;
+
+    /**
+     * Creates a watcher. Nothing is watched until start is called.
+     *
+     * @param folder the maps folder
+     * @param catalog catalog of the folder as it is now
+     * @param debounceMillis how long a file must be left alone before it is
+     * read
+     */
+    public MapWatcher(File folder, MapCatalog catalog, long debounceMillis) {
+        this.folder = folder;
+        this.catalog = catalog;
+        this.debounceMillis = debounceMillis;
+        this.listeners = new CopyOnWriteArrayList<Listener>();
+        this.pending = new HashMap<File, Long>();
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * The catalog with all changes read so far.
+     *
+     * @return the catalog
+     */
+    public MapCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Mutator methods
+     * **********************************************************************************************************************
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds a map that is not in the folder, such as the island of the day,
+     * to the catalog. Changes read later keep it. Listeners are not told.
+     *
+     * @param entry the map
+     */
+    public void addEntry(MapCatalog.Entry entry) {
+        synchronized (catalogLock) {
+            catalog = catalog.withEntry(entry);
+        }
+    }
+
+    /**
+     * Starts watching the folder on a daemon thread.
+     *
+     * @throws IOException if the folder cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        folder.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "map watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching. Changes not read yet are dropped.
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        try {
+            watchService.close();
+            thread.join();
+        } catch (IOException e) {
+            // the thread stops anyway
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long wait = nextDue() - System.currentTimeMillis();
+                    key = wait > 0 ? watchService.poll(wait, TimeUnit.MILLISECONDS) : watchService.poll();
+                }
+                if (key != null) {
+                    collectChanges(key);
+                }
+                readDueChanges();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private void collectChanges(WatchKey key) {
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost, so look at everything
+                File[] files = folder.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        pending.put(file, now);
+                    }
+                }
+                for (MapCatalog.Entry entry : catalog.getEntries()) {
+                    pending.put(new File(entry.getPath()), now);
+                }
+            } else {
+                pending.put(new File(folder, ((Path) event.context()).toString()), now);
+            }
+        }
+        key.reset();
+    }
+
+    private long nextDue() {
+        long due = Long.MAX_VALUE;
+        for (long changed : pending.values()) {
+            due = Math.min(due, changed + debounceMillis);
+        }
+        return due;
+    }
+
+    private void readDueChanges() {
+        long now = System.currentTimeMillis();
+        List<File> due = new ArrayList<File>();
+        Iterator<Map.Entry<File, Long>> changes = pending.entrySet().iterator();
+        while (changes.hasNext()) {
+            Map.Entry<File, Long> change = changes.next();
+            if (change.getValue() + debounceMillis <= now) {
+                due.add(change.getKey());
+                changes.remove();
+            }
+        }
+        for (File file : due) {
+            readChange(file);
+        }
+    }
+
+    private void readChange(File file) {
+        if (file.getName().startsWith(".")) {
+            return;
+        }
+        MapDefinition map = null;
+        if (file.isFile()) {
+            try {
+                map = MapDefinition.read(file);
+                // island files are read as they are played, too large to check square by square
+                if (map.getMappedIsland() == null) {
+                    List<MapValidator.Problem> problems = MapValidator.validate(map);
+                    if (MapValidator.hasErrors(problems)) {
+                        System.err.println("Not reloading '" + file + "', the map has problems:");
+                        for (MapValidator.Problem problem : problems) {
+                            System.err.println("    " + problem);
+                        }
+                        return;
+                    }
+                }
+                MapCatalog.Entry entry = MapCatalog.catalog(file, map);
+                synchronized (catalogLock) {
+                    catalog = catalog.withEntry(entry);
+                }
+            } catch (IOException e) {
+                System.err.println("Not reloading '" + file + "', " + e.getMessage());
+                return;
+            }
+        } else {
+            synchronized (catalogLock) {
+                if (catalog.getEntry(file.getPath()) == null) {
+                    return;
+                }
+                catalog = catalog.withoutEntry(file.getPath());
+            }
+        }
+        for (Listener listener : listeners) {
+            listener.mapChanged(file, map);
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A map in the binary island format, read straight from a memory-mapped
+ * file. Opening an island reads only its header, so a map of a hundred
+ * million squares opens in milliseconds and its terrain never takes heap.
+ *
+ * An island file is big-endian and holds:
+ * <ul>
+ * <li>a fixed size header: the magic bytes "KIMP", a version byte, a flags
+ * byte, the island size, the player and where the other sections start,</li>
+ * <li>terrain, one nibble per square with even columns in the low nibble.
+ * With FLAG_RUN_LENGTH each row is either kept as nibbles or stored as runs,
+ * whichever is smaller, and a table gives where each row starts,</li>
+ * <li>occupants, fixed width records so any one can be read directly,</li>
+ * <li>a pool of UTF-8 strings for names and descriptions, each string stored
+ * once however often it is used.</li>
+ * </ul>
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class MappedIsland implements MapDefinition.TerrainSource {
+
+    /**
+     * File name extension of island files.
+     */
+    public static final String FILE_EXTENSION = ".island";
+    static final int VERSION = 1;
+    static final int FLAG_RUN_LENGTH = 0x01;
+
+    private static final byte[] MAGIC = {'K', 'I', 'M', 'P'};
+    private static final String CHARSET = "UTF-8";
+    private static final Terrain[] TERRAINS = Terrain.values();
+    // nibble of a square the map did not give terrain for
+    private static final int NO_TERRAIN = 0x0F;
+    // row table entries with this bit set are rows of runs
+    private static final int RUN_ROW = 0x80000000;
+
+    private static final int HEADER_SIZE = 72;
+    private static final int OCCUPANT_SIZE = 56;
+
+    private final ByteBuffer buffer;
+    private final int numRows;
+    private final int numColumns;
+    private final boolean runLength;
+    private final int terrainOffset;
+    private final int occupantOffset;
+    private final int occupantCount;
+    private final int stringOffset;
+    private final int stringCount;
+    // strings decoded so far, by index in the pool
+    private final String[] strings;
+
+    private MappedIsland(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE) {
+            throw new IOException("Not an island file");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException("Not an island file");
+            }
+        }
+        int version = buffer.get(4) & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported island file version " + version);
+        }
+        runLength = (buffer.get(5) & FLAG_RUN_LENGTH) != 0;
+        numRows = buffer.getInt(8);
+        numColumns = buffer.getInt(12);
+        occupantCount = buffer.getInt(28);
+        terrainOffset = buffer.getInt(56);
+        occupantOffset = buffer.getInt(60);
+        stringOffset = buffer.getInt(64);
+        stringCount = buffer.getInt(68);
+        if (numRows <= 0 || numColumns <= 0 || (long) numRows * numColumns > Integer.MAX_VALUE) {
+            throw new IOException("Invalid island size " + numRows + "x" + numColumns);
+        }
+        long terrainEnd = terrainOffset + (runLength ? (numRows + 1L) * 4 : (long) numRows * rowBytes(numColumns));
+        long occupantEnd = occupantOffset + (long) occupantCount * OCCUPANT_SIZE;
+        long stringEnd = stringOffset + (stringCount + 1L) * 4;
+        if (terrainOffset < HEADER_SIZE || occupantCount < 0 || stringCount < 0
+                || terrainEnd > occupantOffset || occupantEnd > stringOffset || stringEnd > buffer.capacity()
+                || stringEnd + buffer.getInt(stringOffset + stringCount * 4) > buffer.capacity()) {
+            throw new IOException("Island file is damaged");
+        }
+        strings = new String[stringCount];
+        checkPosition(getPlayerRow(), getPlayerColumn());
+    }
+
+    /**
+     * Maps an island file into memory. The file can be closed or deleted
+     * afterwards on most systems; the mapping lasts until the island is no
+     * longer used.
+     *
+     * @param file the island file
+     * @return the island
+     * @throws IOException if the file cannot be read or is not an island file
+     */
+    public static MappedIsland open(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Island file is too large");
+            }
+            return new MappedIsland(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Is this file an island file rather than a text map?
+     *
+     * @param file the map file
+     * @return true if the file name ends with FILE_EXTENSION
+     */
+    public static boolean isIslandFile(File file) {
+        return file.getName().endsWith(FILE_EXTENSION);
+    }
+
+    /**
+     * Writes a map as an island file.
+     *
+     * @param map the map
+     * @param file where to write it
+     * @param runLength true to store rows as runs where that is smaller
+     * @throws IOException if the file cannot be written or the map is too
+     * large for an island file
+     */
+    public static void write(MapDefinition map, File file, boolean runLength) throws IOException {
+        int numRows = map.getNumRows();
+        int numColumns = map.getNumColumns();
+
+        // every string once, in order of first use
+        Map<String, Integer> pool = new LinkedHashMap<String, Integer>();
+        int playerName = intern(pool, map.getPlayerName());
+        List<MapDefinition.OccupantDefinition> occupants = map.getOccupants();
+        int[] occupantStrings = new int[occupants.size() * 3];
+        for (int i = 0; i < occupants.size(); i++) {
+            MapDefinition.OccupantDefinition occupant = occupants.get(i);
+            occupantStrings[i * 3] = intern(pool, occupant.getType());
+            occupantStrings[i * 3 + 1] = intern(pool, occupant.getName());
+            occupantStrings[i * 3 + 2] = intern(pool, occupant.getDescription());
+        }
+        List<byte[]> encoded = new ArrayList<byte[]>(pool.size());
+        for (String string : pool.keySet()) {
+            encoded.add(string.getBytes(CHARSET));
+        }
+
+        // the number of runs in each row decides how it is stored
+        int rowBytes = rowBytes(numColumns);
+        int[] runs = null;
+        long terrainSize = (long) numRows * rowBytes;
+        if (runLength) {
+            runs = new int[numRows];
+            terrainSize = (numRows + 1L) * 4;
+            for (int row = 0; row < numRows; row++) {
+                runs[row] = countRuns(map, row);
+                terrainSize += Math.min(rowBytes, runs[row] * 4L);
+            }
+        }
+        long terrainOffset = HEADER_SIZE;
+        long occupantOffset = terrainOffset + terrainSize;
+        long stringOffset = occupantOffset + (long) occupants.size() * OCCUPANT_SIZE;
+        long end = stringOffset + (encoded.size() + 1L) * 4;
+        for (byte[] string : encoded) {
+            end += string.length;
+        }
+        if (end > Integer.MAX_VALUE || (runLength && numColumns >= 1 << 27)) {
+            throw new IOException("Island is too large for an island file");
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(runLength ? FLAG_RUN_LENGTH : 0);
+            out.writeShort(0);
+            out.writeInt(numRows);
+            out.writeInt(numColumns);
+            out.writeInt(map.getPlayerRow());
+            out.writeInt(map.getPlayerColumn());
+            out.writeInt(playerName);
+            out.writeInt(occupants.size());
+            out.writeDouble(map.getMaxStamina());
+            out.writeDouble(map.getMaxBackpackWeight());
+            out.writeDouble(map.getMaxBackpackSize());
+            out.writeInt((int) terrainOffset);
+            out.writeInt((int) occupantOffset);
+            out.writeInt((int) stringOffset);
+            out.writeInt(encoded.size());
+
+            byte[] nibbles = new byte[rowBytes];
+            if (runLength) {
+                int rowOffset = (numRows + 1) * 4;
+                for (int row = 0; row < numRows; row++) {
+                    boolean runRow = runs[row] * 4L < rowBytes;
+                    out.writeInt(runRow ? rowOffset | RUN_ROW : rowOffset);
+                    rowOffset += runRow ? runs[row] * 4 : rowBytes;
+                }
+                out.writeInt(rowOffset);
+            }
+            for (int row = 0; row < numRows; row++) {
+                if (runLength && runs[row] * 4L < rowBytes) {
+                    writeRuns(out, map, row);
+                } else {
+                    out.write(packRow(map, row, nibbles));
+                }
+            }
+
+            for (int i = 0; i < occupants.size(); i++) {
+                MapDefinition.OccupantDefinition occupant = occupants.get(i);
+                out.writeInt(occupantStrings[i * 3]);
+                out.writeInt(occupantStrings[i * 3 + 1]);
+                out.writeInt(occupantStrings[i * 3 + 2]);
+                out.writeInt(occupant.getRow());
+                out.writeInt(occupant.getColumn());
+                out.writeInt(0);
+                out.writeDouble(occupant.getWeight());
+                out.writeDouble(occupant.getSize());
+                out.writeDouble(occupant.getEnergy());
+                out.writeDouble(occupant.getImpact());
+            }
+
+            int stringEnd = 0;
+            out.writeInt(stringEnd);
+            for (byte[] string : encoded) {
+                stringEnd += string.length;
+                out.writeInt(stringEnd);
+            }
+            for (byte[] string : encoded) {
+                out.write(string);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    /**
+     * Are rows stored as runs where that is smaller?
+     *
+     * @return true if the file was written with run length encoding
+     */
+    public boolean isRunLengthEncoded() {
+        return runLength;
+    }
+
+    /**
+     * Terrain of a square, read from the file.
+     *
+     * @param row the row
+     * @param column the column
+     * @return terrain, null if the map did not give one
+     */
+    @Override
+    public Terrain getTerrain(int row, int column) {
+        if (row < 0 || row >= numRows || column < 0 || column >= numColumns) {
+            throw new IndexOutOfBoundsException("square " + row + "," + column + " is not on the island");
+        }
+        int nibble;
+        if (runLength) {
+            int entry = buffer.getInt(terrainOffset + row * 4);
+            int rowStart = terrainOffset + (entry & ~RUN_ROW);
+            if ((entry & RUN_ROW) != 0) {
+                int runCount = (terrainOffset + (buffer.getInt(terrainOffset + row * 4 + 4) & ~RUN_ROW) - rowStart) / 4;
+                nibble = findRun(rowStart, runCount, column);
+            } else {
+                nibble = readNibble(rowStart, column);
+            }
+        } else {
+            nibble = readNibble(terrainOffset + row * rowBytes(numColumns), column);
+        }
+        if (nibble == NO_TERRAIN) {
+            return null;
+        }
+        if (nibble >= TERRAINS.length) {
+            throw new IllegalStateException("Island file has unknown terrain at " + row + "," + column);
+        }
+        return TERRAINS[nibble];
+    }
+
+    public String getPlayerName() {
+        return getString(buffer.getInt(24));
+    }
+
+    public int getPlayerRow() {
+        return buffer.getInt(16);
+    }
+
+    public int getPlayerColumn() {
+        return buffer.getInt(20);
+    }
+
+    public double getMaxStamina() {
+        return buffer.getDouble(32);
+    }
+
+    public double getMaxBackpackWeight() {
+        return buffer.getDouble(40);
+    }
+
+    public double getMaxBackpackSize() {
+        return buffer.getDouble(48);
+    }
+
+    public int getOccupantCount() {
+        return occupantCount;
+    }
+
+    /**
+     * One occupant record, read from the file.
+     *
+     * @param index which occupant, from 0 to getOccupantCount() - 1
+     * @return the occupant
+     * @throws IOException if the record is damaged
+     */
+    public MapDefinition.OccupantDefinition getOccupant(int index) throws IOException {
+        if (index < 0 || index >= occupantCount) {
+            throw new IndexOutOfBoundsException("no occupant " + index);
+        }
+        int record = occupantOffset + index * OCCUPANT_SIZE;
+        String type = getString(buffer.getInt(record));
+        int row = buffer.getInt(record + 12);
+        int column = buffer.getInt(record + 16);
+        checkPosition(row, column);
+        return new MapDefinition.OccupantDefinition(type,
+                getString(buffer.getInt(record + 4)), getString(buffer.getInt(record + 8)), row, column,
+                buffer.getDouble(record + 24), buffer.getDouble(record + 32),
+                buffer.getDouble(record + 40), buffer.getDouble(record + 48));
+    }
+
+    /**
+     * The island as a map definition. Terrain stays in the file; only the
+     * occupants are read.
+     *
+     * @return the map
+     * @throws IOException if an occupant record is damaged
+     */
+    public MapDefinition toMapDefinition() throws IOException {
+        List<MapDefinition.OccupantDefinition> occupants =
+                new ArrayList<MapDefinition.OccupantDefinition>(occupantCount);
+        for (int i = 0; i < occupantCount; i++) {
+            occupants.add(getOccupant(i));
+        }
+        return new MapDefinition(this, occupants);
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static int rowBytes(int numColumns) {
+        return (numColumns + 1) / 2;
+    }
+
+    private int readNibble(int rowStart, int column) {
+        int b = buffer.get(rowStart + (column >> 1));
+        return (b >> ((column & 1) << 2)) & 0x0F;
+    }
+
+    /**
+     * Binary search for the run covering column. Each run is an int holding
+     * the column after its last square shifted left 4, and its terrain.
+     */
+    private int findRun(int rowStart, int runCount, int column) {
+        int low = 0;
+        int high = runCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((buffer.getInt(rowStart + middle * 4) >>> 4) <= column) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return buffer.getInt(rowStart + low * 4) & 0x0F;
+    }
+
+    private String getString(int index) {
+        if (index < 0 || index >= stringCount) {
+            throw new IllegalStateException("Island file refers to missing string " + index);
+        }
+        String string = strings[index];
+        if (string == null) {
+            int data = stringOffset + (stringCount + 1) * 4;
+            int start = buffer.getInt(stringOffset + index * 4);
+            int end = buffer.getInt(stringOffset + index * 4 + 4);
+            if (start < 0 || end < start || data + end > buffer.capacity()) {
+                throw new IllegalStateException("Island file has a damaged string " + index);
+            }
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(data + start + i);
+            }
+            try {
+                string = new String(bytes, CHARSET);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            strings[index] = string;
+        }
+        return string;
+    }
+
+    private void checkPosition(int row, int column) throws IOException {
+        if (row < 0 || row >= numRows || column < 0 || column >= numColumns) {
+            throw new IOException("Island file has position " + row + "," + column + " off the island");
+        }
+    }
+
+    private static int intern(Map<String, Integer> pool, String string) {
+        Integer index = pool.get(string);
+        if (index == null) {
+            index = pool.size();
+            pool.put(string, index);
+        }
+        return index;
+    }
+
+    private static int nibble(MapDefinition map, int row, int column) {
+        Terrain terrain = map.getTerrain(row, column);
+        return terrain == null ? NO_TERRAIN : terrain.ordinal();
+    }
+
+    private static int countRuns(MapDefinition map, int row) {
+        int runs = 0;
+        int previous = -1;
+        for (int col = 0; col < map.getNumColumns(); col++) {
+            int nibble = nibble(map, row, col);
+            if (nibble != previous) {
+                runs++;
+                previous = nibble;
+            }
+        }
+        return runs;
+    }
+
+    private static void writeRuns(DataOutputStream out, MapDefinition map, int row) throws IOException {
+        int numColumns = map.getNumColumns();
+        int previous = nibble(map, row, 0);
+        for (int col = 1; col < numColumns; col++) {
+            int nibble = nibble(map, row, col);
+            if (nibble != previous) {
+                out.writeInt(col << 4 | previous);
+                previous = nibble;
+            }
+        }
+        out.writeInt(numColumns << 4 | previous);
+    }
+
+    private static byte[] packRow(MapDefinition map, int row, byte[] nibbles) {
+        Arrays.fill(nibbles, (byte) 0);
+        for (int col = 0; col < map.getNumColumns(); col++) {
+            nibbles[col >> 1] |= nibble(map, row, col) << ((col & 1) << 2);
+        }
+        return nibbles;
+    }
+}
@@ -0,0 +1,154 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of grid cell indices keyed by a double.
+ * All storage is allocated once for a fixed number of cells so that searches
+ * over the island do not allocate anything per query.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+final class MinHeap {
+
+    // keys are kept next to the heap entries rather than by cell, so sifting
+    // only touches the two heap arrays
+    private final int[] heap;
+    private final double[] heapKeys;
+    private final int[] heapIndex;
+    private int size;
+
+    /**
+     * Creates a heap that can hold cells 0 .. capacity-1.
+     *
+     * @param capacity number of cells
+     */
+    MinHeap(int capacity) {
+        heap = new int[capacity];
+        heapKeys = new double[capacity];
+        heapIndex = new int[capacity];
+        Arrays.fill(heapIndex, -1);
+        size = 0;
+    }
+
+    /**
+     * Is the heap empty?
+     *
+     * @return true if there are no cells in the heap
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of cells in the heap.
+     *
+     * @return size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Is this cell currently in the heap?
+     *
+     * @param cell to check
+     * @return true if in the heap
+     */
+    boolean contains(int cell) {
+        return heapIndex[cell] >= 0;
+    }
+
+    /**
+     * Key of the cell at the top of the heap.
+     *
+     * @return smallest key
+     */
+    double peekKey() {
+        return heapKeys[0];
+    }
+
+    /**
+     * Adds cell with key, or lowers its key if it is already in the heap and
+     * key is smaller.
+     *
+     * @param cell the cell
+     * @param key the key
+     */
+    void insertOrDecrease(int cell, double key) {
+        int index = heapIndex[cell];
+        if (index < 0) {
+            siftUp(size++, cell, key);
+        } else if (key < heapKeys[index]) {
+            siftUp(index, cell, key);
+        }
+    }
+
+    /**
+     * Removes the cell with the smallest key.
+     *
+     * @return that cell
+     */
+    int poll() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(heap[size], heapKeys[size]);
+        }
+        return top;
+    }
+
+    /**
+     * Empties the heap. Costs the number of cells in the heap, not capacity.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            heapIndex[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int index, int cell, double key) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            double parentKey = heapKeys[parent];
+            if (parentKey <= key) {
+                break;
+            }
+            int parentCell = heap[parent];
+            heap[index] = parentCell;
+            heapKeys[index] = parentKey;
+            heapIndex[parentCell] = index;
+            index = parent;
+        }
+        heap[index] = cell;
+        heapKeys[index] = key;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int cell, double key) {
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && heapKeys[right] < heapKeys[child]) {
+                child = right;
+            }
+            double childKey = heapKeys[child];
+            if (key <= childKey) {
+                break;
+            }
+            int childCell = heap[child];
+            heap[index] = childCell;
+            heapKeys[index] = childKey;
+            heapIndex[childCell] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapKeys[index] = key;
+        heapIndex[cell] = index;
+    }
+}
@@ -0,0 +1,507 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An agent that picks actions with Monte-Carlo tree search, fast enough to
+ * play in real time.
+ *
+ * Each decision grows one search tree from the current state. A search step
+ * walks down the tree choosing actions by UCT, adds the first state not in
+ * the tree, plays a quick rollout from there and adds the reward to every
+ * state on the way. The tree is kept in a NodeTable keyed by the state, so
+ * all the threads grow the same tree at once without locks (tree parallel
+ * search), and each thread works on its own GameSnapshot copies.
+ *
+ * Rollouts count kiwis, trap predators, fix the trap, pick up useful items
+ * and eat food whenever they can. Most of their moves head for the nearest
+ * kiwi, predator or item that is needed next; the others wander without
+ * turning straight back. The reward of a search step is 0.25 shared out over
+ * the kiwis, 0.25 over the predators and 0.5 for winning, each discounted by
+ * the number of moves it took to get there, so the agent does not waste
+ * stamina going back and forth.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class MonteCarloAgent implements Agent {
+
+    // UCT exploration constant for rewards between 0 and 1
+    private static final double EXPLORATION = 0.7;
+    private static final int MAX_TREE_DEPTH = 64;
+    private static final int MAX_ROLLOUT_MOVES = 200;
+    private static final int DEFAULT_TABLE_SIZE = 1 << 18;
+    // rewards add up to 1 for a game won straight away
+    private static final double WIN_REWARD = 0.5;
+    private static final double KIWI_REWARD = 0.25;
+    private static final double PREDATOR_REWARD = 0.25;
+    // value of a reward one move later, so sooner is better
+    private static final double DISCOUNT = 0.98;
+    // share of rollout moves that head for the nearest target
+    private static final double GREEDY_MOVES = 0.75;
+    // row and column steps in MoveDirection order
+    private static final int[] STEP_ROWS = {-1, 0, 1, 0};
+    private static final int[] STEP_COLUMNS = {0, 1, 0, -1};
+
+    private final NodeTable table;
+    private int threads;
+    private long thinkingMillis;
+    private int rolloutsPerDecision;
+    private long seed;
+    private int decisions;
+    private int lastRollouts;
+    private ExecutorService pool;
+
+    /**
+     * An agent on one thread that thinks for 200 ms per action.
+     */
+    public MonteCarloAgent() {
+        this(DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * @param tableSize most states in the tree of one decision
+     */
+    public MonteCarloAgent(int tableSize) {
+        this.table = new NodeTable(tableSize);
+        this.threads = 1;
+        this.thinkingMillis = 200;
+        this.rolloutsPerDecision = 0;
+        this.seed = System.nanoTime();
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Number of rollouts played for the last decision.
+     *
+     * @return rollouts
+     */
+    public int getLastRollouts() {
+        return lastRollouts;
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Mutator methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Sets the number of search threads.
+     *
+     * @param threads threads, at least 1
+     */
+    public void setThreads(int threads) {
+        if (threads != this.threads) {
+            shutdown();
+        }
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets how long each decision may take.
+     *
+     * @param millis time per decision, 0 for no limit
+     */
+    public void setThinkingTime(long millis) {
+        this.thinkingMillis = Math.max(0, millis);
+    }
+
+    /**
+     * Sets the number of rollouts for each decision. With one thread, no time
+     * limit and a fixed seed the agent always plays the same game.
+     *
+     * @param rollouts rollouts per decision, 0 for no limit
+     */
+    public void setRolloutsPerDecision(int rollouts) {
+        this.rolloutsPerDecision = Math.max(0, rollouts);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Stops the search threads. The agent starts them again if it is used
+     * after this.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    @Override
+    public int chooseAction(final GameSnapshot state) {
+        final int[] rootActions = new int[state.getRules().getMaxActions()];
+        final int count = state.getActions(rootActions);
+        if (count <= 1) {
+            return count == 0 ? -1 : rootActions[0];
+        }
+
+        table.clear();
+        decisions++;
+        long limit = thinkingMillis;
+        int rollouts = rolloutsPerDecision;
+        if (limit == 0 && rollouts == 0) {
+            rollouts = 1000;
+        }
+        final long deadline = limit > 0 ? System.nanoTime() + limit * 1000000L : Long.MAX_VALUE;
+        final int maxRollouts = rollouts > 0 ? rollouts : Integer.MAX_VALUE;
+        final AtomicInteger started = new AtomicInteger();
+
+        if (threads == 1) {
+            lastRollouts = new Worker(state, seed + decisions).run(started, maxRollouts, deadline);
+        } else {
+            if (pool == null) {
+                pool = Executors.newFixedThreadPool(threads, new AgentThreadFactory());
+            }
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < threads; t++) {
+                final Worker worker = new Worker(state, seed + decisions * 1000003L + t);
+                results.add(pool.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return worker.run(started, maxRollouts, deadline);
+                    }
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> result : results) {
+                try {
+                    total += result.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Search thread failed", e.getCause());
+                }
+            }
+            lastRollouts = total;
+        }
+
+        // the most visited action is the most reliable one
+        GameSnapshot child = state.copy();
+        int best = rootActions[0];
+        int bestVisits = -1;
+        double bestReward = 0.0;
+        for (int i = 0; i < count; i++) {
+            child.copyFrom(state);
+            child.apply(rootActions[i]);
+            int slot = table.find(nodeKey(child));
+            int visits = slot < 0 ? 0 : table.getVisits(slot);
+            double reward = slot < 0 ? 0.0 : table.getMeanReward(slot);
+            if (visits > bestVisits || (visits == bestVisits && reward > bestReward)) {
+                best = rootActions[i];
+                bestVisits = visits;
+                bestReward = reward;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    /**
+     * Key of a state in the tree. Unlike GameSnapshot.getKey, stamina and
+     * being alive make a different state.
+     */
+    private static long nodeKey(GameSnapshot state) {
+        long key = state.getKey() ^ (Double.doubleToLongBits(state.getStamina()) * 0x9E3779B97F4A7C15L);
+        return state.isAlive() ? key : ~key;
+    }
+
+    /**
+     * One search thread, with its own states to work on.
+     */
+    private final class Worker {
+
+        private final GameSnapshot root;
+        private final Random random;
+        private GameSnapshot node;
+        private GameSnapshot child;
+        private GameSnapshot best;
+        private final int[] actions;
+        private final int[] path;
+        // reward of the current search step so far
+        private double earned;
+
+        Worker(GameSnapshot root, long seed) {
+            this.root = root;
+            this.random = new Random(seed);
+            this.node = root.copy();
+            this.child = root.copy();
+            this.best = root.copy();
+            this.actions = new int[root.getRules().getMaxActions()];
+            this.path = new int[MAX_TREE_DEPTH + 2];
+        }
+
+        /**
+         * Searches until the rollouts are used up or time runs out.
+         *
+         * @return rollouts played by this thread
+         */
+        int run(AtomicInteger started, int maxRollouts, long deadline) {
+            int played = 0;
+            while (started.getAndIncrement() < maxRollouts && System.nanoTime() < deadline) {
+                searchOnce();
+                played++;
+            }
+            return played;
+        }
+
+        private void searchOnce() {
+            node.copyFrom(root);
+            earned = 0.0;
+            int depth = 0;
+            int slot = table.findOrAdd(nodeKey(node));
+            while (slot >= 0) {
+                table.addVisit(slot);
+                path[depth++] = slot;
+                if (node.getState() != GameState.PLAYING || depth > MAX_TREE_DEPTH
+                        || table.getVisits(slot) == 1) {
+                    // a game over, or a state new to the tree
+                    break;
+                }
+                int kiwis = node.getKiwiCount();
+                int predators = node.getPredatorsTrapped();
+                slot = select(slot);
+                earn(kiwis, predators);
+            }
+            rollout();
+            for (int i = 0; i < depth; i++) {
+                table.addReward(path[i], earned);
+            }
+        }
+
+        /**
+         * Moves node to the child with the best UCT score.
+         *
+         * @return slot of the child, -1 if the table is full there
+         */
+        private int select(int parentSlot) {
+            int count = node.getActions(actions);
+            if (count == 0) {
+                return -1;
+            }
+            double logVisits = Math.log(table.getVisits(parentSlot));
+            double bestScore = Double.NEGATIVE_INFINITY;
+            int bestSlot = -1;
+            int start = random.nextInt(count);
+            for (int i = 0; i < count; i++) {
+                child.copyFrom(node);
+                child.apply(actions[(start + i) % count]);
+                int slot = table.find(nodeKey(child));
+                int visits = slot < 0 ? 0 : table.getVisits(slot);
+                double score = visits == 0 ? Double.POSITIVE_INFINITY
+                        : table.getMeanReward(slot) + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestSlot = slot;
+                    GameSnapshot swap = best;
+                    best = child;
+                    child = swap;
+                    if (visits == 0) {
+                        break;
+                    }
+                }
+            }
+            GameSnapshot swap = node;
+            node = best;
+            best = swap;
+            return bestSlot >= 0 ? bestSlot : table.findOrAdd(nodeKey(node));
+        }
+
+        /**
+         * Adds the reward for what the last action achieved, less the longer
+         * it took to get there from the root.
+         */
+        private void earn(int kiwisBefore, int predatorsBefore) {
+            GameRules rules = node.getRules();
+            int kiwis = node.getKiwiCount() - kiwisBefore;
+            int predators = node.getPredatorsTrapped() - predatorsBefore;
+            boolean won = node.getState() == GameState.WON;
+            if (kiwis == 0 && predators == 0 && !won) {
+                return;
+            }
+            double value = won ? WIN_REWARD : 0.0;
+            if (kiwis > 0) {
+                value += KIWI_REWARD * kiwis / rules.getTotalKiwis();
+            }
+            if (predators > 0) {
+                value += PREDATOR_REWARD * predators / rules.getTotalPredators();
+            }
+            earned += value * Math.pow(DISCOUNT, node.getMoves() - root.getMoves());
+        }
+
+        /**
+         * Plays on from node with the rollout policy.
+         */
+        private void rollout() {
+            int moves = 0;
+            int lastDirection = -1;
+            // a player too loaded to move can drop and collect for ever
+            int actionsLeft = 2 * MAX_ROLLOUT_MOVES;
+            while (node.getState() == GameState.PLAYING && moves < MAX_ROLLOUT_MOVES && actionsLeft-- > 0) {
+                int count = node.getActions(actions);
+                if (count == 0) {
+                    break;
+                }
+                int action = rolloutAction(count, lastDirection);
+                int kiwis = node.getKiwiCount();
+                int predators = node.getPredatorsTrapped();
+                node.apply(action);
+                earn(kiwis, predators);
+                if (GameSnapshot.actionKind(action) == GameSnapshot.MOVE) {
+                    lastDirection = GameSnapshot.actionArgument(action);
+                    moves++;
+                }
+            }
+        }
+
+        private int rolloutAction(int count, int lastDirection) {
+            GameRules rules = node.getRules();
+            int moveCount = 0;
+            int back = lastDirection < 0 ? -1
+                    : GameSnapshot.action(GameSnapshot.MOVE, (lastDirection + 2) % STEP_ROWS.length);
+            boolean canGoBack = false;
+            for (int i = 0; i < count; i++) {
+                int action = actions[i];
+                int item = GameSnapshot.actionArgument(action);
+                switch (GameSnapshot.actionKind(action)) {
+                    case GameSnapshot.COUNT_KIWI:
+                    case GameSnapshot.USE_TRAP:
+                    case GameSnapshot.FIX_TRAP:
+                        return action;
+                    case GameSnapshot.COLLECT:
+                        if (rules.itemKind[item] != GameRules.OTHER_TOOL) {
+                            return action;
+                        }
+                        break;
+                    case GameSnapshot.EAT:
+                        if (node.getStamina() + rules.itemEnergy[item] <= rules.maxStamina) {
+                            return action;
+                        }
+                        break;
+                    case GameSnapshot.MOVE:
+                        if (action == back) {
+                            canGoBack = true;
+                        } else {
+                            // moves are listed last, so keep them at the front
+                            actions[moveCount++] = action;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (moveCount == 0) {
+                return canGoBack ? back : actions[random.nextInt(count)];
+            }
+            int target = nearestTarget();
+            if (target >= 0 && random.nextDouble() < GREEDY_MOVES) {
+                int closer = 0;
+                int distance = distance(node.getCell(), target);
+                for (int i = 0; i < moveCount; i++) {
+                    int to = node.getCell() + STEP_ROWS[GameSnapshot.actionArgument(actions[i])] * rules.numColumns
+                            + STEP_COLUMNS[GameSnapshot.actionArgument(actions[i])];
+                    if (distance(to, target) < distance) {
+                        int swap = actions[closer];
+                        actions[closer++] = actions[i];
+                        actions[i] = swap;
+                    }
+                }
+                if (closer > 0) {
+                    return actions[random.nextInt(closer)];
+                }
+            }
+            return actions[random.nextInt(moveCount)];
+        }
+
+        /**
+         * Square of the nearest thing worth going to: a kiwi, a predator if
+         * the trap works, otherwise a trap or a screwdriver, and food when
+         * stamina is low.
+         *
+         * @return square, -1 if there is nothing
+         */
+        private int nearestTarget() {
+            GameRules rules = node.getRules();
+            int cell = node.getCell();
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            long kiwis = node.getKiwisLeft();
+            for (int k = 0; k < rules.kiwiCell.length; k++) {
+                if ((kiwis & (1L << k)) != 0 && distance(cell, rules.kiwiCell[k]) < bestDistance) {
+                    best = rules.kiwiCell[k];
+                    bestDistance = distance(cell, best);
+                }
+            }
+            int trap = -1;
+            for (int i = 0; i < rules.itemKind.length; i++) {
+                if (rules.itemKind[i] == GameRules.TRAP && node.isCarried(i)) {
+                    trap = i;
+                }
+            }
+            boolean trapWorks = trap >= 0 && !node.isBroken(trap);
+            if (trapWorks) {
+                long predators = node.getPredatorsLeft();
+                for (int p = 0; p < rules.predatorCell.length; p++) {
+                    if ((predators & (1L << p)) != 0 && distance(cell, rules.predatorCell[p]) < bestDistance) {
+                        best = rules.predatorCell[p];
+                        bestDistance = distance(cell, best);
+                    }
+                }
+            }
+            boolean hungry = node.getStamina() < rules.maxStamina / 2;
+            for (int i = 0; i < rules.itemKind.length; i++) {
+                int location = node.getItemLocation(i);
+                int kind = rules.itemKind[i];
+                boolean wanted = (kind == GameRules.TRAP && trap < 0)
+                        || (kind == GameRules.SCREWDRIVER && trap >= 0 && !trapWorks)
+                        || (kind == GameRules.FOOD && hungry);
+                if (wanted && location >= 0 && distance(cell, location) < bestDistance) {
+                    best = location;
+                    bestDistance = distance(cell, best);
+                }
+            }
+            return best;
+        }
+
+        private int distance(int from, int to) {
+            int columns = node.getRules().numColumns;
+            return Math.abs(from / columns - to / columns) + Math.abs(from % columns - to % columns);
+        }
+    }
+
+    /**
+     * Daemon threads, so a forgotten agent does not keep the game running.
+     */
+    private static final class AgentThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "agent-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Visit counts and rewards of the game states in a Monte-Carlo search tree,
+ * shared by all the search threads without locks.
+ *
+ * States are found by key with linear probing in a fixed size table. A free
+ * slot is claimed with compare-and-set on its key, and counts and rewards
+ * are atomic adds, so threads never wait for each other. A visit is added
+ * when a thread passes through a state and its reward only when the rollout
+ * is done, which keeps other threads from all following the same path
+ * ("virtual loss"). When the probes for a key find no free slot the state is
+ * simply not stored and the search treats it as a leaf.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+final class NodeTable {
+
+    private static final int PROBES = 16;
+    // rewards are between 0 and 1, summed in fixed point
+    private static final double REWARD_SCALE = 1 << 20;
+
+    private final int mask;
+    private final AtomicLongArray keys;
+    private final AtomicIntegerArray visits;
+    private final AtomicLongArray rewards;
+
+    /**
+     * @param capacity number of states, rounded up to a power of two
+     */
+    NodeTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(PROBES, capacity - 1) << 1);
+        mask = size - 1;
+        keys = new AtomicLongArray(size);
+        visits = new AtomicIntegerArray(size);
+        rewards = new AtomicLongArray(size);
+    }
+
+    int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Slot of a state.
+     *
+     * @param key key of the state
+     * @return slot, or -1 if the state is not in the table
+     */
+    int find(long key) {
+        long stored = storedKey(key);
+        int index = index(stored);
+        for (int probe = 0; probe < PROBES; probe++) {
+            int slot = (index + probe) & mask;
+            long current = keys.get(slot);
+            if (current == stored) {
+                return slot;
+            }
+            if (current == 0L) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Slot of a state, adding the state if it is not in the table.
+     *
+     * @param key key of the state
+     * @return slot, or -1 if the table has no room near the key
+     */
+    int findOrAdd(long key) {
+        long stored = storedKey(key);
+        int index = index(stored);
+        for (int probe = 0; probe < PROBES; probe++) {
+            int slot = (index + probe) & mask;
+            long current = keys.get(slot);
+            if (current == 0L && keys.compareAndSet(slot, 0L, stored)) {
+                return slot;
+            }
+            // another thread may have added the same state first
+            if (keys.get(slot) == stored) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    int getVisits(int slot) {
+        return visits.get(slot);
+    }
+
+    /**
+     * Average reward of a state, counting visits still waiting for their
+     * reward as zero.
+     *
+     * @param slot the slot
+     * @return average reward, 0 if never visited
+     */
+    double getMeanReward(int slot) {
+        int count = visits.get(slot);
+        return count == 0 ? 0.0 : rewards.get(slot) / REWARD_SCALE / count;
+    }
+
+    void addVisit(int slot) {
+        visits.incrementAndGet(slot);
+    }
+
+    void addReward(int slot, double reward) {
+        rewards.addAndGet(slot, (long) (reward * REWARD_SCALE));
+    }
+
+    /**
+     * Empties the table. Must not be called while a search is running.
+     */
+    void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            keys.set(slot, 0L);
+            visits.set(slot, 0);
+            rewards.set(slot, 0L);
+        }
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static long storedKey(long key) {
+        // 0 marks a free slot
+        return key == 0L ? 1L : key;
+    }
+
+    private int index(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -103,15 +103,25 @@ public class Player
      */
     public double getStaminaNeededToMove(Terrain terrain)
     {
-        double staminaNeeded = MOVE_STAMINA;
-        double load = getCurrentBackpackWeight() / maxBackpackWeight;
-        // Twice as much is needed when the backpack is full
-        staminaNeeded *= (1.0 + load);
+        double staminaNeeded = getMoveStaminaFactor();
         // and even more when the terrain is difficult
         staminaNeeded *= terrain.getDifficulty();
         return staminaNeeded;
     }
 
+    /**
+     * Returns the stamina needed per unit of terrain difficulty with the
+     * current backpack load. Moving onto any terrain costs this times the
+     * difficulty of the terrain.
+     * @return stamina needed per unit of difficulty
+     */
+    public double getMoveStaminaFactor()
+    {
+        double load = getCurrentBackpackWeight() / maxBackpackWeight;
+        // Twice as much is needed when the backpack is full
+        return MOVE_STAMINA * (1.0 + load);
+    }
+
     
     /**
      * Checks to see if the player has enough stamina to move.
@@ -6,8 +6,9 @@
 package nz.ac.aut.ense701.gameModel;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
 /**
@@ -30,7 +31,8 @@ public class Questions {
         iq = new IndividualQuestion();
         count = 0;
         try {
-            br = new BufferedReader(new FileReader("questions/kiwiQuestions.txt"));
+            br = new BufferedReader(new InputStreamReader(
+                    AssetBundle.getDefault().open("questions/kiwiQuestions.txt"), StandardCharsets.UTF_8));
             String line;
             while ((line = br.readLine()) != null) {
                 if (count == 0) {             //first line
@@ -76,7 +78,8 @@ public class Questions {
         iq = new IndividualQuestion();
         count = 0;
         try {
-            br = new BufferedReader(new FileReader("questions/pestQuestions.txt"));
+            br = new BufferedReader(new InputStreamReader(
+                    AssetBundle.getDefault().open("questions/pestQuestions.txt"), StandardCharsets.UTF_8));
             String line;
             while ((line = br.readLine()) != null) {
                 if (count == 0) {             //first line
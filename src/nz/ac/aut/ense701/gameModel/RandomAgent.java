@@ -0,0 +1,34 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.Random;
+
+/**
+ * An agent that picks any possible action at random. A baseline to compare
+ * other agents with.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class RandomAgent implements Agent {
+
+    private final Random random;
+    private int[] actions;
+
+    /**
+     * @param seed random seed, the same seed plays the same game
+     */
+    public RandomAgent(long seed) {
+        this.random = new Random(seed);
+        this.actions = new int[0];
+    }
+
+    @Override
+    public int chooseAction(GameSnapshot state) {
+        int needed = state.getRules().getMaxActions();
+        if (actions.length < needed) {
+            actions = new int[needed];
+        }
+        int count = state.getActions(actions);
+        return count == 0 ? -1 : actions[random.nextInt(count)];
+    }
+}
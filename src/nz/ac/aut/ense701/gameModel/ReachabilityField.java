@@ -0,0 +1,309 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.Arrays;
+
+/**
+ * The squares of an island a player can get to with the stamina they have
+ * left.
+ *
+ * The field keeps the least terrain difficulty needed to get from a source
+ * square to each square, found with a Dijkstra search that stops at the
+ * stamina budget. The budget is measured in terrain difficulty, that is
+ * stamina divided by Player.getMoveStaminaFactor(), so changes of stamina or
+ * backpack load do not change any distance:
+ * <ul>
+ * <li>a smaller budget only lowers the threshold, nothing is searched;</li>
+ * <li>a larger budget carries on the search from where it stopped;</li>
+ * <li>a new source square that was within the old budget, such as the square
+ * the player just stepped to, keeps the squares that a least-difficulty route
+ * went through it to, as their routes from it are the rest of the old routes;
+ * only the other squares are searched again;</li>
+ * <li>any other new source square (or new terrain) starts the search
+ * again.</li>
+ * </ul>
+ * A search touches only the squares within the budget, and the storage is
+ * allocated once for the island and reset with generation stamps, so the cost
+ * of an update depends on how far the player can go, not on the island size.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class ReachabilityField {
+
+    // allows for rounding when stamina is taken off one move at a time
+    private static final double EPSILON = 1e-9;
+
+    private final Island island;
+    private final int numRows;
+    private final int numColumns;
+
+    // difficulty of entering each cell
+    private final double[] difficulty;
+
+    // least difficulty from the source, valid while the stamp is the current generation
+    private final double[] distance;
+    private final int[] seenStamp;
+    private final int[] settledStamp;
+    // squares settled for the current source, in the order they were settled
+    private final int[] settledOrder;
+    private final MinHeap frontier;
+    private int generation;
+
+    private int source;
+    private double budget;
+    // every cell with a distance up to this has been settled
+    private double searchedTo;
+    private int settledCount;
+
+    /**
+     * Creates an empty field for an island. Call refreshTerrain if the
+     * terrain of the island changes afterwards.
+     *
+     * @param island the island
+     */
+    public ReachabilityField(Island island) {
+        this.island = island;
+        this.numRows = island.getNumRows();
+        this.numColumns = island.getNumColumns();
+        int cells = numRows * numColumns;
+        this.difficulty = new double[cells];
+        this.distance = new double[cells];
+        this.seenStamp = new int[cells];
+        this.settledStamp = new int[cells];
+        this.settledOrder = new int[cells];
+        this.frontier = new MinHeap(cells);
+        this.generation = 0;
+        this.source = -1;
+        this.budget = -1.0;
+        this.searchedTo = -1.0;
+        refreshTerrain();
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Get the island of this field.
+     *
+     * @return island
+     */
+    public Island getIsland() {
+        return island;
+    }
+
+    /**
+     * Can the square be reached within the current budget?
+     *
+     * @param row the row
+     * @param column the column
+     * @return true if reachable
+     */
+    public boolean isReachable(int row, int column) {
+        int cell = row * numColumns + column;
+        return source >= 0 && settledStamp[cell] == generation
+                && distance[cell] <= budget + EPSILON;
+    }
+
+    /**
+     * Least terrain difficulty to get to a square from the source.
+     *
+     * @param row the row
+     * @param column the column
+     * @return difficulty, or infinity if the square is not within the budget
+     */
+    public double getDistance(int row, int column) {
+        return isReachable(row, column) ? distance[row * numColumns + column] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Current budget in units of terrain difficulty.
+     *
+     * @return budget
+     */
+    public double getBudget() {
+        return budget;
+    }
+
+    /**
+     * Number of squares settled for the current source, both those kept from
+     * the previous source and those searched since.
+     *
+     * @return squares settled
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Mutator methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Brings the field up to date for a player.
+     *
+     * @param player the player whose position, stamina and load to use
+     */
+    public void update(Player player) {
+        Position position = player.getPosition();
+        double stamina = player.isAlive() ? player.getStaminaLevel() : -1.0;
+        update(position.getRow(), position.getColumn(), stamina, player.getMoveStaminaFactor());
+    }
+
+    /**
+     * Brings the field up to date for a source square and stamina.
+     *
+     * @param row source row
+     * @param column source column
+     * @param stamina stamina available, negative for none at all
+     * @param staminaFactor stamina needed per unit of difficulty
+     */
+    public void update(int row, int column, double stamina, double staminaFactor) {
+        int newSource = row * numColumns + column;
+        budget = stamina < 0.0 ? -1.0 : stamina / staminaFactor;
+        if (newSource != source) {
+            if (source >= 0 && settledStamp[newSource] == generation && generation < Integer.MAX_VALUE - 1) {
+                repair(newSource);
+            } else {
+                restart(newSource);
+            }
+        }
+        if (budget > searchedTo) {
+            search();
+        }
+    }
+
+    /**
+     * Re-reads the terrain of the island. The next update searches again.
+     */
+    public final void refreshTerrain() {
+        int cell = 0;
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numColumns; col++, cell++) {
+                difficulty[cell] = island.getTerrain(row, col).getDifficulty();
+            }
+        }
+        source = -1;
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private void restart(int newSource) {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(seenStamp, 0);
+            Arrays.fill(settledStamp, 0);
+            generation = 1;
+        }
+        frontier.clear();
+        source = newSource;
+        distance[source] = 0.0;
+        seenStamp[source] = generation;
+        frontier.insertOrDecrease(source, 0.0);
+        searchedTo = -1.0;
+        settledCount = 0;
+    }
+
+    /**
+     * Moves the source to a square settled for the old source. A square
+     * that a least-difficulty route from the old source went through the new
+     * one to is that much closer to the new source, and that is its least
+     * difficulty: no route from the new source can be shorter, or the old
+     * route would have been too. Those squares stay settled, in the order
+     * they were settled, and their other neighbours seed the search for the
+     * rest.
+     *
+     * @param newSource a square settled in the current generation
+     */
+    private void repair(int newSource) {
+        generation++;
+        double offset = distance[newSource];
+        int kept = 0;
+        for (int i = 0; i < settledCount; i++) {
+            int cell = settledOrder[i];
+            double newDistance = distance[cell] - offset;
+            // the squares before it on its routes were settled before it
+            if (cell == newSource || keptNeighbourLeadsTo(cell, newDistance)) {
+                settledStamp[cell] = generation;
+                seenStamp[cell] = generation;
+                distance[cell] = newDistance;
+                settledOrder[kept++] = cell;
+            }
+        }
+        frontier.clear();
+        source = newSource;
+        distance[source] = 0.0;
+        settledCount = kept;
+        for (int i = 0; i < kept; i++) {
+            relaxNeighbours(settledOrder[i]);
+        }
+        searchedTo = -1.0;
+    }
+
+    /**
+     * Settles squares until the next one is beyond the budget. What is left
+     * in the frontier is where the next larger budget carries on from.
+     */
+    private void search() {
+        double limit = budget + EPSILON;
+        while (!frontier.isEmpty() && frontier.peekKey() <= limit) {
+            int cell = frontier.poll();
+            settledStamp[cell] = generation;
+            settledOrder[settledCount++] = cell;
+            relaxNeighbours(cell);
+        }
+        searchedTo = budget;
+    }
+
+    /**
+     * Is there a neighbour already kept by repair that a route of the given
+     * difficulty to the square comes from?
+     */
+    private boolean keptNeighbourLeadsTo(int cell, double newDistance) {
+        double limit = newDistance - difficulty[cell] + EPSILON;
+        int row = cell / numColumns;
+        int col = cell - row * numColumns;
+        return (row > 0 && leadsTo(cell - numColumns, limit))
+                || (row < numRows - 1 && leadsTo(cell + numColumns, limit))
+                || (col > 0 && leadsTo(cell - 1, limit))
+                || (col < numColumns - 1 && leadsTo(cell + 1, limit));
+    }
+
+    private boolean leadsTo(int neighbour, double limit) {
+        return settledStamp[neighbour] == generation && distance[neighbour] <= limit;
+    }
+
+    private void relaxNeighbours(int cell) {
+        int row = cell / numColumns;
+        int col = cell - row * numColumns;
+        if (row > 0) {
+            relax(cell, cell - numColumns);
+        }
+        if (row < numRows - 1) {
+            relax(cell, cell + numColumns);
+        }
+        if (col > 0) {
+            relax(cell, cell - 1);
+        }
+        if (col < numColumns - 1) {
+            relax(cell, cell + 1);
+        }
+    }
+
+    private void relax(int from, int to) {
+        if (settledStamp[to] == generation) {
+            return;
+        }
+        double newDistance = distance[from] + difficulty[to];
+        if (seenStamp[to] != generation || newDistance < distance[to]) {
+            seenStamp[to] = generation;
+            distance[to] = newDistance;
+            frontier.insertOrDecrease(to, newDistance);
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.Arrays;
+
+/**
+ * Plans the route between two positions on an island that needs the least
+ * stamina.
+ *
+ * Moving onto a square costs Player.getMoveStaminaFactor() times the
+ * difficulty of its terrain. The factor only depends on the backpack load,
+ * which does not change along a route, so the search is an A* over terrain
+ * difficulty and the factor is applied to the result.
+ * Water is avoided unless setAvoidWater(false) is called.
+ *
+ * On large islands the A* heuristic also uses distances from landmark
+ * squares (computed on the first query, one full search per landmark). Each
+ * query only reads the few landmarks with the best bounds between its ends,
+ * and among squares that look as good takes the one furthest along first.
+ * Because reversing a route only swaps which end's terrain is paid for,
+ * d(u,v) = d(v,u) - difficulty(u) + difficulty(v), so the distances from a
+ * landmark bound the distance between any two squares in both directions.
+ *
+ * All search storage is allocated when the planner is created, so queries do
+ * not allocate apart from the returned route. A planner is not thread safe.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class RoutePlanner {
+
+    private final Island island;
+    private final int numRows;
+    private final int numColumns;
+
+    // difficulty of entering each cell, or infinity if it cannot be entered
+    private final double[] difficulty;
+    private double minDifficulty;
+    private boolean avoidWater;
+
+    // scratch storage, valid for a cell only while its stamp is the current generation
+    private final double[] distance;
+    private final int[] parent;
+    private final int[] seenStamp;
+    private final int[] closedStamp;
+    private final int[] path;
+    private final MinHeap open;
+    private int generation;
+
+    private double routeCost;
+
+    // much less than any difference between route costs, which are sums of terrain difficulties
+    private static final double TIE_BREAK = 1e-9;
+
+    // landmark distances are only worth their memory on large islands
+    private static final int LANDMARK_MIN_CELLS = 64 * 64;
+    private static final int LANDMARKS = 16;
+    // landmarks a query uses, those giving the best bounds between its ends
+    private static final int ACTIVE_LANDMARKS = 3;
+    // distance from each landmark to every cell, one array per landmark so
+    // that neighbouring cells share cache lines
+    private float[][] landmarkDistance;
+    private double[] terrainDifficulty;
+    private final float[][] activeDistance = new float[ACTIVE_LANDMARKS][];
+    private final float[] goalLandmarkDistance = new float[ACTIVE_LANDMARKS];
+    private final double[] activeBound = new double[ACTIVE_LANDMARKS];
+    private double goalTerrainDifficulty;
+
+    /**
+     * Creates a route planner for an island. Call refreshTerrain if the
+     * terrain of the island changes afterwards.
+     *
+     * @param island the island to plan routes on
+     */
+    public RoutePlanner(Island island) {
+        this.island = island;
+        this.numRows = island.getNumRows();
+        this.numColumns = island.getNumColumns();
+        int cells = numRows * numColumns;
+        this.difficulty = new double[cells];
+        this.distance = new double[cells];
+        this.parent = new int[cells];
+        this.seenStamp = new int[cells];
+        this.closedStamp = new int[cells];
+        this.path = new int[cells];
+        this.open = new MinHeap(cells);
+        this.generation = 0;
+        this.avoidWater = true;
+        this.routeCost = Double.POSITIVE_INFINITY;
+        refreshTerrain();
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Get the island this planner works on.
+     *
+     * @return island
+     */
+    public Island getIsland() {
+        return island;
+    }
+
+    /**
+     * Are routes kept out of the water?
+     *
+     * @return true if water is avoided
+     */
+    public boolean isAvoidWater() {
+        return avoidWater;
+    }
+
+    /**
+     * Stamina needed for the last route planned.
+     *
+     * @return stamina, or infinity if no route was found
+     */
+    public double getRouteCost() {
+        return routeCost;
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Mutator methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Choose whether routes may go through water.
+     *
+     * @param avoidWater true to keep routes out of the water
+     */
+    public void setAvoidWater(boolean avoidWater) {
+        if (this.avoidWater != avoidWater) {
+            this.avoidWater = avoidWater;
+            refreshTerrain();
+        }
+    }
+
+    /**
+     * Re-reads the terrain of the island.
+     */
+    public final void refreshTerrain() {
+        landmarkDistance = null;
+        minDifficulty = Double.POSITIVE_INFINITY;
+        int cell = 0;
+        for (int row = 0; row < numRows; row++) {
+            for (int col = 0; col < numColumns; col++, cell++) {
+                Terrain terrain = island.getTerrain(row, col);
+                double cost = (avoidWater && terrain == Terrain.WATER)
+                        ? Double.POSITIVE_INFINITY : terrain.getDifficulty();
+                difficulty[cell] = cost;
+                minDifficulty = Math.min(minDifficulty, cost);
+            }
+        }
+    }
+
+    /**
+     * Plans the route from one position to another that needs the least
+     * stamina for the player with the current backpack load.
+     *
+     * @param from where the route starts
+     * @param to where the route ends
+     * @param player the player who will move, for the backpack load
+     * @return positions to move to in order, ending with to; an empty array if
+     * from and to are the same; null if there is no route
+     */
+    public Position[] planRoute(Position from, Position to, Player player) {
+        if (from == null || to == null || !from.isOnIsland() || !to.isOnIsland()) {
+            throw new IllegalArgumentException("Route must start and end on the island");
+        }
+        int length = findRoute(from.getRow(), from.getColumn(),
+                to.getRow(), to.getColumn(), player.getMoveStaminaFactor());
+        if (length < 0) {
+            return null;
+        }
+        Position[] route = new Position[length];
+        for (int i = 0; i < length; i++) {
+            int cell = path[length - 1 - i];
+            route[i] = new Position(island, cell / numColumns, cell % numColumns);
+        }
+        return route;
+    }
+
+    /**
+     * Allocation free search. The route is left in reverse order (destination
+     * first, start excluded) in the buffer returned by getRouteBuffer.
+     *
+     * @param fromRow start row
+     * @param fromCol start column
+     * @param toRow destination row
+     * @param toCol destination column
+     * @param staminaFactor stamina needed per unit of difficulty
+     * @return number of moves in the route, or -1 if there is none
+     */
+    int findRoute(int fromRow, int fromCol, int toRow, int toCol, double staminaFactor) {
+        int start = fromRow * numColumns + fromCol;
+        int goal = toRow * numColumns + toCol;
+        routeCost = Double.POSITIVE_INFINITY;
+        if (start == goal) {
+            routeCost = 0.0;
+            return 0;
+        }
+        if (difficulty[goal] == Double.POSITIVE_INFINITY) {
+            return -1;
+        }
+
+        if (landmarkDistance == null && difficulty.length >= LANDMARK_MIN_CELLS) {
+            prepareLandmarks();
+        }
+        if (landmarkDistance != null) {
+            boolean startReached = landmarkDistance[0][start] != Float.POSITIVE_INFINITY;
+            boolean goalReached = landmarkDistance[0][goal] != Float.POSITIVE_INFINITY;
+            if (difficulty[start] != Double.POSITIVE_INFINITY && startReached != goalReached) {
+                // the landmark reaches one end but not the other: different land masses
+                return -1;
+            }
+            chooseLandmarks(start, goal);
+        }
+
+        nextGeneration();
+        open.clear();
+        distance[start] = 0.0;
+        parent[start] = -1;
+        seenStamp[start] = generation;
+        open.insertOrDecrease(start, heuristic(start, goal, toRow, toCol));
+
+        while (!open.isEmpty()) {
+            int cell = open.poll();
+            if (cell == goal) {
+                routeCost = distance[goal] * staminaFactor;
+                return tracePath(goal);
+            }
+            closedStamp[cell] = generation;
+            int row = cell / numColumns;
+            int col = cell - row * numColumns;
+            if (row > 0) {
+                relax(cell, cell - numColumns, goal, toRow, toCol);
+            }
+            if (row < numRows - 1) {
+                relax(cell, cell + numColumns, goal, toRow, toCol);
+            }
+            if (col > 0) {
+                relax(cell, cell - 1, goal, toRow, toCol);
+            }
+            if (col < numColumns - 1) {
+                relax(cell, cell + 1, goal, toRow, toCol);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scratch buffer holding the last route found by findRoute.
+     *
+     * @return route cells, destination first
+     */
+    int[] getRouteBuffer() {
+        return path;
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private void relax(int from, int to, int goal, int toRow, int toCol) {
+        double step = difficulty[to];
+        if (step == Double.POSITIVE_INFINITY || closedStamp[to] == generation) {
+            return;
+        }
+        double newDistance = distance[from] + step;
+        if (seenStamp[to] != generation || newDistance < distance[to]) {
+            seenStamp[to] = generation;
+            distance[to] = newDistance;
+            parent[to] = from;
+            // among squares as promising, the one furthest along comes out first
+            open.insertOrDecrease(to, newDistance + heuristic(to, goal, toRow, toCol) - newDistance * TIE_BREAK);
+        }
+    }
+
+    /**
+     * Manhattan distance times the easiest terrain, raised by the landmark
+     * bounds when there are landmarks. Never more than the real cost, and
+     * consistent, so a cell is final once it leaves the heap.
+     */
+    private double heuristic(int cell, int goal, int toRow, int toCol) {
+        int row = cell / numColumns;
+        int col = cell - row * numColumns;
+        double bound = (Math.abs(row - toRow) + Math.abs(col - toCol)) * minDifficulty;
+        if (landmarkDistance != null && difficulty[cell] != Double.POSITIVE_INFINITY) {
+            double reverse = goalTerrainDifficulty - terrainDifficulty[cell];
+            for (int i = 0; i < ACTIVE_LANDMARKS; i++) {
+                double toCell = activeDistance[i][cell];
+                double toGoal = goalLandmarkDistance[i];
+                if (toCell == Double.POSITIVE_INFINITY || toGoal == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                // d(L,goal) <= d(L,cell) + d(cell,goal)
+                bound = Math.max(bound, toGoal - toCell);
+                // d(cell,L) <= d(cell,goal) + d(goal,L), with d(x,L) from d(L,x)
+                bound = Math.max(bound, toCell - toGoal + reverse);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Chooses landmarks spread over the island, each the square furthest from
+     * the landmarks already chosen, and stores the distance from each of them
+     * to every square.
+     */
+    private void prepareLandmarks() {
+        int cells = difficulty.length;
+        terrainDifficulty = new double[cells];
+        int firstLand = -1;
+        for (int cell = 0; cell < cells; cell++) {
+            terrainDifficulty[cell] = island.getTerrain(cell / numColumns, cell % numColumns)
+                    .getDifficulty();
+            if (firstLand < 0 && difficulty[cell] != Double.POSITIVE_INFINITY) {
+                firstLand = cell;
+            }
+        }
+        if (firstLand < 0) {
+            return;
+        }
+        float[][] landmarks = new float[LANDMARKS][cells];
+        float[] closest = new float[cells];
+        Arrays.fill(closest, Float.POSITIVE_INFINITY);
+        // the square furthest from an arbitrary one makes a good first landmark
+        int landmark = searchAll(firstLand, landmarks[0]);
+        for (int i = 0; i < LANDMARKS; i++) {
+            float[] single = landmarks[i];
+            searchAll(landmark, single);
+            int furthest = landmark;
+            for (int cell = 0; cell < cells; cell++) {
+                closest[cell] = Math.min(closest[cell], single[cell]);
+                if (closest[cell] != Float.POSITIVE_INFINITY && closest[cell] > closest[furthest]) {
+                    furthest = cell;
+                }
+            }
+            landmark = furthest;
+        }
+        landmarkDistance = landmarks;
+    }
+
+    /**
+     * Picks the landmarks that give the best bounds between start and goal
+     * for the query to use. Using only a few keeps the heuristic cheap, as
+     * the distances of each landmark are read for every square searched.
+     */
+    private void chooseLandmarks(int start, int goal) {
+        double reverse = terrainDifficulty[goal] - terrainDifficulty[start];
+        Arrays.fill(activeDistance, null);
+        for (float[] landmark : landmarkDistance) {
+            double toStart = landmark[start];
+            double toGoal = landmark[goal];
+            double bound = Math.max(toGoal - toStart, toStart - toGoal + reverse);
+            // keep the best few in order, best first
+            int i = ACTIVE_LANDMARKS;
+            while (i > 0 && (activeDistance[i - 1] == null || bound > activeBound[i - 1])) {
+                i--;
+            }
+            if (i < ACTIVE_LANDMARKS) {
+                System.arraycopy(activeBound, i, activeBound, i + 1, ACTIVE_LANDMARKS - 1 - i);
+                System.arraycopy(activeDistance, i, activeDistance, i + 1, ACTIVE_LANDMARKS - 1 - i);
+                activeBound[i] = bound;
+                activeDistance[i] = landmark;
+            }
+        }
+        for (int i = 0; i < ACTIVE_LANDMARKS; i++) {
+            goalLandmarkDistance[i] = activeDistance[i][goal];
+        }
+        goalTerrainDifficulty = terrainDifficulty[goal];
+    }
+
+    /**
+     * Dijkstra from source to every square it can reach.
+     *
+     * @param source where to start
+     * @param result distance to every square, infinity where unreachable
+     * @return the reachable square furthest from source
+     */
+    private int searchAll(int source, float[] result) {
+        Arrays.fill(result, Float.POSITIVE_INFINITY);
+        nextGeneration();
+        open.clear();
+        distance[source] = 0.0;
+        seenStamp[source] = generation;
+        open.insertOrDecrease(source, 0.0);
+        int furthest = source;
+        while (!open.isEmpty()) {
+            int cell = open.poll();
+            closedStamp[cell] = generation;
+            result[cell] = (float) distance[cell];
+            furthest = cell;
+            int row = cell / numColumns;
+            int col = cell - row * numColumns;
+            if (row > 0) {
+                settle(cell, cell - numColumns);
+            }
+            if (row < numRows - 1) {
+                settle(cell, cell + numColumns);
+            }
+            if (col > 0) {
+                settle(cell, cell - 1);
+            }
+            if (col < numColumns - 1) {
+                settle(cell, cell + 1);
+            }
+        }
+        return furthest;
+    }
+
+    private void settle(int from, int to) {
+        double step = difficulty[to];
+        if (step == Double.POSITIVE_INFINITY || closedStamp[to] == generation) {
+            return;
+        }
+        double newDistance = distance[from] + step;
+        if (seenStamp[to] != generation || newDistance < distance[to]) {
+            seenStamp[to] = generation;
+            distance[to] = newDistance;
+            open.insertOrDecrease(to, newDistance);
+        }
+    }
+
+    private int tracePath(int goal) {
+        int length = 0;
+        for (int cell = goal; parent[cell] >= 0; cell = parent[cell]) {
+            path[length++] = cell;
+        }
+        return length;
+    }
+
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(seenStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            generation = 1;
+        }
+    }
+}
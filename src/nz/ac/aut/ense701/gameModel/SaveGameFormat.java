@@ -0,0 +1,470 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.awt.Image;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary format for a game in progress.
+ *
+ * A saved game starts with the magic bytes "KISV", a version byte and a flags
+ * byte. Everything after the header is optionally deflate-compressed and holds:
+ * <ul>
+ * <li>island size as varints,</li>
+ * <li>terrain, one nibble per square,</li>
+ * <li>explored and visible flags, one bit per square,</li>
+ * <li>game counters and the player,</li>
+ * <li>occupants on the island, each located by the varint distance (in squares,
+ * row by row) from the previous occupant,</li>
+ * <li>the contents of the player's backpack.</li>
+ * </ul>
+ * Names and descriptions repeat a lot, so each string is written once and
+ * afterwards referred to by its index.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+final class SaveGameFormat {
+
+    static final int VERSION = 1;
+    static final int FLAG_DEFLATE = 0x01;
+
+    private static final byte[] MAGIC = {'K', 'I', 'S', 'V'};
+    private static final Terrain[] TERRAINS = Terrain.values();
+    private static final GameState[] STATES = GameState.values();
+
+    private SaveGameFormat() {
+    }
+
+    /**
+     * Writes the game to a file.
+     *
+     * @param game the game to save
+     * @param file where to save it
+     * @param compress true to deflate everything after the header
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Game game, File file, boolean compress) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            write(game, out, compress);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the game to a stream. The stream is not closed.
+     *
+     * @param game the game to save
+     * @param out where to write it
+     * @param compress true to deflate everything after the header
+     * @throws IOException if the stream cannot be written
+     */
+    static void write(Game game, OutputStream out, boolean compress) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(compress ? FLAG_DEFLATE : 0);
+
+        Deflater deflater = null;
+        DeflaterOutputStream deflaterOut = null;
+        OutputStream body = out;
+        if (compress) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            deflaterOut = new DeflaterOutputStream(out, deflater, 1 << 16);
+            body = deflaterOut;
+        }
+        try {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(body, 1 << 16));
+            writeBody(game, data);
+            data.flush();
+            if (deflaterOut != null) {
+                deflaterOut.finish();
+            }
+            out.flush();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Reads a saved game from a file into game.
+     *
+     * @param game the game to restore into
+     * @param file the saved game
+     * @throws IOException if the file cannot be read or is not a saved game
+     */
+    static void read(Game game, File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            read(game, in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a saved game from a stream into game. The stream is not closed.
+     *
+     * @param game the game to restore into
+     * @param in the saved game
+     * @throws IOException if the stream cannot be read or is not a saved game
+     */
+    static void read(Game game, InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        header.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("Not a saved game");
+            }
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported saved game version " + version);
+        }
+        int flags = header.readUnsignedByte();
+
+        Inflater inflater = null;
+        InputStream body = in;
+        if ((flags & FLAG_DEFLATE) != 0) {
+            inflater = new Inflater();
+            body = new InflaterInputStream(in, inflater, 1 << 16);
+        }
+        try {
+            readBody(game, new DataInputStream(new BufferedInputStream(body, 1 << 16)));
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint: 7 bits per byte, high bit set on all
+     * but the last byte.
+     *
+     * @param out where to write
+     * @param value a value that is not negative
+     * @throws IOException if out cannot be written
+     */
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads a varint written by writeVarInt.
+     *
+     * @param in where to read from
+     * @return the value
+     * @throws IOException if in cannot be read or the varint is too long
+     */
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * *************************************************************************************************************
+     * Private methods
+     * **************************************************************************************************************
+     */
+    private static void writeBody(Game game, DataOutputStream out) throws IOException {
+        Island island = game.getIsland();
+        Player player = game.getPlayer();
+        int rows = island.getNumRows();
+        int columns = island.getNumColumns();
+        int cells = rows * columns;
+        writeVarInt(out, rows);
+        writeVarInt(out, columns);
+
+        // terrain nibbles plus the two flag bitsets in one walk of the grid
+        byte[] terrain = new byte[(cells + 1) / 2];
+        byte[] explored = new byte[(cells + 7) / 8];
+        byte[] visible = new byte[(cells + 7) / 8];
+        int cell = 0;
+        int occupantCount = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++, cell++) {
+                GridSquare square = island.getGridSquare(row, col);
+                int ordinal = square.getTerrain().ordinal();
+                terrain[cell >> 1] |= (cell & 1) == 0 ? ordinal : ordinal << 4;
+                if (square.isExplored()) {
+                    explored[cell >> 3] |= 1 << (cell & 7);
+                }
+                if (square.isVisible()) {
+                    visible[cell >> 3] |= 1 << (cell & 7);
+                }
+                occupantCount += square.getOccupants().length;
+            }
+        }
+        out.write(terrain);
+        out.write(explored);
+        out.write(visible);
+
+        out.writeByte(game.getState().ordinal());
+        writeVarInt(out, game.getKiwiCount());
+        writeVarInt(out, game.getTotalKiwis());
+        writeVarInt(out, game.getTotalPredators());
+        writeVarInt(out, game.getPredatorsTrapped());
+        Map<String, Integer> strings = new HashMap<String, Integer>();
+        writeString(out, game.getPrevMap(), strings);
+
+        writeString(out, player.getName(), strings);
+        Position position = player.getPosition();
+        writeVarInt(out, position.getRow());
+        writeVarInt(out, position.getColumn());
+        out.writeDouble(player.getMaximumStaminaLevel());
+        out.writeDouble(player.getStaminaLevel());
+        out.writeDouble(player.getMaximumBackpackWeight());
+        out.writeDouble(player.getMaximumBackpackSize());
+        out.writeBoolean(player.isAlive());
+
+        writeVarInt(out, occupantCount);
+        int previousCell = 0;
+        cell = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++, cell++) {
+                for (Occupant occupant : island.getGridSquare(row, col).getOccupants()) {
+                    writeVarInt(out, cell - previousCell);
+                    previousCell = cell;
+                    writeOccupant(out, occupant, strings);
+                }
+            }
+        }
+
+        writeVarInt(out, player.getInventory().size());
+        for (Item item : player.getInventory()) {
+            writeOccupant(out, item, strings);
+        }
+    }
+
+    private static void readBody(Game game, DataInputStream in) throws IOException {
+        int rows = readVarInt(in);
+        int columns = readVarInt(in);
+        if (rows <= 0 || columns <= 0 || (long) rows * columns > Integer.MAX_VALUE) {
+            throw new IOException("Invalid island size " + rows + "x" + columns);
+        }
+        int cells = rows * columns;
+        byte[] terrain = new byte[(cells + 1) / 2];
+        byte[] explored = new byte[(cells + 7) / 8];
+        byte[] visible = new byte[(cells + 7) / 8];
+        in.readFully(terrain);
+        in.readFully(explored);
+        in.readFully(visible);
+
+        Island island = new Island(rows, columns);
+        int cell = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++, cell++) {
+                GridSquare square = island.getGridSquare(row, col);
+                int ordinal = (terrain[cell >> 1] >> ((cell & 1) << 2)) & 0x0F;
+                if (ordinal >= TERRAINS.length) {
+                    throw new IOException("Invalid terrain at " + row + "," + col);
+                }
+                square.setTerrain(TERRAINS[ordinal]);
+                if ((explored[cell >> 3] & (1 << (cell & 7))) != 0) {
+                    square.setExplored();
+                }
+                if ((visible[cell >> 3] & (1 << (cell & 7))) != 0) {
+                    square.setVisible();
+                }
+            }
+        }
+
+        int stateOrdinal = in.readUnsignedByte();
+        if (stateOrdinal >= STATES.length) {
+            throw new IOException("Invalid game state " + stateOrdinal);
+        }
+        GameState state = STATES[stateOrdinal];
+        int kiwiCount = readVarInt(in);
+        int totalKiwis = readVarInt(in);
+        int totalPredators = readVarInt(in);
+        int predatorsTrapped = readVarInt(in);
+        List<String> strings = new ArrayList<String>();
+        Map<String, Image> images = new HashMap<String, Image>();
+        String prevMap = readString(in, strings);
+
+        String name = readString(in, strings);
+        int playerRow = readVarInt(in);
+        int playerColumn = readVarInt(in);
+        if (playerRow < 0 || playerRow >= rows || playerColumn < 0 || playerColumn >= columns) {
+            throw new IOException("Player outside the island at " + playerRow + "," + playerColumn);
+        }
+        Position position = new Position(island, playerRow, playerColumn);
+        double maxStamina = in.readDouble();
+        double stamina = in.readDouble();
+        double maxWeight = in.readDouble();
+        double maxSize = in.readDouble();
+        boolean alive = in.readBoolean();
+        Player player = new Player(position, name, maxStamina, maxWeight, maxSize);
+        player.reduceStamina(maxStamina - stamina);
+        if (!alive) {
+            player.kill();
+        }
+
+        int occupantCount = readVarInt(in);
+        cell = 0;
+        for (int i = 0; i < occupantCount; i++) {
+            int distance = readVarInt(in);
+            if (distance < 0 || distance >= cells - cell) {
+                throw new IOException("Occupant outside the island");
+            }
+            cell += distance;
+            Position occPos = new Position(island, cell / columns, cell % columns);
+            island.addOccupant(occPos, readOccupant(in, game, occPos, strings, images));
+        }
+
+        int backpackCount = readVarInt(in);
+        for (int i = 0; i < backpackCount; i++) {
+            Occupant item = readOccupant(in, game, Position.NOT_ON_ISLAND, strings, images);
+            if (!(item instanceof Item) || !player.collect((Item) item)) {
+                throw new IOException("Invalid backpack item " + item);
+            }
+        }
+
+        island.updatePlayerPosition(player);
+        game.restoreState(island, player, state, kiwiCount, totalKiwis,
+                totalPredators, predatorsTrapped, prevMap);
+    }
+
+    private static void writeOccupant(DataOutputStream out, Occupant occupant,
+            Map<String, Integer> strings) throws IOException {
+        String type = occupant.getStringRepresentation();
+        out.writeByte(type.charAt(0));
+        writeString(out, occupant.getName(), strings);
+        writeString(out, occupant.getDescription(), strings);
+        if (occupant instanceof Tool) {
+            Tool tool = (Tool) occupant;
+            out.writeDouble(tool.getWeight());
+            out.writeDouble(tool.getSize());
+            out.writeBoolean(tool.isBroken());
+        } else if (occupant instanceof Food) {
+            Food food = (Food) occupant;
+            out.writeDouble(food.getWeight());
+            out.writeDouble(food.getSize());
+            out.writeDouble(food.getEnergy());
+        } else if (occupant instanceof Hazard) {
+            out.writeDouble(((Hazard) occupant).getImpact());
+        } else if (occupant instanceof Kiwi) {
+            out.writeBoolean(((Kiwi) occupant).counted());
+        }
+    }
+
+    private static Occupant readOccupant(DataInputStream in, Game game, Position pos,
+            List<String> strings, Map<String, Image> images) throws IOException {
+        String type = String.valueOf((char) in.readUnsignedByte());
+        String name = readString(in, strings);
+        String description = readString(in, strings);
+        Image image = readImage(game, type, name, images);
+        Occupant occupant;
+        if (type.equals("T")) {
+            double weight = in.readDouble();
+            double size = in.readDouble();
+            Tool tool = new Tool(pos, name, description, weight, size, image);
+            if (in.readBoolean()) {
+                tool.setBroken();
+            }
+            occupant = tool;
+        } else if (type.equals("E")) {
+            double weight = in.readDouble();
+            double size = in.readDouble();
+            double energy = in.readDouble();
+            occupant = new Food(pos, name, description, weight, size, energy, image);
+        } else if (type.equals("H")) {
+            occupant = new Hazard(pos, name, description, in.readDouble(), image);
+        } else if (type.equals("K")) {
+            Kiwi kiwi = new Kiwi(pos, name, description, image);
+            if (in.readBoolean()) {
+                kiwi.count();
+            }
+            occupant = kiwi;
+        } else if (type.equals("P")) {
+            occupant = new Predator(pos, name, description, image);
+        } else if (type.equals("F")) {
+            occupant = new Fauna(pos, name, description, image);
+        } else {
+            throw new IOException("Unknown occupant type '" + type + "'");
+        }
+        return occupant;
+    }
+
+    /**
+     * Occupants of the same kind share one image, so each image is only
+     * decoded once per load.
+     */
+    private static Image readImage(Game game, String type, String name, Map<String, Image> images) {
+        String key = type + name;
+        if (images.containsKey(key)) {
+            return images.get(key);
+        }
+        Image image;
+        try {
+            image = game.getOccupantImageFile(type, name);
+        } catch (IOException e) {
+            image = null;
+        }
+        images.put(key, image);
+        return image;
+    }
+
+    /**
+     * Strings are written as varint 0 followed by the string the first time,
+     * and as varint (index + 1) after that.
+     */
+    private static void writeString(DataOutputStream out, String value,
+            Map<String, Integer> strings) throws IOException {
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(out, index + 1);
+        } else {
+            strings.put(value, strings.size());
+            writeVarInt(out, 0);
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int index = readVarInt(in);
+        if (index == 0) {
+            String value = in.readUTF();
+            strings.add(value);
+            return value;
+        }
+        if (index > strings.size()) {
+            throw new IOException("Invalid string reference " + index);
+        }
+        return strings.get(index - 1);
+    }
+}
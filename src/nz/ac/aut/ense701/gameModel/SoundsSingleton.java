@@ -17,8 +17,9 @@ public class SoundsSingleton {
     protected SoundsSingleton() {
       // Exists only to defeat instantiation.
    }
-    //method to allow acces to single instance of class
-    public static SoundsSingleton getSoundsSingletonReference() {
+    //method to allow acces to single instance of class, synchronized as the
+    //sound effects are loaded on a thread of their own while the game starts
+    public static synchronized SoundsSingleton getSoundsSingletonReference() {
       if(instance == null) {
          instance = new SoundsSingleton();
       }
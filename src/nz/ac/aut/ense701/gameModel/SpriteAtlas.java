@@ -0,0 +1,810 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.AbstractMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.imageio.ImageIO;
+
+/**
+ * Every occupant sprite in one image, at each size the game draws it: small
+ * on the island grid and larger in the description panel. BuildAssets packs
+ * the sprites into the atlas when the project is built, so the game decodes
+ * one image rather than one per sprite, and does not scale sprites while it
+ * is played. The atlas takes the same memory whatever the size of the
+ * pictures it was packed from.
+ *
+ * The atlas has a page for each of SCALES, so sprites stay sharp on screens
+ * that draw at 150% or 200%. Page IMAGE is at 1x, and the others are named
+ * like "sprites/atlas@2x.png". INDEX has a line per sprite, size and scale
+ * of "name size scale x y width height", separated by tabs.
+ *
+ * The sprites handed out are multi-resolution images: Java 2D picks the
+ * page that suits the transform of the Graphics2D drawing the sprite, and
+ * draws a view of it, sharing its pixels. The 1x page is read with the
+ * atlas and always kept. The others are read the first time they are
+ * wanted, on a thread of their own so painting never waits for them; until
+ * a page is read, sprites are drawn from the nearest page in memory and
+ * listeners are told when it is ready. The least recently drawn pages are
+ * dropped when they take more memory than the budget, set in megabytes with
+ * -Dkiwiisland.sprites.budget.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class SpriteAtlas {
+
+    /** The 1x page of the atlas in the asset bundle. */
+    public static final String IMAGE = "sprites/atlas.png";
+    /** Where each sprite is in the pages of the atlas. */
+    public static final String INDEX = "sprites/atlas.txt";
+    /** The scales the atlas has a page for, smallest first. */
+    public static final double[] SCALES = {1, 1.5, 2};
+    /** How much memory the pages other than the 1x page may take, by default. */
+    public static final long DEFAULT_BUDGET = 16L << 20;
+
+    /**
+     * The sizes each sprite is packed at.
+     */
+    public enum Size {
+        GRID(21, 51), DESCRIPTION(70, 78);
+
+        private final int width;
+        private final int height;
+
+        private Size(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * How wide the sprite is at this size.
+         *
+         * @return the width in pixels
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * How high the sprite is at this size.
+         *
+         * @return the height in pixels
+         */
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    /**
+     * Is told when a page has been read, so what was drawn from another
+     * page until then can be drawn again.
+     */
+    public interface Listener {
+
+        /**
+         * A page has been read. Called on the thread that read it.
+         *
+         * @param scale the page's scale, one of SCALES
+         */
+        void pageLoaded(double scale);
+    }
+
+    private static final int ATLAS_WIDTH = 512;
+
+    // reads pages wanted while sprites are drawn
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "sprite pages");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static SpriteAtlas defaultAtlas;
+
+    // where evicted pages are read again from, null if the pages are all kept
+    private final AssetBundle assets;
+    private final long budget;
+    private final BufferedImage[] pages = new BufferedImage[SCALES.length];
+    private final long[] lastDrawn = new long[SCALES.length];
+    // pages being read by LOADER, or that could not be read
+    private final boolean[] requested = new boolean[SCALES.length];
+    private long clock;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+    // sprites by key(name, size), in the order they were packed
+    private final Map<String, Sprite> sprites = new LinkedHashMap<String, Sprite>();
+
+    private SpriteAtlas(AssetBundle assets, long budget, BufferedImage[] pages, Map<String, Rectangle[]> index) {
+        this.assets = assets;
+        this.budget = budget;
+        System.arraycopy(pages, 0, this.pages, 0, pages.length);
+        for (Map.Entry<String, Rectangle[]> entry : index.entrySet()) {
+            String key = entry.getKey();
+            int split = key.lastIndexOf(' ');
+            Sprite sprite = new Sprite(key.substring(0, split), Size.valueOf(key.substring(split + 1)),
+                    entry.getValue());
+            sprites.put(key, sprite);
+        }
+    }
+
+    /**
+     * The game's sprites: the atlas in the asset bundle, or, when the game
+     * is run from loose files without one, an atlas packed now from the
+     * images folder. Read the first time it is needed.
+     *
+     * @return the atlas
+     * @throws IOException if the atlas cannot be read
+     */
+    public static synchronized SpriteAtlas getDefault() throws IOException {
+        if (defaultAtlas == null) {
+            AssetBundle assets = AssetBundle.getDefault();
+            if (assets.contains(IMAGE) && assets.contains(INDEX)) {
+                defaultAtlas = read(assets, Long.getLong("kiwiisland.sprites.budget", DEFAULT_BUDGET >> 20) << 20);
+            } else {
+                defaultAtlas = pack(readImages(assets, "images"));
+            }
+        }
+        return defaultAtlas;
+    }
+
+    /**
+     * Forgets the game's atlas, so it is read again. Used by the benchmarks
+     * to time reading it.
+     */
+    static synchronized void clearDefault() {
+        defaultAtlas = null;
+    }
+
+    /**
+     * An image at a size the game draws sprites at. A sprite is swapped for
+     * itself at that size; any other image is scaled.
+     *
+     * @param image the image, null for none
+     * @param size the size
+     * @return the image at that size, null if image is null
+     */
+    public static Image resize(Image image, Size size) {
+        if (image == null) {
+            return null;
+        }
+        if (image instanceof Sprite) {
+            Sprite sprite = (Sprite) image;
+            return sprite.getAtlas().getSprite(sprite.name, size);
+        }
+        return image.getScaledInstance(size.width, size.height, Image.SCALE_SMOOTH);
+    }
+
+    /**
+     * How much the screens scale what is drawn on them, such as 2 on a
+     * screen set to 200%.
+     *
+     * @return the largest scale of any screen, 1 if there is no screen
+     */
+    public static double getDisplayScale() {
+        double scale = 1;
+        if (GraphicsEnvironment.isHeadless()) {
+            return scale;
+        }
+        for (GraphicsDevice screen : GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices()) {
+            scale = Math.max(scale, screen.getDefaultConfiguration().getDefaultTransform().getScaleX());
+        }
+        return scale;
+    }
+
+    /**
+     * Reads the atlas from an asset bundle, with the default memory budget.
+     *
+     * @param assets the bundle
+     * @return the atlas
+     * @throws IOException if there is no atlas or it cannot be read
+     */
+    public static SpriteAtlas read(AssetBundle assets) throws IOException {
+        return read(assets, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Reads the atlas from an asset bundle. Only the 1x page is read now.
+     *
+     * @param assets the bundle
+     * @param budget how many bytes the other pages may take
+     * @return the atlas
+     * @throws IOException if there is no atlas or it cannot be read
+     */
+    public static SpriteAtlas read(AssetBundle assets, long budget) throws IOException {
+        Map<String, Rectangle[]> index = new LinkedHashMap<String, Rectangle[]>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(assets.open(INDEX), StandardCharsets.UTF_8));
+        try {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                try {
+                    if (fields.length != 7) {
+                        throw new NumberFormatException();
+                    }
+                    Size size = Size.valueOf(fields[1].toUpperCase(Locale.ROOT));
+                    int scale = scaleIndex(fields[2]);
+                    String key = key(fields[0], size);
+                    Rectangle[] places = index.get(key);
+                    if (places == null) {
+                        places = new Rectangle[SCALES.length];
+                        index.put(key, places);
+                    }
+                    places[scale] = new Rectangle(Integer.parseInt(fields[3]), Integer.parseInt(fields[4]),
+                            Integer.parseInt(fields[5]), Integer.parseInt(fields[6]));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(INDEX + ", line " + number
+                            + ": expected name, size, scale, x, y, width and height");
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        for (Map.Entry<String, Rectangle[]> entry : index.entrySet()) {
+            for (int scale = 0; scale < SCALES.length; scale++) {
+                if (entry.getValue()[scale] == null) {
+                    throw new IOException(INDEX + ": sprite '" + entry.getKey() + "' has no place at "
+                            + formatScale(SCALES[scale]) + "x");
+                }
+            }
+        }
+        BufferedImage[] pages = new BufferedImage[SCALES.length];
+        pages[0] = readPage(assets, 0, index);
+        return new SpriteAtlas(assets, budget, pages, index);
+    }
+
+    /**
+     * Packs sprites into an atlas, scaling each to every size at every
+     * scale. The pages are all kept.
+     *
+     * @param pictures the pictures, by sprite name
+     * @return the atlas
+     */
+    public static SpriteAtlas pack(Map<String, BufferedImage> pictures) {
+        // shelves of sprites of one size, the tallest first
+        List<Size> sizes = new ArrayList<Size>();
+        Collections.addAll(sizes, Size.values());
+        Collections.sort(sizes, new Comparator<Size>() {
+            @Override
+            public int compare(Size a, Size b) {
+                return Integer.compare(b.height, a.height);
+            }
+        });
+        Map<String, Rectangle[]> index = new LinkedHashMap<String, Rectangle[]>();
+        for (String name : pictures.keySet()) {
+            for (Size size : Size.values()) {
+                index.put(key(name, size), new Rectangle[SCALES.length]);
+            }
+        }
+        BufferedImage[] pages = new BufferedImage[SCALES.length];
+        for (int scale = 0; scale < SCALES.length; scale++) {
+            int atlasWidth = scaled(ATLAS_WIDTH, scale);
+            int x = 0;
+            int y = 0;
+            int shelf = 0;
+            for (Size size : sizes) {
+                int width = scaled(size.width, scale);
+                int height = scaled(size.height, scale);
+                for (String name : pictures.keySet()) {
+                    if (x + width > atlasWidth) {
+                        x = 0;
+                        y += shelf;
+                        shelf = 0;
+                    }
+                    index.get(key(name, size))[scale] = new Rectangle(x, y, width, height);
+                    x += width;
+                    shelf = Math.max(shelf, height);
+                }
+            }
+
+            BufferedImage page = new BufferedImage(atlasWidth, Math.max(1, y + shelf), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = page.createGraphics();
+            try {
+                for (Map.Entry<String, BufferedImage> picture : pictures.entrySet()) {
+                    for (Size size : Size.values()) {
+                        Rectangle place = index.get(key(picture.getKey(), size))[scale];
+                        g.drawImage(scale(picture.getValue(), place.width, place.height), place.x, place.y, null);
+                    }
+                }
+            } finally {
+                g.dispose();
+            }
+            pages[scale] = page;
+        }
+        return new SpriteAtlas(null, Long.MAX_VALUE, pages, index);
+    }
+
+    /**
+     * Decodes every image in a folder of the assets.
+     *
+     * @param assets the assets
+     * @param folder the folder
+     * @return the pictures, by asset name
+     * @throws IOException if an asset cannot be read
+     */
+    public static Map<String, BufferedImage> readImages(AssetBundle assets, String folder) throws IOException {
+        Map<String, BufferedImage> pictures = new LinkedHashMap<String, BufferedImage>();
+        for (String name : assets.list(folder)) {
+            BufferedImage picture = ImageIO.read(assets.open(name));
+            GameMetrics.count(GameMetrics.Counter.IMAGES_DECODED);
+            if (picture != null) {
+                pictures.put(name, picture);
+            }
+        }
+        return pictures;
+    }
+
+    /**
+     * The name of the page of the atlas at a scale.
+     *
+     * @param scale one of SCALES
+     * @return the page's asset name, such as "sprites/atlas@2x.png"
+     */
+    public static String getPageName(double scale) {
+        int index = scaleIndex(scale);
+        return index == 0 ? IMAGE : "sprites/atlas@" + formatScale(SCALES[index]) + "x.png";
+    }
+
+    /**
+     * Reads the page that suits a scale now, if it has not been read, so it
+     * is not read the first time a sprite is drawn at that scale.
+     *
+     * @param scale the scale, such as getDisplayScale()
+     * @throws IOException if the page cannot be read
+     */
+    public void prefetch(double scale) throws IOException {
+        page(scaleIndex(scale));
+    }
+
+    /**
+     * Adds a listener to tell when a page has been read.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * *********************************************************************************************************************
+     * Accessor methods
+     * **********************************************************************************************************************
+     */
+    /**
+     * Is there a sprite with a name?
+     *
+     * @param name the sprite's name, such as "images/Kiwi.jpg", in any case
+     * @return true if there is
+     */
+    public boolean contains(String name) {
+        return sprites.containsKey(key(name, Size.GRID));
+    }
+
+    /**
+     * A sprite at one of its sizes, to be drawn at whatever scale.
+     *
+     * @param name the sprite's name, such as "images/Kiwi.jpg", in any case
+     * @param size the size
+     * @return the sprite, null if there is no such sprite
+     */
+    public Image getSprite(String name, Size size) {
+        return sprites.get(key(name, size));
+    }
+
+    /**
+     * A sprite at one of its sizes, as it is drawn at a scale.
+     *
+     * @param name the sprite's name, such as "images/Kiwi.jpg", in any case
+     * @param size the size
+     * @param scale the scale, such as 2 on a screen set to 200%
+     * @return a view of the page that suits the scale, null if there is no
+     * such sprite
+     * @throws IOException if the page cannot be read
+     */
+    public BufferedImage getSprite(String name, Size size, double scale) throws IOException {
+        Sprite sprite = sprites.get(key(name, size));
+        if (sprite == null) {
+            return null;
+        }
+        int index = scaleIndex(scale);
+        BufferedImage page = page(index);
+        synchronized (this) {
+            return view(sprite, index, page);
+        }
+    }
+
+    /**
+     * The names of the sprites.
+     *
+     * @return the names in lower case, in the order they were packed
+     */
+    public List<String> getNames() {
+        List<String> found = new ArrayList<String>();
+        for (Sprite sprite : sprites.values()) {
+            if (sprite.size == Size.GRID) {
+                found.add(sprite.name);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * How many pixels the 1x page holds, the same however large the
+     * pictures it was packed from.
+     *
+     * @return the width times the height
+     */
+    public int getPixels() {
+        return pages[0].getWidth() * pages[0].getHeight();
+    }
+
+    /**
+     * Has the page at a scale been read, and not dropped since?
+     *
+     * @param scale one of SCALES
+     * @return true if it is in memory
+     */
+    public synchronized boolean isLoaded(double scale) {
+        return pages[scaleIndex(scale)] != null;
+    }
+
+    /**
+     * How much memory the pages other than the 1x page take.
+     *
+     * @return the size of their pixels in bytes
+     */
+    public synchronized long getLoadedBytes() {
+        long bytes = 0;
+        for (int scale = 1; scale < SCALES.length; scale++) {
+            bytes += bytes(pages[scale]);
+        }
+        return bytes;
+    }
+
+    /**
+     * A page of the atlas, as a PNG to bundle.
+     *
+     * @param scale one of SCALES
+     * @return the PNG's bytes
+     * @throws IOException if the page cannot be read or encoded
+     */
+    public byte[] getPageBytes(double scale) throws IOException {
+        BufferedImage page = page(scaleIndex(scale));
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(page, "png", png);
+        return png.toByteArray();
+    }
+
+    /**
+     * The index of the atlas, to bundle with it.
+     *
+     * @return the index's bytes
+     */
+    public byte[] getIndexBytes() {
+        StringBuilder index = new StringBuilder("# name\tsize\tscale\tx\ty\twidth\theight\n");
+        for (Sprite sprite : sprites.values()) {
+            for (int scale = 0; scale < SCALES.length; scale++) {
+                Rectangle place = sprite.places[scale];
+                index.append(sprite.name).append('\t')
+                        .append(sprite.size.toString().toLowerCase(Locale.ROOT)).append('\t')
+                        .append(formatScale(SCALES[scale])).append('\t')
+                        .append(place.x).append('\t').append(place.y).append('\t')
+                        .append(place.width).append('\t').append(place.height).append('\n');
+            }
+        }
+        return index.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static String key(String name, Size size) {
+        return name.toLowerCase(Locale.ROOT) + " " + size;
+    }
+
+    private static int scaled(int pixels, int scale) {
+        return (int) Math.round(pixels * SCALES[scale]);
+    }
+
+    /**
+     * The smallest scale at least as large as the one wanted, so sprites
+     * are only ever drawn smaller, or the largest there is.
+     */
+    private static int scaleIndex(double wanted) {
+        for (int scale = 0; scale < SCALES.length; scale++) {
+            if (SCALES[scale] >= wanted - 0.01) {
+                return scale;
+            }
+        }
+        return SCALES.length - 1;
+    }
+
+    private static int scaleIndex(String field) {
+        for (int scale = 0; scale < SCALES.length; scale++) {
+            if (formatScale(SCALES[scale]).equals(field)) {
+                return scale;
+            }
+        }
+        throw new IllegalArgumentException(field);
+    }
+
+    private static String formatScale(double scale) {
+        return scale == Math.rint(scale) ? Integer.toString((int) scale) : Double.toString(scale);
+    }
+
+    private static long bytes(BufferedImage page) {
+        if (page == null) {
+            return 0;
+        }
+        DataBuffer data = page.getRaster().getDataBuffer();
+        return (long) data.getSize() * data.getNumBanks() * DataBuffer.getDataTypeSize(data.getDataType()) / 8;
+    }
+
+    private static BufferedImage readPage(AssetBundle assets, int scale, Map<String, Rectangle[]> index)
+            throws IOException {
+        String name = getPageName(SCALES[scale]);
+        ImageDecodeEvent event = new ImageDecodeEvent();
+        event.begin();
+        BufferedImage page = ImageIO.read(assets.open(name));
+        event.finish(name, page);
+        GameMetrics.count(GameMetrics.Counter.IMAGES_DECODED);
+        if (page == null) {
+            throw new IOException(name + " is not an image");
+        }
+        Rectangle bounds = new Rectangle(page.getWidth(), page.getHeight());
+        for (Map.Entry<String, Rectangle[]> entry : index.entrySet()) {
+            if (!bounds.contains(entry.getValue()[scale])) {
+                throw new IOException(INDEX + ": sprite '" + entry.getKey() + "' is outside " + name);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * A page, read on this thread if it is not in memory. Not for the paint
+     * path, which takes the nearest page in memory instead.
+     */
+    private BufferedImage page(int scale) throws IOException {
+        synchronized (this) {
+            if (pages[scale] != null) {
+                lastDrawn[scale] = ++clock;
+                return pages[scale];
+            }
+        }
+        // read without the lock, so sprites can be drawn meanwhile
+        BufferedImage page = readPage(assets, scale, getIndex());
+        synchronized (this) {
+            return install(scale, page);
+        }
+    }
+
+    /**
+     * Starts reading a page on LOADER, unless it is being read already or
+     * could not be read before. Called holding the atlas's lock.
+     */
+    private void request(final int scale) {
+        if (requested[scale] || assets == null) {
+            return;
+        }
+        requested[scale] = true;
+        final Map<String, Rectangle[]> index = getIndex();
+        LOADER.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    BufferedImage page = readPage(assets, scale, index);
+                    synchronized (SpriteAtlas.this) {
+                        install(scale, page);
+                    }
+                } catch (IOException e) {
+                    // left requested, so it is not tried again on every paint
+                    System.err.println("Unable to read " + getPageName(SCALES[scale]) + ", " + e.getMessage());
+                    return;
+                }
+                for (Listener listener : listeners) {
+                    listener.pageLoaded(SCALES[scale]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Keeps a page that has been read, unless another thread read it first,
+     * dropping the pages drawn least recently if the pages then take more
+     * than the budget. Called holding the atlas's lock.
+     */
+    private BufferedImage install(int scale, BufferedImage page) {
+        if (pages[scale] == null) {
+            pages[scale] = page;
+            evict(scale);
+        }
+        requested[scale] = false;
+        lastDrawn[scale] = ++clock;
+        return pages[scale];
+    }
+
+    private synchronized Map<String, Rectangle[]> getIndex() {
+        Map<String, Rectangle[]> index = new LinkedHashMap<String, Rectangle[]>();
+        for (Map.Entry<String, Sprite> entry : sprites.entrySet()) {
+            index.put(entry.getKey(), entry.getValue().places);
+        }
+        return index;
+    }
+
+    /**
+     * The page in memory to draw from when a page is wanted: that page if it
+     * is in memory, or else the smallest larger one, or else the largest
+     * smaller one. Called holding the atlas's lock.
+     */
+    private int nearestLoaded(int wanted) {
+        for (int scale = wanted; scale < SCALES.length; scale++) {
+            if (pages[scale] != null) {
+                return scale;
+            }
+        }
+        for (int scale = wanted - 1; scale > 0; scale--) {
+            if (pages[scale] != null) {
+                return scale;
+            }
+        }
+        return 0;
+    }
+
+    private void evict(int keep) {
+        long loaded = getLoadedBytes();
+        while (loaded > budget) {
+            int oldest = -1;
+            for (int scale = 1; scale < SCALES.length; scale++) {
+                if (scale != keep && pages[scale] != null && (oldest < 0 || lastDrawn[scale] < lastDrawn[oldest])) {
+                    oldest = scale;
+                }
+            }
+            if (oldest < 0) {
+                return;
+            }
+            loaded -= bytes(pages[oldest]);
+            pages[oldest] = null;
+            for (Sprite sprite : sprites.values()) {
+                sprite.views[oldest] = null;
+            }
+        }
+    }
+
+    /**
+     * A sprite's view of a page, kept with the sprite while the page is in
+     * memory. Called holding the atlas's lock.
+     */
+    private BufferedImage view(Sprite sprite, int scale, BufferedImage page) {
+        if (sprite.views[scale] != null) {
+            return sprite.views[scale];
+        }
+        Rectangle place = sprite.places[scale];
+        BufferedImage view = page.getSubimage(place.x, place.y, place.width, place.height);
+        if (pages[scale] == page) {
+            sprite.views[scale] = view;
+        }
+        return view;
+    }
+
+    /**
+     * Scales a picture down in halves and then to the size, so large
+     * pictures are smoothed as well as small ones.
+     */
+    private static BufferedImage scale(BufferedImage picture, int width, int height) {
+        BufferedImage scaled = picture;
+        int w = picture.getWidth();
+        int h = picture.getHeight();
+        do {
+            w = w / 2 >= width ? w / 2 : width;
+            h = h / 2 >= height ? h / 2 : height;
+            BufferedImage step = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(scaled, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            scaled = step;
+        } while (w != width || h != height);
+        return scaled;
+    }
+
+    /**
+     * A sprite at one size, with a view of each page of the atlas. Java 2D
+     * asks it for the view that suits the transform it is drawn with.
+     */
+    public final class Sprite extends AbstractMultiResolutionImage {
+
+        private final String name;
+        private final Size size;
+        private final Rectangle[] places;
+        // views of the pages in memory, dropped with their page
+        private final BufferedImage[] views = new BufferedImage[SCALES.length];
+
+        private Sprite(String name, Size size, Rectangle[] places) {
+            this.name = name;
+            this.size = size;
+            this.places = places;
+        }
+
+        @Override
+        protected Image getBaseImage() {
+            return variant(0);
+        }
+
+        @Override
+        public Image getResolutionVariant(double destImageWidth, double destImageHeight) {
+            // the smallest view at least as large as drawn, to within rounding, or the largest
+            int scale = 0;
+            while (scale < SCALES.length - 1 && (places[scale].width < destImageWidth - 0.5
+                    || places[scale].height < destImageHeight - 0.5)) {
+                scale++;
+            }
+            return variant(scale);
+        }
+
+        @Override
+        public List<Image> getResolutionVariants() {
+            List<Image> variants = new ArrayList<Image>();
+            synchronized (SpriteAtlas.this) {
+                for (int scale = 0; scale < SCALES.length; scale++) {
+                    if (pages[scale] != null) {
+                        variants.add(variant(scale));
+                    }
+                }
+            }
+            return variants;
+        }
+
+        private SpriteAtlas getAtlas() {
+            return SpriteAtlas.this;
+        }
+
+        /**
+         * The view at a scale as the sprite is being drawn, without reading
+         * anything: if that page is not in memory, the view of the nearest
+         * page that is, and the page is read on LOADER.
+         */
+        private BufferedImage variant(int scale) {
+            synchronized (SpriteAtlas.this) {
+                int loaded = nearestLoaded(scale);
+                if (loaded != scale) {
+                    request(scale);
+                }
+                lastDrawn[loaded] = ++clock;
+                return view(this, loaded, pages[loaded]);
+            }
+        }
+    }
+}
@@ -20,6 +20,17 @@ public enum Terrain
     private final double difficulty;
     private final String stringRep;
     
+    // terrain for each ASCII character of a map file, null if none
+    private static final Terrain[] BY_CHARACTER = new Terrain[128];
+    
+    static
+    {
+        for ( Terrain terrain : values() )
+        {
+            BY_CHARACTER[terrain.stringRep.charAt(0)] = terrain;
+        }
+    }
+    
     /**
      * Creates a new terrain with a given difficulty 
      * and a string representation
@@ -59,15 +70,23 @@ public enum Terrain
     public static Terrain getTerrainFromStringRepresentation(String terrainString)
     {
         Terrain terrain = null;
-        for ( Terrain item : values() ) 
+        if ( terrainString != null && terrainString.length() == 1 )
         {
-            if ( item.getStringRepresentation().equals(terrainString) )
-            {
-                terrain = item;
-            }
+            terrain = getTerrainFromCharacter(terrainString.charAt(0));
         }
         return terrain;
     }
     
+    /**
+     * Returns the terrain for a character of a map file, with one table
+     * lookup.
+     * @param character the character
+     * @return the terrain, or null if the character is not a terrain
+     */
+    public static Terrain getTerrainFromCharacter(int character)
+    {
+        return character >= 0 && character < BY_CHARACTER.length ? BY_CHARACTER[character] : null;
+    }
+    
 }
 
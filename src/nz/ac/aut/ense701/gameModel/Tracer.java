@@ -0,0 +1,239 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Traces what the game is doing as nested spans on a timeline, such as a
+ * key press, the move it makes, the hazard check and the listeners being
+ * told, and the island being painted afterwards. Tracing is off until
+ * start is called, and then costs one read of a volatile field per span.
+ *
+ * Each thread keeps its own stack of open spans, so spans nest without
+ * locks. Finished spans go into a ring buffer of the latest CAPACITY spans,
+ * which dump writes in the Chrome trace event format, to be opened in
+ * chrome://tracing or Perfetto.
+ *
+ * A span is opened with begin and closed with end on the same thread. A
+ * span left open by an exception is dropped the next time tracing starts.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public final class Tracer {
+
+    /** How many spans are kept. */
+    public static final int CAPACITY = 1 << 16;
+
+    private static final int MAX_DEPTH = 64;
+
+    private static volatile boolean enabled;
+    // changes every time tracing starts, so stacks left open are dropped
+    private static volatile int generation;
+    private static final ThreadLocal<SpanStack> STACKS = new ThreadLocal<SpanStack>() {
+        @Override
+        protected SpanStack initialValue() {
+            return new SpanStack();
+        }
+    };
+
+    // the ring buffer, slot = sequence number & (CAPACITY - 1)
+    private static final AtomicLong NEXT = new AtomicLong();
+    private static final String[] NAMES = new String[CAPACITY];
+    private static final String[] DETAILS = new String[CAPACITY];
+    private static final long[] STARTS = new long[CAPACITY];
+    private static final long[] DURATIONS = new long[CAPACITY];
+    private static final long[] THREADS = new long[CAPACITY];
+    private static final Map<Long, String> THREAD_NAMES = new ConcurrentHashMap<Long, String>();
+    private static long origin = System.nanoTime();
+
+    private Tracer() {
+    }
+
+    /**
+     * Is tracing on?
+     *
+     * @return true if spans are being traced
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Forgets the spans traced before and starts tracing.
+     */
+    public static synchronized void start() {
+        NEXT.set(0);
+        origin = System.nanoTime();
+        generation++;
+        enabled = true;
+    }
+
+    /**
+     * Stops tracing. The spans traced are kept for dump.
+     */
+    public static synchronized void stop() {
+        enabled = false;
+    }
+
+    /**
+     * Opens a span on this thread.
+     *
+     * @param name what the span is, such as "Game.playerMove"
+     */
+    public static void begin(String name) {
+        if (enabled) {
+            STACKS.get().push(name, null);
+        }
+    }
+
+    /**
+     * Opens a span on this thread, with a detail shown with it.
+     *
+     * @param name what the span is, such as "KeyHandler.dispatchKeyEvent"
+     * @param detail more about it, such as the key pressed
+     */
+    public static void begin(String name, String detail) {
+        if (enabled) {
+            STACKS.get().push(name, detail);
+        }
+    }
+
+    /**
+     * Closes the span opened last on this thread.
+     */
+    public static void end() {
+        if (enabled) {
+            STACKS.get().pop();
+        }
+    }
+
+    /**
+     * Writes the spans traced, in the Chrome trace event format. Best done
+     * after stop, so no span is written while it is being dumped.
+     *
+     * @param file the file to write
+     * @return the number of spans written
+     * @throws IOException if the file cannot be written
+     */
+    public static synchronized int dump(File file) throws IOException {
+        long last = NEXT.get();
+        long first = Math.max(0, last - CAPACITY);
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        try {
+            out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+            boolean comma = false;
+            for (Map.Entry<Long, String> thread : THREAD_NAMES.entrySet()) {
+                if (comma) {
+                    out.write(",\n");
+                }
+                out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey()
+                        + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+                comma = true;
+            }
+            for (long sequence = first; sequence < last; sequence++) {
+                int slot = (int) sequence & (CAPACITY - 1);
+                if (NAMES[slot] == null) {
+                    continue;
+                }
+                if (comma) {
+                    out.write(",\n");
+                }
+                out.write("{\"name\":" + quote(NAMES[slot]) + ",\"cat\":\"kiwi\",\"ph\":\"X\",\"pid\":1,\"tid\":"
+                        + THREADS[slot] + ",\"ts\":" + micros(STARTS[slot]) + ",\"dur\":" + micros(DURATIONS[slot]));
+                if (DETAILS[slot] != null) {
+                    out.write(",\"args\":{\"detail\":" + quote(DETAILS[slot]) + "}");
+                }
+                out.write("}");
+                comma = true;
+            }
+            out.write("\n]}\n");
+        } finally {
+            out.close();
+        }
+        return (int) (last - first);
+    }
+
+    /**
+     * *******************************************************************************************************************************
+     * Private methods
+     * *******************************************************************************************************************************
+     */
+    private static void record(String name, String detail, long start, long duration) {
+        int slot = (int) NEXT.getAndIncrement() & (CAPACITY - 1);
+        NAMES[slot] = name;
+        DETAILS[slot] = detail;
+        STARTS[slot] = start - origin;
+        DURATIONS[slot] = duration;
+        THREADS[slot] = Thread.currentThread().getId();
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * The spans open on one thread.
+     */
+    private static final class SpanStack {
+
+        private final String[] names = new String[MAX_DEPTH];
+        private final String[] details = new String[MAX_DEPTH];
+        private final long[] starts = new long[MAX_DEPTH];
+        private int depth;
+        private int generation = -1;
+
+        void push(String name, String detail) {
+            if (generation != Tracer.generation) {
+                // spans opened before tracing started again are not closed
+                depth = 0;
+                generation = Tracer.generation;
+                Thread thread = Thread.currentThread();
+                THREAD_NAMES.put(thread.getId(), thread.getName());
+            }
+            if (depth < MAX_DEPTH) {
+                names[depth] = name;
+                details[depth] = detail;
+                starts[depth] = System.nanoTime();
+            }
+            depth++;
+        }
+
+        void pop() {
+            if (depth == 0 || generation != Tracer.generation) {
+                // opened before tracing started
+                return;
+            }
+            depth--;
+            if (depth < MAX_DEPTH) {
+                record(names[depth], details[depth], starts[depth], System.nanoTime() - starts[depth]);
+                names[depth] = null;
+                details[depth] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package nz.ac.aut.ense701.gameModel;
+
+/**
+ * Fixed size table of game states already searched, for MapSolver.
+ *
+ * An entry remembers that a state (by Zobrist key) was searched in an
+ * iteration after a number of moves with some stamina left. Reaching the same
+ * state again in the same iteration after as many moves or more with no more
+ * stamina cannot lead anywhere new, since more stamina is never worse.
+ *
+ * Entries live in buckets of four; when a bucket is full the entry from the
+ * oldest iteration, then the one reached after the most moves, is replaced.
+ * Losing an entry only costs searching that state again.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+final class TranspositionTable {
+
+    private static final int BUCKET = 4;
+    /** Bytes used by one entry. */
+    static final int ENTRY_BYTES = 8 + 8 + 4 + 4;
+
+    private final long[] keys;
+    private final double[] stamina;
+    private final int[] moves;
+    private final int[] iteration;
+    private final int bucketMask;
+    private long stores;
+
+    /**
+     * Creates a table that uses no more than about memoryBytes.
+     *
+     * @param memoryBytes memory to use
+     */
+    TranspositionTable(long memoryBytes) {
+        long buckets = Math.max(1, memoryBytes / (ENTRY_BYTES * BUCKET));
+        int bucketBits = 63 - Long.numberOfLeadingZeros(Math.min(buckets, 1L << 26));
+        int entries = (1 << bucketBits) * BUCKET;
+        keys = new long[entries];
+        stamina = new double[entries];
+        moves = new int[entries];
+        iteration = new int[entries];
+        bucketMask = (1 << bucketBits) - 1;
+    }
+
+    /**
+     * Has the state been searched in this iteration after no more moves and
+     * with at least this much stamina? If not, records it as searched.
+     *
+     * @param key Zobrist key of the state
+     * @param stateMoves moves made to reach the state
+     * @param stateStamina stamina left in the state
+     * @param currentIteration iteration of the search, never 0
+     * @return true if the state can be skipped
+     */
+    boolean probeAndStore(long key, int stateMoves, double stateStamina, int currentIteration) {
+        int base = (int) (mix(key) & bucketMask) * BUCKET;
+        int victim = base;
+        for (int i = base; i < base + BUCKET; i++) {
+            if (iteration[i] == currentIteration && keys[i] == key) {
+                if (moves[i] <= stateMoves && stamina[i] >= stateStamina) {
+                    return true;
+                }
+                victim = i;
+                break;
+            }
+            if (iteration[i] < iteration[victim]
+                    || (iteration[i] == iteration[victim] && moves[i] > moves[victim])) {
+                victim = i;
+            }
+        }
+        keys[victim] = key;
+        moves[victim] = stateMoves;
+        stamina[victim] = stateStamina;
+        iteration[victim] = currentIteration;
+        stores++;
+        return false;
+    }
+
+    /**
+     * Number of entries the table can hold.
+     *
+     * @return capacity
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Number of states recorded since the table was created.
+     *
+     * @return states stored
+     */
+    long getStores() {
+        return stores;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -1,23 +1,26 @@
 package nz.ac.aut.ense701.gui;
 
 import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import javax.swing.JOptionPane;
+import nz.ac.aut.ense701.gameModel.AssetBundle;
 
 /**
  *
  * @author James Higgins
  */
 public class GameInstructions {
+    // read once, by the asset warm-up or the first time they are shown
+    private static volatile String instructionText;
+    
     /**
      * Static method which creates a JOptionPane pop-up box containing the games instructions
      */
     public static void instructions(){
         
-        String str = parseInstructionFile("instructions/gameinstructions.txt");   
+        String str = getInstructionText();   
         if(str != ""){
             JOptionPane.showMessageDialog(null, str, "Game Instructions", JOptionPane.PLAIN_MESSAGE); 
 
@@ -28,11 +31,23 @@ public class GameInstructions {
         }
      
     }
+    /**
+     * The games instructions formatted with HTML, read the first time they are needed.
+     * 
+     * @return the instructions, an empty string if they could not be read
+     */
+    public static String getInstructionText(){
+        if(instructionText == null){
+            instructionText = parseInstructionFile("instructions/gameinstructions.txt");
+        }
+        return instructionText;
+    }
+    
     /**
      * Reads a text file line by line, each line is then added to a string, also formats the text
      * into an HTML format.
      * 
-     * @param file takes a String of where the file containing game instructions is located
+     * @param file takes the asset name of the file containing game instructions
      * @return a string containing the games instructions formatted with HTML   
     */
     public static String parseInstructionFile(String file){
@@ -41,8 +56,7 @@ public class GameInstructions {
         {
         
             // Open the file
-            FileInputStream fileStream = new FileInputStream(file);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(fileStream));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(AssetBundle.getDefault().open(file)));
             
             //Add html tags and the title for the popup box
             output = "<html><body><p style=\"color:#FF0000\" ;>Game Instructions</p><br>";
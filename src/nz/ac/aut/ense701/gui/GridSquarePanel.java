@@ -1,13 +1,18 @@
 package nz.ac.aut.ense701.gui;
 
 import java.awt.Color;
+import java.awt.Graphics;
 import java.awt.Image;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javax.swing.ImageIcon;
 import javax.swing.border.Border;
 import javax.swing.border.LineBorder;
 import nz.ac.aut.ense701.gameModel.Game;
 import nz.ac.aut.ense701.gameModel.Occupant;
+import nz.ac.aut.ense701.gameModel.SpriteAtlas;
 import nz.ac.aut.ense701.gameModel.Terrain;
+import nz.ac.aut.ense701.gameModel.Tracer;
 
 /*
  * Panel for representing a single GridSquare of the island on the GUI.
@@ -32,6 +37,16 @@ public class GridSquarePanel extends javax.swing.JPanel
         initComponents();
     }
 
+    /**
+     * Turns the overlay that shades squares the player cannot reach with the
+     * stamina left on or off.
+     * @param showReachable true to show the overlay
+     */
+    public void setShowReachable(boolean showReachable)
+    {
+        this.showReachable = showReachable;
+    }
+
     /**
      * Updates the representation of the grid square panel.
      */
@@ -61,25 +76,19 @@ public class GridSquarePanel extends javax.swing.JPanel
             
             switch (occupants.length){
                 case 1:
-                    centreLabel.setIcon(new ImageIcon(occupants[0].getOccImage().getScaledInstance(21,51, 
-                            java.awt.Image.SCALE_SMOOTH)));
+                    centreLabel.setIcon(gridIcon(occupants[0]));
                     leftLabel.setIcon(null);
                     rightLabel.setIcon(null);                    
                     break;
                 case 2:
-                    centreLabel.setIcon(new ImageIcon(occupants[0].getOccImage().getScaledInstance(21, 51,
-                            java.awt.Image.SCALE_SMOOTH)));
-                    leftLabel.setIcon(new ImageIcon(occupants[1].getOccImage().getScaledInstance(21, 51,
-                            java.awt.Image.SCALE_SMOOTH)));
+                    centreLabel.setIcon(gridIcon(occupants[0]));
+                    leftLabel.setIcon(gridIcon(occupants[1]));
                     rightLabel.setIcon(null);
                     break;
                 case 3:
-                    centreLabel.setIcon(new ImageIcon(occupants[0].getOccImage().getScaledInstance(21, 51,
-                            java.awt.Image.SCALE_SMOOTH)));
-                    leftLabel.setIcon(new ImageIcon(occupants[1].getOccImage().getScaledInstance(21, 51,
-                            java.awt.Image.SCALE_SMOOTH)));
-                    rightLabel.setIcon(new ImageIcon(occupants[2].getOccImage().getScaledInstance(21, 51,
-                            java.awt.Image.SCALE_SMOOTH)));
+                    centreLabel.setIcon(gridIcon(occupants[0]));
+                    leftLabel.setIcon(gridIcon(occupants[1]));
+                    rightLabel.setIcon(gridIcon(occupants[2]));
                     break;
                 default:
                     centreLabel.setIcon(null);
@@ -100,15 +109,58 @@ public class GridSquarePanel extends javax.swing.JPanel
             // set border colour according to 
             // whether the player is in the grid square or not
             setBorder(game.hasPlayer(row,column) ? activeBorder : normalBorder);
+            outOfReach = showReachable && !game.isReachable(row, column);
         }
         else
         {
+            outOfReach = false;
             this.setBackground(null);
             centreLabel.setIcon(null);
             leftLabel.setIcon(null);
             rightLabel.setIcon(null);
             setBorder(normalBorder);
         }
+        repaint();
+    }
+    
+    /**
+     * Paints the square, shaded if it is out of reach. The occupant labels
+     * are painted afterwards so they stay clear.
+     * @param g the graphics to paint on
+     */
+    @Override
+    protected void paintComponent(Graphics g)
+    {
+        Tracer.begin("GridSquarePanel.paintComponent");
+        super.paintComponent(g);
+        if ( outOfReach )
+        {
+            g.setColor(outOfReachShade);
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+        Tracer.end();
+    }
+    
+    /**
+     * The icon of an occupant on the grid, its sprite at the grid size.
+     * Occupants of the same kind share one icon.
+     * @param occupant the occupant
+     * @return the icon, null if the occupant has no image
+     */
+    private static ImageIcon gridIcon(Occupant occupant)
+    {
+        Image image = occupant.getOccImage();
+        if ( image == null )
+        {
+            return null;
+        }
+        ImageIcon icon = gridIcons.get(image);
+        if ( icon == null )
+        {
+            icon = new ImageIcon(SpriteAtlas.resize(image, SpriteAtlas.Size.GRID));
+            gridIcons.put(image, icon);
+        }
+        return icon;
     }
     
     /** This method is called from within the constructor to
@@ -138,7 +190,12 @@ public class GridSquarePanel extends javax.swing.JPanel
     
     private Game game;
     private int row, column;
+    private boolean showReachable;
+    private boolean outOfReach;
     
     private static final Border normalBorder = new LineBorder(Color.BLACK, 1);
     private static final Border activeBorder = new LineBorder(Color.RED, 3);
+    private static final Color outOfReachShade = new Color(0, 0, 0, 110);
+    // grid icons by occupant image, only used on the event dispatch thread
+    private static final Map<Image, ImageIcon> gridIcons = new WeakHashMap<Image, ImageIcon>();
 }
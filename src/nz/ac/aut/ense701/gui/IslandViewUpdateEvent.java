@@ -0,0 +1,52 @@
+package nz.ac.aut.ense701.gui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for KiwiCountUI updating itself from the game: every
+ * grid square panel and the player's details.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+@Name("nz.ac.aut.ense701.IslandViewUpdate")
+@Label("Island View Update")
+@Category({"Kiwi Island", "User Interface"})
+@Description("The game window updated from the game")
+final class IslandViewUpdateEvent extends Event {
+
+    @Label("Map")
+    String map;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Columns")
+    int columns;
+
+    @Label("Cells Refreshed")
+    int cellsRefreshed;
+
+    /**
+     * Ends the event and records it if the recording wants it.
+     *
+     * @param map the map being played
+     * @param rows rows of the island
+     * @param columns columns of the island
+     * @param cellsRefreshed grid square panels updated
+     */
+    void finish(String map, int rows, int columns, int cellsRefreshed) {
+        end();
+        if (shouldCommit()) {
+            this.map = map;
+            this.rows = rows;
+            this.columns = columns;
+            this.cellsRefreshed = cellsRefreshed;
+            commit();
+        }
+    }
+}
@@ -6,20 +6,29 @@ import java.awt.GridLayout;
 import java.awt.Image;
 import java.awt.KeyEventDispatcher;
 import java.awt.KeyboardFocusManager;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import static java.awt.event.KeyEvent.*;
 import java.io.File;
-import javax.imageio.ImageIO;
+import java.io.IOException;
 import javax.swing.ImageIcon;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
 import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import nz.ac.aut.ense701.gameModel.Game;
 import nz.ac.aut.ense701.gameModel.GameEventListener;
+import nz.ac.aut.ense701.gameModel.GameSnapshot;
 import nz.ac.aut.ense701.gameModel.GameState;
+import nz.ac.aut.ense701.gameModel.MonteCarloAgent;
 import nz.ac.aut.ense701.gameModel.MoveDirection;
 import nz.ac.aut.ense701.gameModel.Music;
 import nz.ac.aut.ense701.gameModel.Occupant;
 import nz.ac.aut.ense701.gameModel.SoundsSingleton;
+import nz.ac.aut.ense701.gameModel.SpriteAtlas;
+import nz.ac.aut.ense701.gameModel.Tracer;
 /*
  * User interface form for Kiwi Island.
  * 
@@ -43,14 +52,12 @@ public class KiwiCountUI
     {
         assert game != null : "Make sure game object is created before UI";
         this.game = game;
-        this.sound = SoundsSingleton.getSoundsSingletonReference();
-        this.music = new Music();
-        music.startMusic();
         setAsGameListener();
         initComponents();
         initIslandGrid();
         update();
-        GameInstructions.instructions();
+        startAudio();
+        repaintWhenSpritesLoad();
         
         //Keyboard manager for global hotkeys
         KeyboardFocusManager keyManager = KeyboardFocusManager.getCurrentKeyboardFocusManager();
@@ -65,12 +72,17 @@ public class KiwiCountUI
     @Override
     public void gameStateChanged()
     {
+        gameChanges++;
         update();
+        if ( game.getState() != GameState.PLAYING )
+        {
+            setAutoPlay(false);
+        }
         
         // check for "game over" or "game won"
         if ( game.getState() == GameState.LOST )
         {
-            sound.playDeath();
+            SoundsSingleton.getSoundsSingletonReference().playDeath();
             JOptionPane.showMessageDialog(
                     this, 
                     game.getLoseMessage(), "Game over!",
@@ -79,7 +91,7 @@ public class KiwiCountUI
         }
         else if ( game.getState() == GameState.WON )
         {
-            sound.playwin();
+            SoundsSingleton.getSoundsSingletonReference().playwin();
             JOptionPane.showMessageDialog(
                     this, 
                     game.getWinMessage(), "Well Done!",
@@ -95,6 +107,224 @@ public class KiwiCountUI
         }
     }
     
+    /**
+     * Starts or stops the computer playing the game.
+     * 
+     * @param on true to start auto-play
+     */
+    private void setAutoPlay(boolean on)
+    {
+        if ( on && autoPlayTimer == null )
+        {
+            try
+            {
+                game.getSnapshot();
+            }
+            catch ( IllegalArgumentException e )
+            {
+                refuseAutoPlay(e);
+                return;
+            }
+            if ( autoPlayer == null )
+            {
+                autoPlayer = new MonteCarloAgent();
+                autoPlayer.setThreads(Runtime.getRuntime().availableProcessors());
+                autoPlayer.setThinkingTime(AUTO_PLAY_THINKING_MILLIS);
+            }
+            autoPlayTimer = new Timer(AUTO_PLAY_DELAY_MILLIS, new ActionListener()
+            {
+                @Override
+                public void actionPerformed(ActionEvent e)
+                {
+                    autoPlayStep();
+                }
+            });
+            autoPlayTimer.start();
+        }
+        else if ( !on && autoPlayTimer != null )
+        {
+            autoPlayTimer.stop();
+            autoPlayTimer = null;
+        }
+    }
+    
+    /**
+     * Saves the game to SAVE_FILE and tells the player whether it worked.
+     */
+    private void saveGame()
+    {
+        if ( game.saveGame(SAVE_FILE, true) )
+        {
+            descFeild.setText("Game saved to " + SAVE_FILE + ", press F9 to load it again.");
+        }
+        else
+        {
+            JOptionPane.showMessageDialog(
+                    this,
+                    "The game could not be saved to " + new File(SAVE_FILE).getAbsolutePath() + ".",
+                    "Save Game", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    /**
+     * Loads the game saved in SAVE_FILE and tells the player whether it
+     * worked.
+     */
+    private void loadGame()
+    {
+        if ( game.loadGame(SAVE_FILE) )
+        {
+            descFeild.setText("Game loaded from " + SAVE_FILE + ".");
+        }
+        else
+        {
+            JOptionPane.showMessageDialog(
+                    this,
+                    "No saved game could be loaded from " + new File(SAVE_FILE).getAbsolutePath()
+                    + ". Press F5 to save a game.",
+                    "Load Game", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    /**
+     * Tells the player the agent cannot play the island as it is, which
+     * happens when there are more animals or items near the player than
+     * GameRules can hold.
+     * 
+     * @param e why the game could not be taken for the agent
+     */
+    private void refuseAutoPlay(IllegalArgumentException e)
+    {
+        JOptionPane.showMessageDialog(
+                this,
+                "Auto-play cannot play this island: " + e.getMessage(),
+                "Auto-play", JOptionPane.WARNING_MESSAGE);
+    }
+    
+    /**
+     * Lets the agent choose the next action in the background and carries it
+     * out, unless the game changed while the agent was thinking.
+     */
+    private void autoPlayStep()
+    {
+        if ( autoPlayThinking || game.getState() != GameState.PLAYING )
+        {
+            return;
+        }
+        final GameSnapshot snapshot;
+        try
+        {
+            snapshot = game.getSnapshot();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            setAutoPlay(false);
+            refuseAutoPlay(e);
+            return;
+        }
+        autoPlayThinking = true;
+        final int changesBefore = gameChanges;
+        new SwingWorker<Integer, Void>()
+        {
+            @Override
+            protected Integer doInBackground()
+            {
+                return autoPlayer.chooseAction(snapshot);
+            }
+            
+            @Override
+            protected void done()
+            {
+                autoPlayThinking = false;
+                try
+                {
+                    int action = get();
+                    if ( autoPlayTimer != null && changesBefore == gameChanges && action >= 0 )
+                    {
+                        game.performAction(action);
+                    }
+                }
+                catch ( Exception e )
+                {
+                    System.err.println("Auto-play failed: " + e.getMessage());
+                    setAutoPlay(false);
+                }
+            }
+        }.execute();
+    }
+    
+    /**
+     * Loads the sound effects and starts the music on a thread of their own,
+     * so the game is shown without waiting for JavaFX media to start. Sounds
+     * played before then wait for the sound effects to load.
+     */
+    private void startAudio()
+    {
+        Thread audio = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                SoundsSingleton.getSoundsSingletonReference();
+                Music backgroundMusic = new Music();
+                backgroundMusic.startMusic();
+                music = backgroundMusic;
+            }
+        }, "audio");
+        audio.setDaemon(true);
+        audio.start();
+    }
+    
+    /**
+     * Paints the window again when a page of sprites has been read, so
+     * sprites drawn from another page meanwhile are drawn sharp, for example
+     * after the window is moved to a screen with another scale.
+     */
+    private void repaintWhenSpritesLoad()
+    {
+        try
+        {
+            SpriteAtlas.getDefault().addListener(new SpriteAtlas.Listener()
+            {
+                @Override
+                public void pageLoaded(double scale)
+                {
+                    // safe to call from any thread
+                    repaint();
+                }
+            });
+        }
+        catch ( IOException e )
+        {
+            System.err.println("Unable to read the sprites, " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Starts tracing, or stops it and writes the trace to a file that can be
+     * opened in chrome://tracing or Perfetto.
+     */
+    private void toggleTracing()
+    {
+        if ( !Tracer.isEnabled() )
+        {
+            Tracer.start();
+            System.err.println("Tracing started, press F8 again to stop");
+            return;
+        }
+        Tracer.stop();
+        File file = new File("trace-" + System.currentTimeMillis() + ".json");
+        try
+        {
+            int spans = Tracer.dump(file);
+            System.err.println("Wrote " + spans + " spans to " + file.getAbsolutePath());
+        }
+        catch ( IOException e )
+        {
+            System.err.println("Unable to write trace to '" + file + "'");
+        }
+    }
+    
      private void setAsGameListener()
     {
        game.addGameEventListener(this); 
@@ -105,15 +335,18 @@ public class KiwiCountUI
      */
     private void update()
     {
-        // update the grid square panels
-        Component[] components = pnlIsland.getComponents();
-        for ( Component c : components )
+        IslandViewUpdateEvent event = new IslandViewUpdateEvent();
+        event.begin();
+        Tracer.begin("KiwiCountUI.update");
+        // a new game, a saved game or a changed map file can be another size
+        if ( islandSizeChanged() )
         {
-            // all components in the panel are GridSquarePanels,
-            // so we can safely cast
-            GridSquarePanel gsp = (GridSquarePanel) c;
-            gsp.update();
+            pnlIsland.removeAll();
+            initIslandGrid();
+            pnlIsland.revalidate();
         }
+        // update the grid square panels
+        updateIslandGrid(pnlIsland, showReachable);
         
         // update player information
         int[] playerValues = game.getPlayerValues();
@@ -155,6 +388,9 @@ public class KiwiCountUI
         btnCollect.setEnabled(false);
         btnCount.setEnabled(false);
         
+        Tracer.end();
+        event.finish(game.getPrevMap(), game.getNumRows(), game.getNumColumns(),
+                pnlIsland.getComponentCount());
     }
     
     /** This method is called from within the constructor to
@@ -612,7 +848,7 @@ public class KiwiCountUI
             descFeild.setText(game.getOccupantDescription((Occupant)occ));
             try {
                 Image img = occ.getOccImage();
-                Image newimg = img.getScaledInstance( 70, 78,  java.awt.Image.SCALE_SMOOTH) ;
+                Image newimg = SpriteAtlas.resize(img, SpriteAtlas.Size.DESCRIPTION);
                 jButton2.setIcon(new ImageIcon(newimg));
                 } catch (Exception ex) {
                     System.out.println(ex);
@@ -624,8 +860,8 @@ public class KiwiCountUI
         } else{
             try {
                 descFeild.setText("");
-                Image img = ImageIO.read(new File("images/doc.jpg"));
-                Image newimg = img.getScaledInstance( 70, 78,  java.awt.Image.SCALE_SMOOTH ) ;
+                Image img = Game.getImage("images/doc.jpg");
+                Image newimg = SpriteAtlas.resize(img, SpriteAtlas.Size.DESCRIPTION);
                 jButton2.setIcon(new ImageIcon(newimg));
                 } catch (Exception ex) {
                     System.out.println(ex);
@@ -650,7 +886,7 @@ public class KiwiCountUI
             descFeild.setText(game.getOccupantDescription((Occupant)item));
             try {
                 Image img = item.getOccImage();
-                Image newimg = img.getScaledInstance( 70, 78,  java.awt.Image.SCALE_SMOOTH ) ;
+                Image newimg = SpriteAtlas.resize(img, SpriteAtlas.Size.DESCRIPTION);
                 jButton2.setIcon(new ImageIcon(newimg));
                 } catch (Exception ex) {
                     System.out.println(ex);
@@ -661,8 +897,8 @@ public class KiwiCountUI
         } else {
             try {
                 descFeild.setText("");
-                Image img = ImageIO.read(new File("Images/doc.jpg"));
-                Image newimg = img.getScaledInstance( 70, 78,  java.awt.Image.SCALE_SMOOTH ) ;
+                Image img = Game.getImage("images/doc.jpg");
+                Image newimg = SpriteAtlas.resize(img, SpriteAtlas.Size.DESCRIPTION);
                 jButton2.setIcon(new ImageIcon(newimg));
                 } catch (Exception ex) {
                     System.out.println(ex);
@@ -679,6 +915,28 @@ public class KiwiCountUI
      * Creates and initialises the island grid.
      */
     private void initIslandGrid()
+    {
+        initIslandGrid(pnlIsland, game);
+    }
+    
+    /**
+     * Is the island a different size from the grid showing it?
+     * @return true if the grid has to be created again
+     */
+    private boolean islandSizeChanged()
+    {
+        GridLayout layout = (GridLayout) pnlIsland.getLayout();
+        return layout.getRows() != game.getNumRows() || layout.getColumns() != game.getNumColumns();
+    }
+    
+    /**
+     * Fills a panel with a grid square panel for every square of the island.
+     * Also used by the rendering benchmarks, which draw the island without
+     * a frame.
+     * @param pnlIsland the panel to fill
+     * @param game the game to represent
+     */
+    static void initIslandGrid(JPanel pnlIsland, Game game)
     {
         // Add the grid
         int rows    = game.getNumRows();
@@ -697,6 +955,26 @@ public class KiwiCountUI
         }
     }
     
+    /**
+     * Updates every grid square panel of a panel filled by initIslandGrid.
+     * @param pnlIsland the panel
+     * @param showReachable true to shade squares out of reach
+     */
+    static void updateIslandGrid(JPanel pnlIsland, boolean showReachable)
+    {
+        Tracer.begin("KiwiCountUI.updateIslandGrid");
+        Component[] components = pnlIsland.getComponents();
+        for ( Component c : components )
+        {
+            // all components in the panel are GridSquarePanels,
+            // so we can safely cast
+            GridSquarePanel gsp = (GridSquarePanel) c;
+            gsp.setShowReachable(showReachable);
+            gsp.update();
+        }
+        Tracer.end();
+    }
+    
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton btnCollect;
     private javax.swing.JButton btnCount;
@@ -724,8 +1002,20 @@ public class KiwiCountUI
 
     //description set up here
     private Game game;
-    private SoundsSingleton sound;
-    private Music music;
+    // kept so the music is not stopped by the garbage collector
+    private volatile Music music;
+    
+    private boolean showReachable = false;
+    
+    // computer player, started and stopped with P
+    private static final int AUTO_PLAY_DELAY_MILLIS = 300;
+    private static final long AUTO_PLAY_THINKING_MILLIS = 200;
+    private MonteCarloAgent autoPlayer;
+    private Timer autoPlayTimer;
+    private boolean autoPlayThinking = false;
+    private int gameChanges = 0;
+    
+    private static final String SAVE_FILE = "savegame.kis";
 
     
       
@@ -733,6 +1023,7 @@ public class KiwiCountUI
         @Override
         public boolean dispatchKeyEvent(KeyEvent e) {
             if (e.getID() == KeyEvent.KEY_PRESSED) {
+                Tracer.begin("KeyHandler.dispatchKeyEvent");
                 switch (e.getKeyCode()){
                     case VK_DOWN:
                     case VK_S:
@@ -754,7 +1045,32 @@ public class KiwiCountUI
                         game.playerMove(MoveDirection.WEST);
                         break;
                         
+                    case VK_F5:
+                        saveGame();
+                        break;
+                        
+                    case VK_F9:
+                        loadGame();
+                        break;
+                        
+                    case VK_R:
+                        // show or hide the squares reachable with the stamina left
+                        showReachable = !showReachable;
+                        update();
+                        break;
+                        
+                    case VK_P:
+                        // let the computer play, or take over again
+                        setAutoPlay(autoPlayTimer == null);
+                        break;
+                        
+                    case VK_F8:
+                        // trace a few moves, for chrome://tracing
+                        toggleTracing();
+                        break;
+                        
                 }
+                Tracer.end();
             }
             return false;
         }
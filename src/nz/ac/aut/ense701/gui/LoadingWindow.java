@@ -0,0 +1,77 @@
+package nz.ac.aut.ense701.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JWindow;
+import javax.swing.SwingUtilities;
+import nz.ac.aut.ense701.gameModel.AssetWarmup;
+
+/**
+ * A small window that shows how far loading the game's assets has got
+ * while the game starts.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class LoadingWindow
+    extends JWindow
+    implements AssetWarmup.Listener
+{
+    /**
+     * Creates the window, centred on the screen, showing the assets already
+     * loaded. Call on the event dispatch thread.
+     * @param warmup the warm-up to show
+     */
+    public LoadingWindow(AssetWarmup warmup)
+    {
+        progress = new JProgressBar(0, Math.max(1, warmup.getTotal()));
+        progress.setValue(warmup.getDone());
+        progress.setPreferredSize(new Dimension(320, 18));
+        lblAsset = new JLabel("Loading Kiwi Island...");
+
+        JPanel content = new JPanel(new BorderLayout(0, 6));
+        content.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(Color.DARK_GRAY),
+                BorderFactory.createEmptyBorder(12, 12, 12, 12)));
+        content.add(lblAsset, BorderLayout.NORTH);
+        content.add(progress, BorderLayout.CENTER);
+        setContentPane(content);
+        pack();
+        setLocationRelativeTo(null);
+        warmup.addListener(this);
+    }
+
+    /**
+     * Shows an asset has been loaded. Called by the warm-up, on the thread
+     * that loaded it.
+     * @param name the asset
+     * @param done how many assets have been loaded so far
+     * @param total how many assets there are
+     */
+    @Override
+    public void assetLoaded(final String name, final int done, final int total)
+    {
+        SwingUtilities.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if ( done > progress.getValue() )
+                {
+                    progress.setValue(done);
+                    lblAsset.setText("Loaded " + name);
+                }
+            }
+        });
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final JProgressBar progress;
+    private final JLabel lblAsset;
+}
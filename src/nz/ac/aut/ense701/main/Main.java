@@ -1,8 +1,22 @@
 package nz.ac.aut.ense701.main;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import javax.swing.JOptionPane;
+import javax.swing.UIManager;
+import nz.ac.aut.ense701.gameModel.AssetWarmup;
+import nz.ac.aut.ense701.gameModel.DailyMapService;
 import nz.ac.aut.ense701.gameModel.Game;
+import nz.ac.aut.ense701.gameModel.GameMetrics;
+import nz.ac.aut.ense701.gameModel.MapCatalog;
+import nz.ac.aut.ense701.gameModel.MapDefinition;
+import nz.ac.aut.ense701.gameModel.MapWatcher;
+import nz.ac.aut.ense701.gui.GameInstructions;
 import nz.ac.aut.ense701.gui.KiwiCountUI;
-import nz.ac.aut.ense701.gameModel.Questions;
+import nz.ac.aut.ense701.gui.LoadingWindow;
 
 /**
  * Kiwi Count Project
@@ -19,19 +33,206 @@ public class Main
      */
     public static void main(String[] args) 
     {
+        // show the game metrics, if they are on
+        GameMetrics.startReporting();
+        // load the assets several at a time, the instructions with them
+        final AssetWarmup warmup = AssetWarmup.forGame();
+        warmup.add(AssetWarmup.Stage.TEXT, "instructions", new Runnable() 
+        {
+            @Override
+            public void run() 
+            {
+                GameInstructions.getInstructionText();
+            }
+        });
+        warmup.start();
+        // show how loading is going, loading the look and feel meanwhile
+        java.awt.EventQueue.invokeLater(new Runnable() 
+        {
+            @Override
+            public void run() 
+            {
+                UIManager.getLookAndFeelDefaults();
+                loadingWindow = new LoadingWindow(warmup);
+                loadingWindow.setVisible(true);
+            }
+        });
+        // the game needs its maps and sprites, but not its sounds
+        try
+        {
+            warmup.awaitStage(AssetWarmup.Stage.SPRITES);
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
         // create the game object
         final Game game = new Game();
-        // create the GUI for the game
-        final KiwiCountUI  gui  = new KiwiCountUI(game);
-        // make the GUI visible
+        if ( !game.hasMap() )
+        {
+            reportNoMaps();
+            return;
+        }
+        // pick up changes to map files while the game runs, and the island
+        // of the day when it is ready
+        MapWatcher watcher = watchMaps(game);
+        addDailyMap(watcher);
+        // create the GUI for the game and make it visible, then show the
+        // instructions over it
         java.awt.EventQueue.invokeLater(new Runnable() 
         {
             @Override
             public void run() 
             {
+                KiwiCountUI gui = new KiwiCountUI(game);
+                gui.addWindowListener(new FirstFrameListener());
                 gui.setVisible(true);
+                loadingWindow.dispose();
+                java.awt.EventQueue.invokeLater(new Runnable() 
+                {
+                    @Override
+                    public void run() 
+                    {
+                        GameInstructions.instructions();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Tells the player there are no maps to play, in place of the game, and
+     * ends the game.
+     */
+    private static void reportNoMaps()
+    {
+        java.awt.EventQueue.invokeLater(new Runnable() 
+        {
+            @Override
+            public void run() 
+            {
+                loadingWindow.dispose();
+                JOptionPane.showMessageDialog(null,
+                        "No maps found in '" + Game.MAPS_FOLDER + "' or in the game's assets.",
+                        "Kiwi Island", JOptionPane.ERROR_MESSAGE);
+                System.exit(1);
+            }
+        });
+    }
+
+    /**
+     * Adds the island of the day to the map catalog when it is ready. It is
+     * only generated on the first launch of the day, which can take seconds,
+     * so it is made on a thread of its own while the game is played; later
+     * launches read it from the store.
+     *
+     * @param watcher the watcher keeping the map catalog
+     */
+    private static void addDailyMap(final MapWatcher watcher)
+    {
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    watcher.addEntry(MapCatalog.catalog(new DailyMapService(DAILY_FOLDER).getTodaysMap()));
+                    publishCatalog(watcher);
+                }
+                catch ( IOException e )
+                {
+                    System.err.println("No island of the day, " + e.getMessage());
+                }
+            }
+        }, "island of the day");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Makes the watcher's catalog the one new games pick from. Called from
+     * the watcher thread and the island of the day thread, so the latest
+     * catalog is never replaced by an older one.
+     *
+     * @param watcher the watcher keeping the map catalog
+     */
+    private static synchronized void publishCatalog(MapWatcher watcher)
+    {
+        Game.setMapCatalog(watcher.getCatalog());
+    }
+
+    /**
+     * Keeps the map catalog up to date as map files change, and restarts
+     * the map being played when its file changes.
+     *
+     * @param game the game
+     * @return the watcher
+     */
+    private static MapWatcher watchMaps(final Game game)
+    {
+        final MapWatcher watcher = new MapWatcher(Game.MAPS_FOLDER, Game.getMapCatalog(), MAP_RELOAD_DELAY);
+        watcher.addListener(new MapWatcher.Listener()
+        {
+            @Override
+            public void mapChanged(final File file, final MapDefinition map)
+            {
+                publishCatalog(watcher);
+                if ( map != null )
+                {
+                    java.awt.EventQueue.invokeLater(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            if ( file.getPath().equals(game.getPrevMap()) )
+                            {
+                                game.reloadMap(map);
+                            }
+                        }
+                    });
+                }
             }
         });
+        try
+        {
+            watcher.start();
+        }
+        catch ( IOException e )
+        {
+            System.err.println("Not watching maps for changes, " + e.getMessage());
+        }
+        return watcher;
+    }
+
+    /**
+     * Reports how long after the JVM started the game was first shown, when
+     * the game metrics are on, and ends the game there when it is started
+     * with -Dkiwiisland.exitOnFirstFrame=true, as the AppCDS training run
+     * in build.xml is.
+     */
+    private static class FirstFrameListener extends WindowAdapter
+    {
+        @Override
+        public void windowOpened(WindowEvent e)
+        {
+            if ( GameMetrics.ENABLED )
+            {
+                long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                System.err.println("First frame shown " + millis + " ms after the JVM started");
+            }
+            if ( Boolean.getBoolean("kiwiisland.exitOnFirstFrame") )
+            {
+                System.exit(0);
+            }
+        }
     }
 
+    // shows the assets loading, until the game is shown
+    private static LoadingWindow loadingWindow;
+    // editors often save a file several times in a row
+    private static final long MAP_RELOAD_DELAY = 300;
+    // where the islands of the day are kept
+    private static final File DAILY_FOLDER = new File("daily");
 }
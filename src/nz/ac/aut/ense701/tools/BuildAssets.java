@@ -0,0 +1,84 @@
+package nz.ac.aut.ense701.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import nz.ac.aut.ense701.gameModel.AssetBundle;
+import nz.ac.aut.ense701.gameModel.SpriteAtlas;
+
+/**
+ * Command line tool that packs the game's loose asset files into one
+ * AssetBundle. The build runs it after compiling, so the bundle goes into
+ * the classes and the jar.
+ *
+ * Usage: BuildAssets output root [-atlas folder] folder...
+ * Every file in the folders, which are relative to root, is bundled under
+ * its path from root, such as Images/Kiwi.jpg. Subfolders and hidden files
+ * are left out. With -atlas, the images in that folder are also packed into
+ * a SpriteAtlas, bundled as a page per scale, such as sprites/atlas.png
+ * and sprites/atlas@2x.png, and the index sprites/atlas.txt.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class BuildAssets
+{
+    /**
+     * Writes the bundle named on the command line.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 3) {
+            System.err.println("Usage: BuildAssets output root [-atlas folder] folder...");
+            System.exit(1);
+        }
+        File output = new File(args[0]);
+        File root = new File(args[1]);
+        AssetBundle loose = AssetBundle.loose(root);
+        int first = 2;
+        String atlasFolder = null;
+        if (args[first].equals("-atlas") && args.length > first + 1) {
+            atlasFolder = args[first + 1];
+            first += 2;
+        }
+        List<String> names = new ArrayList<String>();
+        for (int i = first; i < args.length; i++) {
+            List<String> found = loose.list(args[i]);
+            if (found.isEmpty()) {
+                System.err.println("No assets in '" + new File(root, args[i]) + "'");
+            }
+            names.addAll(found);
+        }
+
+        int sprites = 0;
+        try {
+            Map<String, byte[]> assets = new HashMap<String, byte[]>();
+            for (String name : names) {
+                assets.put(name, loose.getBytes(name));
+            }
+            if (atlasFolder != null) {
+                SpriteAtlas atlas = SpriteAtlas.pack(SpriteAtlas.readImages(loose, atlasFolder));
+                for (double scale : SpriteAtlas.SCALES) {
+                    assets.put(SpriteAtlas.getPageName(scale), atlas.getPageBytes(scale));
+                }
+                assets.put(SpriteAtlas.INDEX, atlas.getIndexBytes());
+                sprites = atlas.getNames().size();
+            }
+            File folder = output.getAbsoluteFile().getParentFile();
+            if (!folder.isDirectory() && !folder.mkdirs()) {
+                throw new IOException("unable to create '" + folder + "'");
+            }
+            AssetBundle.write(assets, output);
+        } catch (IOException e) {
+            System.err.println(output + ": " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println(output + ": " + names.size() + " assets, " + sprites + " sprites in the atlas, "
+                + output.length() + " bytes");
+    }
+}
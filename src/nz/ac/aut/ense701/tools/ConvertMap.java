@@ -0,0 +1,73 @@
+package nz.ac.aut.ense701.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import nz.ac.aut.ense701.gameModel.MapDefinition;
+import nz.ac.aut.ense701.gameModel.MappedIsland;
+
+/**
+ * Command line tool that converts maps between the text map format and the
+ * binary island format. Files ending in .island are island files, anything
+ * else is a text map.
+ *
+ * Usage: ConvertMap [--rle] input output
+ * --rle stores island rows as runs where that is smaller, which suits maps
+ * with large areas of one terrain.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class ConvertMap
+{
+    /**
+     * Converts the map named on the command line.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        boolean runLength = false;
+        File input = null;
+        File output = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--rle")) {
+                runLength = true;
+            } else if (!args[i].startsWith("--") && input == null) {
+                input = new File(args[i]);
+            } else if (!args[i].startsWith("--") && output == null) {
+                output = new File(args[i]);
+            } else {
+                input = null;
+                break;
+            }
+        }
+        if (input == null || output == null) {
+            System.err.println("Usage: ConvertMap [--rle] input output");
+            System.exit(1);
+        }
+
+        try {
+            long startTime = System.currentTimeMillis();
+            MapDefinition map = MapDefinition.read(input);
+            if (MappedIsland.isIslandFile(output)) {
+                MappedIsland.write(map, output, runLength);
+            } else {
+                Writer out = new OutputStreamWriter(new FileOutputStream(output), "UTF-8");
+                try {
+                    map.write(out);
+                } finally {
+                    out.close();
+                }
+            }
+            System.out.println(input + " -> " + output + ": " + map.getNumRows() + "x" + map.getNumColumns()
+                    + ", " + map.getOccupants().size() + " occupants, " + output.length() + " bytes, "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+        } catch (IOException e) {
+            System.err.println(input + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
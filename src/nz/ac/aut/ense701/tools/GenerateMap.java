@@ -0,0 +1,72 @@
+package nz.ac.aut.ense701.tools;
+
+import java.io.File;
+import java.io.IOException;
+import nz.ac.aut.ense701.gameModel.IslandGenerator;
+import nz.ac.aut.ense701.gameModel.MapDefinition;
+import nz.ac.aut.ense701.gameModel.MappedIsland;
+
+/**
+ * Command line tool that generates a new island with IslandGenerator.
+ *
+ * Usage: GenerateMap [--seed n] [--size rows columns] [--threads n] [--rle] output
+ * Files ending in .island are written as island files, anything else as a
+ * text map. --rle stores island rows as runs where that is smaller.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class GenerateMap
+{
+    /**
+     * Generates the island described on the command line.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        long seed = System.currentTimeMillis();
+        int rows = 10;
+        int columns = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean runLength = false;
+        File output = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--size") && i + 2 < args.length) {
+                rows = Integer.parseInt(args[++i]);
+                columns = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--rle")) {
+                runLength = true;
+            } else if (!args[i].startsWith("--") && output == null) {
+                output = new File(args[i]);
+            } else {
+                output = null;
+                break;
+            }
+        }
+        if (output == null) {
+            System.err.println("Usage: GenerateMap [--seed n] [--size rows columns] [--threads n] [--rle] output");
+            System.exit(1);
+        }
+
+        try {
+            long startTime = System.currentTimeMillis();
+            IslandGenerator generator = new IslandGenerator(seed, rows, columns);
+            generator.setThreads(threads);
+            MapDefinition map = generator.write(output, runLength && MappedIsland.isIslandFile(output));
+            System.out.println(output + ": seed " + seed + ", " + rows + "x" + columns + ", "
+                    + map.getOccupants().size() + " occupants, " + output.length() + " bytes, "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+        } catch (IOException e) {
+            System.err.println(output + ": " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
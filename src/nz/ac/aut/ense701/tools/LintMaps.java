@@ -0,0 +1,131 @@
+package nz.ac.aut.ense701.tools;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import nz.ac.aut.ense701.gameModel.MapValidator;
+
+/**
+ * Command line tool that checks maps for mistakes with MapValidator, many
+ * maps at a time.
+ *
+ * Usage: LintMaps [--threads n] [--errors-only] map-or-folder...
+ * With no maps the maps folder is checked. The report goes to standard
+ * output as tab separated lines, one per problem, after a header line:
+ * <pre>
+ * file  severity  code  row  column  message
+ * </pre>
+ * Row and column are -1 for problems that are not on a square. A summary
+ * goes to standard error, and the exit status is 1 if any map has errors.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class LintMaps
+{
+    /**
+     * Checks the maps named on the command line.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean errorsOnly = false;
+        List<File> maps = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--errors-only")) {
+                errorsOnly = true;
+            } else if (args[i].startsWith("--")) {
+                System.err.println("Usage: LintMaps [--threads n] [--errors-only] map-or-folder...");
+                System.exit(1);
+            } else {
+                addMaps(maps, new File(args[i]));
+            }
+        }
+        if (maps.isEmpty()) {
+            addMaps(maps, new File("maps"));
+        }
+
+        long startTime = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<List<MapValidator.Problem>>> results = new ArrayList<Future<List<MapValidator.Problem>>>();
+        for (final File map : maps) {
+            results.add(pool.submit(new Callable<List<MapValidator.Problem>>() {
+                @Override
+                public List<MapValidator.Problem> call() {
+                    return MapValidator.validate(map);
+                }
+            }));
+        }
+
+        // reported in the order the maps were listed, whatever order they finish in
+        PrintStream out = System.out;
+        out.println("file\tseverity\tcode\trow\tcolumn\tmessage");
+        int errorMaps = 0;
+        int errors = 0;
+        int warnings = 0;
+        for (int i = 0; i < maps.size(); i++) {
+            List<MapValidator.Problem> problems;
+            try {
+                problems = results.get(i).get();
+            } catch (ExecutionException e) {
+                System.err.println(maps.get(i) + ": " + e.getCause());
+                errorMaps++;
+                continue;
+            }
+            if (MapValidator.hasErrors(problems)) {
+                errorMaps++;
+            }
+            for (MapValidator.Problem problem : problems) {
+                if (problem.getSeverity() == MapValidator.Severity.ERROR) {
+                    errors++;
+                } else if (errorsOnly) {
+                    continue;
+                } else {
+                    warnings++;
+                }
+                out.println(field(maps.get(i).getPath()) + "\t" + problem.getSeverity() + "\t" + problem.getCode()
+                        + "\t" + problem.getRow() + "\t" + problem.getColumn() + "\t" + field(problem.getMessage()));
+            }
+        }
+        pool.shutdown();
+        out.flush();
+
+        System.err.println(maps.size() + " maps checked, " + errorMaps + " with errors, " + errors + " errors, "
+                + warnings + " warnings, " + (System.currentTimeMillis() - startTime) + " ms");
+        System.exit(errorMaps > 0 ? 1 : 0);
+    }
+
+    private static void addMaps(List<File> maps, File file)
+    {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File child : files) {
+                    if (child.isFile() && !child.getName().startsWith(".")) {
+                        maps.add(child);
+                    }
+                }
+            }
+        } else {
+            maps.add(file);
+        }
+    }
+
+    // keeps each problem on one line with the right number of fields
+    private static String field(String text)
+    {
+        return text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,140 @@
+package nz.ac.aut.ense701.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import nz.ac.aut.ense701.gameModel.Agent;
+import nz.ac.aut.ense701.gameModel.GameRules;
+import nz.ac.aut.ense701.gameModel.GameSnapshot;
+import nz.ac.aut.ense701.gameModel.GameState;
+import nz.ac.aut.ense701.gameModel.MapDefinition;
+import nz.ac.aut.ense701.gameModel.MonteCarloAgent;
+import nz.ac.aut.ense701.gameModel.RandomAgent;
+
+/**
+ * Command line tool that plays many games with an agent and reports how
+ * often it wins, to compare agents and to see how hard maps are.
+ *
+ * Usage: SimulateGames [--agent mcts|random] [--games n] [--rollouts n] [--threads n] map-or-folder...
+ * With no maps the maps folder is played. The Monte-Carlo agent plays a fixed
+ * number of rollouts per action, so results do not depend on the machine.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class SimulateGames
+{
+    private static final int MAX_ACTIONS = 2000;
+
+    /**
+     * Plays the maps named on the command line.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        String agentName = "mcts";
+        int games = 10;
+        int rollouts = 1000;
+        int threads = 1;
+        List<File> maps = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--agent") && i + 1 < args.length) {
+                agentName = args[++i];
+            } else if (args[i].equals("--games") && i + 1 < args.length) {
+                games = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--rollouts") && i + 1 < args.length) {
+                rollouts = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].startsWith("--")) {
+                System.err.println("Usage: SimulateGames [--agent mcts|random] [--games n] [--rollouts n] [--threads n] map-or-folder...");
+                System.exit(1);
+            } else {
+                addMaps(maps, new File(args[i]));
+            }
+        }
+        if (maps.isEmpty()) {
+            addMaps(maps, new File("maps"));
+        }
+
+        for (File map : maps) {
+            GameRules rules;
+            try {
+                rules = new GameRules(MapDefinition.read(map));
+            } catch (IOException e) {
+                System.err.println(map + ": unable to read, " + e.getMessage());
+                continue;
+            } catch (RuntimeException e) {
+                System.err.println(map + ": " + e.getMessage());
+                continue;
+            }
+
+            int wins = 0;
+            long winMoves = 0;
+            long totalRollouts = 0;
+            long startTime = System.currentTimeMillis();
+            for (int game = 0; game < games; game++) {
+                Agent agent;
+                MonteCarloAgent monteCarlo = null;
+                if (agentName.equals("random")) {
+                    agent = new RandomAgent(game);
+                } else {
+                    monteCarlo = new MonteCarloAgent();
+                    monteCarlo.setThreads(threads);
+                    monteCarlo.setThinkingTime(0);
+                    monteCarlo.setRolloutsPerDecision(rollouts);
+                    monteCarlo.setSeed(game);
+                    agent = monteCarlo;
+                }
+                GameSnapshot state = rules.start();
+                for (int step = 0; step < MAX_ACTIONS && state.getState() == GameState.PLAYING; step++) {
+                    int action = agent.chooseAction(state);
+                    if (action < 0) {
+                        break;
+                    }
+                    state.apply(action);
+                    if (monteCarlo != null) {
+                        totalRollouts += monteCarlo.getLastRollouts();
+                    }
+                }
+                if (monteCarlo != null) {
+                    monteCarlo.shutdown();
+                }
+                if (state.getState() == GameState.WON) {
+                    wins++;
+                    winMoves += state.getMoves();
+                }
+            }
+            long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+
+            String line = map + ": won " + wins + " of " + games;
+            if (wins > 0) {
+                line += String.format(", %.1f moves per win", (double) winMoves / wins);
+            }
+            if (totalRollouts > 0) {
+                line += String.format(", %.0f rollouts/s", totalRollouts * 1000.0 / elapsed);
+            }
+            System.out.println(line);
+        }
+    }
+
+    private static void addMaps(List<File> maps, File file)
+    {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File child : files) {
+                    if (child.isFile()) {
+                        maps.add(child);
+                    }
+                }
+            }
+        } else {
+            maps.add(file);
+        }
+    }
+}
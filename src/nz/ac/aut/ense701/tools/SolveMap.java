@@ -0,0 +1,116 @@
+package nz.ac.aut.ense701.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import nz.ac.aut.ense701.gameModel.GameRules;
+import nz.ac.aut.ense701.gameModel.MapDefinition;
+import nz.ac.aut.ense701.gameModel.MapSolver;
+
+/**
+ * Command line tool for map QA: reports whether each map can be won and the
+ * fewest moves it takes.
+ *
+ * Usage: SolveMap [--threads n] [--memory mb] [--time seconds] [--steps] map-or-folder...
+ * With no maps the maps folder is solved. The exit code is 1 if any map is
+ * unwinnable or could not be read, 2 if the solver gave up on any map.
+ *
+ * @author AS
+ * @version 1.0 - created
+ */
+public class SolveMap
+{
+    /**
+     * Solves the maps named on the command line.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        long memoryMegabytes = 256;
+        long timeSeconds = 0;
+        boolean printSteps = false;
+        List<File> maps = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--memory") && i + 1 < args.length) {
+                memoryMegabytes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--time") && i + 1 < args.length) {
+                timeSeconds = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--steps")) {
+                printSteps = true;
+            } else if (args[i].startsWith("--")) {
+                System.err.println("Usage: SolveMap [--threads n] [--memory mb] [--time seconds] [--steps] map-or-folder...");
+                System.exit(1);
+            } else {
+                addMaps(maps, new File(args[i]));
+            }
+        }
+        if (maps.isEmpty()) {
+            addMaps(maps, new File("maps"));
+        }
+
+        int exitCode = 0;
+        for (File map : maps) {
+            MapSolver.Solution solution;
+            try {
+                MapSolver solver = new MapSolver(new GameRules(MapDefinition.read(map)));
+                solver.setThreads(threads);
+                solver.setMemoryLimit(memoryMegabytes << 20);
+                solver.setTimeLimit(timeSeconds * 1000);
+                solution = solver.solve();
+            } catch (IOException e) {
+                System.err.println(map + ": unable to read, " + e.getMessage());
+                exitCode = Math.max(exitCode, 1);
+                continue;
+            } catch (RuntimeException e) {
+                System.err.println(map + ": " + e.getMessage());
+                exitCode = Math.max(exitCode, 1);
+                continue;
+            }
+
+            String stats = " (" + solution.getStatesSearched() + " states, "
+                    + solution.getElapsedMillis() + " ms)";
+            switch (solution.getOutcome()) {
+                case WINNABLE:
+                    System.out.println(map + ": winnable in " + solution.getMoves() + " moves" + stats);
+                    if (printSteps) {
+                        for (String step : solution.getSteps()) {
+                            System.out.println("    " + step);
+                        }
+                    }
+                    break;
+                case UNWINNABLE:
+                    System.out.println(map + ": cannot be won" + stats);
+                    exitCode = Math.max(exitCode, 1);
+                    break;
+                default:
+                    System.out.println(map + ": gave up" + stats);
+                    exitCode = Math.max(exitCode, 2);
+                    break;
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static void addMaps(List<File> maps, File file)
+    {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File child : files) {
+                    if (child.isFile()) {
+                        maps.add(child);
+                    }
+                }
+            }
+        } else {
+            maps.add(file);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Test;
+
+/**
+ * The test class AssetBundleTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class AssetBundleTest extends junit.framework.TestCase
+{
+    AssetBundle loose;
+    File file;
+    AssetBundle bundle;
+
+    /**
+     * Default constructor for test class AssetBundleTest
+     */
+    public AssetBundleTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        loose = AssetBundle.loose(new File("."));
+        List<String> names = new ArrayList<String>();
+        names.addAll(loose.list("Images"));
+        names.addAll(loose.list("maps"));
+        names.addAll(loose.list("questions"));
+        file = File.createTempFile("assets", ".bundle");
+        AssetBundle.write(new File("."), names, file);
+        bundle = AssetBundle.read(file);
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void testBundleHasLooseFiles() throws IOException {
+        assertTrue(bundle.isBundled());
+        assertFalse(loose.isBundled());
+        byte[] kiwi = Files.readAllBytes(new File("Images/Kiwi.jpg").toPath());
+        assertTrue(Arrays.equals(kiwi, bundle.getBytes("Images/Kiwi.jpg")));
+        assertTrue(Arrays.equals(kiwi, loose.getBytes("Images/Kiwi.jpg")));
+    }
+
+    @Test
+    public void testNamesIgnoreCase() throws IOException {
+        byte[] kiwi = Files.readAllBytes(new File("Images/Kiwi.jpg").toPath());
+        assertTrue(Arrays.equals(kiwi, bundle.getBytes("images/kiwi.jpg")));
+        assertTrue(Arrays.equals(kiwi, bundle.getBytes("./IMAGES\\Kiwi.jpg")));
+        assertTrue(Arrays.equals(kiwi, loose.getBytes("images/Kiwi.jpg")));
+        assertTrue(bundle.contains("QUESTIONS/kiwiquestions.txt"));
+        assertTrue(loose.contains("QUESTIONS/kiwiquestions.txt"));
+    }
+
+    @Test
+    public void testMissingAsset() throws IOException {
+        assertFalse(bundle.contains("images/Moa.jpg"));
+        assertFalse(loose.contains("images/Moa.jpg"));
+        assertFalse(loose.contains("images"));
+        try {
+            bundle.getBytes("images/Moa.jpg");
+            fail("asset should be missing");
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+        try {
+            loose.open("images/Moa.jpg");
+            fail("asset should be missing");
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testListFolder() {
+        List<String> maps = bundle.list("maps");
+        assertEquals(new File("maps").list().length, maps.size());
+        assertEquals(loose.list("maps"), maps);
+        assertTrue(bundle.list("instructions").isEmpty());
+        assertEquals(loose.list("Images").size(), bundle.list("images").size());
+    }
+
+    @Test
+    public void testReadFromJar() throws IOException {
+        // a bundle in a jar is read as a stream rather than mapped
+        File jar = File.createTempFile("assets", ".jar");
+        try {
+            ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+            try {
+                out.putNextEntry(new ZipEntry("assets.bundle"));
+                out.write(Files.readAllBytes(file.toPath()));
+                out.closeEntry();
+            } finally {
+                out.close();
+            }
+            AssetBundle read = AssetBundle.read(new URL("jar:" + jar.toURI().toURL() + "!/assets.bundle"));
+            assertTrue(read.isBundled());
+            assertTrue(Arrays.equals(loose.getBytes("maps/IslandData.txt"), read.getBytes("maps/IslandData.txt")));
+        } finally {
+            jar.delete();
+        }
+    }
+
+    @Test
+    public void testCatalogFromBundle() throws IOException {
+        MapCatalog catalog = MapCatalog.build(bundle, "maps");
+        MapCatalog fromFolder = MapCatalog.build(new File("maps"), null);
+        assertEquals(fromFolder.getEntries().size(), catalog.getEntries().size());
+        MapCatalog.Entry entry = catalog.getEntry("maps/IslandData.txt");
+        MapCatalog.Entry fileEntry = fromFolder.getEntry(new File("maps", "IslandData.txt").getPath());
+        assertEquals(fileEntry.getChecksum(), entry.getChecksum());
+        assertEquals(fileEntry.getDifficulty(), entry.getDifficulty(), 0.0);
+        assertEquals(fileEntry.getOccupantCount("K"), entry.getOccupantCount("K"));
+    }
+
+    @Test
+    public void testCutShortBundle() throws IOException {
+        byte[] contents = Files.readAllBytes(file.toPath());
+        File cut = File.createTempFile("cut", ".bundle");
+        try {
+            Files.write(cut.toPath(), Arrays.copyOf(contents, contents.length - 1));
+            try {
+                AssetBundle.read(cut);
+                fail("bundle should be cut short");
+            } catch (IOException e) {
+                // expected
+            }
+            Files.write(cut.toPath(), "not a bundle".getBytes("UTF-8"));
+            try {
+                AssetBundle.read(cut);
+                fail("file should not be a bundle");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            cut.delete();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * The test class AssetWarmupTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class AssetWarmupTest extends junit.framework.TestCase
+{
+    List<String> loaded;
+
+    /**
+     * Default constructor for test class AssetWarmupTest
+     */
+    public AssetWarmupTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp()
+    {
+        loaded = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    @Test
+    public void testStagesLoadedInOrder() throws InterruptedException {
+        AssetWarmup warmup = new AssetWarmup(1);
+        warmup.add(AssetWarmup.Stage.AUDIO, "music", record("music"));
+        warmup.add(AssetWarmup.Stage.TEXT, "facts", record("facts"));
+        warmup.add(AssetWarmup.Stage.SPRITES, "kiwi", record("kiwi"));
+        warmup.add(AssetWarmup.Stage.MAPS, "map", record("map"));
+        warmup.add(AssetWarmup.Stage.SPRITES, "rat", record("rat"));
+        warmup.start();
+        warmup.await();
+        assertEquals("[map, kiwi, rat, facts, music]", loaded.toString());
+        assertEquals(5, warmup.getDone());
+        assertTrue(warmup.getElapsedNanos() > 0);
+    }
+
+    @Test
+    public void testAwaitStageDoesNotWaitForLaterStages() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        AssetWarmup warmup = new AssetWarmup(2);
+        warmup.add(AssetWarmup.Stage.AUDIO, "music", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        warmup.add(AssetWarmup.Stage.SPRITES, "kiwi", record("kiwi"));
+        warmup.start();
+        warmup.awaitStage(AssetWarmup.Stage.SPRITES);
+        assertEquals("[kiwi]", loaded.toString());
+        assertEquals(0, warmup.getElapsedNanos());
+        release.countDown();
+        warmup.await();
+        assertEquals(2, warmup.getDone());
+    }
+
+    @Test
+    public void testLoadedConcurrently() throws InterruptedException {
+        final CountDownLatch together = new CountDownLatch(4);
+        AssetWarmup warmup = new AssetWarmup(4);
+        for (int i = 0; i < 4; i++) {
+            warmup.add(AssetWarmup.Stage.SPRITES, "sprite " + i, new Runnable() {
+                @Override
+                public void run() {
+                    together.countDown();
+                    try {
+                        // only returns at once if all four are loading at the same time
+                        together.await(10, TimeUnit.SECONDS);
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        warmup.start();
+        warmup.await();
+        assertEquals(0, together.getCount());
+        assertTrue(warmup.getSummary(), warmup.getElapsedNanos() < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(warmup.getSlowestNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void testListenersToldAndFailuresCounted() throws InterruptedException {
+        AssetWarmup warmup = new AssetWarmup(1);
+        warmup.add(AssetWarmup.Stage.MAPS, "broken", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("broken");
+            }
+        });
+        warmup.add(AssetWarmup.Stage.TEXT, "facts", record("facts"));
+        warmup.addListener(new AssetWarmup.Listener() {
+            @Override
+            public void assetLoaded(String name, int done, int total) {
+                loaded.add(name + " " + done + "/" + total);
+            }
+        });
+        warmup.start();
+        warmup.await();
+        assertEquals("[broken 1/2, facts, facts 2/2]", loaded.toString());
+        try {
+            warmup.add(AssetWarmup.Stage.TEXT, "late", record("late"));
+            fail("Assets cannot be added once started");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGameSpritesWarmed() throws Exception {
+        AssetWarmup warmup = AssetWarmup.forGame();
+        // the catalog, the sprite atlas and the sound effects
+        assertEquals(3, warmup.getTotal());
+        Game.clearImageCache();
+        warmup.start();
+        warmup.awaitStage(AssetWarmup.Stage.SPRITES);
+        assertNotNull(Game.getMapCatalog());
+        assertTrue(SpriteAtlas.getDefault().contains("images/Kiwi.jpg"));
+        warmup.await();
+        assertTrue(warmup.getSummary(), warmup.getSummary().startsWith("Loaded 3 assets in "));
+    }
+
+    /**
+     * Loads nothing, but remembers it was loaded.
+     */
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                loaded.add(name);
+            }
+        };
+    }
+}
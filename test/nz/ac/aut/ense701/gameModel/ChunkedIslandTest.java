@@ -0,0 +1,144 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import org.junit.Test;
+
+/**
+ * The test class ChunkedIslandTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class ChunkedIslandTest extends junit.framework.TestCase
+{
+    private static final int SIZE = 300;
+    // room for about two chunks
+    private static final long SMALL_BUDGET = 2L * ChunkedIsland.CHUNK_SIZE * ChunkedIsland.CHUNK_SIZE * 40;
+
+    File islandFile;
+    MappedIsland mapped;
+    ChunkedIsland island;
+
+    /**
+     * Default constructor for test class ChunkedIslandTest
+     */
+    public ChunkedIslandTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        byte[] terrain = new byte[SIZE * SIZE];
+        for (int cell = 0; cell < terrain.length; cell++) {
+            terrain[cell] = (byte) ((cell / 7) % Terrain.values().length);
+        }
+        MapDefinition map = new MapDefinition(SIZE, SIZE, terrain, "River Song", 0, 0, 100.0, 10.0, 5.0,
+                new ArrayList<MapDefinition.OccupantDefinition>());
+        islandFile = File.createTempFile("kiwi", MappedIsland.FILE_EXTENSION);
+        MappedIsland.write(map, islandFile, true);
+        mapped = MappedIsland.open(islandFile);
+        island = new ChunkedIsland(mapped, SMALL_BUDGET);
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        island.close();
+        islandFile.delete();
+    }
+
+    @Test
+    public void testReadingDoesNotCreateChunks() {
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                Position position = new Position(island, row, col);
+                assertEquals(mapped.getTerrain(row, col), island.getTerrain(position));
+                assertFalse(island.isExplored(position));
+                assertEquals(0, island.getOccupants(position).length);
+            }
+        }
+        assertEquals(0, island.getResidentChunks());
+        assertEquals(0, island.getChunkMisses());
+    }
+
+    @Test
+    public void testUnchangedChunksAreDropped() {
+        for (int row = 0; row < SIZE; row += ChunkedIsland.CHUNK_SIZE) {
+            for (int col = 0; col < SIZE; col += ChunkedIsland.CHUNK_SIZE) {
+                island.getGridSquare(row, col);
+            }
+        }
+        assertEquals(25, island.getChunkMisses());
+        assertTrue(island.getChunkEvictions() > 0);
+        assertEquals(0, island.getChunkSpills());
+        assertTrue(island.getResidentBytes() <= SMALL_BUDGET);
+    }
+
+    @Test
+    public void testChangesSurviveSpilling() {
+        for (int row = 0; row < SIZE; row += 13) {
+            for (int col = 0; col < SIZE; col += 17) {
+                Position position = new Position(island, row, col);
+                island.setTerrain(position, Terrain.WETLAND);
+                island.getGridSquare(row, col).setExplored();
+            }
+        }
+        assertTrue(island.getChunkSpills() > 0);
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                Position position = new Position(island, row, col);
+                boolean changed = row % 13 == 0 && col % 17 == 0;
+                assertEquals(changed, island.isExplored(position));
+                assertEquals(changed ? Terrain.WETLAND : mapped.getTerrain(row, col), island.getTerrain(position));
+            }
+        }
+        assertTrue(island.getResidentBytes() <= SMALL_BUDGET);
+    }
+
+    @Test
+    public void testOccupantsAndPlayerSurviveSpilling() {
+        Position start = new Position(island, 5, 5);
+        Player player = new Player(start, "River Song", 100.0, 10.0, 5.0);
+        island.updatePlayerPosition(player);
+        Position far = new Position(island, SIZE - 1, SIZE - 1);
+        Kiwi kiwi = new Kiwi(far, "Kiwi", "A kiwi", null);
+        assertTrue(island.addOccupant(far, kiwi));
+
+        // walk the island so both chunks are spilled
+        for (int row = 0; row < SIZE; row += ChunkedIsland.CHUNK_SIZE) {
+            for (int col = 0; col < SIZE; col += ChunkedIsland.CHUNK_SIZE) {
+                island.getGridSquare(row, col).setVisible();
+            }
+        }
+        assertTrue(island.getChunkSpills() > 0);
+        assertTrue(island.hasPlayer(start));
+        assertTrue(island.isExplored(start));
+        assertTrue(island.hasOccupant(far, kiwi));
+        assertSame(kiwi, island.getOccupants(far)[0]);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        island.getGridSquare(0, 0);
+        island.getGridSquare(1, 1);
+        island.getGridSquare(0, ChunkedIsland.CHUNK_SIZE);
+        island.getGridSquare(2, 2);
+        assertEquals(2, island.getChunkMisses());
+        assertEquals(2, island.getChunkHits());
+        assertEquals(2, island.getResidentChunks());
+        assertEquals(0, island.getChunkEvictions());
+    }
+}
@@ -0,0 +1,121 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Test;
+
+/**
+ * The test class DailyMapServiceTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class DailyMapServiceTest extends junit.framework.TestCase
+{
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long SEED = 20260101L;
+
+    File store;
+    DailyMapService service;
+
+    /**
+     * Default constructor for test class DailyMapServiceTest
+     */
+    public DailyMapServiceTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        store = File.createTempFile("daily", "");
+        store.delete();
+        service = new DailyMapService(store);
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        File[] files = store.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        store.delete();
+    }
+
+    @Test
+    public void testSeedChangesWithTheDay() {
+        // midnight UTC on 1 January 2026
+        long midnight = 20454L * DAY;
+        assertEquals(DailyMapService.seedFor(new Date(midnight)), DailyMapService.seedFor(new Date(midnight + DAY - 1)));
+        assertFalse(DailyMapService.seedFor(new Date(midnight)) == DailyMapService.seedFor(new Date(midnight + DAY)));
+    }
+
+    @Test
+    public void testIslandIsAChallenge() throws IOException {
+        MapDefinition map = MapDefinition.read(service.getMap(SEED));
+        assertTrue(MapValidator.validate(map).isEmpty());
+        assertEquals(DailyMapService.SIZE, map.getNumRows());
+        MapSolver solver = new MapSolver(new GameRules(map));
+        solver.setThreads(1);
+        MapSolver.Solution solution = solver.solve();
+        assertEquals(MapSolver.Outcome.WINNABLE, solution.getOutcome());
+        assertTrue(solution.getMoves() >= DailyMapService.MIN_MOVES);
+    }
+
+    @Test
+    public void testStoredIslandReused() throws IOException {
+        File first = service.getMap(SEED);
+        first.setLastModified(1000L);
+        File second = new DailyMapService(store).getMap(SEED);
+        assertEquals(first, second);
+        assertEquals(1000L, second.lastModified());
+        // one island and one seed file
+        assertEquals(2, store.listFiles().length);
+    }
+
+    @Test
+    public void testSameIslandInEveryStore() throws IOException {
+        byte[] stored = Files.readAllBytes(service.getMap(SEED).toPath());
+        assertTrue(Arrays.equals(stored, DailyMapService.generate(SEED)));
+    }
+
+    @Test
+    public void testChangedIslandMadeAgain() throws IOException {
+        File map = service.getMap(SEED);
+        byte[] contents = Files.readAllBytes(map.toPath());
+        FileOutputStream out = new FileOutputStream(map, true);
+        try {
+            out.write('\n');
+        } finally {
+            out.close();
+        }
+        assertEquals(map, service.getMap(SEED));
+        assertTrue(Arrays.equals(contents, Files.readAllBytes(map.toPath())));
+    }
+
+    @Test
+    public void testTodaysMapAddedToCatalog() throws IOException {
+        MapCatalog catalog = service.addTodaysMap(MapCatalog.build(new File("maps"), null));
+        MapCatalog.Entry entry = catalog.getEntry(service.getTodaysMap().getPath());
+        assertNotNull(entry);
+        assertEquals(DailyMapService.SIZE, entry.getNumColumns());
+        assertEquals(new File("maps").listFiles().length + 1, catalog.getEntries().size());
+    }
+}
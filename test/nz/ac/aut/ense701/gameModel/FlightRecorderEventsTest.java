@@ -0,0 +1,122 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+/**
+ * The test class FlightRecorderEventsTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class FlightRecorderEventsTest extends junit.framework.TestCase
+{
+    Recording recording;
+    File file;
+
+    /**
+     * Default constructor for test class FlightRecorderEventsTest
+     */
+    public FlightRecorderEventsTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        file = File.createTempFile("kiwi", ".jfr");
+        recording = new Recording();
+        recording.enable(GameCommandEvent.class);
+        recording.enable(MapLoadEvent.class);
+        recording.enable(ListenerNotificationEvent.class);
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        recording.close();
+        file.delete();
+    }
+
+    @Test
+    public void testCommandsRecorded() throws IOException {
+        recording.start();
+        Game game = Game.withoutMap();
+        game.startGame("maps/IslandData.txt", Game.readMap("maps/IslandData.txt"));
+        game.playerMove(MoveDirection.WEST);
+        game.countKiwi();
+        recording.stop();
+
+        List<RecordedEvent> commands = events("nz.ac.aut.ense701.GameCommand");
+        assertEquals(2, commands.size());
+        assertEquals("move", commands.get(0).getString("command"));
+        assertEquals("WEST", commands.get(0).getString("argument"));
+        assertEquals("maps/IslandData.txt", commands.get(0).getString("map"));
+        assertEquals("count", commands.get(1).getString("command"));
+        assertNull(commands.get(1).getString("argument"));
+    }
+
+    @Test
+    public void testMapLoadPhasesRecorded() throws IOException {
+        recording.start();
+        Game game = Game.withoutMap();
+        game.startGame("maps/IslandData.txt", Game.readMap("maps/IslandData.txt"));
+        recording.stop();
+
+        List<RecordedEvent> loads = events("nz.ac.aut.ense701.MapLoad");
+        assertEquals(2, loads.size());
+        assertEquals("terrain", loads.get(0).getString("phase"));
+        assertEquals("occupants", loads.get(1).getString("phase"));
+        assertEquals(10, loads.get(1).getInt("rows"));
+        assertEquals(1, events("nz.ac.aut.ense701.ListenerNotification").size());
+    }
+
+    @Test
+    public void testNothingRecordedWhenDisabled() throws IOException {
+        recording.disable(GameCommandEvent.class);
+        recording.start();
+        Game game = Game.withoutMap();
+        game.startGame("maps/IslandData.txt", Game.readMap("maps/IslandData.txt"));
+        game.playerMove(MoveDirection.WEST);
+        recording.stop();
+        assertTrue(events("nz.ac.aut.ense701.GameCommand").isEmpty());
+    }
+
+    /**
+     * The events of a type in the recording, in the order they started.
+     */
+    private List<RecordedEvent> events(String name) throws IOException {
+        recording.dump(file.toPath());
+        List<RecordedEvent> found = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+            if (event.getEventType().getName().equals(name)) {
+                found.add(event);
+            }
+        }
+        Collections.sort(found, new Comparator<RecordedEvent>() {
+            @Override
+            public int compare(RecordedEvent a, RecordedEvent b) {
+                return a.getStartTime().compareTo(b.getStartTime());
+            }
+        });
+        return found;
+    }
+}
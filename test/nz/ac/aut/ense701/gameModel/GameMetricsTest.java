@@ -0,0 +1,151 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import org.junit.Test;
+
+/**
+ * The test class GameMetricsTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class GameMetricsTest extends junit.framework.TestCase
+{
+    GameMetrics metrics;
+
+    /**
+     * Default constructor for test class GameMetricsTest
+     */
+    public GameMetricsTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp()
+    {
+        metrics = new GameMetrics();
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void testSmallTimesExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int nanos = 1; nanos <= 20; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(20, histogram.getCount());
+        assertEquals(10, histogram.getMean());
+        assertEquals(10, histogram.getPercentile(50));
+        assertEquals(20, histogram.getPercentile(100));
+        assertEquals(20, histogram.getMax());
+    }
+
+    @Test
+    public void testPercentilesWithinBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(1L);
+        long[] times = new long[10000];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = 1000 + (long) (random.nextDouble() * 10000000);
+            histogram.record(times[i]);
+        }
+        Arrays.sort(times);
+        long median = times[times.length / 2 - 1];
+        long p99 = times[times.length * 99 / 100 - 1];
+        assertTrue(histogram.getPercentile(50) <= median);
+        assertTrue(histogram.getPercentile(50) > median * 0.96);
+        assertTrue(histogram.getPercentile(99) <= p99);
+        assertTrue(histogram.getPercentile(99) > p99 * 0.96);
+        assertEquals(times[times.length - 1], histogram.getMax());
+    }
+
+    @Test
+    public void testLongestTimes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+        assertTrue(histogram.getPercentile(100) > Long.MAX_VALUE / 2);
+    }
+
+    @Test
+    public void testCommandsAndCounters() {
+        metrics.record(GameMetrics.Command.MOVE, 2000);
+        metrics.record(GameMetrics.Command.MOVE, 4000);
+        metrics.record(GameMetrics.Command.NEW_GAME, 5000000);
+        metrics.increment(GameMetrics.Counter.HAZARDS);
+        metrics.increment(GameMetrics.Counter.NOTIFICATIONS);
+        metrics.increment(GameMetrics.Counter.NOTIFICATIONS);
+        assertEquals(Long.valueOf(2), metrics.getCommandCounts().get("move"));
+        assertEquals(Long.valueOf(0), metrics.getCommandCounts().get("drop"));
+        // times are rounded to their buckets
+        assertEquals(3000, metrics.getMeanNanos().get("move"), 3000 * 0.03);
+        assertEquals(Long.valueOf(5000000), metrics.getMaxNanos().get("newGame"));
+        assertEquals(2, metrics.getNotifications());
+        assertEquals(1, metrics.getHazardsTriggered());
+        assertEquals(0, metrics.getMapsLoaded());
+
+        String summary = metrics.getSummary();
+        assertTrue(summary, summary.startsWith("metrics: move n=2 p50=2.0us"));
+        assertTrue(summary, summary.contains("newGame n=1"));
+        assertFalse(summary, summary.contains("drop"));
+        assertTrue(summary, summary.endsWith("notifications=2 hazards=1 maps=0 images=0"));
+
+        metrics.reset();
+        assertEquals(Long.valueOf(0), metrics.getCommandCounts().get("move"));
+        assertEquals(0, metrics.getNotifications());
+    }
+
+    @Test
+    public void testShownOverJmx() throws JMException {
+        metrics.record(GameMetrics.Command.COUNT, 1500);
+        metrics.increment(GameMetrics.Counter.IMAGES_DECODED);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("nz.ac.aut.ense701:type=GameMetrics,name=test");
+        server.registerMBean(metrics, name);
+        try {
+            assertEquals(1L, server.getAttribute(name, "ImagesDecoded"));
+            TabularData counts = (TabularData) server.getAttribute(name, "CommandCounts");
+            assertEquals(GameMetrics.Command.values().length, counts.size());
+            assertEquals(1L, counts.get(new Object[]{"count"}).get("value"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "ImagesDecoded"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testOffByDefault() {
+        // the tests run without -Dkiwiisland.metrics=true
+        assertFalse(GameMetrics.ENABLED);
+        GameMetrics.getInstance().reset();
+        Game game = new Game();
+        game.countKiwi();
+        assertEquals(0, GameMetrics.getInstance().getNotifications());
+        assertEquals(Long.valueOf(0), GameMetrics.getInstance().getCommandCounts().get("count"));
+        Map<String, Long> counts = GameMetrics.getInstance().getCommandCounts();
+        assertEquals(GameMetrics.Command.values().length, counts.size());
+    }
+}
@@ -0,0 +1,117 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * The test class IslandGeneratorTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class IslandGeneratorTest extends junit.framework.TestCase
+{
+    /**
+     * Default constructor for test class IslandGeneratorTest
+     */
+    public IslandGeneratorTest()
+    {
+    }
+
+    @Test
+    public void testSameSeedSameIsland() throws IOException {
+        assertEquals(text(new IslandGenerator(42, 40, 60).generate()),
+                text(new IslandGenerator(42, 40, 60).generate()));
+        assertFalse(text(new IslandGenerator(42, 40, 60).generate())
+                .equals(text(new IslandGenerator(43, 40, 60).generate())));
+    }
+
+    @Test
+    public void testThreadsDoNotChangeIsland() throws IOException {
+        IslandGenerator parallel = new IslandGenerator(7, 300, 200);
+        parallel.setThreads(4);
+        assertEquals(text(new IslandGenerator(7, 300, 200).generate()), text(parallel.generate()));
+    }
+
+    @Test
+    public void testSquaresReadInAnyOrder() {
+        MapDefinition inOrder = new IslandGenerator(5, 150, 80).generate();
+        MapDefinition backwards = new IslandGenerator(5, 150, 80).generate();
+        // rows from the bottom up are worked out square by square
+        Terrain[][] terrain = new Terrain[150][80];
+        for (int row = 149; row >= 0; row--) {
+            for (int col = 0; col < 80; col++) {
+                terrain[row][col] = backwards.getTerrain(row, col);
+            }
+        }
+        for (int row = 0; row < 150; row++) {
+            for (int col = 0; col < 80; col++) {
+                assertEquals(row + "," + col, terrain[row][col], inOrder.getTerrain(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void testIslandRingedBySea() {
+        MapDefinition map = new IslandGenerator(1, 50, 50).generate();
+        int land = 0;
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Terrain.WATER, map.getTerrain(0, i));
+            assertEquals(Terrain.WATER, map.getTerrain(49, i));
+            assertEquals(Terrain.WATER, map.getTerrain(i, 0));
+            assertEquals(Terrain.WATER, map.getTerrain(i, 49));
+        }
+        for (int row = 0; row < 50; row++) {
+            for (int col = 0; col < 50; col++) {
+                if (map.getTerrain(row, col) != Terrain.WATER) {
+                    land++;
+                }
+            }
+        }
+        assertTrue(land > 250);
+        assertTrue(map.getTerrain(map.getPlayerRow(), map.getPlayerColumn()) != Terrain.WATER);
+    }
+
+    @Test
+    public void testGeneratedMapsAreValid() {
+        for (long seed = 0; seed < 20; seed++) {
+            MapDefinition map = new IslandGenerator(seed, 30, 30).generate();
+            List<MapValidator.Problem> problems = MapValidator.validate(map);
+            assertTrue(seed + ": " + problems, problems.isEmpty());
+            assertEquals(32, map.getOccupants().size());
+        }
+    }
+
+    @Test
+    public void testOccupantsThatDoNotFitLeftOut() {
+        IslandGenerator generator = new IslandGenerator(3, 8, 8);
+        generator.setOccupants(200, 0, 0, 0, 0, 0);
+        MapDefinition map = generator.generate();
+        assertTrue(map.getOccupants().size() < 200);
+        assertFalse(MapValidator.hasErrors(MapValidator.validate(map)));
+    }
+
+    @Test
+    public void testWritesIslandFile() throws IOException {
+        File file = File.createTempFile("generated", MappedIsland.FILE_EXTENSION);
+        try {
+            MapDefinition map = new IslandGenerator(9, 100, 130).write(file, true);
+            assertEquals(text(map), text(MapDefinition.read(file)));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /*********************************************************************************************************
+     * Private helper methods
+     *********************************************************************************************************/
+
+    private String text(MapDefinition map) throws IOException {
+        StringWriter out = new StringWriter();
+        map.write(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,229 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * The test class MapCatalogTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class MapCatalogTest extends junit.framework.TestCase
+{
+    private static final String MAP =
+            "2, 3,\n"
+            + ".*#,\n"
+            + "^~.,\n"
+            + "River Song, 0, 0, 100.0, 10.0, 5.0,\n"
+            + "3,\n"
+            + "E,Apple,A juicy apple, 1, 0, 0.5, 1.0, 5.0,\n"
+            + "K,Kiwi,Little spotted kiwi, 1, 2,\n"
+            + "K,Kiwi,Little spotted kiwi, 0, 2,\n";
+
+    File folder;
+    File cacheFile;
+
+    /**
+     * Default constructor for test class MapCatalogTest
+     */
+    public MapCatalogTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        folder = File.createTempFile("maps", "");
+        folder.delete();
+        folder.mkdir();
+        cacheFile = new File(folder.getPath() + ".catalog");
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        folder.delete();
+        cacheFile.delete();
+    }
+
+    @Test
+    public void testCatalogsShippedMaps() {
+        MapCatalog catalog = MapCatalog.build(new File("maps"), null);
+        assertEquals(3, catalog.getEntries().size());
+        MapCatalog.Entry entry = catalog.getEntry(new File("maps", "IslandData.txt").getPath());
+        assertEquals(10, entry.getNumRows());
+        assertEquals(10, entry.getNumColumns());
+        assertTrue(entry.getOccupantCount("K") > 0);
+        assertTrue(entry.getOccupantCount("P") > 0);
+        assertTrue(entry.getDifficulty() > 0.0);
+    }
+
+    @Test
+    public void testEntry() throws IOException {
+        MapCatalog.Entry entry = MapCatalog.catalog(writeMap("a.txt", MAP));
+        assertEquals(2, entry.getNumRows());
+        assertEquals(3, entry.getNumColumns());
+        assertEquals(1, entry.getOccupantCount("E"));
+        assertEquals(2, entry.getOccupantCount("K"));
+        assertEquals(0, entry.getOccupantCount("P"));
+        // 3 squares to the kiwis over land of difficulty 1.9, with 105 stamina
+        assertEquals(3 * 1.9 / 105.0, entry.getDifficulty(), 1e-9);
+        assertTrue(entry.getChecksum() != 0);
+    }
+
+    @Test
+    public void testMissingFolder() {
+        MapCatalog catalog = MapCatalog.build(new File(folder, "missing"), cacheFile);
+        assertTrue(catalog.getEntries().isEmpty());
+        assertNull(catalog.select(new MapCatalog.Filter(), 1, new Random(1)).next());
+    }
+
+    @Test
+    public void testBadMapsLeftOut() throws IOException {
+        writeMap("a.txt", MAP);
+        writeMap("b.txt", "not a map");
+        MapCatalog catalog = MapCatalog.build(folder, cacheFile);
+        assertEquals(1, catalog.getEntries().size());
+    }
+
+    @Test
+    public void testUnchangedMapsComeFromCache() throws IOException {
+        File map = writeMap("a.txt", MAP);
+        MapCatalog.build(folder, cacheFile);
+        assertTrue(cacheFile.isFile());
+
+        // same size and time, so the catalog does not look inside
+        long lastModified = map.lastModified();
+        writeMap("a.txt", MAP.replace("K,Kiwi", "P,Kiwi"));
+        map.setLastModified(lastModified);
+        MapCatalog catalog = MapCatalog.build(folder, cacheFile);
+        assertEquals(2, catalog.getEntries().get(0).getOccupantCount("K"));
+
+        map.setLastModified(lastModified + 2000);
+        catalog = MapCatalog.build(folder, cacheFile);
+        assertEquals(0, catalog.getEntries().get(0).getOccupantCount("K"));
+        assertEquals(2, catalog.getEntries().get(0).getOccupantCount("P"));
+    }
+
+    @Test
+    public void testDeletedMapsDropped() throws IOException {
+        writeMap("a.txt", MAP);
+        File b = writeMap("b.txt", MAP);
+        assertEquals(2, MapCatalog.build(folder, cacheFile).getEntries().size());
+        b.delete();
+        assertEquals(1, MapCatalog.build(folder, cacheFile).getEntries().size());
+    }
+
+    @Test
+    public void testFilter() throws IOException {
+        writeMap("a.txt", MAP);
+        writeMap("b.txt", MAP.replace("100.0", "1.0"));
+        MapCatalog catalog = MapCatalog.build(folder, null);
+        assertEquals(1, catalog.find(new MapCatalog.Filter().setDifficulty(0.0, 0.5)).size());
+        assertEquals(1, catalog.find(new MapCatalog.Filter().setDifficulty(0.5, 10.0)).size());
+        assertEquals(2, catalog.find(new MapCatalog.Filter().setSquares(6, 6)).size());
+        assertEquals(0, catalog.find(new MapCatalog.Filter().setSquares(7, 100)).size());
+    }
+
+    @Test
+    public void testSelectorAvoidsRecentMaps() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            writeMap(i + ".txt", MAP);
+        }
+        MapCatalog.Selector selector = MapCatalog.build(folder, null).select(new MapCatalog.Filter(), 3, new Random(1));
+        List<String> drawn = new ArrayList<String>();
+        Set<String> seen = new HashSet<String>();
+        for (int i = 0; i < 1000; i++) {
+            drawn.add(selector.next().getPath());
+            seen.add(drawn.get(i));
+        }
+        assertEquals(5, seen.size());
+        for (int i = 3; i < drawn.size(); i++) {
+            Set<String> lastFour = new HashSet<String>(drawn.subList(i - 3, i + 1));
+            assertEquals(4, lastFour.size());
+        }
+    }
+
+    @Test
+    public void testSelectorWithOneMap() throws IOException {
+        writeMap("a.txt", MAP);
+        MapCatalog.Selector selector = MapCatalog.build(folder, null).select(new MapCatalog.Filter(), 3, new Random(1));
+        assertNotNull(selector.next());
+        assertNotNull(selector.next());
+    }
+
+    @Test
+    public void testEmptyCatalogFallsBackToBundledMaps() {
+        Game.setMapCatalog(MapCatalog.build(folder, null));
+        try {
+            Game game = new Game();
+            assertTrue(game.hasMap());
+            assertTrue(game.getPrevMap(), game.getPrevMap().startsWith("maps"));
+            game.createNewGame();
+            assertFalse(game.messageForPlayer());
+        } finally {
+            Game.setMapCatalog(null);
+        }
+    }
+
+    @Test
+    public void testMapsTooLargeToShowAreNotPicked() throws IOException {
+        StringBuilder text = new StringBuilder("65, 65,\n");
+        for (int row = 0; row < 65; row++) {
+            for (int col = 0; col < 65; col++) {
+                text.append('.');
+            }
+            text.append(",\n");
+        }
+        text.append("River Song, 0, 0, 100.0, 10.0, 5.0,\n0,\n");
+        writeMap("huge.txt", text.toString());
+        Game.setMapCatalog(MapCatalog.build(folder, null));
+        try {
+            Game game = new Game();
+            assertTrue(game.hasMap());
+            assertTrue(game.getPrevMap(), game.getPrevMap().startsWith("maps"));
+            assertTrue(game.getNumRows() < 65);
+        } finally {
+            Game.setMapCatalog(null);
+        }
+    }
+
+    /*********************************************************************************************************
+     * Private helper methods
+     *********************************************************************************************************/
+
+    private File writeMap(String name, String text) throws IOException {
+        File file = new File(folder, name);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
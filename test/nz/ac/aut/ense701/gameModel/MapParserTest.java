@@ -0,0 +1,163 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Test;
+
+/**
+ * The test class MapParserTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class MapParserTest extends junit.framework.TestCase
+{
+    private static final String MAP =
+            "2, 3,\n"
+            + ".*#,\n"
+            + "^~.,\n"
+            + "River Song, 1, 2, 100.0, 10.0, 5.0,\n"
+            + "4,\n"
+            + "T,Trap,A trap, 0, 1, 1.0, 1.0,\n"
+            + "E,Apple,A juicy apple, 1, 0, 0.5, 1.0, 5.5,\n"
+            + "H,Cliff,A steep cliff, 0, 0, 1.0,\n"
+            + "K,Kiwi,Little spotted kiwi, 1, 1,\n";
+
+    /**
+     * Default constructor for test class MapParserTest
+     */
+    public MapParserTest()
+    {
+    }
+
+    @Test
+    public void testReadsMap() throws IOException {
+        MapDefinition map = parse(MAP);
+        assertEquals(2, map.getNumRows());
+        assertEquals(3, map.getNumColumns());
+        assertEquals(Terrain.SAND, map.getTerrain(0, 0));
+        assertEquals(Terrain.FOREST, map.getTerrain(0, 1));
+        assertEquals(Terrain.WETLAND, map.getTerrain(0, 2));
+        assertEquals(Terrain.SCRUB, map.getTerrain(1, 0));
+        assertEquals(Terrain.WATER, map.getTerrain(1, 1));
+        assertEquals("River Song", map.getPlayerName());
+        assertEquals(1, map.getPlayerRow());
+        assertEquals(2, map.getPlayerColumn());
+        assertEquals(100.0, map.getMaxStamina(), 0.0);
+        assertEquals(4, map.getOccupants().size());
+
+        MapDefinition.OccupantDefinition apple = map.getOccupants().get(1);
+        assertEquals("E", apple.getType());
+        assertEquals("A juicy apple", apple.getDescription());
+        assertEquals(0.5, apple.getWeight(), 0.0);
+        assertEquals(5.5, apple.getEnergy(), 0.0);
+        assertEquals(1.0, map.getOccupants().get(2).getImpact(), 0.0);
+    }
+
+    @Test
+    public void testWhiteSpaceAroundCommas() throws IOException {
+        MapDefinition map = parse(MAP.replace(", ", " ,\t ").replace(",\n", " ,\r\n"));
+        assertEquals("River Song", map.getPlayerName());
+        assertEquals("Little spotted kiwi", map.getOccupants().get(3).getDescription());
+        assertEquals(Terrain.WETLAND, map.getTerrain(0, 2));
+    }
+
+    @Test
+    public void testShortRowHasNoTerrain() throws IOException {
+        MapDefinition map = parse(MAP.replace("^~.,", "^,"));
+        assertEquals(Terrain.SCRUB, map.getTerrain(1, 0));
+        assertNull(map.getTerrain(1, 1));
+    }
+
+    @Test
+    public void testUnknownTerrain() {
+        MapFormatException error = parseError(MAP.replace("^~.,", "^x.,"));
+        assertEquals(3, error.getLine());
+        assertEquals(2, error.getColumn());
+    }
+
+    @Test
+    public void testRowTooLong() {
+        MapFormatException error = parseError(MAP.replace(".*#,", ".*#.,"));
+        assertEquals(2, error.getLine());
+        assertEquals(4, error.getColumn());
+    }
+
+    @Test
+    public void testNotANumber() {
+        MapFormatException error = parseError(MAP.replace("100.0", "lots"));
+        assertEquals(4, error.getLine());
+        assertEquals(19, error.getColumn());
+        assertTrue(error.getMessage().contains("maximum stamina"));
+    }
+
+    @Test
+    public void testOccupantOffIsland() {
+        MapFormatException error = parseError(MAP.replace("K,Kiwi,Little spotted kiwi, 1, 1,", "K,Kiwi,Little spotted kiwi, 1, 3,"));
+        assertEquals(9, error.getLine());
+    }
+
+    @Test
+    public void testFileEndsEarly() {
+        MapFormatException error = parseError(MAP.replace("4,\n", "5,\n"));
+        assertTrue(error.getMessage().contains("ended"));
+        assertEquals(10, error.getLine());
+    }
+
+    @Test
+    public void testUnknownOccupantType() {
+        MapFormatException error = parseError(MAP.replace("K,Kiwi", "Q,Kiwi"));
+        assertEquals(9, error.getLine());
+        assertEquals(1, error.getColumn());
+    }
+
+    @Test
+    public void testShippedMaps() throws IOException {
+        File[] maps = new File("maps").listFiles();
+        assertNotNull(maps);
+        for (File file : maps) {
+            if (file.isFile()) {
+                MapDefinition map = MapDefinition.read(file);
+                assertTrue(file.getName(), map.getOccupants().size() > 0);
+                for (int row = 0; row < map.getNumRows(); row++) {
+                    for (int col = 0; col < map.getNumColumns(); col++) {
+                        assertNotNull(file.getName(), map.getTerrain(row, col));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTerrainLookup() {
+        for (Terrain terrain : Terrain.values()) {
+            assertEquals(terrain, Terrain.getTerrainFromCharacter(terrain.getStringRepresentation().charAt(0)));
+            assertEquals(terrain, Terrain.getTerrainFromStringRepresentation(terrain.getStringRepresentation()));
+        }
+        assertNull(Terrain.getTerrainFromCharacter('x'));
+        assertNull(Terrain.getTerrainFromCharacter(-1));
+        assertNull(Terrain.getTerrainFromCharacter(200));
+        assertNull(Terrain.getTerrainFromStringRepresentation(".."));
+    }
+
+    /*********************************************************************************************************
+     * Private helper methods
+     *********************************************************************************************************/
+
+    private MapDefinition parse(String text) throws IOException {
+        byte[] data = text.getBytes("UTF-8");
+        return MapParser.parse(data, data.length);
+    }
+
+    private MapFormatException parseError(String text) {
+        try {
+            parse(text);
+        } catch (MapFormatException e) {
+            return e;
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+        fail("no error for a bad map");
+        return null;
+    }
+}
@@ -5,6 +5,7 @@
  */
 package nz.ac.aut.ense701.gameModel;
 
+import java.io.File;
 import org.junit.Test;
 
 /**
@@ -35,4 +36,25 @@ public class MapSelectTest extends junit.framework.TestCase{
         game.createNewGame();
         assertNotSame(firstMap, game.getPrevMap());
     }
+
+    @Test
+    public void testPreloadedMapStartsFresh() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Island before = game.getIsland();
+            game.createNewGame();
+            MapDefinition map = MapDefinition.read(new File(game.getPrevMap()));
+            int kiwis = 0;
+            for (MapDefinition.OccupantDefinition occupant : map.getOccupants()) {
+                if (occupant.getType().equals("K")) {
+                    kiwis++;
+                }
+            }
+            assertNotSame(before, game.getIsland());
+            assertEquals(kiwis, game.getTotalKiwis());
+            assertEquals(0, game.getKiwiCount());
+            assertEquals(map.getPlayerRow(), game.getPlayer().getPosition().getRow());
+            assertEquals(map.getPlayerColumn(), game.getPlayer().getPosition().getColumn());
+            assertTrue(game.hasPlayer(map.getPlayerRow(), map.getPlayerColumn()));
+        }
+    }
 }
@@ -0,0 +1,171 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Test;
+
+/**
+ * The test class MapSolverTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class MapSolverTest extends junit.framework.TestCase
+{
+    /**
+     * A corridor: player at the west end, a trap next to them and a rat at
+     * the east end.
+     */
+    private static final String CORRIDOR =
+            "1, 5,\n"
+            + ".....,\n"
+            + "Tester, 0, 0, 10.0, 10.0, 5.0,\n"
+            + "2,\n"
+            + "T,Trap,A trap, 0, 1, 1.0, 1.0,\n"
+            + "P,Rat,A rat, 0, 4,\n";
+
+    /**
+     * Default constructor for test class MapSolverTest
+     */
+    public MapSolverTest()
+    {
+    }
+
+    @Test
+    public void testCorridor() {
+        MapSolver.Solution solution = solve(CORRIDOR);
+        assertEquals(MapSolver.Outcome.WINNABLE, solution.getOutcome());
+        assertEquals(4, solution.getMoves());
+        assertEquals("collect Trap", solution.getSteps().get(1));
+        assertEquals("use Trap", solution.getSteps().get(solution.getSteps().size() - 1));
+    }
+
+    @Test
+    public void testNoTrapIsUnwinnable() {
+        MapSolver.Solution solution = solve(CORRIDOR.replace("2,\nT,Trap,A trap, 0, 1, 1.0, 1.0,\n", "1,\n"));
+        assertEquals(MapSolver.Outcome.UNWINNABLE, solution.getOutcome());
+        assertEquals(-1, solution.getMoves());
+    }
+
+    @Test
+    public void testFatalHazardBlocksTheWay() {
+        MapSolver.Solution solution = solve(CORRIDOR.replace("2,\n", "3,\n")
+                + "H,Cliff,A cliff, 0, 3, 1.0,\n");
+        assertEquals(MapSolver.Outcome.UNWINNABLE, solution.getOutcome());
+    }
+
+    @Test
+    public void testFoodMakesStaminaLast() {
+        // with the trap a move costs 1.5: trapping the rat leaves no stamina to move, which loses
+        String sand = "1, 5,\n"
+                + ".....,\n"
+                + "Tester, 0, 2, 8.0, 2.0, 5.0,\n"
+                + "2,\n"
+                + "T,Trap,A trap, 0, 0, 1.0, 1.0,\n"
+                + "P,Rat,A rat, 0, 4,\n";
+        assertEquals(MapSolver.Outcome.UNWINNABLE, solve(sand).getOutcome());
+
+        MapSolver.Solution solution = solve(sand.replace("2,\n", "3,\n")
+                + "E,Apple,An apple, 0, 1, 0.5, 1.0, 5.0,\n");
+        assertEquals(MapSolver.Outcome.WINNABLE, solution.getOutcome());
+        assertEquals(6, solution.getMoves());
+        assertTrue(solution.getSteps().contains("eat Apple"));
+    }
+
+    @Test
+    public void testKiwiWinNeedsEnoughPredators() {
+        // five predators: counting the kiwi also needs four of them trapped
+        String map = "1, 7,\n"
+                + ".......,\n"
+                + "Tester, 0, 3, 100.0, 10.0, 5.0,\n"
+                + "8,\n"
+                + "T,Trap,A trap, 0, 3, 1.0, 1.0,\n"
+                + "K,Kiwi,A kiwi, 0, 6,\n"
+                + "P,Rat,A rat, 0, 0,\n"
+                + "P,Rat,A rat, 0, 0,\n"
+                + "P,Rat,A rat, 0, 1,\n"
+                + "P,Rat,A rat, 0, 2,\n"
+                + "P,Rat,A rat, 0, 6,\n"
+                + "F,Tui,A tui, 0, 5,\n";
+        MapSolver.Solution solution = solve(map);
+        assertEquals(MapSolver.Outcome.WINNABLE, solution.getOutcome());
+        assertEquals("All five rats, or four and the kiwi: west then east", 9, solution.getMoves());
+    }
+
+    @Test
+    public void testThreadsAgree() throws IOException {
+        GameRules rules = new GameRules(MapDefinition.read(new File("maps/IslandData.txt")));
+        MapSolver single = new MapSolver(rules);
+        single.setThreads(1);
+        single.setMemoryLimit(16L << 20);
+        MapSolver parallel = new MapSolver(rules);
+        parallel.setThreads(4);
+        parallel.setMemoryLimit(16L << 20);
+        assertEquals(single.solve().getMoves(), parallel.solve().getMoves());
+    }
+
+    @Test
+    public void testSolutionWinsRealGame() throws IOException {
+        Game game = new Game();
+        GameRules rules = new GameRules(MapDefinition.read(new File(game.getPrevMap())));
+        MapSolver solver = new MapSolver(rules);
+        solver.setMemoryLimit(32L << 20);
+        MapSolver.Solution solution = solver.solve();
+        assertEquals(MapSolver.Outcome.WINNABLE, solution.getOutcome());
+
+        int moves = 0;
+        for (int action : solution.getActions()) {
+            int argument = GameSnapshot.actionArgument(action);
+            switch (GameSnapshot.actionKind(action)) {
+                case GameSnapshot.MOVE:
+                    assertTrue(game.playerMove(MoveDirection.values()[argument]));
+                    moves++;
+                    break;
+                case GameSnapshot.COLLECT:
+                    assertTrue(game.collectItem(find(game.getOccupantsPlayerPosition(), rules, argument)));
+                    break;
+                case GameSnapshot.DROP:
+                    assertTrue(game.dropItem(find(game.getPlayerInventory(), rules, argument)));
+                    break;
+                case GameSnapshot.USE_TRAP:
+                    assertTrue(game.useItem(game.getPlayer().getTrap()));
+                    break;
+                default:
+                    // eating and fixing report no success, counting returns nothing
+                    if (GameSnapshot.actionKind(action) == GameSnapshot.COUNT_KIWI) {
+                        game.countKiwi();
+                    } else {
+                        game.useItem(find(game.getPlayerInventory(), rules, argument));
+                    }
+                    break;
+            }
+            assertTrue(game.getState() != GameState.LOST);
+        }
+        assertEquals(GameState.WON, game.getState());
+        assertEquals(solution.getMoves(), moves);
+    }
+
+    /*********************************************************************************************************
+     * Private helper methods
+     *********************************************************************************************************/
+
+    private MapSolver.Solution solve(String map) {
+        MapSolver solver = new MapSolver(new GameRules(MapDefinition.parse(map)));
+        solver.setMemoryLimit(1L << 20);
+        return solver.solve();
+    }
+
+    private Item find(Object[] candidates, GameRules rules, int item) {
+        for (Object candidate : candidates) {
+            if (candidate instanceof Item) {
+                Item found = (Item) candidate;
+                if (found.getName().equals(rules.itemName[item]) && found.getWeight() == rules.itemWeight[item]
+                        && found.getSize() == rules.itemSize[item]) {
+                    return found;
+                }
+            }
+        }
+        fail("No " + rules.itemName[item] + " to use");
+        return null;
+    }
+}
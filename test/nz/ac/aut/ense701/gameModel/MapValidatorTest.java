@@ -0,0 +1,138 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * The test class MapValidatorTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class MapValidatorTest extends junit.framework.TestCase
+{
+    private static final String TERRAIN =
+            "3, 5,\n"
+            + "..~..,\n"
+            + "..~..,\n"
+            + "..~~~,\n";
+
+    /**
+     * Default constructor for test class MapValidatorTest
+     */
+    public MapValidatorTest()
+    {
+    }
+
+    @Test
+    public void testShippedMapsHaveNoErrors() {
+        for (File file : new File("maps").listFiles()) {
+            List<MapValidator.Problem> problems = MapValidator.validate(file);
+            assertFalse(file + ": " + problems, MapValidator.hasErrors(problems));
+        }
+    }
+
+    @Test
+    public void testCleanMap() {
+        List<MapValidator.Problem> problems = validate(TERRAIN, 0, 0, 100.0,
+                "K,Kiwi,A kiwi, 1, 1,\n",
+                "F,Dolphin,A dolphin, 2, 4,\n");
+        assertTrue(problems.toString(), problems.isEmpty());
+    }
+
+    @Test
+    public void testShortRow() {
+        List<MapValidator.Problem> problems = validate("2, 4,\n....,\n..,\n", 0, 0, 100.0);
+        assertEquals(1, problems.size());
+        assertProblem(problems.get(0), MapValidator.SHORT_ROW, 1, 2);
+    }
+
+    @Test
+    public void testOverflow() {
+        List<MapValidator.Problem> problems = validate(TERRAIN, 0, 0, 100.0,
+                "E,Apple,An apple, 1, 1, 0.5, 1.0, 5.0,\n",
+                "E,Apple,An apple, 1, 1, 0.5, 1.0, 5.0,\n",
+                "E,Apple,An apple, 1, 1, 0.5, 1.0, 5.0,\n",
+                "K,Kiwi,A kiwi, 1, 1,\n");
+        assertEquals(1, problems.size());
+        assertProblem(problems.get(0), MapValidator.OVERFLOW, 1, 1);
+        assertEquals(MapValidator.Severity.ERROR, problems.get(0).getSeverity());
+    }
+
+    @Test
+    public void testInWater() {
+        List<MapValidator.Problem> problems = validate(TERRAIN, 0, 0, 100.0,
+                "T,Trap,A trap, 0, 2, 1.0, 1.0,\n");
+        assertEquals(1, problems.size());
+        assertProblem(problems.get(0), MapValidator.IN_WATER, 0, 2);
+        assertEquals(MapValidator.Severity.WARNING, problems.get(0).getSeverity());
+    }
+
+    @Test
+    public void testCutOffByWater() {
+        List<MapValidator.Problem> problems = validate(TERRAIN, 0, 0, 100.0,
+                "K,Kiwi,A kiwi, 0, 4,\n");
+        assertEquals(1, problems.size());
+        assertProblem(problems.get(0), MapValidator.CUT_OFF, 0, 4);
+        assertEquals(MapValidator.Severity.WARNING, problems.get(0).getSeverity());
+    }
+
+    @Test
+    public void testOutOfReach() {
+        // sand, water, sand and sand cost 1 + 4 + 1 + 1 stamina
+        List<MapValidator.Problem> problems = validate(TERRAIN, 0, 0, 7.0,
+                "K,Kiwi,A kiwi, 0, 4,\n",
+                "P,Rat,A rat, 1, 1,\n");
+        assertEquals(1, problems.size());
+        assertEquals(MapValidator.CUT_OFF, problems.get(0).getCode());
+
+        problems = validate(TERRAIN, 0, 0, 6.5,
+                "K,Kiwi,A kiwi, 0, 4,\n",
+                "P,Rat,A rat, 1, 1,\n");
+        assertEquals(1, problems.size());
+        assertProblem(problems.get(0), MapValidator.OUT_OF_REACH, 0, 4);
+    }
+
+    @Test
+    public void testUnreadableFile() throws IOException {
+        File file = File.createTempFile("map", ".txt");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write("not a map".getBytes("UTF-8"));
+            } finally {
+                out.close();
+            }
+            List<MapValidator.Problem> problems = MapValidator.validate(file);
+            assertEquals(1, problems.size());
+            assertProblem(problems.get(0), MapValidator.UNREADABLE, -1, -1);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /*********************************************************************************************************
+     * Private helper methods
+     *********************************************************************************************************/
+
+    private List<MapValidator.Problem> validate(String terrain, int playerRow, int playerColumn, double stamina,
+            String... occupants) {
+        StringBuilder text = new StringBuilder(terrain);
+        text.append("River Song, ").append(playerRow).append(", ").append(playerColumn).append(", ")
+                .append(stamina).append(", 10.0, 5.0,\n");
+        text.append(occupants.length).append(",\n");
+        for (String occupant : occupants) {
+            text.append(occupant);
+        }
+        return MapValidator.validate(MapDefinition.parse(text.toString()));
+    }
+
+    private void assertProblem(MapValidator.Problem problem, String code, int row, int column) {
+        assertEquals(problem.toString(), code, problem.getCode());
+        assertEquals(problem.toString(), row, problem.getRow());
+        assertEquals(problem.toString(), column, problem.getColumn());
+    }
+}
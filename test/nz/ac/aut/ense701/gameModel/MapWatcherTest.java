@@ -0,0 +1,213 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * The test class MapWatcherTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class MapWatcherTest extends junit.framework.TestCase
+{
+    private static final String MAP =
+            "2, 3,\n"
+            + ".*#,\n"
+            + "^~.,\n"
+            + "River Song, 0, 0, 100.0, 10.0, 5.0,\n"
+            + "1,\n"
+            + "K,Kiwi,Little spotted kiwi, 1, 2,\n";
+    private static final long DEBOUNCE = 200;
+
+    File folder;
+    MapWatcher watcher;
+    AtomicInteger changes;
+    CountDownLatch changed;
+
+    /**
+     * Default constructor for test class MapWatcherTest
+     */
+    public MapWatcherTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        folder = File.createTempFile("maps", "");
+        folder.delete();
+        folder.mkdir();
+        writeMap("a.txt", MAP);
+        watcher = new MapWatcher(folder, MapCatalog.build(folder, null), DEBOUNCE);
+        changes = new AtomicInteger();
+        changed = new CountDownLatch(1);
+        watcher.addListener(new MapWatcher.Listener() {
+            @Override
+            public void mapChanged(File file, MapDefinition map) {
+                changes.incrementAndGet();
+                changed.countDown();
+            }
+        });
+        watcher.start();
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        watcher.stop();
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    @Test
+    public void testBurstOfSavesReadOnce() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            writeMap("a.txt", MAP.replace("100.0", (200 + i) + ".0"));
+            Thread.sleep(20);
+        }
+        assertTrue(changed.await(10, TimeUnit.SECONDS));
+        Thread.sleep(DEBOUNCE * 2);
+        assertEquals(1, changes.get());
+        MapCatalog.Entry entry = watcher.getCatalog().getEntry(new File(folder, "a.txt").getPath());
+        assertEquals(1, entry.getOccupantCount("K"));
+        assertEquals(1, watcher.getCatalog().getEntries().size());
+    }
+
+    @Test
+    public void testNewMapAdded() throws Exception {
+        MapCatalog before = watcher.getCatalog();
+        writeMap("b.txt", MAP);
+        assertTrue(changed.await(10, TimeUnit.SECONDS));
+        assertEquals(2, watcher.getCatalog().getEntries().size());
+        // the old catalog is left as it was
+        assertEquals(1, before.getEntries().size());
+    }
+
+    @Test
+    public void testDeletedMapRemoved() throws Exception {
+        new File(folder, "a.txt").delete();
+        assertTrue(changed.await(10, TimeUnit.SECONDS));
+        assertTrue(watcher.getCatalog().getEntries().isEmpty());
+    }
+
+    @Test
+    public void testBadMapKeepsOldEntry() throws Exception {
+        MapCatalog.Entry before = watcher.getCatalog().getEntries().get(0);
+        writeMap("a.txt", "not a map");
+        writeMap("b.txt", MAP);
+        assertTrue(changed.await(10, TimeUnit.SECONDS));
+        Thread.sleep(DEBOUNCE * 2);
+        assertEquals(1, changes.get());
+        assertSame(before, watcher.getCatalog().getEntry(before.getPath()));
+    }
+
+    @Test
+    public void testInvalidMapKeepsOldEntry() throws Exception {
+        MapCatalog.Entry before = watcher.getCatalog().getEntries().get(0);
+        // reads, but the kiwi needs more stamina than the player has
+        writeMap("a.txt", MAP.replace("100.0", "1.0"));
+        writeMap("b.txt", MAP);
+        assertTrue(changed.await(10, TimeUnit.SECONDS));
+        Thread.sleep(DEBOUNCE * 2);
+        assertEquals(1, changes.get());
+        assertSame(before, watcher.getCatalog().getEntry(before.getPath()));
+    }
+
+    @Test
+    public void testAddedEntryKeptThroughChanges() throws Exception {
+        File daily = File.createTempFile("daily", ".txt");
+        try {
+            FileOutputStream out = new FileOutputStream(daily);
+            try {
+                out.write(MAP.getBytes("UTF-8"));
+            } finally {
+                out.close();
+            }
+            watcher.addEntry(MapCatalog.catalog(daily));
+            writeMap("b.txt", MAP);
+            assertTrue(changed.await(10, TimeUnit.SECONDS));
+            assertEquals(3, watcher.getCatalog().getEntries().size());
+            assertNotNull(watcher.getCatalog().getEntry(daily.getPath()));
+        } finally {
+            daily.delete();
+        }
+    }
+
+    @Test
+    public void testReloadKeepsPlayerPosition() throws IOException {
+        Game game = new Game();
+        for (MoveDirection direction : MoveDirection.values()) {
+            if (game.playerMove(direction)) {
+                break;
+            }
+        }
+        Position position = game.getPlayer().getPosition();
+        game.reloadMap(MapDefinition.read(new File(game.getPrevMap())));
+        assertEquals(position.getRow(), game.getPlayer().getPosition().getRow());
+        assertEquals(position.getColumn(), game.getPlayer().getPosition().getColumn());
+        assertEquals(GameState.PLAYING, game.getState());
+        assertTrue(game.getPlayer().getStaminaLevel() == game.getPlayer().getMaximumStaminaLevel());
+    }
+
+    @Test
+    public void testReloadChangesIslandSize() throws IOException {
+        Game game = new Game();
+        String path = game.getPrevMap();
+        int rows = game.getNumRows();
+        int columns = game.getNumColumns();
+        final AtomicInteger told = new AtomicInteger();
+        game.addGameEventListener(new GameEventListener() {
+            @Override
+            public void gameStateChanged() {
+                told.incrementAndGet();
+            }
+        });
+        game.reloadMap(MapDefinition.read(new File(folder, "a.txt")));
+        assertEquals(1, told.get());
+        assertEquals(2, game.getNumRows());
+        assertEquals(3, game.getNumColumns());
+        Position position = game.getPlayer().getPosition();
+        assertTrue(position.getRow() < 2 && position.getColumn() < 3);
+        assertTrue(game.hasPlayer(position.getRow(), position.getColumn()));
+        assertEquals(path, game.getPrevMap());
+
+        game.reloadMap(MapDefinition.read(new File(path)));
+        assertEquals(2, told.get());
+        assertEquals(rows, game.getNumRows());
+        assertEquals(columns, game.getNumColumns());
+    }
+
+    /*********************************************************************************************************
+     * Private helper methods
+     *********************************************************************************************************/
+
+    private void writeMap(String name, String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(folder, name));
+        try {
+            out.write(text.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
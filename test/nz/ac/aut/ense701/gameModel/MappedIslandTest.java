@@ -0,0 +1,185 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * The test class MappedIslandTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class MappedIslandTest extends junit.framework.TestCase
+{
+    File islandFile;
+
+    /**
+     * Default constructor for test class MappedIslandTest
+     */
+    public MappedIslandTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        islandFile = File.createTempFile("kiwi", MappedIsland.FILE_EXTENSION);
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        islandFile.delete();
+    }
+
+    @Test
+    public void testRoundTripNibbles() throws IOException {
+        MapDefinition map = MapDefinition.read(new File("maps/IslandData.txt"));
+        MappedIsland.write(map, islandFile, false);
+        MappedIsland mapped = MappedIsland.open(islandFile);
+        assertFalse(mapped.isRunLengthEncoded());
+        assertSameMap(map, mapped.toMapDefinition());
+    }
+
+    @Test
+    public void testRoundTripRunLength() throws IOException {
+        MapDefinition map = MapDefinition.read(new File("maps/IslandData.txt"));
+        MappedIsland.write(map, islandFile, true);
+        MappedIsland mapped = MappedIsland.open(islandFile);
+        assertTrue(mapped.isRunLengthEncoded());
+        assertSameMap(map, mapped.toMapDefinition());
+    }
+
+    @Test
+    public void testRunLengthIsSmallerForLargeAreas() throws IOException {
+        MapDefinition map = waterMap(200, 300, 0);
+        MappedIsland.write(map, islandFile, false);
+        long nibbles = islandFile.length();
+        MappedIsland.write(map, islandFile, true);
+        assertTrue(islandFile.length() * 10 < nibbles);
+        assertSameMap(map, MappedIsland.open(islandFile).toMapDefinition());
+    }
+
+    @Test
+    public void testStringsStoredOnce() throws IOException {
+        MappedIsland.write(waterMap(4, 4, 1), islandFile, false);
+        long one = islandFile.length();
+        MappedIsland.write(waterMap(4, 4, 11), islandFile, false);
+        // each extra kiwi is one record, its strings are already in the pool
+        assertEquals(one + 10 * 56, islandFile.length());
+    }
+
+    @Test
+    public void testReadsThroughMapDefinition() throws IOException {
+        MapDefinition map = MapDefinition.read(new File("maps/JamesMap1.txt"));
+        MappedIsland.write(map, islandFile, true);
+        MapDefinition read = MapDefinition.read(islandFile);
+        assertNotNull(read.getMappedIsland());
+        assertSameMap(map, read);
+    }
+
+    @Test
+    public void testTextRoundTrip() throws IOException {
+        MapDefinition map = MapDefinition.read(new File("maps/IslandData.txt"));
+        StringWriter text = new StringWriter();
+        map.write(text);
+        assertSameMap(map, MapDefinition.parse(text.toString()));
+    }
+
+    @Test
+    public void testIslandReadsMappedTerrain() throws IOException {
+        MapDefinition map = MapDefinition.read(new File("maps/IslandData.txt"));
+        MappedIsland.write(map, islandFile, true);
+        Island island = new ChunkedIsland(MappedIsland.open(islandFile), ChunkedIsland.DEFAULT_MEMORY_BUDGET);
+        for (int row = 0; row < map.getNumRows(); row++) {
+            for (int col = 0; col < map.getNumColumns(); col++) {
+                Position position = new Position(island, row, col);
+                assertEquals(map.getTerrain(row, col), island.getTerrain(position));
+                assertFalse(island.isVisible(position));
+                assertEquals(0, island.getOccupants(position).length);
+            }
+        }
+
+        Position position = new Position(island, 2, 3);
+        island.setTerrain(position, Terrain.WETLAND);
+        assertEquals(Terrain.WETLAND, island.getTerrain(position));
+        Kiwi kiwi = new Kiwi(position, "Kiwi", "A kiwi", null);
+        assertTrue(island.addOccupant(position, kiwi));
+        assertTrue(island.hasOccupant(position, kiwi));
+    }
+
+    @Test
+    public void testNotAnIslandFile() throws IOException {
+        FileOutputStream out = new FileOutputStream(islandFile);
+        out.write("3,3,\n...,\n".getBytes("UTF-8"));
+        out.close();
+        try {
+            MappedIsland.open(islandFile);
+            fail("text map opened as an island file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("island file"));
+        }
+    }
+
+    /*********************************************************************************************************
+     * Private helper methods
+     *********************************************************************************************************/
+
+    private void assertSameMap(MapDefinition expected, MapDefinition actual) {
+        assertEquals(expected.getNumRows(), actual.getNumRows());
+        assertEquals(expected.getNumColumns(), actual.getNumColumns());
+        for (int row = 0; row < expected.getNumRows(); row++) {
+            for (int col = 0; col < expected.getNumColumns(); col++) {
+                assertEquals(expected.getTerrain(row, col), actual.getTerrain(row, col));
+            }
+        }
+        assertEquals(expected.getPlayerName(), actual.getPlayerName());
+        assertEquals(expected.getPlayerRow(), actual.getPlayerRow());
+        assertEquals(expected.getPlayerColumn(), actual.getPlayerColumn());
+        assertEquals(expected.getMaxStamina(), actual.getMaxStamina(), 0.0);
+        assertEquals(expected.getMaxBackpackWeight(), actual.getMaxBackpackWeight(), 0.0);
+        assertEquals(expected.getMaxBackpackSize(), actual.getMaxBackpackSize(), 0.0);
+        assertEquals(expected.getOccupants().size(), actual.getOccupants().size());
+        for (int i = 0; i < expected.getOccupants().size(); i++) {
+            MapDefinition.OccupantDefinition a = expected.getOccupants().get(i);
+            MapDefinition.OccupantDefinition b = actual.getOccupants().get(i);
+            assertEquals(a.getType(), b.getType());
+            assertEquals(a.getName(), b.getName());
+            assertEquals(a.getDescription(), b.getDescription());
+            assertEquals(a.getRow(), b.getRow());
+            assertEquals(a.getColumn(), b.getColumn());
+            assertEquals(a.getWeight(), b.getWeight(), 0.0);
+            assertEquals(a.getSize(), b.getSize(), 0.0);
+            assertEquals(a.getEnergy(), b.getEnergy(), 0.0);
+            assertEquals(a.getImpact(), b.getImpact(), 0.0);
+        }
+    }
+
+    private MapDefinition waterMap(int numRows, int numColumns, int kiwis) {
+        byte[] terrain = new byte[numRows * numColumns];
+        Arrays.fill(terrain, (byte) Terrain.WATER.ordinal());
+        terrain[0] = (byte) Terrain.SAND.ordinal();
+        List<MapDefinition.OccupantDefinition> occupants = new ArrayList<MapDefinition.OccupantDefinition>();
+        for (int i = 0; i < kiwis; i++) {
+            occupants.add(new MapDefinition.OccupantDefinition("K", "Kiwi", "Little spotted kiwi",
+                    0, 0, 0.0, 0.0, 0.0, 0.0));
+        }
+        return new MapDefinition(numRows, numColumns, terrain, "River Song", 0, 0, 100.0, 10.0, 5.0, occupants);
+    }
+}
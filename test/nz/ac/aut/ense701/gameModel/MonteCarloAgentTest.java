@@ -0,0 +1,215 @@
+package nz.ac.aut.ense701.gameModel;
+
+import org.junit.Test;
+
+/**
+ * The test class MonteCarloAgentTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class MonteCarloAgentTest extends junit.framework.TestCase
+{
+    /**
+     * Two kiwis and a rat along a corridor, the trap at the far end from the
+     * rat.
+     */
+    private static final String CORRIDOR =
+            "1, 7,\n"
+            + ".......,\n"
+            + "Tester, 0, 2, 30.0, 10.0, 5.0,\n"
+            + "4,\n"
+            + "T,Trap,A trap, 0, 0, 1.0, 1.0,\n"
+            + "K,Kiwi,A kiwi, 0, 3,\n"
+            + "K,Kiwi,A kiwi, 0, 5,\n"
+            + "P,Rat,A rat, 0, 6,\n";
+
+    /**
+     * Default constructor for test class MonteCarloAgentTest
+     */
+    public MonteCarloAgentTest()
+    {
+    }
+
+    @Test
+    public void testWinsCorridor() {
+        GameSnapshot state = new GameRules(MapDefinition.parse(CORRIDOR)).start();
+        MonteCarloAgent agent = agent(1);
+        play(agent, state);
+        assertEquals(GameState.WON, state.getState());
+        // fetch the trap, then straight to the rat
+        assertEquals(8, state.getMoves());
+    }
+
+    @Test
+    public void testSameSeedSameGame() {
+        GameRules rules = new GameRules(MapDefinition.parse(CORRIDOR));
+        GameSnapshot first = rules.start();
+        GameSnapshot second = rules.start();
+        play(agent(1), first);
+        play(agent(1), second);
+        assertEquals(first.getKey(), second.getKey());
+        assertEquals(first.getMoves(), second.getMoves());
+    }
+
+    @Test
+    public void testThreadsPickLegalActions() {
+        GameSnapshot state = new GameRules(MapDefinition.parse(CORRIDOR)).start();
+        MonteCarloAgent agent = agent(4);
+        agent.setThinkingTime(50);
+        agent.setRolloutsPerDecision(0);
+        try {
+            play(agent, state);
+        } finally {
+            agent.shutdown();
+        }
+        assertEquals(GameState.WON, state.getState());
+        assertTrue(agent.getLastRollouts() > 0);
+    }
+
+    @Test
+    public void testNothingToDo() {
+        GameSnapshot state = new GameRules(MapDefinition.parse(CORRIDOR)).start();
+        play(agent(1), state);
+        assertEquals(-1, agent(1).chooseAction(state));
+    }
+
+    @Test
+    public void testSnapshotOfNewGame() {
+        Game game = new Game();
+        GameSnapshot snapshot = game.getSnapshot();
+        Position position = game.getPlayer().getPosition();
+        assertEquals(GameState.PLAYING, snapshot.getState());
+        assertEquals(position.getRow(), snapshot.getRow());
+        assertEquals(position.getColumn(), snapshot.getColumn());
+        assertEquals(game.getPlayer().getStaminaLevel(), snapshot.getStamina(), 1e-9);
+        assertEquals(game.getTotalKiwis(), snapshot.getRules().getTotalKiwis());
+        assertEquals(game.getTotalPredators(), snapshot.getRules().getTotalPredators());
+    }
+
+    @Test
+    public void testSnapshotOfLargeIslandIsAroundPlayer() {
+        StringBuilder text = new StringBuilder("200, 200,\n");
+        for (int row = 0; row < 200; row++) {
+            for (int col = 0; col < 200; col++) {
+                text.append('.');
+            }
+            text.append(",\n");
+        }
+        text.append("Tester, 150, 120, 100.0, 10.0, 5.0,\n");
+        text.append(GameRules.MAX_ANIMALS + 2).append(",\n");
+        text.append("T,Trap,A trap, 150, 121, 1.0, 1.0,\n");
+        // more kiwis than the rules can hold, all far from the player
+        for (int col = 0; col <= GameRules.MAX_ANIMALS; col++) {
+            text.append("K,Kiwi,A kiwi, 0, ").append(col).append(",\n");
+        }
+        Game game = Game.withoutMap();
+        game.startGame("large", MapDefinition.parse(text.toString()));
+
+        GameSnapshot snapshot = game.getSnapshot();
+        assertEquals(150, snapshot.getRow());
+        assertEquals(120, snapshot.getColumn());
+        assertTrue(snapshot.getRules().getNumRows() < 200);
+        assertEquals(1, snapshot.getRules().getNumItems());
+        assertEquals(150, snapshot.getItemRow(0));
+        assertEquals(121, snapshot.getItemColumn(0));
+
+        int action = new RandomAgent(5L).chooseAction(snapshot);
+        assertTrue(snapshot.apply(action));
+        assertTrue(game.performAction(action));
+        assertEquals(game.getPlayer().getPosition().getRow(), snapshot.getRow());
+        assertEquals(game.getPlayer().getPosition().getColumn(), snapshot.getColumn());
+    }
+
+    @Test
+    public void testSnapshotWithTooManyAnimalsNearPlayer() {
+        StringBuilder text = new StringBuilder("10, 10,\n");
+        for (int row = 0; row < 10; row++) {
+            text.append("..........,\n");
+        }
+        text.append("Tester, 0, 0, 100.0, 10.0, 5.0,\n");
+        text.append(GameRules.MAX_ANIMALS + 1).append(",\n");
+        for (int kiwi = 0; kiwi <= GameRules.MAX_ANIMALS; kiwi++) {
+            text.append("K,Kiwi,A kiwi, ").append(1 + kiwi / 10).append(", ").append(kiwi % 10).append(",\n");
+        }
+        Game game = Game.withoutMap();
+        game.startGame("crowded", MapDefinition.parse(text.toString()));
+        try {
+            game.getSnapshot();
+            fail("more kiwis than GameRules can hold");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testPerformActionKeepsGameAndSnapshotInStep() {
+        Game game = new Game();
+        RandomAgent agent = new RandomAgent(7L);
+        for (int step = 0; step < 200 && game.getState() == GameState.PLAYING; step++) {
+            GameSnapshot snapshot = game.getSnapshot();
+            int action = agent.chooseAction(snapshot);
+            assertTrue(snapshot.apply(action));
+            assertTrue(snapshot.describe(action), game.performAction(action));
+
+            Player player = game.getPlayer();
+            assertEquals(snapshot.getRow(), player.getPosition().getRow());
+            assertEquals(snapshot.getColumn(), player.getPosition().getColumn());
+            assertEquals(snapshot.getStamina(), player.getStaminaLevel(), 1e-9);
+            assertEquals(snapshot.getKiwiCount(), game.getKiwiCount());
+            assertEquals(snapshot.getPredatorsTrapped(), game.getPredatorsTrapped());
+            assertEquals(snapshot.getState(), game.getState());
+        }
+    }
+
+    @Test
+    public void testSnapshotKnowsCarriedItems() {
+        Game game = new Game();
+        GameSnapshot snapshot = game.getSnapshot();
+        int[] actions = new int[snapshot.getRules().getMaxActions()];
+        RandomAgent agent = new RandomAgent(3L);
+        // wander until something has been picked up
+        for (int step = 0; step < 500 && game.getPlayerInventory().length == 0
+                && game.getState() == GameState.PLAYING; step++) {
+            snapshot = game.getSnapshot();
+            int count = snapshot.getActions(actions);
+            int action = agent.chooseAction(snapshot);
+            for (int i = 0; i < count; i++) {
+                if (GameSnapshot.actionKind(actions[i]) == GameSnapshot.COLLECT) {
+                    action = actions[i];
+                }
+            }
+            game.performAction(action);
+        }
+        if (game.getPlayerInventory().length > 0) {
+            snapshot = game.getSnapshot();
+            int carried = 0;
+            for (int i = 0; i < snapshot.getRules().getNumItems(); i++) {
+                if (snapshot.isCarried(i)) {
+                    carried++;
+                }
+            }
+            assertEquals(game.getPlayerInventory().length, carried);
+        }
+    }
+
+    /*********************************************************************************************************
+     * Private helper methods
+     *********************************************************************************************************/
+
+    private MonteCarloAgent agent(int threads) {
+        MonteCarloAgent agent = new MonteCarloAgent(1 << 12);
+        agent.setThreads(threads);
+        agent.setThinkingTime(0);
+        agent.setRolloutsPerDecision(300);
+        agent.setSeed(42L);
+        return agent;
+    }
+
+    private void play(Agent agent, GameSnapshot state) {
+        for (int step = 0; step < 100 && state.getState() == GameState.PLAYING; step++) {
+            int action = agent.chooseAction(state);
+            assertTrue(action >= 0);
+            assertTrue(state.describe(action), state.apply(action));
+        }
+    }
+}
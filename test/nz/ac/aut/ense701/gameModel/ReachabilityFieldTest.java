@@ -0,0 +1,214 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * The test class ReachabilityFieldTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class ReachabilityFieldTest extends junit.framework.TestCase
+{
+    Island island;
+    ReachabilityField field;
+
+    /**
+     * Default constructor for test class ReachabilityFieldTest
+     */
+    public ReachabilityFieldTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Island under test, S = sand, ^ = scrub, ~ = water:
+     *   S S S S S
+     *   S ^ ^ ^ S
+     *   S ^ ^ ^ S
+     *   ~ ~ ~ ~ ~
+     *   ~ ~ ~ ~ S
+     */
+    @Override
+    protected void setUp()
+    {
+        island = new Island(5, 5);
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 5; col++) {
+                boolean edge = row == 0 || col == 0 || col == 4;
+                island.setTerrain(new Position(island, row, col), edge ? Terrain.SAND : Terrain.SCRUB);
+            }
+        }
+        island.setTerrain(new Position(island, 4, 4), Terrain.SAND);
+        field = new ReachabilityField(island);
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        island = null;
+        field = null;
+    }
+
+    @Test
+    public void testBudgetLimitsReach() {
+        field.update(0, 0, 4.0, 1.0);
+        assertTrue(field.isReachable(0, 0));
+        assertTrue(field.isReachable(0, 4));
+        assertEquals(4.0, field.getDistance(0, 4), 1e-9);
+        assertTrue("One sand then one scrub", field.isReachable(1, 1));
+        assertFalse("Scrub costs more than the sand around it", field.isReachable(1, 2));
+        assertFalse(field.isReachable(2, 4));
+        assertEquals(Double.POSITIVE_INFINITY, field.getDistance(2, 4), 0.0);
+    }
+
+    @Test
+    public void testLoadShrinksReach() {
+        field.update(0, 0, 4.0, 1.0);
+        assertTrue(field.isReachable(0, 4));
+        field.update(0, 0, 4.0, 2.0);
+        assertTrue(field.isReachable(0, 2));
+        assertFalse(field.isReachable(0, 3));
+    }
+
+    @Test
+    public void testLessStaminaDoesNotSearchAgain() {
+        field.update(0, 0, 20.0, 1.0);
+        int settled = field.getSettledCount();
+        field.update(0, 0, 2.0, 1.0);
+        assertEquals(settled, field.getSettledCount());
+        assertTrue(field.isReachable(0, 2));
+        assertFalse(field.isReachable(0, 3));
+    }
+
+    @Test
+    public void testMoreStaminaCarriesOnSearch() {
+        field.update(0, 0, 2.0, 1.0);
+        int settled = field.getSettledCount();
+        field.update(0, 0, 6.0, 1.0);
+        assertTrue(field.getSettledCount() > settled);
+        assertTrue(field.isReachable(2, 4));
+    }
+
+    @Test
+    public void testNoStaminaReachesNothing() {
+        field.update(0, 0, -1.0, 1.0);
+        assertFalse(field.isReachable(0, 0));
+        field.update(0, 0, 0.0, 1.0);
+        assertTrue("The player can always stay put", field.isReachable(0, 0));
+        assertFalse(field.isReachable(0, 1));
+    }
+
+    @Test
+    public void testMatchesPlayerMoves() {
+        Player player = new Player(new Position(island, 2, 0), "River Song", 7.0, 10.0, 5.0);
+        assertTrue(player.collect(new Food(Position.NOT_ON_ISLAND, "Rock cake", "Heavy", 5.0, 1.0, 1.0)));
+        field.update(player);
+        RoutePlanner planner = new RoutePlanner(island);
+        planner.setAvoidWater(false);
+        for (int row = 0; row < island.getNumRows(); row++) {
+            for (int col = 0; col < island.getNumColumns(); col++) {
+                planner.planRoute(player.getPosition(), new Position(island, row, col), player);
+                assertEquals("Square " + row + "," + col,
+                        planner.getRouteCost() <= player.getStaminaLevel(), field.isReachable(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchFreshField() {
+        Random random = new Random(7);
+        Terrain[] terrains = Terrain.values();
+        int size = 15;
+        Island randomIsland = new Island(size, size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                randomIsland.setTerrain(new Position(randomIsland, row, col),
+                        terrains[random.nextInt(terrains.length)]);
+            }
+        }
+        ReachabilityField incremental = new ReachabilityField(randomIsland);
+        int row = size / 2;
+        int col = size / 2;
+        for (int step = 0; step < 200; step++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    row = random.nextInt(size);
+                    col = random.nextInt(size);
+                    break;
+                default:
+                    break;
+            }
+            double stamina = random.nextDouble() * 30.0;
+            double factor = 1.0 + random.nextInt(3) * 0.5;
+            incremental.update(row, col, stamina, factor);
+            ReachabilityField fresh = new ReachabilityField(randomIsland);
+            fresh.update(row, col, stamina, factor);
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    assertEquals(fresh.isReachable(r, c), incremental.isReachable(r, c));
+                    assertEquals(fresh.getDistance(r, c), incremental.getDistance(r, c), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStepsRepairFieldLikeFreshField() {
+        Random random = new Random(11);
+        Terrain[] terrains = Terrain.values();
+        int size = 20;
+        Island randomIsland = new Island(size, size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                randomIsland.setTerrain(new Position(randomIsland, row, col),
+                        terrains[random.nextInt(terrains.length)]);
+            }
+        }
+        ReachabilityField incremental = new ReachabilityField(randomIsland);
+        int row = size / 2;
+        int col = size / 2;
+        double stamina = 60.0;
+        for (int step = 0; step < 300; step++) {
+            int[][] moves = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+            int[] move = moves[random.nextInt(moves.length)];
+            int newRow = row + move[0];
+            int newCol = col + move[1];
+            if (newRow >= 0 && newRow < size && newCol >= 0 && newCol < size) {
+                row = newRow;
+                col = newCol;
+                stamina -= randomIsland.getTerrain(row, col).getDifficulty();
+            }
+            if (stamina < 5.0) {
+                stamina = 60.0;
+            }
+            incremental.update(row, col, stamina, 1.0);
+            ReachabilityField fresh = new ReachabilityField(randomIsland);
+            fresh.update(row, col, stamina, 1.0);
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    assertEquals(fresh.isReachable(r, c), incremental.isReachable(r, c));
+                    assertEquals(fresh.getDistance(r, c), incremental.getDistance(r, c), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWorkDoesNotGrowWithIsland() {
+        Island large = new Island(200, 200);
+        ReachabilityField largeField = new ReachabilityField(large);
+        largeField.update(100, 100, 10.0, 1.0);
+        int settled = largeField.getSettledCount();
+        assertTrue("Only squares within the budget are searched: " + settled, settled < 300);
+        largeField.update(101, 100, 9.0, 1.0);
+        assertTrue(largeField.getSettledCount() < 300);
+    }
+}
@@ -0,0 +1,195 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * The test class RoutePlannerTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class RoutePlannerTest extends junit.framework.TestCase
+{
+    Island island;
+    Player player;
+    RoutePlanner planner;
+
+    /**
+     * Default constructor for test class RoutePlannerTest
+     */
+    public RoutePlannerTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Island under test, S = sand, ^ = scrub:
+     *   S S S S S
+     *   S ^ ^ ^ S
+     *   S ^ ^ ^ S
+     *   ~ ~ ~ ~ ~
+     *   ~ ~ ~ ~ S
+     */
+    @Override
+    protected void setUp()
+    {
+        island = new Island(5, 5);
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 5; col++) {
+                boolean edge = row == 0 || col == 0 || col == 4;
+                island.setTerrain(new Position(island, row, col), edge ? Terrain.SAND : Terrain.SCRUB);
+            }
+        }
+        island.setTerrain(new Position(island, 4, 4), Terrain.SAND);
+        player = new Player(new Position(island, 2, 0), "River Song", 100.0, 10.0, 5.0);
+        planner = new RoutePlanner(island);
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        island = null;
+        player = null;
+        planner = null;
+    }
+
+    @Test
+    public void testRouteGoesAroundDifficultTerrain() {
+        Position[] route = planner.planRoute(player.getPosition(), new Position(island, 2, 4), player);
+        assertNotNull(route);
+        assertEquals("Sand detour is 8 moves", 8, route.length);
+        assertEquals(8.0, planner.getRouteCost(), 1e-9);
+        assertEquals(0, route[1].getRow());
+        assertEquals(2, route[route.length - 1].getRow());
+        assertEquals(4, route[route.length - 1].getColumn());
+    }
+
+    @Test
+    public void testRouteCostIncludesBackpackLoad() {
+        assertTrue(player.collect(new Food(Position.NOT_ON_ISLAND, "Rock cake", "Heavy", 5.0, 1.0, 1.0)));
+        planner.planRoute(player.getPosition(), new Position(island, 2, 4), player);
+        assertEquals(12.0, planner.getRouteCost(), 1e-9);
+    }
+
+    @Test
+    public void testRouteCostMatchesPlayerMoves() {
+        Position[] route = planner.planRoute(player.getPosition(), new Position(island, 1, 2), player);
+        double staminaBefore = player.getStaminaLevel();
+        for (Position position : route) {
+            player.moveToPosition(position, island.getTerrain(position));
+        }
+        assertEquals(planner.getRouteCost(), staminaBefore - player.getStaminaLevel(), 1e-9);
+    }
+
+    @Test
+    public void testSamePositionIsEmptyRoute() {
+        Position[] route = planner.planRoute(player.getPosition(), player.getPosition(), player);
+        assertEquals(0, route.length);
+        assertEquals(0.0, planner.getRouteCost(), 0.0);
+    }
+
+    @Test
+    public void testWaterIsAvoided() {
+        assertNull(planner.planRoute(player.getPosition(), new Position(island, 3, 0), player));
+        assertNull("Sand beyond the water is unreachable",
+                planner.planRoute(player.getPosition(), new Position(island, 4, 4), player));
+        assertEquals(Double.POSITIVE_INFINITY, planner.getRouteCost(), 0.0);
+    }
+
+    @Test
+    public void testWaterCanBeAllowed() {
+        planner.setAvoidWater(false);
+        Position[] route = planner.planRoute(player.getPosition(), new Position(island, 4, 4), player);
+        assertNotNull(route);
+        assertEquals("Sand detour then one square of water", 10, route.length);
+        assertEquals(13.0, planner.getRouteCost(), 1e-9);
+    }
+
+    @Test
+    public void testMatchesExhaustiveSearchOnRandomIslands() {
+        Random random = new Random(42);
+        Terrain[] terrains = Terrain.values();
+        for (int trial = 0; trial < 20; trial++) {
+            int size = 12;
+            Island randomIsland = new Island(size, size);
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    randomIsland.setTerrain(new Position(randomIsland, row, col),
+                            terrains[random.nextInt(terrains.length)]);
+                }
+            }
+            RoutePlanner randomPlanner = new RoutePlanner(randomIsland);
+            randomPlanner.setAvoidWater(false);
+            Player walker = new Player(new Position(randomIsland, 0, 0), "Walker", 100.0, 10.0, 5.0);
+            double[] expected = relaxAll(randomIsland);
+            for (int cell = 1; cell < size * size; cell++) {
+                randomPlanner.planRoute(walker.getPosition(),
+                        new Position(randomIsland, cell / size, cell % size), walker);
+                assertEquals(expected[cell], randomPlanner.getRouteCost(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testLandmarksMatchExhaustiveSearch() {
+        Random random = new Random(7);
+        Terrain[] terrains = Terrain.values();
+        // large enough for the planner to use landmarks
+        int size = 70;
+        Island randomIsland = new Island(size, size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                randomIsland.setTerrain(new Position(randomIsland, row, col),
+                        terrains[random.nextInt(terrains.length)]);
+            }
+        }
+        RoutePlanner randomPlanner = new RoutePlanner(randomIsland);
+        randomPlanner.setAvoidWater(false);
+        Player walker = new Player(new Position(randomIsland, 0, 0), "Walker", 100.0, 10.0, 5.0);
+        double[] expected = relaxAll(randomIsland);
+        for (int query = 0; query < 200; query++) {
+            int cell = 1 + random.nextInt(size * size - 1);
+            randomPlanner.planRoute(walker.getPosition(),
+                    new Position(randomIsland, cell / size, cell % size), walker);
+            assertEquals(expected[cell], randomPlanner.getRouteCost(), 1e-9);
+        }
+    }
+
+    /**
+     * Bellman-Ford from 0,0: slow but obviously right.
+     */
+    private double[] relaxAll(Island randomIsland) {
+        int size = randomIsland.getNumRows();
+        double[] cost = new double[size * size];
+        java.util.Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        cost[0] = 0.0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int cell = 0; cell < cost.length; cell++) {
+                int row = cell / size;
+                int col = cell % size;
+                int[][] neighbours = {{row - 1, col}, {row + 1, col}, {row, col - 1}, {row, col + 1}};
+                for (int[] n : neighbours) {
+                    if (n[0] < 0 || n[1] < 0 || n[0] >= size || n[1] >= size) {
+                        continue;
+                    }
+                    int from = n[0] * size + n[1];
+                    double step = randomIsland.getTerrain(new Position(randomIsland, row, col)).getDifficulty();
+                    if (cost[from] + step < cost[cell]) {
+                        cost[cell] = cost[from] + step;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return cost;
+    }
+}
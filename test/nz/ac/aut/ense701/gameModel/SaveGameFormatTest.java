@@ -0,0 +1,227 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Test;
+
+/**
+ * The test class SaveGameFormatTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class SaveGameFormatTest extends junit.framework.TestCase
+{
+    Game game;
+    File saveFile;
+
+    /**
+     * Default constructor for test class SaveGameFormatTest
+     */
+    public SaveGameFormatTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        game = new Game();
+        saveFile = File.createTempFile("kiwi", ".sav");
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        saveFile.delete();
+        game = null;
+    }
+
+    @Test
+    public void testVarIntRoundTrip() throws IOException {
+        int[] values = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : values) {
+            SaveGameFormat.writeVarInt(out, value);
+        }
+        assertEquals("Small values take one byte", 1, sizeOf(127));
+        assertEquals(2, sizeOf(128));
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int value : values) {
+            assertEquals(value, SaveGameFormat.readVarInt(in));
+        }
+    }
+
+    @Test
+    public void testSaveAndLoadUncompressed() {
+        playSomeMoves();
+        assertTrue(game.saveGame(saveFile.getPath(), false));
+        checkLoadedGameMatches();
+    }
+
+    @Test
+    public void testSaveAndLoadCompressed() {
+        playSomeMoves();
+        assertTrue(game.saveGame(saveFile.getPath(), true));
+        checkLoadedGameMatches();
+    }
+
+    @Test
+    public void testLoadKeepsBackpackAndBrokenTrap() {
+        Tool trap = new Tool(Position.NOT_ON_ISLAND, "Trap", "A trap", 1.0, 1.0);
+        trap.setBroken();
+        assertTrue(game.getPlayer().collect(trap));
+        assertTrue(game.saveGame(saveFile.getPath(), true));
+
+        Game loaded = new Game();
+        assertTrue(loaded.loadGame(saveFile.getPath()));
+        assertTrue("Trap should be in backpack", loaded.getPlayer().hasTrap());
+        assertTrue("Trap should still be broken", loaded.getPlayer().getTrap().isBroken());
+    }
+
+    @Test
+    public void testLoadRejectsOtherFiles() throws IOException {
+        java.io.FileOutputStream out = new java.io.FileOutputStream(saveFile);
+        out.write("10, 10,".getBytes("US-ASCII"));
+        out.close();
+        String mapBefore = game.getPrevMap();
+        assertFalse(game.loadGame(saveFile.getPath()));
+        assertEquals("Game should be unchanged", mapBefore, game.getPrevMap());
+    }
+
+    @Test
+    public void testLoadRejectsBadState() throws IOException {
+        writeSave(GameState.values().length, 0, 0, 0);
+        String mapBefore = game.getPrevMap();
+        assertFalse(game.loadGame(saveFile.getPath()));
+        assertEquals("Game should be unchanged", mapBefore, game.getPrevMap());
+    }
+
+    @Test
+    public void testLoadRejectsPlayerOffIsland() throws IOException {
+        writeSave(0, 2, 0, 0);
+        assertFalse(game.loadGame(saveFile.getPath()));
+        writeSave(0, 0, 3, 0);
+        assertFalse(game.loadGame(saveFile.getPath()));
+        writeSave(0, 1, 2, 0);
+        assertTrue(game.loadGame(saveFile.getPath()));
+        assertEquals(2, game.getNumRows());
+        assertEquals(3, game.getNumColumns());
+    }
+
+    @Test
+    public void testLoadRejectsOccupantOffIsland() throws IOException {
+        writeSave(0, 0, 0, 6);
+        assertFalse(game.loadGame(saveFile.getPath()));
+        writeSave(0, 0, 0, 5);
+        assertTrue(game.loadGame(saveFile.getPath()));
+        assertEquals(1, game.getGridOccupants(1, 2).length);
+    }
+
+    /*********************************************************************************************************
+     * Private helper methods
+     *********************************************************************************************************/
+
+    private int sizeOf(int value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            SaveGameFormat.writeVarInt(new DataOutputStream(bytes), value);
+            return bytes.size();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes an uncompressed save of a 2x3 island of sand with the player
+     * at a square and one kiwi, the given distance from the first square.
+     */
+    private void writeSave(int state, int playerRow, int playerColumn, int kiwiDistance) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("KISV");
+        out.writeByte(SaveGameFormat.VERSION);
+        out.writeByte(0);
+        SaveGameFormat.writeVarInt(out, 2);
+        SaveGameFormat.writeVarInt(out, 3);
+        out.write(new byte[3 + 1 + 1]);
+        out.writeByte(state);
+        for (int counter = 0; counter < 4; counter++) {
+            SaveGameFormat.writeVarInt(out, 0);
+        }
+        SaveGameFormat.writeVarInt(out, 0);
+        out.writeUTF("maps/IslandData.txt");
+        SaveGameFormat.writeVarInt(out, 0);
+        out.writeUTF("River Song");
+        SaveGameFormat.writeVarInt(out, playerRow);
+        SaveGameFormat.writeVarInt(out, playerColumn);
+        out.writeDouble(100);
+        out.writeDouble(100);
+        out.writeDouble(10);
+        out.writeDouble(5);
+        out.writeBoolean(true);
+        SaveGameFormat.writeVarInt(out, 1);
+        SaveGameFormat.writeVarInt(out, kiwiDistance);
+        out.writeByte('K');
+        SaveGameFormat.writeVarInt(out, 0);
+        out.writeUTF("Kiwi");
+        SaveGameFormat.writeVarInt(out, 0);
+        out.writeUTF("A little spotted kiwi");
+        out.writeBoolean(false);
+        SaveGameFormat.writeVarInt(out, 0);
+        out.close();
+        java.io.FileOutputStream file = new java.io.FileOutputStream(saveFile);
+        file.write(bytes.toByteArray());
+        file.close();
+    }
+
+    private void playSomeMoves() {
+        for (MoveDirection direction : MoveDirection.values()) {
+            game.playerMove(direction);
+        }
+        for (Occupant occupant : game.getOccupantsPlayerPosition()) {
+            game.collectItem(occupant);
+        }
+    }
+
+    private void checkLoadedGameMatches() {
+        Game loaded = new Game();
+        assertTrue(loaded.loadGame(saveFile.getPath()));
+
+        assertEquals(game.getNumRows(), loaded.getNumRows());
+        assertEquals(game.getNumColumns(), loaded.getNumColumns());
+        for (int row = 0; row < game.getNumRows(); row++) {
+            for (int col = 0; col < game.getNumColumns(); col++) {
+                assertEquals(game.getTerrain(row, col), loaded.getTerrain(row, col));
+                assertEquals(game.isExplored(row, col), loaded.isExplored(row, col));
+                assertEquals(game.isVisible(row, col), loaded.isVisible(row, col));
+                assertEquals(game.hasPlayer(row, col), loaded.hasPlayer(row, col));
+                assertEquals(game.getOccupantStringRepresentation(row, col).length(),
+                        loaded.getOccupantStringRepresentation(row, col).length());
+            }
+        }
+        assertEquals(game.getPlayer().getStaminaLevel(), loaded.getPlayer().getStaminaLevel(), 0.0);
+        assertEquals(game.getPlayer().getCurrentBackpackWeight(),
+                loaded.getPlayer().getCurrentBackpackWeight(), 0.0);
+        assertEquals(game.getPlayerName(), loaded.getPlayerName());
+        assertEquals(game.getKiwiCount(), loaded.getKiwiCount());
+        assertEquals(game.getPredatorsRemaining(), loaded.getPredatorsRemaining());
+        assertEquals(game.getPrevMap(), loaded.getPrevMap());
+        assertEquals(game.getState(), loaded.getState());
+    }
+}
@@ -0,0 +1,260 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.MultiResolutionImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * The test class SpriteAtlasTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class SpriteAtlasTest extends junit.framework.TestCase
+{
+    Map<String, BufferedImage> pictures;
+    File file;
+
+    /**
+     * Default constructor for test class SpriteAtlasTest
+     */
+    public SpriteAtlasTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        pictures = new LinkedHashMap<String, BufferedImage>();
+        pictures.put("images/Red.jpg", picture(Color.RED, 2000, 1700));
+        pictures.put("images/Blue.jpg", picture(Color.BLUE, 50, 40));
+        file = File.createTempFile("sprites", ".bundle");
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void testPackedAtEverySize() throws IOException {
+        SpriteAtlas atlas = SpriteAtlas.pack(pictures);
+        assertEquals("[images/red.jpg, images/blue.jpg]", atlas.getNames().toString());
+        assertTrue(atlas.contains("IMAGES/RED.JPG"));
+        assertFalse(atlas.contains("images/Green.jpg"));
+        assertNull(atlas.getSprite("images/Green.jpg", SpriteAtlas.Size.GRID));
+        for (SpriteAtlas.Size size : SpriteAtlas.Size.values()) {
+            for (double scale : SpriteAtlas.SCALES) {
+                BufferedImage red = atlas.getSprite("images/Red.jpg", size, scale);
+                assertEquals(Math.round(size.getWidth() * scale), red.getWidth());
+                assertEquals(Math.round(size.getHeight() * scale), red.getHeight());
+                assertColour(Color.RED, red);
+                assertColour(Color.BLUE, atlas.getSprite("images/Blue.jpg", size, scale));
+            }
+        }
+        // the same size however large the pictures were
+        assertTrue(atlas.getPixels() <= 512 * 78);
+    }
+
+    @Test
+    public void testReadFromBundle() throws IOException {
+        SpriteAtlas packed = SpriteAtlas.pack(pictures);
+        SpriteAtlas atlas = SpriteAtlas.read(AssetBundle.read(bundle(packed, packed.getIndexBytes())));
+        assertEquals(packed.getNames(), atlas.getNames());
+        assertTrue(atlas.isLoaded(1));
+        assertFalse(atlas.isLoaded(1.5));
+        assertFalse(atlas.isLoaded(2));
+        BufferedImage blue = atlas.getSprite("images/Blue.jpg", SpriteAtlas.Size.DESCRIPTION, 1);
+        assertEquals(70, blue.getWidth());
+        assertColour(Color.BLUE, blue);
+        blue = atlas.getSprite("images/Blue.jpg", SpriteAtlas.Size.DESCRIPTION, 2);
+        assertEquals(140, blue.getWidth());
+        assertColour(Color.BLUE, blue);
+        assertTrue(atlas.isLoaded(2));
+    }
+
+    @Test
+    public void testBadIndex() throws IOException {
+        SpriteAtlas packed = SpriteAtlas.pack(pictures);
+        try {
+            SpriteAtlas.read(AssetBundle.read(bundle(packed, "images/Red.jpg\tgrid\t1\t0\t0\t21\n")));
+            fail("Index lines have seven fields");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 1"));
+        }
+        try {
+            SpriteAtlas.read(AssetBundle.read(bundle(packed, "images/Red.jpg\tgrid\t3\t0\t0\t21\t51\n")));
+            fail("There is no 3x page");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 1"));
+        }
+        try {
+            SpriteAtlas.read(AssetBundle.read(bundle(packed, "images/Red.jpg\tgrid\t1\t0\t0\t21\t51\n")));
+            fail("Sprites have a place on every page");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("no place at 1.5x"));
+        }
+        try {
+            SpriteAtlas.read(AssetBundle.read(bundle(packed, "images/Red.jpg\tgrid\t1\t500\t0\t21\t51\n"
+                    + "images/Red.jpg\tgrid\t1.5\t0\t0\t32\t77\n"
+                    + "images/Red.jpg\tgrid\t2\t0\t0\t42\t102\n")));
+            fail("Sprites are inside the atlas");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("outside sprites/atlas.png"));
+        }
+    }
+
+    @Test
+    public void testVariantChosenByScale() {
+        SpriteAtlas atlas = SpriteAtlas.pack(pictures);
+        MultiResolutionImage red = (MultiResolutionImage) atlas.getSprite("images/Red.jpg", SpriteAtlas.Size.GRID);
+        assertEquals(21, ((Image) red).getWidth(null));
+        assertEquals(21, red.getResolutionVariant(21, 51).getWidth(null));
+        assertEquals(21, red.getResolutionVariant(10, 25).getWidth(null));
+        // the next larger page, never one smaller than drawn
+        assertEquals(32, red.getResolutionVariant(25, 60).getWidth(null));
+        assertEquals(32, red.getResolutionVariant(32, 77).getWidth(null));
+        assertEquals(42, red.getResolutionVariant(42, 102).getWidth(null));
+        assertEquals(42, red.getResolutionVariant(84, 204).getWidth(null));
+        assertEquals(3, red.getResolutionVariants().size());
+    }
+
+    @Test
+    public void testDrawnFromPageForTransform() throws Exception {
+        SpriteAtlas packed = SpriteAtlas.pack(pictures);
+        SpriteAtlas atlas = SpriteAtlas.read(AssetBundle.read(bundle(packed, packed.getIndexBytes())));
+        final CountDownLatch loaded = new CountDownLatch(1);
+        atlas.addListener(new SpriteAtlas.Listener() {
+            @Override
+            public void pageLoaded(double scale) {
+                if (scale == 2) {
+                    loaded.countDown();
+                }
+            }
+        });
+        Image sprite = atlas.getSprite("images/Red.jpg", SpriteAtlas.Size.DESCRIPTION);
+        MultiResolutionImage variants = (MultiResolutionImage) sprite;
+        assertEquals(1, variants.getResolutionVariants().size());
+        // painting does not wait for the 2x page, it is drawn from 1x until the page is read
+        assertEquals(70, variants.getResolutionVariant(140, 156).getWidth(null));
+        assertTrue(loaded.await(10, TimeUnit.SECONDS));
+        assertTrue(atlas.isLoaded(2));
+        assertFalse(atlas.isLoaded(1.5));
+        // 1.5x is drawn from 2x while the 1.5x page is read
+        assertEquals(140, variants.getResolutionVariant(105, 117).getWidth(null));
+
+        BufferedImage screen = new BufferedImage(140, 156, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        g.scale(2, 2);
+        g.drawImage(sprite, 0, 0, null);
+        g.dispose();
+        // the 2x view pixel for pixel, not the 1x view scaled up
+        BufferedImage page = atlas.getSprite("images/Red.jpg", SpriteAtlas.Size.DESCRIPTION, 2);
+        for (int y = 0; y < screen.getHeight(); y++) {
+            for (int x = 0; x < screen.getWidth(); x++) {
+                assertEquals(page.getRGB(x, y), screen.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testPagesDroppedOverBudget() throws IOException {
+        SpriteAtlas packed = SpriteAtlas.pack(pictures);
+        SpriteAtlas atlas = SpriteAtlas.read(AssetBundle.read(bundle(packed, packed.getIndexBytes())), 1);
+        atlas.prefetch(2);
+        assertTrue(atlas.isLoaded(2));
+        long twice = atlas.getLoadedBytes();
+        assertTrue(twice > 0);
+        atlas.prefetch(1.5);
+        assertTrue(atlas.isLoaded(1.5));
+        assertFalse(atlas.isLoaded(2));
+        assertTrue(atlas.getLoadedBytes() < twice);
+        // the 1x page is kept whatever the budget
+        assertTrue(atlas.isLoaded(1));
+        assertColour(Color.BLUE, atlas.getSprite("images/Blue.jpg", SpriteAtlas.Size.GRID, 2));
+        assertFalse(atlas.isLoaded(1.5));
+
+        atlas = SpriteAtlas.read(AssetBundle.read(bundle(packed, packed.getIndexBytes())), 1L << 30);
+        atlas.prefetch(2);
+        atlas.prefetch(1.5);
+        assertTrue(atlas.isLoaded(2));
+        assertTrue(atlas.isLoaded(1.5));
+    }
+
+    @Test
+    public void testGameImagesFromAtlas() throws IOException {
+        Image kiwi = Game.getImage("images/Kiwi.jpg");
+        assertSame(SpriteAtlas.getDefault().getSprite("images/Kiwi.jpg", SpriteAtlas.Size.DESCRIPTION), kiwi);
+        assertSame(kiwi, Game.getImage("Images/Kiwi.jpg"));
+        Image grid = SpriteAtlas.resize(kiwi, SpriteAtlas.Size.GRID);
+        assertSame(SpriteAtlas.getDefault().getSprite("images/Kiwi.jpg", SpriteAtlas.Size.GRID), grid);
+        assertSame(kiwi, SpriteAtlas.resize(grid, SpriteAtlas.Size.DESCRIPTION));
+        assertNull(SpriteAtlas.resize(null, SpriteAtlas.Size.GRID));
+        // images from elsewhere are scaled
+        Image other = SpriteAtlas.resize(picture(Color.RED, 10, 10), SpriteAtlas.Size.GRID);
+        assertEquals(21, other.getWidth(null));
+    }
+
+    /**
+     * Writes the pages of an atlas to the bundle file, with an index.
+     */
+    private File bundle(SpriteAtlas atlas, byte[] index) throws IOException {
+        Map<String, byte[]> assets = new HashMap<String, byte[]>();
+        for (double scale : SpriteAtlas.SCALES) {
+            assets.put(SpriteAtlas.getPageName(scale), atlas.getPageBytes(scale));
+        }
+        assets.put(SpriteAtlas.INDEX, index);
+        AssetBundle.write(assets, file);
+        return file;
+    }
+
+    private File bundle(SpriteAtlas atlas, String index) throws IOException {
+        return bundle(atlas, index.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A picture of one colour.
+     */
+    private static BufferedImage picture(Color colour, int width, int height) {
+        BufferedImage picture = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = picture.createGraphics();
+        g.setColor(colour);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return picture;
+    }
+
+    /**
+     * Checks the corners and middle of a sprite are a colour, so neighbouring
+     * sprites have not bled into it.
+     */
+    private static void assertColour(Color colour, BufferedImage sprite) {
+        int[][] points = {{0, 0}, {sprite.getWidth() - 1, 0}, {0, sprite.getHeight() - 1},
+            {sprite.getWidth() - 1, sprite.getHeight() - 1}, {sprite.getWidth() / 2, sprite.getHeight() / 2}};
+        for (int[] point : points) {
+            assertEquals(colour.getRGB(), sprite.getRGB(point[0], point[1]));
+        }
+    }
+}
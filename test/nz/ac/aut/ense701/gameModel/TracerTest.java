@@ -0,0 +1,127 @@
+package nz.ac.aut.ense701.gameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Test;
+
+/**
+ * The test class TracerTest.
+ *
+ * @author AS
+ * @version 1.0
+ */
+public class TracerTest extends junit.framework.TestCase
+{
+    File file;
+
+    /**
+     * Default constructor for test class TracerTest
+     */
+    public TracerTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Override
+    protected void setUp() throws IOException
+    {
+        file = File.createTempFile("kiwi", ".json");
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @Override
+    protected void tearDown()
+    {
+        Tracer.stop();
+        file.delete();
+    }
+
+    @Test
+    public void testNothingTracedWhenOff() throws IOException {
+        Tracer.start();
+        Tracer.stop();
+        Tracer.begin("off");
+        Tracer.end();
+        assertEquals(0, Tracer.dump(file));
+        assertFalse(read().contains("\"off\""));
+    }
+
+    @Test
+    public void testSpansNest() throws IOException {
+        Tracer.start();
+        Tracer.begin("outer");
+        Tracer.begin("inner", "say \"hi\"");
+        Tracer.end();
+        Tracer.end();
+        Tracer.stop();
+        assertEquals(2, Tracer.dump(file));
+        String json = read();
+        assertTrue(json, json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        // inner ends first, so it is written first
+        int inner = json.indexOf("{\"name\":\"inner\",\"cat\":\"kiwi\",\"ph\":\"X\"");
+        int outer = json.indexOf("{\"name\":\"outer\",\"cat\":\"kiwi\",\"ph\":\"X\"");
+        assertTrue(json, inner > 0 && outer > inner);
+        assertTrue(json, json.contains("\"args\":{\"detail\":\"say \\\"hi\\\"\"}"));
+        assertTrue(json, json.contains("\"name\":\"thread_name\""));
+    }
+
+    @Test
+    public void testSpansLeftOpenDropped() throws IOException {
+        Tracer.start();
+        Tracer.begin("left open");
+        Tracer.start();
+        Tracer.end();
+        Tracer.begin("traced");
+        Tracer.end();
+        Tracer.stop();
+        assertEquals(1, Tracer.dump(file));
+        assertFalse(read().contains("left open"));
+    }
+
+    @Test
+    public void testMoveTraced() throws IOException {
+        Game game = Game.withoutMap();
+        game.startGame("maps/IslandData.txt", Game.readMap("maps/IslandData.txt"));
+        Tracer.start();
+        game.playerMove(MoveDirection.WEST);
+        Tracer.stop();
+        assertEquals(4, Tracer.dump(file));
+        String json = read();
+        assertTrue(json, json.contains("\"name\":\"Game.playerMove\""));
+        assertTrue(json, json.contains("\"detail\":\"WEST\""));
+        assertTrue(json, json.contains("\"name\":\"Game.checkForHazard\""));
+        assertTrue(json, json.contains("\"name\":\"Game.updateGameState\""));
+        assertTrue(json, json.contains("\"name\":\"Game.notifyGameEventListeners\""));
+    }
+
+    @Test
+    public void testOnlyLatestSpansKept() throws IOException {
+        Tracer.start();
+        for (int i = 0; i < Tracer.CAPACITY + 10; i++) {
+            Tracer.begin("span " + i);
+            Tracer.end();
+        }
+        Tracer.stop();
+        assertEquals(Tracer.CAPACITY, Tracer.dump(file));
+        String json = read();
+        assertFalse(json.contains("\"span 9\""));
+        assertTrue(json.contains("\"span 10\""));
+    }
+
+    /**
+     * The trace written.
+     */
+    private String read() throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}